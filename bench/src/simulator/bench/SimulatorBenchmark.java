@@ -0,0 +1,70 @@
+package simulator.bench;
+
+import simulator.Constants;
+import simulator.Debug;
+import simulator.HeadlessGui;
+import simulator.Queue;
+import simulator.Simulator;
+
+/**
+ * Measures how fast the simulation engine runs. A number of warm-up runs is
+ * followed by measured runs of the same configuration, and the wall time and
+ * events per second of each measured run is printed.
+ */
+public class SimulatorBenchmark implements Constants {
+	/**
+	 * Runs one simulation without GUI or output.
+	 * 
+	 * @param params memory size, max CPU time, avg I/O time, simulation
+	 *            length and avg arrival interval.
+	 * @return The number of events processed.
+	 */
+	private static long runOnce(long[] params) {
+		Simulator.resetGlobalState();
+		Simulator simulator = new Simulator(new Queue("memory queue"),
+				new Queue("CPU queue"), new Queue("I/O queue"), params[0],
+				params[1], params[2], params[3], params[4], new HeadlessGui());
+		simulator.setPrintReport(false);
+		simulator.simulate();
+		return simulator.getEventsProcessed();
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param args number of warm-up runs and measured runs, followed by the
+	 *            simulator parameters in the usual order. Missing values are
+	 *            taken from the testing parameters.
+	 */
+	public static void main(String args[]) {
+		long warmups = args.length > 0 ? Long.parseLong(args[0]) : 5;
+		long runs = args.length > 1 ? Long.parseLong(args[1]) : 10;
+		long[] params = { TESTING_MEMORY_SIZSE, TESTING_CPU_TIME,
+				TESTING_IO_TIME, TESTING_SIMULATION_LENGTH * 40,
+				TESTING_AVG_ARRIVAL_INTERVAL };
+		for (int i = 2; i < args.length && i - 2 < params.length; i++) {
+			params[i - 2] = Long.parseLong(args[i]);
+		}
+
+		Debug.setVerbose(false);
+		for (long i = 0; i < warmups; i++) {
+			runOnce(params);
+		}
+
+		double totalMillis = 0;
+		long totalEvents = 0;
+		for (long i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			long events = runOnce(params);
+			double millis = (System.nanoTime() - start) / 1e6;
+			totalMillis += millis;
+			totalEvents += events;
+			System.out.println(String.format("Run %3d: %10.2f ms %12d events %14.0f events/s",
+					i + 1, millis, events, events / millis * 1000));
+		}
+		if (runs > 0) {
+			System.out.println(String.format("Average: %10.2f ms %12d events %14.0f events/s",
+					totalMillis / runs, totalEvents / runs, totalEvents / totalMillis * 1000));
+		}
+	}
+}
@@ -0,0 +1,21 @@
+@echo off
+rem Builds the simulator as three jars in build\:
+rem   simulator-core.jar   engine, model and statistics, no AWT (java -jar)
+rem   simulator-gui.jar    the Swing GUI, needs simulator-core.jar
+rem   simulator-bench.jar  the engine benchmark, needs simulator-core.jar
+rem and a class data sharing archive that makes the headless jar start faster.
+
+if exist build rmdir /s /q build
+mkdir build\classes\core build\classes\gui build\classes\bench
+
+rem Inline string concatenation avoids bootstrapping invokedynamic at startup
+javac -XDstringConcat=inline -d build\classes\core core\src\simulator\*.java || exit /b 1
+javac -cp build\classes\core -d build\classes\gui gui\src\simulator\gui\*.java || exit /b 1
+javac -cp build\classes\core -d build\classes\bench bench\src\simulator\bench\*.java || exit /b 1
+
+jar cfe build\simulator-core.jar simulator.Simulator -C build\classes\core .
+jar cfm build\simulator-gui.jar gui\MANIFEST.MF -C build\classes\gui .
+jar cfm build\simulator-bench.jar bench\MANIFEST.MF -C build\classes\bench .
+
+rem Dump the classes used by a short headless run into a shared archive
+java -XX:ArchiveClassesAtExit=build\simulator-core.jsa -jar build\simulator-core.jar 2048 50 3000 1000 1000 > nul
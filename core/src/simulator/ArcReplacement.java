@@ -0,0 +1,174 @@
+package simulator;
+
+import java.util.*;
+
+/**
+ * Adaptive Replacement Cache (Megiddo and Modha). Resident pages are split
+ * between T1, pages referenced once since they were read in, and T2, pages
+ * referenced again. The ghost lists B1 and B2 remember the keys of pages
+ * recently evicted from T1 and T2. A fault on a ghost shows which list was
+ * too short, and moves the target size p of T1 towards it.
+ * 
+ * T1 and T2 are linked lists threaded through arrays indexed by frame, and
+ * the ghost lists are insertion ordered hash sets, so every operation takes
+ * constant time.
+ */
+public class ArcReplacement implements PageReplacement {
+	/** The number of frames */
+	private int c;
+	/** The target size of T1 */
+	private double p = 0;
+	/** Previous and next frame; indexes c and c + 1 head T1 and T2 */
+	private int[] prev, next;
+	/** The list each resident frame is in, T1 or T2 */
+	private int[] list;
+	/** The key of the page in each frame */
+	private long[] keys;
+	/** The sizes of T1 and T2 */
+	private int t1Size = 0, t2Size = 0;
+	/** The ghost lists, least recently evicted first */
+	private LinkedHashSet<Long> b1 = new LinkedHashSet<Long>();
+	private LinkedHashSet<Long> b2 = new LinkedHashSet<Long>();
+	/** The ghost list the current fault hit, 0 if none */
+	private int ghost = 0;
+
+	private static final int T1 = 0;
+	private static final int T2 = 1;
+
+	/**
+	 * Creates the policy for a memory of the given number of frames.
+	 * 
+	 * @param frames The number of frames.
+	 */
+	public ArcReplacement(int frames) {
+		c = frames;
+		prev = new int[frames + 2];
+		next = new int[frames + 2];
+		list = new int[frames];
+		keys = new long[frames];
+		for (int h = c; h < c + 2; h++) {
+			prev[h] = h;
+			next[h] = h;
+		}
+	}
+
+	/**
+	 * A page referenced again moves to the most recently used end of T2.
+	 * 
+	 * @param frame The frame holding the page.
+	 */
+	public void referenced(int frame) {
+		unlink(frame);
+		append(frame, T2);
+	}
+
+	/**
+	 * Adapts the target size of T1 if the page is in a ghost list.
+	 * 
+	 * @param key The key of the page.
+	 */
+	public void missed(long key) {
+		if (b1.contains(key)) {
+			ghost = 1;
+			p = Math.min(c, p + Math.max((double) b2.size() / b1.size(), 1));
+		} else if (b2.contains(key)) {
+			ghost = 2;
+			p = Math.max(0, p - Math.max((double) b1.size() / b2.size(), 1));
+		} else {
+			ghost = 0;
+			if (t1Size + b1.size() >= c) {
+				if (t1Size < c) {
+					removeOldest(b1);
+				} else {
+					// T1 fills the memory, its oldest page is dropped without a ghost
+					return;
+				}
+			} else if (t1Size + t2Size + b1.size() + b2.size() >= 2 * c) {
+				removeOldest(b2);
+			}
+		}
+	}
+
+	/**
+	 * Evicts from T1 if it is above its target size, otherwise from T2, and
+	 * remembers the page in the matching ghost list.
+	 * 
+	 * @return The frame evicted.
+	 */
+	public int victim() {
+		int frame;
+		if (t1Size > 0 && (t2Size == 0 || t1Size > p || (ghost == 2 && t1Size == (int) p))) {
+			frame = next[c];
+			if (t1Size + b1.size() < c || ghost != 0) {
+				b1.add(keys[frame]);
+			}
+		} else {
+			frame = next[c + 1];
+			b2.add(keys[frame]);
+		}
+		unlink(frame);
+		return frame;
+	}
+
+	public void loaded(int frame, long key) {
+		keys[frame] = key;
+		if (ghost != 0) {
+			b1.remove(key);
+			b2.remove(key);
+			append(frame, T2);
+		} else {
+			append(frame, T1);
+		}
+		ghost = 0;
+		// Frames freed by ending processes can let the ghosts outgrow the directory
+		while (t1Size + b1.size() > c && !b1.isEmpty()) {
+			removeOldest(b1);
+		}
+		while (t1Size + t2Size + b1.size() + b2.size() > 2 * c && !b2.isEmpty()) {
+			removeOldest(b2);
+		}
+	}
+
+	public void removed(int frame) {
+		unlink(frame);
+	}
+
+	/**
+	 * Returns the current target size of T1.
+	 * 
+	 * @return The target size, in frames.
+	 */
+	public double getTarget() {
+		return p;
+	}
+
+	private void append(int frame, int l) {
+		int h = c + l;
+		list[frame] = l;
+		prev[frame] = prev[h];
+		next[frame] = h;
+		next[prev[h]] = frame;
+		prev[h] = frame;
+		if (l == T1) {
+			t1Size++;
+		} else {
+			t2Size++;
+		}
+	}
+
+	private void unlink(int frame) {
+		next[prev[frame]] = next[frame];
+		prev[next[frame]] = prev[frame];
+		if (list[frame] == T1) {
+			t1Size--;
+		} else {
+			t2Size--;
+		}
+	}
+
+	private static void removeOldest(LinkedHashSet<Long> ghosts) {
+		Iterator<Long> i = ghosts.iterator();
+		i.next();
+		i.remove();
+	}
+}
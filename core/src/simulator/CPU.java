@@ -0,0 +1,171 @@
+package simulator;
+
+/**
+ * This class implements functionality associated with the CPU device of the
+ * simulated system.
+ */
+public class CPU implements Constants {
+	/** */
+	private Queue queue;
+	/** */
+	private Process cp;
+	/** */
+	private Gui gui;
+
+	/** Records the processes served, null if not recorded */
+	private GanttTimeline timeline;
+	private int track;
+	/** The time the current process got the CPU */
+	private long startTime;
+
+	/** Statistics of this CPU, the totals over all CPUs go to {@link Statistics} */
+	private long activeTime = 0;
+
+	/**
+	 * 
+	 * @param cpuQueue
+	 * @param gui
+	 */
+	public CPU(Queue cpuQueue, Gui gui) {
+
+		this.queue = cpuQueue;
+		this.gui = gui;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public Process startNextProcess() {
+		return startProcess(getNextProcess());
+	}
+
+	/**
+	 * Gives the CPU to a process that is not in the queue, such as a
+	 * real-time job.
+	 * 
+	 * @param p The process, or {@code null} to leave the CPU idle.
+	 * @return The process.
+	 */
+	public Process startProcess(Process p) {
+
+		this.cp = p;
+		this.gui.setCpuActive(cp); // gui
+		this.startTime = SystemClock.getTime();
+
+		return this.cp;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public Process stopCurrentProcess() {
+
+		this.gui.setCpuActive(null); // gui
+		if (this.timeline != null && this.cp != null) {
+			this.timeline.record(this.track, this.cp.getProcessId(), this.startTime, SystemClock.getTime());
+		}
+
+		Process tmp = this.cp;
+		this.cp = null;
+
+		return tmp;
+	}
+
+	/**
+	 * Records the processes served in a timeline.
+	 * 
+	 * @param timeline The timeline, or {@code null} to record nothing.
+	 * @param track The track of the CPU in the timeline.
+	 */
+	public void setTimeline(GanttTimeline timeline, int track) {
+		this.timeline = timeline;
+		this.track = track;
+	}
+
+	/**
+	 * 
+	 * @param p
+	 */
+	public void insertProcess(Process p) {
+		queue.insert(p);
+	}
+
+	/**
+	 * Takes a process out of the queue, to give it the CPU ahead of the
+	 * others.
+	 * 
+	 * @param p The process.
+	 * @return {@code true} if the process was in the queue.
+	 */
+	public boolean removeProcess(Process p) {
+		return queue.remove(p);
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	public Process getNextProcess() {
+		if (queue.isEmpty()) {
+			return null;
+		}
+
+		return (Process) queue.removeNext();
+	}
+
+	/**
+	 * Check if CPU is idle
+	 * 
+	 * @return {@code true} ... {@code false} otherwise.
+	 */
+	public boolean isIdle() {
+		return (this.cp == null);
+	}
+
+	/**
+	 * Returns the process currently using the CPU.
+	 * 
+	 * @return The active process, or {@code null} if idle.
+	 */
+	public Process getActiveProcess() {
+		return this.cp;
+	}
+
+	/**
+	 * Returns the number of processes waiting in the queue.
+	 * 
+	 * @return The queue length.
+	 */
+	public int getQueueLength() {
+		return queue.getQueueLength();
+	}
+
+	/**
+	 * Returns the utilization of this CPU, including switch overhead.
+	 * 
+	 * @return The percentage of time the CPU was busy.
+	 */
+	public float getUtilization() {
+		return SystemClock.getTime() > 0 ? (float) 100 * activeTime / SystemClock.getTime() : 0;
+	}
+
+	/**
+	 * 
+	 * @param timePassed
+	 */
+	public void timePassed(long timePassed) {
+		// register CPU idle time
+		if (cp == null) {
+
+			Statistics.cpuIdleTime(timePassed);
+		} else {
+			activeTime += timePassed;
+		}
+
+		Statistics.cpuQueueLengthTime(queue.getQueueLength(), timePassed);
+		Statistics.cpuQueueLength(queue.getQueueLength());
+	}
+
+}
\ No newline at end of file
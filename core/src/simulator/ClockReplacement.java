@@ -0,0 +1,53 @@
+package simulator;
+
+/**
+ * The second chance (CLOCK) approximation of LRU. A hand sweeps over the
+ * frames, clearing reference bits, and evicts the first frame whose bit is
+ * already clear.
+ */
+public class ClockReplacement implements PageReplacement {
+	/** The reference bit of each frame */
+	private boolean[] referenced;
+	/** Whether each frame holds a page */
+	private boolean[] used;
+	/** The frame the hand points at */
+	private int hand = 0;
+
+	/**
+	 * Creates the policy for a memory of the given number of frames.
+	 * 
+	 * @param frames The number of frames.
+	 */
+	public ClockReplacement(int frames) {
+		referenced = new boolean[frames];
+		used = new boolean[frames];
+	}
+
+	public void referenced(int frame) {
+		referenced[frame] = true;
+	}
+
+	public void missed(long key) {
+	}
+
+	public int victim() {
+		while (!used[hand] || referenced[hand]) {
+			referenced[hand] = false;
+			hand = (hand + 1) % used.length;
+		}
+		int frame = hand;
+		used[frame] = false;
+		hand = (hand + 1) % used.length;
+		return frame;
+	}
+
+	public void loaded(int frame, long key) {
+		used[frame] = true;
+		referenced[frame] = true;
+	}
+
+	public void removed(int frame) {
+		used[frame] = false;
+		referenced[frame] = false;
+	}
+}
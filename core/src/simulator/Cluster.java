@@ -0,0 +1,346 @@
+package simulator;
+
+import java.util.*;
+
+/**
+ * A fleet of machines, each simulated by its own {@link Simulator} with its
+ * own memory, CPU and I/O devices, behind a dispatcher that sends every
+ * arriving process to one of them. The dispatch policies are:
+ * <ul>
+ * <li>{@link #RANDOM}: a node drawn at random.</li>
+ * <li>{@link #ROUND_ROBIN}: the nodes in turn.</li>
+ * <li>{@link #JSQ}: the node with the fewest processes, join the shortest
+ * queue.</li>
+ * <li>{@link #POWER_OF_TWO}: the node with fewer processes of two drawn at
+ * random, which comes close to JSQ while only looking at two nodes.</li>
+ * <li>{@link #MEMORY_AWARE}: the node with the most memory not taken by its
+ * processes, waiting or admitted.</li>
+ * </ul>
+ * 
+ * The nodes share the clock and the {@link Statistics}, which therefore
+ * hold the totals over the fleet; the cluster keeps the statistics of each
+ * node. To scale to thousands of nodes, every choice and every event costs
+ * O(log n) in the number of nodes: the nodes are kept in heaps by the time
+ * of their next event, by their number of processes and by their free
+ * memory, and a node is only touched when one of its own events is due.
+ */
+public class Cluster {
+	/** Dispatch policies */
+	public static final int RANDOM = 0;
+	public static final int ROUND_ROBIN = 1;
+	public static final int JSQ = 2;
+	public static final int POWER_OF_TWO = 3;
+	public static final int MEMORY_AWARE = 4;
+	/** Names of the dispatch policies, indexed by policy */
+	public static final String[] POLICY_NAMES = { "RANDOM", "ROUND-ROBIN", "JSQ", "POWER-OF-TWO",
+			"MEMORY-AWARE" };
+
+	private Simulator[] nodes;
+	private int policy;
+	private long simulationLength;
+
+	/** The nodes by the time of their next event */
+	private IndexedHeap events;
+	/** The nodes by their number of processes */
+	private IndexedHeap loads;
+	/** The nodes by the memory taken by their processes minus their memory size */
+	private IndexedHeap memory;
+	/** The node dispatched to last by round robin */
+	private int lastNode = -1;
+
+	/** Statistics by node */
+	private long[] load;
+	private long[] committed;
+	private long[] dispatched;
+	private long[] completed;
+	private long[] timeInSystem;
+
+	/**
+	 * Creates a cluster.
+	 * 
+	 * @param nodes The nodes. Processes arrive as they would at the first
+	 *            node by itself, and are created with its workload.
+	 * @param policy The dispatch policy, e.g. {@link #POWER_OF_TWO}.
+	 */
+	public Cluster(Simulator[] nodes, int policy) {
+		if (policy < 0 || policy >= POLICY_NAMES.length) {
+			throw new IllegalArgumentException("Unknown dispatch policy " + policy);
+		}
+		this.nodes = nodes;
+		this.policy = policy;
+		this.simulationLength = nodes[0].getSimulationLength();
+		int n = nodes.length;
+		this.events = new IndexedHeap(n);
+		this.loads = new IndexedHeap(n);
+		this.memory = new IndexedHeap(n);
+		this.load = new long[n];
+		this.committed = new long[n];
+		this.dispatched = new long[n];
+		this.completed = new long[n];
+		this.timeInSystem = new long[n];
+		for (int i = 0; i < n; i++) {
+			nodes[i].setCluster(this, i);
+			nodes[i].setPrintReport(false);
+			loads.set(i, 0);
+			memory.set(i, -nodes[i].getMemorySize());
+		}
+	}
+
+	/**
+	 * Looks up a dispatch policy by name, ignoring case.
+	 * 
+	 * @param name The name of the policy, e.g. "jsq".
+	 * @return The policy, or -1 if there is no policy with that name.
+	 */
+	public static int getPolicy(String name) {
+		for (int i = 0; i < POLICY_NAMES.length; i++) {
+			if (POLICY_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Runs the simulation: arrivals are dispatched, and the nodes handle
+	 * their events, in order of time.
+	 */
+	public void simulate() {
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i].start();
+		}
+		LiveStatistics.simulationStarted();
+
+		long nextArrival = 0;
+		while (true) {
+			long nodeTime = events.peekKey();
+			if (nextArrival <= nodeTime) {
+				if (nextArrival >= simulationLength) {
+					break;
+				}
+				SystemClock.setTime(nextArrival);
+				dispatch();
+				nextArrival += nodes[0].getNextArrivalTime();
+			} else {
+				if (nodeTime >= simulationLength) {
+					break;
+				}
+				int node = events.peek();
+				nodes[node].step();
+				events.set(node, nodes[node].getNextEventTime());
+			}
+		}
+		SystemClock.setTime(simulationLength);
+		LiveStatistics.publish();
+	}
+
+	/**
+	 * Creates a process and hands it to the node chosen by the policy.
+	 */
+	private void dispatch() {
+		Process p = nodes[0].createProcess();
+		int node = choose();
+		load[node]++;
+		committed[node] += p.getMemoryNeeded();
+		dispatched[node]++;
+		update(node);
+
+		nodes[node].admit(p);
+		events.set(node, nodes[node].getNextEventTime());
+		Statistics.processCreated();
+	}
+
+	private int choose() {
+		int n = nodes.length;
+		switch (policy) {
+		case RANDOM:
+			return (int) (RandomStreams.nextDouble(RandomStreams.ROUTING) * n);
+		case ROUND_ROBIN:
+			lastNode = (lastNode + 1) % n;
+			return lastNode;
+		case JSQ:
+			return loads.peek();
+		case POWER_OF_TWO:
+			int a = (int) (RandomStreams.nextDouble(RandomStreams.ROUTING) * n);
+			if (n == 1) {
+				return a;
+			}
+			// The second node is drawn from the others
+			int b = (a + 1 + (int) (RandomStreams.nextDouble(RandomStreams.ROUTING) * (n - 1))) % n;
+			return load[b] < load[a] ? b : a;
+		default:
+			return memory.peek();
+		}
+	}
+
+	/**
+	 * Registers a process leaving a node.
+	 * 
+	 * @param node The index of the node.
+	 * @param p The process.
+	 */
+	void processEnded(int node, Process p) {
+		load[node]--;
+		committed[node] -= p.getMemoryNeeded();
+		completed[node]++;
+		timeInSystem[node] += SystemClock.getTime() - p.getTimeAddedToSystem();
+		update(node);
+	}
+
+	private void update(int node) {
+		loads.set(node, load[node]);
+		memory.set(node, committed[node] - nodes[node].getMemorySize());
+	}
+
+	public int getNodeCount() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the largest number of processes completed by a node over the
+	 * average, a measure of how evenly the work was spread.
+	 * 
+	 * @return The imbalance, 1 if every node completed as many.
+	 */
+	public double getImbalance() {
+		long total = 0, max = 0;
+		for (long c : completed) {
+			total += c;
+			max = Math.max(max, c);
+		}
+		return total > 0 ? (double) max * nodes.length / total : 0;
+	}
+
+	/**
+	 * Returns the average CPU utilization of the nodes.
+	 * 
+	 * @return The utilization in percent.
+	 */
+	public float getCpuUtilization() {
+		return Statistics.getCpuUtilization() / nodes.length;
+	}
+
+	/**
+	 * Prints the statistics of the fleet, and of the nodes: each node if
+	 * asked, otherwise the spread over the nodes.
+	 * 
+	 * @param perNode Whether to print a line for each node.
+	 */
+	public void printReport(boolean perNode) {
+		System.out.println();
+		System.out.println("Cluster statistics (" + nodes.length + " nodes, " + POLICY_NAMES[policy] + "):");
+		System.out.println();
+		System.out.println("Number of completed processes:                                " + Statistics.getProcessesCompleted());
+		System.out.println("Average throughput (processes per second):                    " + Statistics.getProcessThroughput());
+		System.out.println("Average time spent in system per process:                     " + (long) Statistics.getAverageTimeInSystem() + " ms");
+		System.out.println("99th percentile of time in system:                            " + Statistics.getTimeInSystemPercentile(0.99) + " ms");
+		System.out.println("Average time spent waiting for memory per process:            " + (long) Statistics.getAverageMemoryWait() + " ms");
+		System.out.println("Average time spent waiting for CPU per process:               " + (long) Statistics.getAverageCpuWait() + " ms");
+		System.out.println("Average CPU utilization:                                      " + getCpuUtilization() + "%");
+		System.out.println("Completed by the busiest node over the average:               " + (float) getImbalance());
+
+		System.out.println();
+		if (perNode) {
+			System.out.println(String.format("%8s %10s %10s %10s %12s", "Node", "Dispatched", "Completed",
+					"CPU util", "Avg in sys"));
+			for (int i = 0; i < nodes.length; i++) {
+				System.out.println(String.format("%8d %10d %10d %9.1f%% %9d ms", i, dispatched[i], completed[i],
+						nodes[i].getCpuUtilization(), completed[i] > 0 ? timeInSystem[i] / completed[i] : 0));
+			}
+		} else {
+			double[] utilization = new double[nodes.length];
+			double[] meanInSystem = new double[nodes.length];
+			double[] done = new double[nodes.length];
+			for (int i = 0; i < nodes.length; i++) {
+				utilization[i] = nodes[i].getCpuUtilization();
+				meanInSystem[i] = completed[i] > 0 ? (double) timeInSystem[i] / completed[i] : 0;
+				done[i] = completed[i];
+			}
+			System.out.println(String.format("%-28s %10s %10s %10s %10s", "Over the nodes", "Min",
+					"Mean", "Max", "Std dev"));
+			printSpread("Completed processes", done);
+			printSpread("CPU utilization (%)", utilization);
+			printSpread("Avg time in system (ms)", meanInSystem);
+		}
+	}
+
+	private static void printSpread(String name, double[] values) {
+		double min = Double.MAX_VALUE, max = -Double.MAX_VALUE, sum = 0, squares = 0;
+		for (double v : values) {
+			min = Math.min(min, v);
+			max = Math.max(max, v);
+			sum += v;
+			squares += v * v;
+		}
+		double mean = sum / values.length;
+		double deviation = Math.sqrt(Math.max(0, squares / values.length - mean * mean));
+		System.out.println(String.format(Locale.ROOT, "%-28s %10.1f %10.1f %10.1f %10.1f", name, min, mean,
+				max, deviation));
+	}
+
+	/**
+	 * Runs a cluster of identical nodes and prints the report, or compares
+	 * the dispatch policies on the same random numbers.
+	 * 
+	 * @param args The arguments of each node, see
+	 *            {@link Simulator#create(String[])}, where the average
+	 *            arrival interval is that of the whole cluster, optionally
+	 *            followed by -nodes=n (16 by default), -dispatch=policy
+	 *            (RANDOM, ROUND-ROBIN, JSQ, POWER-OF-TWO or MEMORY-AWARE,
+	 *            POWER-OF-TWO by default), -compare to run every policy on
+	 *            the same random numbers and -per-node to print every node.
+	 *            The seed is 1 unless given.
+	 */
+	public static void main(String args[]) {
+		List<String> nodeArgs = new ArrayList<String>();
+		nodeArgs.add("-seed=1");
+		int n = 16;
+		int policy = POWER_OF_TWO;
+		boolean compare = false, perNode = false;
+		for (String arg : args) {
+			if (arg.startsWith("-nodes=")) {
+				n = Integer.parseInt(arg.substring(7));
+			} else if (arg.startsWith("-dispatch=")) {
+				policy = getPolicy(arg.substring(10));
+			} else if (arg.equals("-compare")) {
+				compare = true;
+			} else if (arg.equals("-per-node")) {
+				perNode = true;
+			} else {
+				nodeArgs.add(arg);
+			}
+		}
+
+		if (compare) {
+			System.out.println(String.format("%-14s %10s %12s %12s %10s %10s %10s", "Dispatch", "Throughput",
+					"Mean in sys", "P99 in sys", "Mem wait", "CPU util", "Imbalance"));
+		}
+		for (int p = compare ? 0 : policy; p < (compare ? POLICY_NAMES.length : policy + 1); p++) {
+			Simulator.resetGlobalState();
+			Simulator[] nodes = new Simulator[n];
+			for (int i = 0; i < n; i++) {
+				// Sets the seed again, before anything is drawn
+				nodes[i] = Simulator.create(nodeArgs.toArray(new String[0]));
+			}
+			Cluster cluster = new Cluster(nodes, p);
+			long started = System.nanoTime();
+			cluster.simulate();
+			double seconds = (System.nanoTime() - started) / 1e9;
+			if (compare) {
+				System.out.println(String.format("%-14s %10.3f %9.0f ms %9d ms %7.0f ms %9.1f%% %10.2f",
+						POLICY_NAMES[p], Statistics.getProcessThroughput(), Statistics.getAverageTimeInSystem(),
+						Statistics.getTimeInSystemPercentile(0.99), Statistics.getAverageMemoryWait(),
+						cluster.getCpuUtilization(), cluster.getImbalance()));
+			} else {
+				cluster.printReport(perNode);
+				long events = 0;
+				for (Simulator node : nodes) {
+					events += node.getEventsProcessed();
+				}
+				System.out.println();
+				System.out.println(String.format("%d events in %.1f s, %.0f events per second", events, seconds,
+						events / seconds));
+			}
+		}
+	}
+}
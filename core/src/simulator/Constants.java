@@ -1,3 +1,5 @@
+package simulator;
+
 public interface Constants 
 {
 	public static final boolean TESTING_ENABLED = true;
@@ -17,6 +19,16 @@ public interface Constants
     public static final int IO_REQUEST = 4;
 	/** Event type describing the end of the current I/O operation */
     public static final int END_IO = 5;
+	/** Event type describing a page fault of the active process, with virtual memory */
+	public static final int PAGE_FAULT = 6;
+	/** Event type describing the end of the current page-in operation */
+	public static final int END_PAGE_IN = 7;
+	/** Event type describing the end of the current swap transfer */
+	public static final int SWAP_DONE = 8;
+	/** Event type describing the release of a job of a real-time task */
+	public static final int REAL_TIME_RELEASE = 9;
+	/** Event type describing the end of the critical section of the active process */
+	public static final int LOCK_RELEASE = 10;
 	/** The orientation SOUTH */
 	public final static int SOUTH = 0;
 	/** The orientation WEST */
@@ -32,4 +44,16 @@ public interface Constants
 	public static final int IO_QUEUE = 4;
 	public static final int IO_ACTIVE = 5;
 	public static final int FINISHED = 6;
+	/** State of a process in the process-interaction engine that is running its script between two blocking calls */
+	public static final int SCRIPT_RUNNING = 7;
+	/** State of a process waiting for a page fault to be serviced */
+	public static final int PAGE_WAIT = 8;
+	/** State of a swapped out process that is ready to run, waiting to be swapped in */
+	public static final int SWAPPED = 9;
+	/** State of a multithreaded process while its threads run, and of a thread just started */
+	public static final int THREADS_RUNNING = 10;
+	/** State of a thread that has used all of its CPU time */
+	public static final int THREAD_FINISHED = 11;
+	/** State of a process waiting for a lock */
+	public static final int LOCK_WAIT = 12;
 }
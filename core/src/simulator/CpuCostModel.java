@@ -0,0 +1,114 @@
+package simulator;
+
+import java.io.IOException;
+
+/**
+ * The cost of handing the CPU to another process. Every switch to a
+ * different process takes a fixed overhead for saving and restoring state.
+ * On top of that the process finds its cache contents gone: it runs slower
+ * until its working set is back in the cache, which is modelled as a
+ * warm-up time. The longer the process has been away from the CPU while
+ * others ran, the colder its cache, up to the full penalty.
+ * 
+ * The simulated system has one CPU, so processes are only rescheduled,
+ * never migrated. Overhead and warm-up keep the CPU busy without bringing
+ * the process closer to completion, and are reported separately in
+ * {@link Statistics}.
+ * 
+ * Enabled with {@link Simulator#setCpuCostModel(CpuCostModel)}.
+ */
+public class CpuCostModel {
+	/** Default time to switch between two processes (ms) */
+	public static final long DEFAULT_SWITCH_OVERHEAD = 1;
+	/** Default warm-up time of a process whose cache is completely cold (ms) */
+	public static final long DEFAULT_CACHE_PENALTY = 4;
+	/** Default time away from the CPU for the cache to go 63% cold (ms) */
+	public static final long DEFAULT_CACHE_DECAY = 100;
+
+	/** The time to switch between two processes */
+	private long switchOverhead;
+	/** The warm-up time of a process with a cold cache, 0 to disable */
+	private long cachePenalty;
+	/** The time constant of the cache going cold */
+	private long cacheDecay;
+	/** The process that used the CPU last */
+	private Process lastOnCpu;
+
+	/**
+	 * Creates a cost model with the default parameters.
+	 */
+	public CpuCostModel() {
+		this(DEFAULT_SWITCH_OVERHEAD, DEFAULT_CACHE_PENALTY, DEFAULT_CACHE_DECAY);
+	}
+
+	/**
+	 * Creates a cost model.
+	 * 
+	 * @param switchOverhead The time to switch between two processes (ms).
+	 * @param cachePenalty The warm-up time of a process whose cache is
+	 *            completely cold (ms), 0 to leave out the cache model.
+	 * @param cacheDecay The time away from the CPU for the cache to go 63%
+	 *            cold (ms).
+	 */
+	public CpuCostModel(long switchOverhead, long cachePenalty, long cacheDecay) {
+		this.switchOverhead = switchOverhead;
+		this.cachePenalty = cachePenalty;
+		this.cacheDecay = Math.max(1, cacheDecay);
+	}
+
+	/**
+	 * Computes the cost of giving the CPU to a process, and registers it in
+	 * the statistics. Giving the CPU back to the process that had it last
+	 * costs nothing.
+	 * 
+	 * @param p The process given the CPU.
+	 * @return The time until the process does useful work (ms).
+	 */
+	public long dispatch(Process p) {
+		if (p == lastOnCpu) {
+			return 0;
+		}
+		lastOnCpu = p;
+
+		long warmup = cachePenalty;
+		if (p.getTimeLeftCpu() >= 0) {
+			long away = SystemClock.getTime() - p.getTimeLeftCpu();
+			warmup = Math.round(cachePenalty * (1 - Math.exp(-(double) away / cacheDecay)));
+		}
+		Statistics.contextSwitch(switchOverhead, warmup);
+		return switchOverhead + warmup;
+	}
+
+	/**
+	 * Runs the simulator for a range of quanta, without and with switch costs,
+	 * with the same random numbers, and prints throughput and overhead for
+	 * each, so that the best quantum can be compared.
+	 * 
+	 * @param args memory size, avg I/O time, simulation length and avg
+	 *            arrival interval, optionally followed by the options of a
+	 *            {@link Sweep}.
+	 * @throws IOException If the result cache cannot be used.
+	 */
+	public static void main(String args[]) throws IOException {
+		Sweep sweep = new Sweep(args);
+		long[] params = sweep.getParameters(Constants.TESTING_MEMORY_SIZSE, 50,
+				Constants.TESTING_SIMULATION_LENGTH, 5000);
+		String costs = "-switch=" + DEFAULT_SWITCH_OVERHEAD + ":" + DEFAULT_CACHE_PENALTY + ":"
+				+ DEFAULT_CACHE_DECAY;
+
+		long[] quanta = { 1, 2, 5, 10, 20, 50, 100, 200, 500 };
+		System.out.println(String.format("%8s | %12s %12s | %12s %12s %10s", "Quantum",
+				"Throughput", "Time in sys", "Throughput", "Time in sys", "Overhead"));
+		System.out.println(String.format("%8s | %25s | %36s", "", "free switches", "with switch costs"));
+		for (long quantum : quanta) {
+			long[] point = { params[0], quantum, params[1], params[2], params[3] };
+			double[] free = sweep.run(point);
+			double[] costly = sweep.run(point, costs);
+			System.out.println(String.format("%8d | %12.3f %9.0f ms | %12.3f %9.0f ms %9.1f%%", quantum,
+					free[ResultCache.THROUGHPUT], free[ResultCache.MEAN_TIME_IN_SYSTEM],
+					costly[ResultCache.THROUGHPUT], costly[ResultCache.MEAN_TIME_IN_SYSTEM],
+					costly[ResultCache.CPU_OVERHEAD]));
+		}
+		sweep.printReport();
+	}
+}
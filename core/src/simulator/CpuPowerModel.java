@@ -0,0 +1,366 @@
+package simulator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The power drawn by the CPU, and how its clock speed changes with the load.
+ * 
+ * While busy, the CPU runs in one of its P-states, frequency levels given as
+ * fractions of the top frequency. The CPU times of processes are measured at
+ * the top frequency, so at a lower frequency a burst takes longer. The power
+ * drawn grows with the cube of the frequency, as the voltage is lowered
+ * along with it, on top of a static part.
+ * 
+ * While idle, the CPU goes into ever deeper C-states as the idle period goes
+ * on: each state draws less power than the one before, but is only entered
+ * once the CPU has been idle for its target residency, and takes longer to
+ * wake up from. The wake-up latency delays the next process dispatched.
+ * 
+ * The frequency is chosen by a governor each time a process is dispatched,
+ * and kept until the next dispatch:
+ * <ul>
+ * <li>{@link #PERFORMANCE}: always the top frequency.</li>
+ * <li>{@link #POWERSAVE}: always the lowest frequency.</li>
+ * <li>{@link #ONDEMAND}: the busy fraction of the last sampling period is
+ * measured; above the up threshold the top frequency is chosen, below it a
+ * frequency in proportion to the load.</li>
+ * <li>{@link #SCHEDUTIL}: the utilization is a decaying average of the work
+ * done, counted at the frequency it was done at, and the frequency chosen
+ * leaves 25% headroom over it.</li>
+ * </ul>
+ * 
+ * Enabled with {@link Simulator#setCpuPowerModel(CpuPowerModel)}.
+ */
+public class CpuPowerModel {
+	/** Governors */
+	public static final int PERFORMANCE = 0;
+	public static final int POWERSAVE = 1;
+	public static final int ONDEMAND = 2;
+	public static final int SCHEDUTIL = 3;
+	/** Names of the governors, indexed by governor */
+	public static final String[] GOVERNOR_NAMES = { "PERFORMANCE", "POWERSAVE", "ONDEMAND", "SCHEDUTIL" };
+
+	/** Default P-states, as fractions of the top frequency */
+	public static final double[] DEFAULT_FREQUENCIES = { 0.4, 0.6, 0.8, 1.0 };
+	/** Default power drawn when busy, regardless of the frequency (W) */
+	public static final double DEFAULT_STATIC_POWER = 2;
+	/** Default power drawn when busy at the top frequency, above the static power (W) */
+	public static final double DEFAULT_DYNAMIC_POWER = 13;
+
+	/** The C-states: names, power (W), wake-up latency and target residency (ms) */
+	public static final String[] C_STATE_NAMES = { "C1", "C3", "C6" };
+	private static final double[] C_STATE_POWER = { 1.5, 0.6, 0.1 };
+	private static final long[] C_STATE_LATENCY = { 0, 1, 3 };
+	private static final long[] C_STATE_RESIDENCY = { 0, 4, 20 };
+
+	/** The period over which ondemand measures the load (ms) */
+	public static final long ONDEMAND_SAMPLING_PERIOD = 10;
+	/** The load above which ondemand goes to the top frequency */
+	public static final double ONDEMAND_UP_THRESHOLD = 0.8;
+	/** The time for the schedutil utilization to decay to half (ms) */
+	public static final double SCHEDUTIL_HALF_LIFE = 32;
+	/** The headroom schedutil leaves over the utilization */
+	public static final double SCHEDUTIL_HEADROOM = 1.25;
+
+	private int governor;
+	private double[] frequencies;
+	private double[] activePower;
+
+	/** The P-state chosen at the last dispatch */
+	private int pState;
+	/** How long the CPU has been idle, -1 while busy */
+	private long idleFor = 0;
+
+	/** Ondemand: busy time since the start of the sampling period */
+	private long periodStart = 0;
+	private long periodBusy = 0;
+	/** Schedutil: the utilization, as a fraction of the top frequency */
+	private double utilization = 0;
+
+	/** Statistics */
+	private double energy = 0;
+	private long[] timeInPState;
+	private long[] timeInCState = new long[C_STATE_NAMES.length];
+	private long wakeups = 0;
+	private long wakeLatency = 0;
+	private long stretch = 0;
+
+	/**
+	 * Creates a power model with the default P-states.
+	 * 
+	 * @param governor The governor, e.g. {@link #SCHEDUTIL}.
+	 */
+	public CpuPowerModel(int governor) {
+		this(governor, DEFAULT_FREQUENCIES, DEFAULT_STATIC_POWER, DEFAULT_DYNAMIC_POWER);
+	}
+
+	/**
+	 * Creates a power model.
+	 * 
+	 * @param governor The governor, e.g. {@link #SCHEDUTIL}.
+	 * @param frequencies The P-states, as fractions of the top frequency, in
+	 *            (0, 1].
+	 * @param staticPower The power drawn when busy, at any frequency (W).
+	 * @param dynamicPower The power drawn when busy at the top frequency,
+	 *            above the static power (W).
+	 */
+	public CpuPowerModel(int governor, double[] frequencies, double staticPower, double dynamicPower) {
+		if (governor < 0 || governor >= GOVERNOR_NAMES.length) {
+			throw new IllegalArgumentException("Unknown governor " + governor);
+		}
+		this.governor = governor;
+		this.frequencies = frequencies.clone();
+		Arrays.sort(this.frequencies);
+		if (this.frequencies.length == 0 || this.frequencies[0] <= 0
+				|| this.frequencies[this.frequencies.length - 1] > 1) {
+			throw new IllegalArgumentException("Expected frequencies in (0, 1]");
+		}
+		this.activePower = new double[this.frequencies.length];
+		for (int i = 0; i < this.frequencies.length; i++) {
+			double f = this.frequencies[i];
+			this.activePower[i] = staticPower + dynamicPower * f * f * f;
+		}
+		this.timeInPState = new long[this.frequencies.length];
+		this.pState = governor == POWERSAVE ? 0 : this.frequencies.length - 1;
+	}
+
+	/**
+	 * Looks up a governor by name, ignoring case.
+	 * 
+	 * @param name The name of the governor, e.g. "ondemand".
+	 * @return The governor, or -1 if there is no governor with that name.
+	 */
+	public static int getGovernor(String name) {
+		for (int i = 0; i < GOVERNOR_NAMES.length; i++) {
+			if (GOVERNOR_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Creates a power model from a specification governor[:f1/f2/...], e.g.
+	 * "schedutil:0.5/0.75/1".
+	 * 
+	 * @param spec The specification.
+	 * @return The power model.
+	 * @throws IllegalArgumentException If the specification is not valid.
+	 */
+	public static CpuPowerModel parse(String spec) {
+		String[] fields = spec.split(":");
+		int governor = getGovernor(fields[0]);
+		if (governor < 0) {
+			throw new IllegalArgumentException("Unknown governor " + fields[0]);
+		}
+		if (fields.length < 2) {
+			return new CpuPowerModel(governor);
+		}
+		String[] levels = fields[1].split("/");
+		double[] frequencies = new double[levels.length];
+		for (int i = 0; i < levels.length; i++) {
+			frequencies[i] = Double.parseDouble(levels[i]);
+		}
+		return new CpuPowerModel(governor, frequencies, DEFAULT_STATIC_POWER, DEFAULT_DYNAMIC_POWER);
+	}
+
+	/**
+	 * Registers the time passed, adding up the energy and the load seen by
+	 * the governor.
+	 * 
+	 * @param timePassed The time since the last event.
+	 * @param busy Whether the CPU was busy during that time.
+	 */
+	public void timePassed(long timePassed, boolean busy) {
+		if (busy) {
+			energy += activePower[pState] * timePassed / 1000;
+			timeInPState[pState] += timePassed;
+			periodBusy += timePassed;
+			idleFor = -1;
+		} else {
+			// Walk down the C-states entered during this part of the idle period
+			long from = Math.max(0, idleFor), to = from + timePassed;
+			for (int c = 0; c < C_STATE_NAMES.length; c++) {
+				long start = Math.max(from, C_STATE_RESIDENCY[c]);
+				long end = c + 1 < C_STATE_NAMES.length ? Math.min(to, C_STATE_RESIDENCY[c + 1]) : to;
+				if (end > start) {
+					energy += C_STATE_POWER[c] * (end - start) / 1000;
+					timeInCState[c] += end - start;
+				}
+			}
+			idleFor = to;
+		}
+		if (governor == SCHEDUTIL && timePassed > 0) {
+			double decay = Math.pow(0.5, timePassed / SCHEDUTIL_HALF_LIFE);
+			utilization = utilization * decay + (busy ? frequencies[pState] * (1 - decay) : 0);
+		}
+	}
+
+	/**
+	 * Wakes the CPU up if it was idle, and lets the governor choose the
+	 * frequency of the slice about to start.
+	 * 
+	 * @return The wake-up latency, 0 if the CPU was busy (ms).
+	 */
+	public long dispatch() {
+		long latency = 0;
+		if (idleFor >= 0) {
+			int c = C_STATE_NAMES.length - 1;
+			while (C_STATE_RESIDENCY[c] > idleFor) {
+				c--;
+			}
+			latency = C_STATE_LATENCY[c];
+			wakeups++;
+			wakeLatency += latency;
+			idleFor = -1;
+		}
+
+		double target;
+		switch (governor) {
+		case ONDEMAND:
+			long period = SystemClock.getTime() - periodStart;
+			if (period < ONDEMAND_SAMPLING_PERIOD) {
+				return latency;
+			}
+			double load = (double) periodBusy / period;
+			periodStart = SystemClock.getTime();
+			periodBusy = 0;
+			target = load > ONDEMAND_UP_THRESHOLD ? 1
+					: frequencies[0] + load * (1 - frequencies[0]);
+			break;
+		case SCHEDUTIL:
+			target = SCHEDUTIL_HEADROOM * utilization;
+			break;
+		default:
+			return latency;
+		}
+		pState = frequencies.length - 1;
+		while (pState > 0 && frequencies[pState - 1] >= target) {
+			pState--;
+		}
+		return latency;
+	}
+
+	/**
+	 * Returns the work done in a time at the current frequency.
+	 * 
+	 * @param time The time (ms).
+	 * @return The CPU time at the top frequency, at least 1 (ms).
+	 */
+	public long getWork(long time) {
+		return Math.max(1, (long) (time * frequencies[pState]));
+	}
+
+	/**
+	 * Returns how much longer some work takes at the current frequency than
+	 * at the top frequency, and registers it in the statistics.
+	 * 
+	 * @param work The CPU time at the top frequency (ms).
+	 * @return The extra time (ms).
+	 */
+	public long getStretch(long work) {
+		long extra = (long) Math.ceil(work / frequencies[pState]) - work;
+		stretch += extra;
+		return extra;
+	}
+
+	public int getGovernor() {
+		return governor;
+	}
+
+	/**
+	 * Returns the energy used so far.
+	 * 
+	 * @return The energy (J).
+	 */
+	public double getEnergy() {
+		return energy;
+	}
+
+	/**
+	 * Returns the average power drawn.
+	 * 
+	 * @return The power (W).
+	 */
+	public double getAveragePower() {
+		return SystemClock.getTime() > 0 ? energy * 1000 / SystemClock.getTime() : 0;
+	}
+
+	/**
+	 * Returns the number of processes completed per joule used.
+	 * 
+	 * @return The throughput per joule.
+	 */
+	public double getProcessesPerJoule() {
+		return energy > 0 ? Statistics.getProcessesCompleted() / energy : 0;
+	}
+
+	/**
+	 * Prints the energy used, the time spent in each P-state and C-state and
+	 * the cost of waking up and running slower.
+	 */
+	public void printReport() {
+		long busy = 0, idle = 0;
+		for (long time : timeInPState) {
+			busy += time;
+		}
+		for (long time : timeInCState) {
+			idle += time;
+		}
+		System.out.println();
+		System.out.println("CPU power (" + GOVERNOR_NAMES[governor] + "):");
+		System.out.println("Energy:                                                       "
+				+ (float) energy + " J");
+		System.out.println("Average power:                                                "
+				+ (float) getAveragePower() + " W");
+		System.out.println("Processes completed per joule:                                "
+				+ (float) getProcessesPerJoule());
+		StringBuilder line = new StringBuilder("Busy time per frequency:                                     ");
+		for (int i = 0; i < frequencies.length; i++) {
+			line.append(String.format(Locale.ROOT, " %s: %.1f%%", Distributions.format(frequencies[i]),
+					busy > 0 ? 100.0 * timeInPState[i] / busy : 0.0));
+		}
+		System.out.println(line);
+		line = new StringBuilder("Idle time per C-state:                                       ");
+		for (int c = 0; c < C_STATE_NAMES.length; c++) {
+			line.append(String.format(Locale.ROOT, " %s: %.1f%%", C_STATE_NAMES[c],
+					idle > 0 ? 100.0 * timeInCState[c] / idle : 0.0));
+		}
+		System.out.println(line);
+		System.out.println("Number of wake-ups:                                           " + wakeups);
+		System.out.println("Time spent waking up:                                         " + wakeLatency + " ms");
+		System.out.println("Time added by running below the top frequency:                " + stretch + " ms");
+	}
+
+	/**
+	 * Runs the simulator with each governor on the same random numbers and
+	 * prints performance next to energy.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by
+	 *            -frequencies=f1/f2/... and the options of a {@link Sweep}.
+	 * @throws IOException If the result cache cannot be used.
+	 */
+	public static void main(String args[]) throws IOException {
+		Sweep sweep = new Sweep(args);
+		// The testing values overload the system, so that a few processes
+		// complete and the comparison shows little but the order they do in
+		long[] params = sweep.getParameters(Constants.TESTING_MEMORY_SIZSE, 50, 300, 4000000, 6000);
+		String frequencies = sweep.takeOption("-frequencies", null);
+
+		System.out.println(String.format("%-12s %10s %12s %12s %8s %10s %8s %10s", "Governor",
+				"Throughput", "Mean in sys", "P99 in sys", "CPU util", "Energy", "Power", "Proc/J"));
+		for (int governor = 0; governor < GOVERNOR_NAMES.length; governor++) {
+			double[] results = sweep.run(params, "-power=" + GOVERNOR_NAMES[governor]
+					+ (frequencies != null ? ":" + frequencies : ""));
+			double energy = results[ResultCache.CPU_ENERGY];
+			System.out.println(String.format(Locale.ROOT, "%-12s %10.3f %9.0f ms %9.0f ms %7.1f%% %8.0f J %6.2f W %10.4f",
+					GOVERNOR_NAMES[governor], results[ResultCache.THROUGHPUT],
+					results[ResultCache.MEAN_TIME_IN_SYSTEM], results[ResultCache.P99_TIME_IN_SYSTEM],
+					results[ResultCache.CPU_UTILIZATION], energy, results[ResultCache.CPU_POWER],
+					energy > 0 ? Sweep.get(results, "processes_completed") / energy : 0));
+		}
+		sweep.printReport();
+	}
+}
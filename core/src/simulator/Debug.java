@@ -0,0 +1,45 @@
+package simulator;
+
+import java.util.Arrays;
+
+/**
+ * Debug message class
+ * 
+ * @author hanskristian
+ * 
+ */
+public class Debug implements Constants {
+	/** Whether or not trace messages from the simulation loop are printed */
+	private static boolean verbose = true;
+
+	public static void print(String className, String method, String msg) {
+		String[] accepted = new String[] { "SimulatorX", "Process",
+				"CPUX", "IO", "Memory", "Statistics" };
+
+		if (TESTING_ENABLED && Arrays.asList(accepted).contains(className)) {
+			System.out.println("DEBUG: " + className + "." + method + "() '"
+					+ msg + "'");
+		}
+	}
+
+	/**
+	 * Prints a trace message from the simulation loop, unless tracing has
+	 * been turned off for a headless run.
+	 * 
+	 * @param msg The message to print.
+	 */
+	public static void trace(String msg) {
+		if (verbose) {
+			System.out.println(msg);
+		}
+	}
+
+	/**
+	 * Turns trace messages on or off.
+	 * 
+	 * @param on {@code true} to print trace messages, {@code false} otherwise.
+	 */
+	public static void setVerbose(boolean on) {
+		verbose = on;
+	}
+}
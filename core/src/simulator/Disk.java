@@ -0,0 +1,352 @@
+package simulator;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * A disk-style I/O device. Requests address a block (treated as a cylinder),
+ * and the service time of a request is the seek from the current head
+ * position, a rotational delay and a fixed transfer time. Which pending
+ * request is served next is decided by a scheduling policy.
+ * 
+ * Pending requests are kept in an ordered index by block, so the policies
+ * that look for the nearest request in some direction find it in O(log n),
+ * and in an index by arrival for FCFS and deadline expiry.
+ * 
+ * Enabled with {@link Simulator#setDisk(Disk)}; the average I/O time given to
+ * the simulator is then not used.
+ */
+public class Disk {
+	/** Serve requests in arrival order */
+	public static final int FCFS = 0;
+	/** Serve the request closest to the head */
+	public static final int SSTF = 1;
+	/** Sweep from one edge of the disk to the other and back (elevator) */
+	public static final int SCAN = 2;
+	/** Sweep upwards to the last request, then jump back to the lowest one */
+	public static final int C_LOOK = 3;
+	/** C-LOOK, but a request older than the deadline is served first */
+	public static final int DEADLINE = 4;
+	/** Names of the policies, indexed by policy */
+	public static final String[] POLICY_NAMES = { "FCFS", "SSTF", "SCAN", "C-LOOK", "DEADLINE" };
+
+	/** Default disk geometry and timing (ms) */
+	public static final long DEFAULT_CYLINDERS = 5000;
+	public static final long DEFAULT_TRACK_TO_TRACK_SEEK = 2;
+	public static final long DEFAULT_FULL_STROKE_SEEK = 40;
+	public static final long DEFAULT_ROTATION_TIME = 16;
+	public static final long DEFAULT_TRANSFER_TIME = 5;
+	public static final long DEFAULT_DEADLINE = 500;
+
+	/** Probability that a request falls near the home region of its process */
+	private static final double LOCALITY = 0.75;
+
+	/** The scheduling policy */
+	private int policy;
+	/** Number of cylinders */
+	private long cylinders;
+	/** Time to seek one cylinder */
+	private long trackToTrackSeek;
+	/** Time to seek across the whole disk */
+	private long fullStrokeSeek;
+	/** Time of one full rotation */
+	private long rotationTime;
+	/** Time to transfer the data of one request */
+	private long transferTime;
+	/** Maximum wait before a request is served out of order, for DEADLINE */
+	private long deadline;
+
+	/** Pending requests ordered by block, then arrival */
+	private TreeSet<IoRequest> byBlock = new TreeSet<IoRequest>(new Comparator<IoRequest>() {
+		public int compare(IoRequest a, IoRequest b) {
+			if (a.getBlock() != b.getBlock()) {
+				return a.getBlock() < b.getBlock() ? -1 : 1;
+			}
+			return Long.compare(a.getSequence(), b.getSequence());
+		}
+	});
+	/** Pending requests ordered by arrival */
+	private TreeSet<IoRequest> byArrival = new TreeSet<IoRequest>(new Comparator<IoRequest>() {
+		public int compare(IoRequest a, IoRequest b) {
+			return Long.compare(a.getSequence(), b.getSequence());
+		}
+	});
+
+	/** Current head position */
+	private long head = 0;
+	/** Direction of the sweep, for SCAN */
+	private boolean up = true;
+	/** The number of requests issued so far */
+	private long sequence = 0;
+	/** Service time of the request chosen last */
+	private long lastServiceTime = 0;
+
+	/**
+	 * Creates a disk with default geometry and the given policy.
+	 * 
+	 * @param policy The scheduling policy, e.g. {@link #C_LOOK}.
+	 */
+	public Disk(int policy) {
+		this(policy, DEFAULT_CYLINDERS, DEFAULT_TRACK_TO_TRACK_SEEK,
+				DEFAULT_FULL_STROKE_SEEK, DEFAULT_ROTATION_TIME,
+				DEFAULT_TRANSFER_TIME, DEFAULT_DEADLINE);
+	}
+
+	/**
+	 * Creates a disk.
+	 * 
+	 * @param policy The scheduling policy.
+	 * @param cylinders The number of cylinders.
+	 * @param trackToTrackSeek Time to seek one cylinder (ms).
+	 * @param fullStrokeSeek Time to seek across the whole disk (ms).
+	 * @param rotationTime Time of one full rotation (ms).
+	 * @param transferTime Time to transfer one request (ms).
+	 * @param deadline Maximum wait before a request is served out of order
+	 *            by the DEADLINE policy (ms).
+	 * @throws IllegalArgumentException If the policy is not known.
+	 */
+	public Disk(int policy, long cylinders, long trackToTrackSeek,
+			long fullStrokeSeek, long rotationTime, long transferTime,
+			long deadline) {
+		if (policy < 0 || policy >= POLICY_NAMES.length) {
+			throw new IllegalArgumentException("Unknown disk policy " + policy);
+		}
+		this.policy = policy;
+		this.cylinders = cylinders;
+		this.trackToTrackSeek = trackToTrackSeek;
+		this.fullStrokeSeek = fullStrokeSeek;
+		this.rotationTime = rotationTime;
+		this.transferTime = transferTime;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Looks up a policy by name, ignoring case.
+	 * 
+	 * @param name The name of the policy, e.g. "c-look".
+	 * @return The policy, or -1 if there is no policy with that name.
+	 */
+	public static int getPolicy(String name) {
+		for (int i = 0; i < POLICY_NAMES.length; i++) {
+			if (POLICY_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the scheduling policy.
+	 * 
+	 * @return The policy.
+	 */
+	public int getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Adds a request for a process. Most requests of a process fall close to
+	 * a home region derived from its ID, the rest anywhere on the disk.
+	 * 
+	 * @param p The process issuing the request.
+	 */
+	public void addRequest(Process p) {
+		long block;
+		if (RandomStreams.nextDouble(RandomStreams.DISK) < LOCALITY) {
+			long home = (p.getProcessId() * 2654435761L) % cylinders;
+			long spread = Math.max(1, cylinders / 50);
+			long offset = (long) ((RandomStreams.nextDouble(RandomStreams.DISK) - 0.5) * spread);
+			block = Math.min(cylinders - 1, Math.max(0, home + offset));
+		} else {
+			block = (long) (RandomStreams.nextDouble(RandomStreams.DISK) * cylinders);
+		}
+		IoRequest r = new IoRequest(p, block, SystemClock.getTime(), sequence++);
+		byBlock.add(r);
+		byArrival.add(r);
+	}
+
+	/**
+	 * Returns the number of pending requests.
+	 * 
+	 * @return The number of requests waiting.
+	 */
+	public int getPendingCount() {
+		return byArrival.size();
+	}
+
+	/**
+	 * Chooses the next request according to the policy, moves the head to it
+	 * and computes its service time.
+	 * 
+	 * @return The process whose request is served next, or {@code null} if no
+	 *         request is pending.
+	 */
+	public Process nextRequest() {
+		if (byArrival.isEmpty()) {
+			return null;
+		}
+
+		// Cylinders travelled beyond the request itself, by SCAN at the edge
+		long detour = 0;
+		IoRequest r;
+		switch (policy) {
+		case SSTF:
+			r = nearest();
+			break;
+		case SCAN:
+			r = up ? above() : below();
+			if (r == null) {
+				detour = up ? 2 * (cylinders - 1 - head) : 2 * head;
+				up = !up;
+				r = up ? above() : below();
+			}
+			break;
+		case C_LOOK:
+			r = cLook();
+			break;
+		case DEADLINE:
+			r = byArrival.first();
+			if (SystemClock.getTime() - r.getArrivalTime() < deadline) {
+				r = cLook();
+			}
+			break;
+		default:
+			r = byArrival.first();
+			break;
+		}
+		byBlock.remove(r);
+		byArrival.remove(r);
+
+		long distance = Math.abs(r.getBlock() - head) + detour;
+		long positioning = seekTime(distance)
+				+ (long) (RandomStreams.nextDouble(RandomStreams.DISK) * rotationTime);
+		lastServiceTime = positioning + transferTime;
+		head = r.getBlock();
+		Statistics.diskRequestServed(distance, positioning);
+
+		return r.getProcess();
+	}
+
+	/**
+	 * Returns the service time of the request chosen by the last call to
+	 * {@link #nextRequest()}.
+	 * 
+	 * @return The service time in ms, at least 1.
+	 */
+	public long getLastServiceTime() {
+		return Math.max(1, lastServiceTime);
+	}
+
+	/**
+	 * The seek time grows with the square root of the distance, as the arm
+	 * accelerates for most of a short seek.
+	 * 
+	 * @param distance The number of cylinders to move.
+	 * @return The seek time in ms.
+	 */
+	private long seekTime(long distance) {
+		if (distance == 0) {
+			return 0;
+		}
+		double fraction = Math.min(1.0, (double) (distance - 1) / Math.max(1, cylinders - 1));
+		return Math.round(trackToTrackSeek + (fullStrokeSeek - trackToTrackSeek) * Math.sqrt(fraction));
+	}
+
+	/**
+	 * Returns a probe that sorts before every request at the given block.
+	 */
+	private static IoRequest probe(long block) {
+		return new IoRequest(null, block, 0, Long.MIN_VALUE);
+	}
+
+	/** The first request at or above the head, or null */
+	private IoRequest above() {
+		return byBlock.ceiling(probe(head));
+	}
+
+	/** The last request below or at the head, or null */
+	private IoRequest below() {
+		return byBlock.lower(probe(head + 1));
+	}
+
+	/** The request closest to the head, preferring the one above on ties */
+	private IoRequest nearest() {
+		IoRequest a = above();
+		IoRequest b = below();
+		if (a == null) {
+			return b;
+		} else if (b == null) {
+			return a;
+		}
+		return a.getBlock() - head <= head - b.getBlock() ? a : b;
+	}
+
+	/** The next request upwards, wrapping around to the lowest */
+	private IoRequest cLook() {
+		IoRequest r = above();
+		return r != null ? r : byBlock.first();
+	}
+
+	/**
+	 * Runs the simulator once per disk policy with the same random numbers,
+	 * and prints how much I/O wait each policy saves compared to FCFS.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time (unused),
+	 *            simulation length and avg arrival interval, optionally
+	 *            followed by -transfer=ms, -workload=file and the options of
+	 *            a {@link Sweep}. Without a workload the CPU bursts between
+	 *            I/O requests are exponential with a mean of -interval=ms
+	 *            (150 by default), so that the disk is busy about 90% of the
+	 *            time and builds up a queue for the policies to reorder.
+	 * @throws IOException If the workload or the result cache cannot be
+	 *             used.
+	 */
+	public static void main(String args[]) throws IOException {
+		Sweep sweep = new Sweep(args);
+		long[] params = sweep.getParameters(Constants.TESTING_MEMORY_SIZSE, Constants.TESTING_CPU_TIME,
+				Constants.TESTING_IO_TIME, Constants.TESTING_SIMULATION_LENGTH * 10, 250);
+		long transferTime = Long.parseLong(sweep.takeOption("-transfer", Long.toString(DEFAULT_TRANSFER_TIME)));
+		long interval = Long.parseLong(sweep.takeOption("-interval", "150"));
+		String workload = sweep.takeOption("-workload", null);
+		if (workload == null) {
+			// The processes of the testing values compute for seconds between
+			// I/O requests, which leaves the disk idle over 90% of the time
+			File file = File.createTempFile("disk", ".workload");
+			file.deleteOnExit();
+			Writer writer = new FileWriter(file);
+			try {
+				writer.write(Workload.INTERVAL + "=exp:" + interval + "\n");
+			} finally {
+				writer.close();
+			}
+			workload = file.getPath();
+		}
+
+		System.out.println(String.format("%-9s %12s %12s %10s %12s %12s %12s %10s",
+				"Policy", "IO wait/op", "IO queue", "IO util", "Service/op",
+				"Seek/op", "Throughput", "Saved"));
+		double fcfsWait = 0;
+		for (int policy = 0; policy < POLICY_NAMES.length; policy++) {
+			double[] results = sweep.run(params, "-workload=" + workload,
+					"-disk=" + POLICY_NAMES[policy] + ":" + transferTime);
+			double operations = Sweep.get(results, "io_operations");
+			double requests = Sweep.get(results, "disk_requests");
+			double wait = operations > 0 ? Sweep.get(results, "io_wait_ms") / operations : 0;
+			if (policy == FCFS) {
+				fcfsWait = wait;
+			}
+			System.out.println(String.format("%-9s %10.1f ms %12.2f %9.1f%% %9.1f ms %12.1f %12.3f %9.1f%%",
+					POLICY_NAMES[policy], wait,
+					Sweep.get(results, "io_queue_length_time") / params[3],
+					results[ResultCache.IO_UTILIZATION],
+					operations > 0 ? Sweep.get(results, "io_active_ms") / operations : 0,
+					requests > 0 ? Sweep.get(results, "disk_seek_distance") / requests : 0,
+					results[ResultCache.THROUGHPUT],
+					fcfsWait > 0 ? 100 * (fcfsWait - wait) / fcfsWait : 0));
+		}
+		sweep.printReport();
+	}
+}
@@ -0,0 +1,28 @@
+package simulator;
+
+import java.util.Random;
+
+/**
+ * A probability distribution of times or sizes in the workload. Samples are
+ * drawn from a stream of {@link RandomStreams}, or from the stream of a
+ * process, so that the common random numbers of two runs stay aligned. Distributions are created from a textual
+ * specification by {@link Distributions#parse(String)}, and
+ * {@link Object#toString()} gives that specification back.
+ */
+public interface Distribution {
+	/**
+	 * Draws a value.
+	 * 
+	 * @param random The random stream to use, e.g.
+	 *            {@code RandomStreams.get(RandomStreams.ARRIVALS)}.
+	 * @return The value, never negative.
+	 */
+	public double sample(Random random);
+
+	/**
+	 * Returns the expected value.
+	 * 
+	 * @return The mean.
+	 */
+	public double getMean();
+}
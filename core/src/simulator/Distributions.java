@@ -0,0 +1,391 @@
+package simulator;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The distributions available to the workload, and the parser of their
+ * specifications. A specification is a name followed by parameters, all
+ * separated by ':', and all times in ms:
+ * <ul>
+ * <li>constant:value</li>
+ * <li>uniform:mean, uniform between 0 and twice the mean as in the original
+ * simulator, or uniform:low:high</li>
+ * <li>exp:mean, exponential</li>
+ * <li>erlang:k:mean, the sum of k exponential phases</li>
+ * <li>hyperexp:p1:mean1:p2:mean2..., an exponential with mean i chosen with
+ * probability pi</li>
+ * <li>lognormal:mean:cv, with the given coefficient of variation</li>
+ * <li>pareto:alpha:low:high, Pareto with shape alpha bounded to
+ * [low, high]</li>
+ * <li>mmpp:interval0:interval1:sojourn0:sojourn1, see
+ * {@link MmppDistribution}</li>
+ * <li>empirical:bins or empirical:file, see {@link EmpiricalDistribution}</li>
+ * </ul>
+ */
+public class Distributions {
+	/**
+	 * Parses a specification.
+	 * 
+	 * @param spec The specification, e.g. "lognormal:50:2".
+	 * @return The distribution.
+	 * @throws IllegalArgumentException If the specification is not valid.
+	 */
+	public static Distribution parse(String spec) {
+		spec = spec.trim();
+		int colon = spec.indexOf(':');
+		if (colon < 0) {
+			throw new IllegalArgumentException("Expected name:parameters in " + spec);
+		}
+		String name = spec.substring(0, colon).toLowerCase();
+		String rest = spec.substring(colon + 1);
+		if (name.equals("empirical")) {
+			if (rest.indexOf('=') >= 0) {
+				return EmpiricalDistribution.parse(rest);
+			}
+			try {
+				return EmpiricalDistribution.load(new File(rest));
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Cannot read histogram " + rest, e);
+			}
+		}
+
+		String[] fields = rest.split(":");
+		double[] p = new double[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			p[i] = Double.parseDouble(fields[i]);
+		}
+		if (name.equals("constant") && p.length == 1) {
+			return new Uniform(p[0], p[0]);
+		} else if (name.equals("uniform") && p.length == 1) {
+			return new Uniform(0, 2 * p[0]);
+		} else if (name.equals("uniform") && p.length == 2) {
+			return new Uniform(p[0], p[1]);
+		} else if (name.equals("exp") && p.length == 1) {
+			return new Erlang(1, p[0]);
+		} else if (name.equals("erlang") && p.length == 2) {
+			return new Erlang((int) p[0], p[1]);
+		} else if (name.equals("hyperexp") && p.length >= 2 && p.length % 2 == 0) {
+			return new Hyperexponential(p);
+		} else if (name.equals("lognormal") && p.length == 2) {
+			return new Lognormal(p[0], p[1]);
+		} else if (name.equals("pareto") && p.length == 3) {
+			return new BoundedPareto(p[0], p[1], p[2]);
+		} else if (name.equals("mmpp") && p.length == 4) {
+			return new MmppDistribution(p[0], p[1], p[2], p[3]);
+		}
+		throw new IllegalArgumentException("Unknown distribution or wrong number of parameters: " + spec);
+	}
+
+	/**
+	 * Formats a parameter without a trailing ".0".
+	 * 
+	 * @param value The parameter.
+	 * @return The shortest text that parses to the same value.
+	 */
+	static String format(double value) {
+		return value == Math.rint(value) && Math.abs(value) < 1e15
+				? Long.toString((long) value) : Double.toString(value);
+	}
+
+	private static double exponential(Random random, double mean) {
+		return -Math.log(1 - random.nextDouble()) * mean;
+	}
+
+	/**
+	 * The error function, with an error below 1.5e-7 (Abramowitz and Stegun
+	 * 7.1.26).
+	 */
+	static double erf(double x) {
+		double t = 1 / (1 + 0.3275911 * Math.abs(x));
+		double y = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+				+ t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+		return x >= 0 ? y : -y;
+	}
+
+	/**
+	 * Uniform between two bounds, a constant if they are equal.
+	 */
+	public static class Uniform implements Distribution {
+		private double low, high;
+
+		public Uniform(double low, double high) {
+			if (high < low || low < 0) {
+				throw new IllegalArgumentException("Expected 0 <= low <= high");
+			}
+			this.low = low;
+			this.high = high;
+		}
+
+		public double sample(Random random) {
+			return low == high ? low : low + random.nextDouble() * (high - low);
+		}
+
+		public double getMean() {
+			return (low + high) / 2;
+		}
+
+		public String toString() {
+			return low == high ? "constant:" + format(low)
+					: low == 0 ? "uniform:" + format(high / 2) : "uniform:" + format(low) + ":" + format(high);
+		}
+	}
+
+	/**
+	 * Erlang: the sum of k exponentially distributed phases. With k = 1 it is
+	 * the exponential distribution.
+	 */
+	public static class Erlang implements Distribution {
+		private int k;
+		private double mean;
+
+		public Erlang(int k, double mean) {
+			if (k < 1 || mean <= 0) {
+				throw new IllegalArgumentException("Expected k >= 1 and a positive mean");
+			}
+			this.k = k;
+			this.mean = mean;
+		}
+
+		public double sample(Random random) {
+			// The product of the uniforms needs one logarithm for all phases
+			double product = 1;
+			for (int i = 0; i < k; i++) {
+				product *= 1 - random.nextDouble();
+			}
+			return -Math.log(product) * mean / k;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		/** Returns the probability of a value of at most x */
+		double cdf(double x) {
+			double rate = k / mean;
+			double term = 1, sum = 0;
+			for (int j = 0; j < k; j++) {
+				sum += term;
+				term *= rate * x / (j + 1);
+			}
+			return 1 - Math.exp(-rate * x) * sum;
+		}
+
+		public String toString() {
+			return k == 1 ? "exp:" + format(mean) : "erlang:" + k + ":" + format(mean);
+		}
+	}
+
+	/**
+	 * Hyperexponential: a mix of exponential distributions, which gives a
+	 * coefficient of variation above 1.
+	 */
+	public static class Hyperexponential implements Distribution {
+		/** Cumulative probability of each phase */
+		private double[] cumulative;
+		private double[] means;
+		private double[] probabilities;
+
+		/**
+		 * @param parameters Pairs of probability and mean; the probabilities
+		 *            are normalized to add up to 1.
+		 */
+		public Hyperexponential(double[] parameters) {
+			int n = parameters.length / 2;
+			probabilities = new double[n];
+			means = new double[n];
+			cumulative = new double[n];
+			double sum = 0;
+			for (int i = 0; i < n; i++) {
+				probabilities[i] = parameters[2 * i];
+				means[i] = parameters[2 * i + 1];
+				if (probabilities[i] < 0 || means[i] <= 0) {
+					throw new IllegalArgumentException("Expected probabilities >= 0 and positive means");
+				}
+				sum += probabilities[i];
+			}
+			double c = 0;
+			for (int i = 0; i < n; i++) {
+				if (Math.abs(sum - 1) > 1e-9) {
+					probabilities[i] /= sum;
+				}
+				c += probabilities[i];
+				cumulative[i] = c;
+			}
+		}
+
+		public double sample(Random random) {
+			double u = random.nextDouble();
+			int i = 0;
+			while (i < cumulative.length - 1 && u >= cumulative[i]) {
+				i++;
+			}
+			return exponential(random, means[i]);
+		}
+
+		/** Returns the probability density at x */
+		double density(double x) {
+			double f = 0;
+			for (int i = 0; i < means.length; i++) {
+				f += probabilities[i] / means[i] * Math.exp(-x / means[i]);
+			}
+			return f;
+		}
+
+		/** Returns the probability of a value of at most x */
+		double cdf(double x) {
+			double f = 0;
+			for (int i = 0; i < means.length; i++) {
+				f += probabilities[i] * (1 - Math.exp(-x / means[i]));
+			}
+			return f;
+		}
+
+		public double getMean() {
+			double mean = 0;
+			for (int i = 0; i < means.length; i++) {
+				mean += probabilities[i] * means[i];
+			}
+			return mean;
+		}
+
+		public String toString() {
+			StringBuilder sb = new StringBuilder("hyperexp");
+			for (int i = 0; i < means.length; i++) {
+				sb.append(':').append(format(probabilities[i])).append(':').append(format(means[i]));
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Lognormal, given by its mean and coefficient of variation.
+	 */
+	public static class Lognormal implements Distribution {
+		private double mean, cv;
+		/** The parameters of the underlying normal distribution */
+		private double mu, sigma;
+
+		public Lognormal(double mean, double cv) {
+			if (mean <= 0 || cv < 0) {
+				throw new IllegalArgumentException("Expected a positive mean and cv >= 0");
+			}
+			this.mean = mean;
+			this.cv = cv;
+			double variance = Math.log(1 + cv * cv);
+			sigma = Math.sqrt(variance);
+			mu = Math.log(mean) - variance / 2;
+		}
+
+		public double sample(Random random) {
+			// Box-Muller, one of the pair is used so every sample takes two numbers
+			double r = Math.sqrt(-2 * Math.log(1 - random.nextDouble()));
+			double z = r * Math.cos(2 * Math.PI * random.nextDouble());
+			return Math.exp(mu + sigma * z);
+		}
+
+		/** Returns the probability of a value of at most x */
+		double cdf(double x) {
+			return x <= 0 ? 0 : 0.5 * (1 + erf((Math.log(x) - mu) / (sigma * Math.sqrt(2))));
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public String toString() {
+			return "lognormal:" + format(mean) + ":" + format(cv);
+		}
+	}
+
+	/**
+	 * Pareto with shape alpha, bounded to [low, high]: heavy tailed, yet with
+	 * finite moments, and sampled by inverting its distribution function.
+	 */
+	public static class BoundedPareto implements Distribution {
+		private double alpha, low, high;
+
+		public BoundedPareto(double alpha, double low, double high) {
+			if (alpha <= 0 || low <= 0 || high <= low) {
+				throw new IllegalArgumentException("Expected alpha > 0 and 0 < low < high");
+			}
+			this.alpha = alpha;
+			this.low = low;
+			this.high = high;
+		}
+
+		public double sample(Random random) {
+			double u = random.nextDouble();
+			double ratio = Math.pow(low / high, alpha);
+			return low / Math.pow(1 - u * (1 - ratio), 1 / alpha);
+		}
+
+		/** Returns the probability of a value of at most x */
+		double cdf(double x) {
+			if (x <= low) {
+				return 0;
+			}
+			return Math.min(1, (1 - Math.pow(low / x, alpha)) / (1 - Math.pow(low / high, alpha)));
+		}
+
+		public double getMean() {
+			double ratio = Math.pow(low / high, alpha);
+			if (alpha == 1) {
+				return low * Math.log(high / low) / (1 - ratio);
+			}
+			return Math.pow(low, alpha) / (1 - ratio) * alpha / (alpha - 1)
+					* (Math.pow(low, 1 - alpha) - Math.pow(high, 1 - alpha));
+		}
+
+		public String toString() {
+			return "pareto:" + format(alpha) + ":" + format(low) + ":" + format(high);
+		}
+	}
+
+	/**
+	 * Samples each distribution given and prints the mean and coefficient of
+	 * variation found against the expected mean, and the time per sample.
+	 * 
+	 * @param args Specifications, optionally followed by -n=samples and
+	 *            -seed=n.
+	 */
+	public static void main(String args[]) {
+		int n = 1000000;
+		long seed = 1;
+		List<String> specs = new ArrayList<String>();
+		for (String arg : args) {
+			if (arg.startsWith("-n=")) {
+				n = Integer.parseInt(arg.substring(3));
+			} else if (arg.startsWith("-seed=")) {
+				seed = Long.parseLong(arg.substring(6));
+			} else {
+				specs.add(arg);
+			}
+		}
+		if (specs.isEmpty()) {
+			String[] defaults = { "uniform:50", "exp:50", "erlang:4:50", "hyperexp:0.9:10:0.1:410",
+					"lognormal:50:2", "pareto:1.1:10:10000", "mmpp:10:200:1000:4000",
+					"empirical:0-10=50/10-100=30/100-1000=15/5000=5" };
+			specs.addAll(Arrays.asList(defaults));
+		}
+
+		System.out.println(String.format("%-48s %10s %10s %8s %10s", "Distribution", "Mean",
+				"Expected", "CV", "ns/sample"));
+		for (String spec : specs) {
+			RandomStreams.setSeed(seed);
+			Distribution d = parse(spec);
+			double sum = 0, squares = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < n; i++) {
+				double x = d.sample(RandomStreams.get(RandomStreams.ARRIVALS));
+				sum += x;
+				squares += x * x;
+			}
+			long nanos = System.nanoTime() - start;
+			double mean = sum / n;
+			double sd = Math.sqrt(Math.max(0, squares / n - mean * mean));
+			System.out.println(String.format("%-48s %10.2f %10.2f %8.2f %10.1f", d, mean, d.getMean(),
+					sd / mean, (double) nanos / n));
+		}
+	}
+}
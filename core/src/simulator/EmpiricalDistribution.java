@@ -0,0 +1,179 @@
+package simulator;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A distribution given by a histogram. Each bin has a range and a weight; a
+ * sample picks a bin with probability proportional to its weight and then a
+ * value uniformly within the bin. Bins of width 0 are point masses.
+ * 
+ * Bins are picked with Walker's alias method (in Vose's construction): the
+ * bins are cut up and paired so that every one of n equally likely columns
+ * holds at most two bins, so a sample takes one uniform number and constant
+ * time, however many bins there are.
+ */
+public class EmpiricalDistribution implements Distribution {
+	/** The ranges of the bins */
+	private double[] low, high;
+	/** The weights of the bins, as given */
+	private double[] weights;
+	/** The probability of the column's own bin, otherwise it is the alias */
+	private double[] probability;
+	/** The other bin of each column */
+	private int[] alias;
+	private double mean;
+
+	/**
+	 * Creates the distribution of a histogram.
+	 * 
+	 * @param low The lower ends of the bins.
+	 * @param high The upper ends of the bins.
+	 * @param weights The weights of the bins, not all 0.
+	 */
+	public EmpiricalDistribution(double[] low, double[] high, double[] weights) {
+		int n = weights.length;
+		if (n == 0 || low.length != n || high.length != n) {
+			throw new IllegalArgumentException("Expected the same number of bounds and weights");
+		}
+		this.low = low.clone();
+		this.high = high.clone();
+		this.weights = weights.clone();
+
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			if (weights[i] < 0 || high[i] < low[i]) {
+				throw new IllegalArgumentException("Bad bin " + low[i] + "-" + high[i] + "=" + weights[i]);
+			}
+			sum += weights[i];
+			mean += weights[i] * (low[i] + high[i]) / 2;
+		}
+		if (sum <= 0) {
+			throw new IllegalArgumentException("All weights are 0");
+		}
+		mean /= sum;
+
+		probability = new double[n];
+		alias = new int[n];
+		double[] scaled = new double[n];
+		int[] small = new int[n], large = new int[n];
+		int smallSize = 0, largeSize = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = weights[i] * n / sum;
+			if (scaled[i] < 1) {
+				small[smallSize++] = i;
+			} else {
+				large[largeSize++] = i;
+			}
+		}
+		while (smallSize > 0 && largeSize > 0) {
+			int s = small[--smallSize];
+			int l = large[--largeSize];
+			probability[s] = scaled[s];
+			alias[s] = l;
+			scaled[l] += scaled[s] - 1;
+			if (scaled[l] < 1) {
+				small[smallSize++] = l;
+			} else {
+				large[largeSize++] = l;
+			}
+		}
+		// What is left is 1 up to rounding errors
+		while (largeSize > 0) {
+			probability[large[--largeSize]] = 1;
+		}
+		while (smallSize > 0) {
+			probability[small[--smallSize]] = 1;
+		}
+	}
+
+	/**
+	 * Parses a histogram given as bins separated by '/', each either
+	 * low-high=weight or value=weight, for instance "0-10=5/10-100=3/500=1".
+	 * 
+	 * @param spec The bins.
+	 * @return The distribution.
+	 */
+	public static EmpiricalDistribution parse(String spec) {
+		return parse(Arrays.asList(spec.split("/")), "=");
+	}
+
+	/**
+	 * Reads a histogram from a file with one bin per line, either
+	 * "low high weight" or "value weight". Empty lines and lines starting with
+	 * '#' are skipped.
+	 * 
+	 * @param file The file.
+	 * @return The distribution.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public static EmpiricalDistribution load(File file) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() > 0 && !line.startsWith("#")) {
+					lines.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return parse(lines, "\\s+");
+	}
+
+	private static EmpiricalDistribution parse(List<String> bins, String separator) {
+		int n = bins.size();
+		double[] low = new double[n], high = new double[n], weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			String bin = bins.get(i).trim();
+			String[] fields = bin.split(separator);
+			if (separator.equals("=") && fields.length == 2) {
+				int dash = fields[0].indexOf('-', 1);
+				fields = dash > 0 ? new String[] { fields[0].substring(0, dash),
+						fields[0].substring(dash + 1), fields[1] } : fields;
+			}
+			if (fields.length < 2 || fields.length > 3) {
+				throw new IllegalArgumentException("Expected low-high=weight or value=weight in " + bin);
+			}
+			low[i] = Double.parseDouble(fields[0]);
+			high[i] = Double.parseDouble(fields[fields.length - 2]);
+			weights[i] = Double.parseDouble(fields[fields.length - 1]);
+		}
+		return new EmpiricalDistribution(low, high, weights);
+	}
+
+	public double sample(Random random) {
+		double u = random.nextDouble() * probability.length;
+		int column = (int) u;
+		int bin = u - column < probability[column] ? column : alias[column];
+		if (high[bin] == low[bin]) {
+			return low[bin];
+		}
+		return low[bin] + random.nextDouble() * (high[bin] - low[bin]);
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Returns the bins in the format read by {@link #parse(String)}.
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder("empirical:");
+		for (int i = 0; i < weights.length; i++) {
+			if (i > 0) {
+				sb.append('/');
+			}
+			sb.append(Distributions.format(low[i]));
+			if (high[i] != low[i]) {
+				sb.append('-').append(Distributions.format(high[i]));
+			}
+			sb.append('=').append(Distributions.format(weights[i]));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,406 @@
+package simulator;
+
+/**
+ * Analytical estimate of the queueing network simulated by {@link Simulator}.
+ * Instead of running the event loop, the CPU and the I/O device are treated
+ * as the two stations of a product form network, and the memory as a limit on
+ * how many processes may be inside that network at the same time.
+ * 
+ * The network inside memory is solved with exact mean value analysis (MVA) for
+ * every population up to the number of processes that fit in memory. The
+ * whole system is then modelled as a birth-death process where the arrival
+ * rate is constant and the completion rate with n processes admitted is the
+ * MVA throughput for n (a flow-equivalent server). When memory is large the
+ * result is the same as that of the open Jackson network, which is also
+ * available through {@link #estimateOpen()}.
+ * 
+ * The workload parameters are derived from the same formulas as used by the
+ * {@link Process} constructor and the random draws in {@link Simulator}.
+ */
+public class Estimator implements Constants {
+	/** The size of the memory */
+	private long memorySize;
+	/** Max CPU time */
+	private long maxCpuTime;
+	/** The average length of an I/O operation */
+	private long avgIoTime;
+	/** The length of the simulation */
+	private long simulationLength;
+	/** The average time between process arrivals */
+	private long avgArrivalInterval;
+
+	/** Process arrival rate (processes per ms) */
+	private double arrivalRate;
+	/** Total CPU demand of an average process (ms) */
+	private double cpuDemand;
+	/** Total I/O demand of an average process (ms) */
+	private double ioDemand;
+	/** Average number of I/O operations per process */
+	private double ioVisits;
+	/** Average amount of memory needed by a process */
+	private double avgMemoryNeeded;
+	/** The number of processes that fit in memory at the same time */
+	private int multiprogrammingLevel;
+
+	/** Estimated throughput (processes per ms) */
+	private double throughput;
+	/** Estimated fraction of time the CPU is busy */
+	private double cpuUtilization;
+	/** Estimated fraction of time the I/O device is busy */
+	private double ioUtilization;
+	/** Estimated average number of processes waiting for the CPU */
+	private double cpuQueueLength;
+	/** Estimated average number of processes waiting for I/O */
+	private double ioQueueLength;
+	/** Estimated average number of processes waiting for memory */
+	private double memoryQueueLength;
+	/** Estimated average time an admitted process waited for memory (ms) */
+	private double memoryWait;
+	/** Whether or not the arrival rate exceeds what the system can handle */
+	private boolean saturated;
+
+	/**
+	 * Creates an estimator with the same parameters as the simulator.
+	 * 
+	 * @param memorySize The size of the memory.
+	 * @param maxCpuTime The maximum time quant used by the RR algorithm.
+	 * @param avgIoTime The average length of an I/O operation.
+	 * @param simulationLength The length of the simulation.
+	 * @param avgArrivalInterval The average time between process arrivals.
+	 */
+	public Estimator(long memorySize, long maxCpuTime, long avgIoTime,
+			long simulationLength, long avgArrivalInterval) {
+		this.memorySize = memorySize;
+		this.maxCpuTime = maxCpuTime;
+		this.avgIoTime = avgIoTime;
+		this.simulationLength = simulationLength;
+		this.avgArrivalInterval = avgArrivalInterval;
+
+		deriveWorkload();
+	}
+
+	/**
+	 * Derives the average demands of a process from the formulas used when
+	 * processes are created.
+	 */
+	private void deriveWorkload() {
+		// Arrival and I/O times are drawn as 1 + floor(2 * U * avg)
+		this.arrivalRate = 1.0 / (this.avgArrivalInterval + 0.5);
+		double ioServiceTime = this.avgIoTime + 0.5;
+
+		// CPU time needed varies from 100 to 10000 milliseconds
+		this.cpuDemand = 100 + 9900 / 2.0;
+
+		// The I/O interval is k% of the CPU time, k uniform in 1..25, so the
+		// number of I/O operations is on average the mean of 100/k
+		double visits = 0;
+		for (int k = 1; k <= 25; k++) {
+			visits += 100.0 / k;
+		}
+		this.ioVisits = visits / 25;
+		this.ioDemand = this.ioVisits * ioServiceTime;
+
+		// Memory need varies from 100 kB to 25% of memory size. The memory
+		// queue is served in FIFO order, so on average half a process worth
+		// of memory is left unused by the process blocking the queue.
+		this.avgMemoryNeeded = 100 + (this.memorySize / 4 - 100) / 2.0;
+		this.multiprogrammingLevel = Math.max(1,
+				(int) (this.memorySize / this.avgMemoryNeeded - 0.5));
+	}
+
+	/**
+	 * Estimates the system as an open Jackson network, ignoring the memory
+	 * limit. Only meaningful when both devices have a utilization below 1.
+	 * 
+	 * @return {@code true} if the open network is stable, {@code false}
+	 *         otherwise.
+	 */
+	public boolean estimateOpen() {
+		double rhoCpu = this.arrivalRate * this.cpuDemand;
+		double rhoIo = this.arrivalRate * this.ioDemand;
+
+		this.memoryQueueLength = 0;
+		this.memoryWait = 0;
+		this.saturated = rhoCpu >= 1 || rhoIo >= 1;
+		if (this.saturated) {
+			this.throughput = 1 / Math.max(this.cpuDemand, this.ioDemand);
+			this.cpuUtilization = Math.min(1, rhoCpu);
+			this.ioUtilization = Math.min(1, rhoIo);
+			this.cpuQueueLength = Double.POSITIVE_INFINITY;
+			this.ioQueueLength = Double.POSITIVE_INFINITY;
+			return false;
+		}
+
+		this.throughput = this.arrivalRate;
+		this.cpuUtilization = rhoCpu;
+		this.ioUtilization = rhoIo;
+		// Waiting (not in service) processes of an M/M/1 station
+		this.cpuQueueLength = rhoCpu * rhoCpu / (1 - rhoCpu);
+		this.ioQueueLength = rhoIo * rhoIo / (1 - rhoIo);
+		return true;
+	}
+
+	/**
+	 * Estimates the system with the memory limit taken into account. MVA gives
+	 * the behaviour for every number of processes in memory, and the
+	 * flow-equivalent server gives the distribution of that number.
+	 */
+	public void estimate() {
+		int n = this.multiprogrammingLevel;
+		double[] x = new double[n + 1];
+		double[] qCpu = new double[n + 1];
+		double[] qIo = new double[n + 1];
+
+		// Exact MVA for the closed network of CPU and I/O
+		for (int i = 1; i <= n; i++) {
+			double rCpu = this.cpuDemand * (1 + qCpu[i - 1]);
+			double rIo = this.ioDemand * (1 + qIo[i - 1]);
+			x[i] = i / (rCpu + rIo);
+			qCpu[i] = x[i] * rCpu;
+			qIo[i] = x[i] * rIo;
+		}
+
+		this.saturated = this.arrivalRate >= x[n];
+		if (this.saturated) {
+			// Memory is always full and the memory queue grows linearly
+			this.throughput = x[n];
+			this.cpuUtilization = x[n] * this.cpuDemand;
+			this.ioUtilization = x[n] * this.ioDemand;
+			this.cpuQueueLength = qCpu[n] - this.cpuUtilization;
+			this.ioQueueLength = qIo[n] - this.ioUtilization;
+			this.memoryQueueLength = (this.arrivalRate - x[n])
+					* this.simulationLength / 2;
+			// A process admitted at time t arrived at t * x / arrivalRate
+			this.memoryWait = (1 - x[n] / this.arrivalRate)
+					* this.simulationLength / 2;
+			return;
+		}
+
+		// Unnormalized birth-death probabilities for 0..n admitted
+		double[] p = new double[n + 1];
+		p[0] = 1;
+		for (int i = 1; i <= n; i++) {
+			p[i] = p[i - 1] * this.arrivalRate / x[i];
+		}
+		// Beyond n the completion rate stays at x[n], a geometric tail
+		double r = this.arrivalRate / x[n];
+		double tail = p[n] * r / (1 - r);
+		double total = tail;
+		for (int i = 0; i <= n; i++) {
+			total += p[i];
+		}
+
+		double lCpu = tail * qCpu[n];
+		double lIo = tail * qIo[n];
+		for (int i = 1; i <= n; i++) {
+			lCpu += p[i] * qCpu[i];
+			lIo += p[i] * qIo[i];
+		}
+		lCpu /= total;
+		lIo /= total;
+
+		this.throughput = this.arrivalRate;
+		this.cpuUtilization = this.arrivalRate * this.cpuDemand;
+		this.ioUtilization = this.arrivalRate * this.ioDemand;
+		this.cpuQueueLength = lCpu - this.cpuUtilization;
+		this.ioQueueLength = lIo - this.ioUtilization;
+		this.memoryQueueLength = p[n] * r / ((1 - r) * (1 - r)) / total;
+		this.memoryWait = this.memoryQueueLength / this.throughput;
+	}
+
+	/**
+	 * Returns the estimated throughput.
+	 * 
+	 * @return Processes completed per second.
+	 */
+	public double getThroughput() {
+		return this.throughput * 1000;
+	}
+
+	/**
+	 * Returns the estimated CPU utilization.
+	 * 
+	 * @return The CPU utilization in percent.
+	 */
+	public double getCpuUtilization() {
+		return this.cpuUtilization * 100;
+	}
+
+	/**
+	 * Returns the estimated I/O utilization.
+	 * 
+	 * @return The I/O utilization in percent.
+	 */
+	public double getIoUtilization() {
+		return this.ioUtilization * 100;
+	}
+
+	/**
+	 * Returns the estimated average length of the memory queue.
+	 * 
+	 * @return The average number of processes waiting for memory.
+	 */
+	public double getMemoryQueueLength() {
+		return this.memoryQueueLength;
+	}
+
+	/**
+	 * Returns the estimated average length of the CPU queue.
+	 * 
+	 * @return The average number of processes waiting for the CPU.
+	 */
+	public double getCpuQueueLength() {
+		return this.cpuQueueLength;
+	}
+
+	/**
+	 * Returns the estimated average length of the I/O queue.
+	 * 
+	 * @return The average number of processes waiting for I/O.
+	 */
+	public double getIoQueueLength() {
+		return this.ioQueueLength;
+	}
+
+	/**
+	 * Returns the estimated time a process spends in the system after being
+	 * granted memory, by Little's law.
+	 * 
+	 * @return The average response time in ms.
+	 */
+	public double getTimeInSystem() {
+		return (this.cpuQueueLength + this.ioQueueLength + this.cpuUtilization
+				+ this.ioUtilization) / this.throughput;
+	}
+
+	/**
+	 * Returns the estimated time a process waits for memory.
+	 * 
+	 * @return The average memory wait in ms.
+	 */
+	public double getMemoryWait() {
+		return this.memoryWait;
+	}
+
+	/**
+	 * Returns the estimated time a process waits for the CPU.
+	 * 
+	 * @return The average CPU wait in ms.
+	 */
+	public double getCpuWait() {
+		return this.cpuQueueLength / this.throughput;
+	}
+
+	/**
+	 * Returns the estimated time a process waits for I/O.
+	 * 
+	 * @return The average I/O wait in ms.
+	 */
+	public double getIoWait() {
+		return this.ioQueueLength / this.throughput;
+	}
+
+	/**
+	 * Checks whether processes arrive faster than they can be served.
+	 * 
+	 * @return {@code true} if the memory queue grows without bound.
+	 */
+	public boolean isSaturated() {
+		return this.saturated;
+	}
+
+	/**
+	 * Prints out the estimate.
+	 */
+	public void printReport() {
+		System.out.println();
+		System.out.println("Estimated statistics:");
+		System.out.println();
+		System.out.println("Processes fitting in memory:                                  " + this.multiprogrammingLevel);
+		System.out.println("Average I/O operations per process:                           " + (float) this.ioVisits);
+		System.out.println("Saturated (memory queue keeps growing):                       " + this.saturated);
+		System.out.println("Average throughput (processes per second):                    " + (float) getThroughput());
+		System.out.println("CPU utilization:                                              " + (float) getCpuUtilization() + "%");
+		System.out.println("IO utilization:                                               " + (float) getIoUtilization() + "%");
+		System.out.println("Average memory queue length:                                  " + (float) getMemoryQueueLength());
+		System.out.println("Average CPU queue length:                                     " + (float) getCpuQueueLength());
+		System.out.println("Average IO queue length:                                      " + (float) getIoQueueLength());
+		System.out.println("Average time spent in system per process:                     " + (long) getTimeInSystem() + " ms");
+		System.out.println("Average time spent waiting for memory per process:            " + (long) getMemoryWait() + " ms");
+		System.out.println("Average time spent waiting for CPU per process:               " + (long) getCpuWait() + " ms");
+		System.out.println("Average time spent waiting for I/O per process:               " + (long) getIoWait() + " ms");
+	}
+
+	/**
+	 * Runs the simulator without GUI using the same parameters, and prints
+	 * the estimate next to the simulated values together with the relative
+	 * error. Large errors mean the estimate should not be trusted for this
+	 * configuration.
+	 */
+	public void validate() {
+		ResultCache.simulate(new String[] { Long.toString(this.memorySize), Long.toString(this.maxCpuTime),
+				Long.toString(this.avgIoTime), Long.toString(this.simulationLength),
+				Long.toString(this.avgArrivalInterval) });
+		Statistics.printReport(this.simulationLength);
+
+		System.out.println();
+		System.out.println("Validation:                        estimated   simulated   error");
+		printComparison("Throughput (processes/s)", getThroughput(), Statistics.getProcessThroughput());
+		printComparison("CPU utilization (%)", getCpuUtilization(), Statistics.getCpuUtilization());
+		printComparison("IO utilization (%)", getIoUtilization(), Statistics.getIoUtilization());
+		printComparison("Memory queue length", getMemoryQueueLength(), Statistics.getAverageMemoryQueueLength(this.simulationLength));
+		printComparison("CPU queue length", getCpuQueueLength(), Statistics.getAverageCpuQueueLength(this.simulationLength));
+		printComparison("IO queue length", getIoQueueLength(), Statistics.getAverageIoQueueLength(this.simulationLength));
+		printComparison("Time in system (ms)", getTimeInSystem(), Statistics.getAverageTimeInSystem());
+		printComparison("Memory wait (ms)", getMemoryWait(), Statistics.getAverageMemoryWait());
+		printComparison("CPU wait (ms)", getCpuWait(), Statistics.getAverageCpuWait());
+		printComparison("IO wait (ms)", getIoWait(), Statistics.getAverageIoWait());
+	}
+
+	/**
+	 * Prints one line of the validation table.
+	 * 
+	 * @param name The name of the measure.
+	 * @param estimated The estimated value.
+	 * @param simulated The simulated value.
+	 */
+	private static void printComparison(String name, double estimated, double simulated) {
+		String error = simulated != 0
+				? String.format("%+.1f%%", 100 * (estimated - simulated) / simulated)
+				: "-";
+		System.out.println(String.format("%-32s %11.2f %11.2f   %s", name,
+				estimated, simulated, error));
+	}
+
+	/**
+	 * Prints the estimate for the given parameters. Parameters are given in
+	 * the same order as the questions asked by {@link Simulator#main}; the
+	 * testing values are used if they are left out. If the last argument is
+	 * "-validate" the simulator is run as well.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by -validate.
+	 */
+	public static void main(String args[]) {
+		long[] params = { TESTING_MEMORY_SIZSE, TESTING_CPU_TIME,
+				TESTING_IO_TIME, TESTING_SIMULATION_LENGTH,
+				TESTING_AVG_ARRIVAL_INTERVAL };
+		boolean validate = false;
+		int i = 0;
+		for (String arg : args) {
+			if (arg.equals("-validate")) {
+				validate = true;
+			} else if (i < params.length) {
+				params[i++] = Long.parseLong(arg);
+			}
+		}
+
+		Estimator estimator = new Estimator(params[0], params[1], params[2],
+				params[3], params[4]);
+		estimator.estimate();
+		estimator.printReport();
+		if (validate) {
+			estimator.validate();
+		}
+	}
+}
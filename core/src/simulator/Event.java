@@ -1,3 +1,5 @@
+package simulator;
+
 /**
  * This class contains information about an event. The different types of events
  * are described in the Constants interface.
@@ -10,6 +12,8 @@ public class Event implements Comparable {
 	private int type;
 	/** The time at which the event will occur */
 	private long time;
+	/** The I/O device the event concerns, for END_IO events */
+	private int device;
 
 	/**
 	 * Creates a new event with the given parameters.
@@ -18,8 +22,20 @@ public class Event implements Comparable {
 	 * @param time The time at which the event will occur.
 	 */
 	public Event(int type, long time) {
+		this(type, time, 0);
+	}
+
+	/**
+	 * Creates a new event concerning a specific I/O device.
+	 * 
+	 * @param type The type of event, as defined in the Constants interface.
+	 * @param time The time at which the event will occur.
+	 * @param device The index of the I/O device.
+	 */
+	public Event(int type, long time, int device) {
 		this.type = type;
 		this.time = time;
+		this.device = device;
 	}
 
 	/**
@@ -40,6 +56,15 @@ public class Event implements Comparable {
 		return time;
 	}
 
+	/**
+	 * Gets the I/O device this event concerns.
+	 * 
+	 * @return The index of the I/O device, 0 unless given.
+	 */
+	public int getDevice() {
+		return device;
+	}
+
 	/**
 	 * Compares the time of two events. This method is used when sorting the
 	 * list of events maintained by the EventQueue class.
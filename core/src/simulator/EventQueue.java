@@ -1,3 +1,5 @@
+package simulator;
+
 import java.util.*;
 
 /**
@@ -41,6 +43,24 @@ public class EventQueue
 		  return (Event)events.remove(0);
     }
 
+	/**
+	 * Removes an event that has not occurred yet, such as the end of a CPU
+	 * slice that is cut short.
+	 * @param event	The event to be removed.
+	 * @return	Whether or not the event was in the queue.
+	 */
+	public boolean removeEvent(Event event) {
+		return events.remove(event);
+	}
+
+	/**
+	 * Returns the time of the earliest event, leaving it in the queue.
+	 * @return	The lowest time value in the queue.
+	 */
+	public long getNextEventTime() {
+		return ((Event)events.get(0)).getTime();
+	}
+
     /**
      * Checks whether or not the event queue is empty.
      * @return	Whether or not the event queue is empty.
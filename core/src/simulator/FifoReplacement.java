@@ -0,0 +1,69 @@
+package simulator;
+
+/**
+ * Evicts the page that was read in first. The frames are kept in a doubly
+ * linked list threaded through two arrays, so no objects are allocated per
+ * page.
+ */
+public class FifoReplacement implements PageReplacement {
+	/** Previous and next frame in the list; index frames is the head */
+	protected int[] prev, next;
+	/** The sentinel heading the list */
+	protected int head;
+
+	/**
+	 * Creates the policy for a memory of the given number of frames.
+	 * 
+	 * @param frames The number of frames.
+	 */
+	public FifoReplacement(int frames) {
+		prev = new int[frames + 1];
+		next = new int[frames + 1];
+		head = frames;
+		prev[head] = head;
+		next[head] = head;
+	}
+
+	/**
+	 * The order of reading decides, so references are ignored.
+	 * 
+	 * @param frame The frame holding the page.
+	 */
+	public void referenced(int frame) {
+	}
+
+	public void missed(long key) {
+	}
+
+	public int victim() {
+		int frame = next[head];
+		unlink(frame);
+		return frame;
+	}
+
+	public void loaded(int frame, long key) {
+		append(frame);
+	}
+
+	public void removed(int frame) {
+		unlink(frame);
+	}
+
+	/**
+	 * Adds a frame at the tail of the list.
+	 */
+	protected void append(int frame) {
+		prev[frame] = prev[head];
+		next[frame] = head;
+		next[prev[head]] = frame;
+		prev[head] = frame;
+	}
+
+	/**
+	 * Removes a frame from the list.
+	 */
+	protected void unlink(int frame) {
+		next[prev[frame]] = next[frame];
+		prev[next[frame]] = prev[frame];
+	}
+}
@@ -0,0 +1,455 @@
+package simulator;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records which process occupied the CPU and each I/O device, and when, so
+ * that the schedule of a long run can be inspected afterwards as a Gantt
+ * chart.
+ * 
+ * The intervals are written to a directory, in gzipped chunk files of
+ * {@link #CHUNK_INTERVALS} intervals each. Within a chunk every interval is
+ * stored as varints: the track, the time since the end of the interval
+ * before, the duration, and the difference to the last process id on the
+ * same track. The index file {@link #INDEX_FILE} lists the tracks and, for
+ * each chunk, the range of times it covers, so a window is extracted by a
+ * binary search over the chunks and reading only the chunks overlapping it.
+ * 
+ * Enabled with {@link Simulator#setTimeline(GanttTimeline)}, which adds a
+ * track for the CPU and one for each I/O device.
+ */
+public class GanttTimeline {
+	/** The number of intervals in each chunk file */
+	public static final int CHUNK_INTERVALS = 16384;
+	/** The name of the index file in the directory */
+	public static final String INDEX_FILE = "timeline.idx";
+
+	/** One chunk file, as listed in the index */
+	private static class Chunk {
+		String file;
+		int intervals;
+		/** The first and the last end time in the chunk */
+		long firstEnd, lastEnd;
+		/** The earliest start time in the chunk */
+		long minStart;
+	}
+
+	private File directory;
+	private List<String> tracks = new ArrayList<String>();
+	private List<Chunk> chunks = new ArrayList<Chunk>();
+	/** The longest interval, limiting how far back a window can reach */
+	private long maxDuration = 0;
+	private long intervals = 0;
+	private long bytes = 0;
+
+	/** The chunk being written, null when reading */
+	private ByteArrayOutputStream buffer;
+	private Chunk current;
+	private long previousEnd;
+	private long[] previousPid = new long[0];
+
+	/**
+	 * Creates an empty timeline to be written to a directory. Files of an
+	 * earlier timeline in the directory are overwritten.
+	 * 
+	 * @param directory The directory, created if it does not exist.
+	 * @throws IOException If the directory cannot be created.
+	 */
+	public GanttTimeline(File directory) throws IOException {
+		this.directory = directory;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create " + directory);
+		}
+		this.buffer = new ByteArrayOutputStream();
+	}
+
+	private GanttTimeline() {
+	}
+
+	/**
+	 * Opens a timeline written earlier.
+	 * 
+	 * @param directory The directory holding the index and the chunks.
+	 * @return The timeline, for reading only.
+	 * @throws IOException If the index cannot be read.
+	 */
+	public static GanttTimeline open(File directory) throws IOException {
+		GanttTimeline timeline = new GanttTimeline();
+		timeline.directory = directory;
+		BufferedReader reader = new BufferedReader(new FileReader(new File(directory, INDEX_FILE)));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.trim().split("\\s+");
+				if (fields[0].equals("tracks")) {
+					timeline.tracks.addAll(Arrays.asList(fields).subList(1, fields.length));
+				} else if (fields[0].equals("max-duration")) {
+					timeline.maxDuration = Long.parseLong(fields[1]);
+				} else if (fields[0].equals("bytes")) {
+					timeline.bytes = Long.parseLong(fields[1]);
+				} else if (fields[0].equals("chunk")) {
+					Chunk chunk = new Chunk();
+					chunk.file = fields[1];
+					chunk.intervals = Integer.parseInt(fields[2]);
+					chunk.firstEnd = Long.parseLong(fields[3]);
+					chunk.lastEnd = Long.parseLong(fields[4]);
+					chunk.minStart = Long.parseLong(fields[5]);
+					timeline.chunks.add(chunk);
+					timeline.intervals += chunk.intervals;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return timeline;
+	}
+
+	/**
+	 * Adds a track, a device whose intervals are recorded.
+	 * 
+	 * @param name The name of the device, without spaces.
+	 * @return The number of the track.
+	 */
+	public int addTrack(String name) {
+		tracks.add(name.replaceAll("\\s+", "_"));
+		previousPid = Arrays.copyOf(previousPid, tracks.size());
+		return tracks.size() - 1;
+	}
+
+	/**
+	 * Records that a process occupied a device. The intervals must be
+	 * recorded in order of their end time.
+	 * 
+	 * @param track The track of the device.
+	 * @param pid The id of the process.
+	 * @param start The time the process got the device.
+	 * @param end The time the process left the device.
+	 * @throws UncheckedIOException If a full chunk cannot be written.
+	 */
+	public void record(int track, long pid, long start, long end) {
+		if (current == null) {
+			current = new Chunk();
+			current.firstEnd = end;
+			current.minStart = start;
+			previousEnd = end;
+			Arrays.fill(previousPid, 0);
+		}
+		writeVarint(track);
+		writeVarint(end - previousEnd);
+		writeVarint(end - start);
+		long delta = pid - previousPid[track];
+		writeVarint((delta << 1) ^ (delta >> 63));
+		previousEnd = end;
+		previousPid[track] = pid;
+
+		current.intervals++;
+		current.lastEnd = end;
+		current.minStart = Math.min(current.minStart, start);
+		maxDuration = Math.max(maxDuration, end - start);
+		intervals++;
+		if (current.intervals == CHUNK_INTERVALS) {
+			try {
+				flushChunk();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private void writeVarint(long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.write((int) value);
+	}
+
+	private void flushChunk() throws IOException {
+		current.file = String.format("chunk-%05d.gz", chunks.size());
+		File file = new File(directory, current.file);
+		OutputStream out = new GZIPOutputStream(new FileOutputStream(file));
+		try {
+			buffer.writeTo(out);
+		} finally {
+			out.close();
+		}
+		bytes += file.length();
+		chunks.add(current);
+		current = null;
+		buffer.reset();
+	}
+
+	/**
+	 * Writes the last chunk and the index.
+	 * 
+	 * @throws IOException If a file cannot be written.
+	 */
+	public void close() throws IOException {
+		if (current != null) {
+			flushChunk();
+		}
+		PrintWriter out = new PrintWriter(new FileWriter(new File(directory, INDEX_FILE)));
+		try {
+			out.println("# chunk file intervals first-end last-end min-start");
+			out.print("tracks");
+			for (String track : tracks) {
+				out.print(" " + track);
+			}
+			out.println();
+			out.println("max-duration " + maxDuration);
+			out.println("bytes " + bytes);
+			for (Chunk chunk : chunks) {
+				out.println("chunk " + chunk.file + " " + chunk.intervals + " " + chunk.firstEnd + " "
+						+ chunk.lastEnd + " " + chunk.minStart);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	public List<String> getTracks() {
+		return Collections.unmodifiableList(tracks);
+	}
+
+	/**
+	 * Returns the number of intervals recorded.
+	 * 
+	 * @return The number of intervals.
+	 */
+	public long getIntervals() {
+		return intervals;
+	}
+
+	/**
+	 * Returns the size of the chunk files written.
+	 * 
+	 * @return The number of bytes.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the time of the last interval.
+	 * 
+	 * @return The last end time, or 0 if nothing was recorded.
+	 */
+	public long getEndTime() {
+		return chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1).lastEnd;
+	}
+
+	/**
+	 * Reads the intervals overlapping a window. Only the chunks that may hold
+	 * such intervals are read: the chunks are in order of end time, so the
+	 * first one is found by binary search, and no interval in a chunk ending
+	 * after the window plus the longest interval can start in the window.
+	 * 
+	 * @param from The start of the window.
+	 * @param to The end of the window.
+	 * @return The intervals, each {track, pid, start, end}, in order of end
+	 *         time.
+	 * @throws IOException If a chunk cannot be read.
+	 */
+	public List<long[]> extract(long from, long to) throws IOException {
+		List<long[]> result = new ArrayList<long[]>();
+		int low = 0, high = chunks.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (chunks.get(middle).lastEnd < from) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		for (int c = low; c < chunks.size(); c++) {
+			Chunk chunk = chunks.get(c);
+			if (chunk.firstEnd - maxDuration > to) {
+				break;
+			}
+			if (chunk.minStart > to) {
+				continue;
+			}
+			readChunk(chunk, from, to, result);
+		}
+		return result;
+	}
+
+	private void readChunk(Chunk chunk, long from, long to, List<long[]> result) throws IOException {
+		InputStream in = new BufferedInputStream(new GZIPInputStream(
+				new FileInputStream(new File(directory, chunk.file))));
+		try {
+			long end = chunk.firstEnd;
+			long[] pid = new long[tracks.size()];
+			for (int i = 0; i < chunk.intervals; i++) {
+				int track = (int) readVarint(in);
+				end += readVarint(in);
+				long start = end - readVarint(in);
+				long delta = readVarint(in);
+				pid[track] += (delta >>> 1) ^ -(delta & 1);
+				if (end >= from && start <= to) {
+					result.add(new long[] { track, pid[track], start, end });
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static long readVarint(InputStream in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.read();
+			if (b < 0) {
+				throw new EOFException("Truncated timeline chunk");
+			}
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * Renders a window as an SVG Gantt chart, with a row for each track and
+	 * a bar for each interval, coloured by process id. Intervals narrower
+	 * than a pixel are merged with their neighbours on the same track, and
+	 * drawn grey if they belong to different processes, so the size of the
+	 * picture is bounded by its width however many intervals the window
+	 * holds.
+	 * 
+	 * @param from The start of the window.
+	 * @param to The end of the window, after the start.
+	 * @param width The width of the chart in pixels.
+	 * @param out The writer.
+	 * @throws IOException If a chunk cannot be read.
+	 */
+	public void renderSvg(long from, long to, int width, PrintWriter out) throws IOException {
+		final int label = 80, row = 24, axis = 30;
+		double scale = (double) width / (to - from);
+		int height = tracks.size() * row + axis;
+		out.println("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + (label + width + 10)
+				+ "\" height=\"" + height + "\" font-family=\"sans-serif\" font-size=\"11\">");
+		for (int t = 0; t < tracks.size(); t++) {
+			out.println("<text x=\"4\" y=\"" + (t * row + 16) + "\">" + tracks.get(t) + "</text>");
+			out.println("<rect x=\"" + label + "\" y=\"" + (t * row + 2) + "\" width=\"" + width
+					+ "\" height=\"" + (row - 4) + "\" fill=\"#f4f4f4\"/>");
+		}
+
+		// One pending bar per track: x0, x1, pid (-1 if merged from several), start, end
+		double[][] pending = new double[tracks.size()][];
+		for (long[] interval : extract(from, to)) {
+			int t = (int) interval[0];
+			double x0 = label + (Math.max(interval[2], from) - from) * scale;
+			double x1 = label + (Math.min(interval[3], to) - from) * scale;
+			double[] bar = pending[t];
+			if (bar != null && x0 - bar[1] < 0.5 && (x1 - x0 < 1 || bar[1] - bar[0] < 1)) {
+				bar[1] = x1;
+				bar[2] = bar[2] == interval[1] ? bar[2] : -1;
+				bar[4] = interval[3];
+				continue;
+			}
+			if (bar != null) {
+				printBar(out, t, bar, row);
+			}
+			pending[t] = new double[] { x0, x1, interval[1], interval[2], interval[3] };
+		}
+		for (int t = 0; t < tracks.size(); t++) {
+			if (pending[t] != null) {
+				printBar(out, t, pending[t], row);
+			}
+		}
+
+		// The time axis, with a tick every 1, 2 or 5 times a power of ten
+		int y = tracks.size() * row;
+		out.println("<line x1=\"" + label + "\" y1=\"" + y + "\" x2=\"" + (label + width) + "\" y2=\""
+				+ y + "\" stroke=\"black\"/>");
+		double step = Math.pow(10, Math.floor(Math.log10((to - from) / 10.0)));
+		step *= (to - from) / step > 50 ? 5 : (to - from) / step > 20 ? 2 : 1;
+		step = Math.max(1, step);
+		for (double tick = Math.ceil(from / step) * step; tick <= to; tick += step) {
+			double x = label + (tick - from) * scale;
+			out.println(String.format(Locale.ROOT, "<line x1=\"%.1f\" y1=\"%d\" x2=\"%.1f\" y2=\"%d\""
+					+ " stroke=\"black\"/><text x=\"%.1f\" y=\"%d\" text-anchor=\"middle\">%d</text>",
+					x, y, x, y + 4, x, y + 16, (long) tick));
+		}
+		out.println("</svg>");
+		out.flush();
+	}
+
+	private static void printBar(PrintWriter out, int track, double[] bar, int row) {
+		long pid = (long) bar[2];
+		String fill = pid < 0 ? "#909090" : String.format(Locale.ROOT, "hsl(%d,70%%,55%%)", (pid * 137) % 360);
+		String title = pid < 0 ? "several processes" : "process " + pid;
+		out.println(String.format(Locale.ROOT, "<rect x=\"%.2f\" y=\"%d\" width=\"%.2f\" height=\"%d\""
+				+ " fill=\"%s\"><title>%s %d-%d</title></rect>", bar[0], track * row + 2,
+				Math.max(0.5, bar[1] - bar[0]), row - 4, fill, title, (long) bar[3], (long) bar[4]));
+	}
+
+	/**
+	 * Runs the simulator recording a timeline, or reads one recorded earlier,
+	 * and renders a window of it.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by
+	 *            -dir=directory (timeline by default), -render to only read a
+	 *            timeline recorded earlier, -window=from:to (the first
+	 *            10000 ms by default), -svg=file (timeline.svg by default)
+	 *            and -width=pixels. Other options are passed on to the
+	 *            simulator.
+	 * @throws IOException If the timeline or the picture cannot be written.
+	 */
+	public static void main(String args[]) throws IOException {
+		List<String> simulatorArgs = new ArrayList<String>();
+		File directory = new File("timeline");
+		File svg = new File("timeline.svg");
+		boolean render = false;
+		long from = 0, to = 10000;
+		int width = 1200;
+		for (String arg : args) {
+			if (arg.startsWith("-dir=")) {
+				directory = new File(arg.substring(5));
+			} else if (arg.equals("-render")) {
+				render = true;
+			} else if (arg.startsWith("-window=")) {
+				String[] fields = arg.substring(8).split(":");
+				from = Long.parseLong(fields[0]);
+				to = Long.parseLong(fields[1]);
+			} else if (arg.startsWith("-svg=")) {
+				svg = new File(arg.substring(5));
+			} else if (arg.startsWith("-width=")) {
+				width = Integer.parseInt(arg.substring(7));
+			} else {
+				simulatorArgs.add(arg);
+			}
+		}
+
+		GanttTimeline timeline;
+		if (render) {
+			timeline = open(directory);
+		} else {
+			timeline = new GanttTimeline(directory);
+			Simulator simulator = Simulator.create(simulatorArgs.toArray(new String[0]));
+			simulator.setTimeline(timeline);
+			simulator.setPrintReport(false);
+			simulator.simulate();
+			timeline.close();
+		}
+		System.out.println(String.format("%d intervals in %d chunks, %d bytes, %.2f bytes per interval",
+				timeline.getIntervals(), timeline.chunks.size(), timeline.getBytes(),
+				timeline.getIntervals() > 0 ? (double) timeline.getBytes() / timeline.getIntervals() : 0.0));
+
+		long started = System.nanoTime();
+		PrintWriter out = new PrintWriter(new FileWriter(svg));
+		try {
+			timeline.renderSvg(from, to, width, out);
+		} finally {
+			out.close();
+		}
+		System.out.println(String.format("Rendered %d-%d to %s in %.1f ms", from, to, svg,
+				(System.nanoTime() - started) / 1e6));
+	}
+}
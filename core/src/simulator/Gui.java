@@ -1,3 +1,5 @@
+package simulator;
+
 /**
  * The GUI methods that are publicly available to other parts of the program.
  */
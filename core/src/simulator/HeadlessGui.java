@@ -0,0 +1,32 @@
+package simulator;
+
+/**
+ * A GUI that shows nothing. Used when the simulator is run in batch mode, for
+ * instance to validate the analytical estimates in {@link Estimator}.
+ */
+public class HeadlessGui implements Gui {
+	/**
+	 * Nothing to show.
+	 * 
+	 * @param p The process that is currently active in the CPU.
+	 */
+	public void setCpuActive(Process p) {
+	}
+
+	/**
+	 * Nothing to show.
+	 * 
+	 * @param p The process that is currently active in the I/O device.
+	 */
+	public void setIoActive(Process p) {
+	}
+
+	/**
+	 * Nothing to show, and no reason to slow the simulation down.
+	 * 
+	 * @param time The (simulated) time that has passed.
+	 * @param freeMemory Amount of free memory
+	 */
+	public void timePassed(long time, long freeMemory) {
+	}
+}
@@ -0,0 +1,295 @@
+package simulator;
+
+import java.util.List;
+
+/**
+ * This class implements functionality associated with the IO device of the
+ * simulated system.
+ * 
+ * The simulator may have several I/O devices, each with its own queue and
+ * service time distribution. Each device keeps its own statistics, while the
+ * totals over all devices go to {@link Statistics}.
+ */
+public class IO implements Constants {
+	/** Service times uniform in [1, 2 * average], as in the original simulator */
+	public static final int UNIFORM = 0;
+	/** Exponentially distributed service times */
+	public static final int EXPONENTIAL = 1;
+
+	private Queue queue;
+
+	private Process cp;
+
+	private Gui gui;
+
+	/** The name of the device, devices with the same name form a class */
+	private String name = "io";
+
+	/** The index of the device in the simulator, carried by its END_IO events */
+	private int index = 0;
+
+	/** The average service time of an operation */
+	private long avgServiceTime;
+
+	/** The service time distribution, UNIFORM or EXPONENTIAL */
+	private int distribution = UNIFORM;
+
+	/** The service time distribution if set from a workload, replacing the one above */
+	private Distribution serviceDistribution;
+
+	/** The disk model choosing the order of requests, null for FIFO */
+	private Disk disk;
+
+	/** Records the processes served, null if not recorded */
+	private GanttTimeline timeline;
+	private int track;
+	/** The time the current operation started */
+	private long startTime;
+
+	/** Statistics of this device */
+	private long operations = 0;
+	private long activeTime = 0;
+	private long queueLengthTime = 0;
+	private long queueLengthLargest = 0;
+
+	public IO(Queue ioQueue, Gui gui) {
+
+		this.queue = ioQueue;
+		this.gui = gui;
+	}
+
+	/**
+	 * Creates a named I/O device.
+	 * 
+	 * @param name The name of the device, e.g. "disk".
+	 * @param index The index of the device in the simulator.
+	 * @param avgServiceTime The average service time of an operation.
+	 * @param distribution The service time distribution, UNIFORM or
+	 *            EXPONENTIAL.
+	 * @param ioQueue The queue of the device.
+	 * @param gui The GUI showing the device.
+	 */
+	public IO(String name, int index, long avgServiceTime, int distribution,
+			Queue ioQueue, Gui gui) {
+		this(ioQueue, gui);
+		this.name = name;
+		this.index = index;
+		this.avgServiceTime = avgServiceTime;
+		this.distribution = distribution;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public long getAvgServiceTime() {
+		return avgServiceTime;
+	}
+
+	/**
+	 * Sets the average service time. Used for the default device, whose
+	 * average is given to the simulator rather than the device.
+	 * 
+	 * @param avgServiceTime The average service time of an operation.
+	 */
+	public void setAvgServiceTime(long avgServiceTime) {
+		this.avgServiceTime = avgServiceTime;
+	}
+
+	public Process startNextProcess() {
+
+		cp = getNextProcess();
+		gui.setIoActive(cp); // gui
+		startTime = SystemClock.getTime();
+
+		return cp;
+	}
+
+	public Process stopCurrentProcess() {
+
+		gui.setIoActive(null); // gui
+		if (timeline != null && cp != null) {
+			timeline.record(track, cp.getProcessId(), startTime, SystemClock.getTime());
+		}
+		Statistics.processesIoOperations();
+		operations++;
+		
+		Process tmp = cp;
+		cp = null;
+		return tmp;
+	}
+
+	/**
+	 * Draws service times from a distribution, instead of the uniform or
+	 * exponential distribution around the average service time.
+	 * 
+	 * @param serviceDistribution The distribution, or {@code null}.
+	 */
+	public void setServiceDistribution(Distribution serviceDistribution) {
+		this.serviceDistribution = serviceDistribution;
+		if (serviceDistribution != null) {
+			this.avgServiceTime = Math.round(serviceDistribution.getMean());
+		}
+	}
+
+	/**
+	 * Records the operations served in a timeline.
+	 * 
+	 * @param timeline The timeline, or {@code null} to record nothing.
+	 * @param track The track of this device in the timeline.
+	 */
+	public void setTimeline(GanttTimeline timeline, int track) {
+		this.timeline = timeline;
+		this.track = track;
+	}
+
+	/**
+	 * Lets a disk model decide the order in which requests are served.
+	 * 
+	 * @param disk The disk, or {@code null} to serve requests in FIFO order.
+	 */
+	public void setDisk(Disk disk) {
+		this.disk = disk;
+	}
+
+	public void insertProcess(Process p) {
+		queue.insert(p);
+		if (disk != null) {
+			disk.addRequest(p);
+		}
+	}
+
+	public Process getNextProcess() {
+		if (queue.isEmpty()) {
+			return null;
+		}
+
+		if (disk != null) {
+			Process p = disk.nextRequest();
+			queue.remove(p);
+			return p;
+		}
+		return (Process) queue.removeNext();
+	}
+
+	/**
+	 * Draws the service time of the operation just started.
+	 * 
+	 * @return The service time given by the disk model, or a random time
+	 *         from the distribution of this device if there is none, drawn
+	 *         from the stream of the process.
+	 */
+	public long drawServiceTime() {
+		if (disk != null) {
+			return disk.getLastServiceTime();
+		}
+		if (serviceDistribution != null) {
+			return Math.max(1, Math.round(serviceDistribution.sample(cp.getRandom())));
+		}
+		double u = cp.getRandom().nextDouble();
+		if (distribution == EXPONENTIAL) {
+			return 1 + (long) (-Math.log(1 - u) * avgServiceTime);
+		}
+		return 1 + (long) (2 * u * avgServiceTime);
+	}
+
+	public boolean isIdle() {
+		return (this.cp == null);
+	}
+
+	/**
+	 * Returns the process currently using the I/O device.
+	 * 
+	 * @return The active process, or {@code null} if idle.
+	 */
+	public Process getActiveProcess() {
+		return this.cp;
+	}
+
+	/**
+	 * Returns the number of processes waiting in the queue.
+	 * 
+	 * @return The queue length.
+	 */
+	public int getQueueLength() {
+		return queue.getQueueLength();
+	}
+
+	/**
+	 * Adds the processes waiting in the queue, in queue order, to a list.
+	 * 
+	 * @param list The list to add to.
+	 */
+	public void addWaitingProcesses(List<Process> list) {
+		for (int i = 0; i < queue.getQueueLength(); i++) {
+			list.add((Process) queue.get(i));
+		}
+	}
+
+	/**
+	 * Returns the number of requests at the device, waiting or in service.
+	 * 
+	 * @return The number of requests.
+	 */
+	public int getLoad() {
+		return queue.getQueueLength() + (cp != null ? 1 : 0);
+	}
+
+	/**
+	 * Registers the time passed for the statistics of this device only. The
+	 * simulator adds up the totals over all devices.
+	 * 
+	 * @param timePassed The time since the last call.
+	 */
+	public void timePassed(long timePassed) {
+		if (cp != null) {
+			activeTime += timePassed;
+		}
+		long length = queue.getQueueLength();
+		queueLengthTime += length * timePassed;
+		if (length > queueLengthLargest) {
+			queueLengthLargest = length;
+		}
+	}
+
+	public long getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Returns the utilization of this device.
+	 * 
+	 * @return The percentage of time the device was busy.
+	 */
+	public float getUtilization() {
+		return SystemClock.getTime() > 0 ? (float) 100 * activeTime / SystemClock.getTime() : 0;
+	}
+
+	/**
+	 * Returns the average queue length of this device.
+	 * 
+	 * @return The time-averaged number of waiting requests.
+	 */
+	public float getAverageQueueLength() {
+		return SystemClock.getTime() > 0 ? (float) queueLengthTime / SystemClock.getTime() : 0;
+	}
+
+	public long getLargestQueueLength() {
+		return queueLengthLargest;
+	}
+
+	/**
+	 * Returns the average queue wait per operation, which by Little's law is
+	 * the integral of the queue length over the number of operations.
+	 * 
+	 * @return The average time a request waited in the queue.
+	 */
+	public float getWaitPerOperation() {
+		return operations > 0 ? (float) queueLengthTime / operations : 0;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+package simulator;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of the ids 0 to n-1, each with a key. The position of
+ * every id in the heap is kept, so the key of an id can be changed, and the
+ * id removed, in O(log n), which a {@link java.util.PriorityQueue} can only
+ * do in O(n).
+ */
+class IndexedHeap {
+	/** The ids, in heap order */
+	private int[] heap;
+	/** The position of each id in the heap, -1 if not in it */
+	private int[] position;
+	private long[] keys;
+	private int size = 0;
+
+	/**
+	 * Creates an empty heap.
+	 * 
+	 * @param capacity The number of ids, 0 to capacity-1.
+	 */
+	IndexedHeap(int capacity) {
+		heap = new int[capacity];
+		position = new int[capacity];
+		keys = new long[capacity];
+		Arrays.fill(position, -1);
+	}
+
+	/**
+	 * Makes room for more ids.
+	 * 
+	 * @param capacity The number of ids, 0 to capacity-1.
+	 */
+	void ensureCapacity(int capacity) {
+		int old = position.length;
+		if (capacity > old) {
+			heap = Arrays.copyOf(heap, capacity);
+			keys = Arrays.copyOf(keys, capacity);
+			position = Arrays.copyOf(position, capacity);
+			Arrays.fill(position, old, capacity, -1);
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	boolean contains(int id) {
+		return position[id] >= 0;
+	}
+
+	/**
+	 * Returns the id with the smallest key.
+	 * 
+	 * @return The id, -1 if the heap is empty.
+	 */
+	int peek() {
+		return size > 0 ? heap[0] : -1;
+	}
+
+	/**
+	 * Returns the smallest key.
+	 * 
+	 * @return The key, {@link Long#MAX_VALUE} if the heap is empty.
+	 */
+	long peekKey() {
+		return size > 0 ? keys[heap[0]] : Long.MAX_VALUE;
+	}
+
+	long getKey(int id) {
+		return keys[id];
+	}
+
+	/**
+	 * Adds an id, or changes its key if it is in the heap.
+	 * 
+	 * @param id The id.
+	 * @param key The key.
+	 */
+	void set(int id, long key) {
+		int i = position[id];
+		if (i < 0) {
+			i = size++;
+			heap[i] = id;
+			position[id] = i;
+			keys[id] = key;
+			siftUp(i);
+		} else {
+			long old = keys[id];
+			keys[id] = key;
+			if (key < old) {
+				siftUp(i);
+			} else {
+				siftDown(i);
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns the id with the smallest key.
+	 * 
+	 * @return The id, -1 if the heap is empty.
+	 */
+	int poll() {
+		if (size == 0) {
+			return -1;
+		}
+		int id = heap[0];
+		remove(id);
+		return id;
+	}
+
+	/**
+	 * Removes an id, if it is in the heap.
+	 * 
+	 * @param id The id.
+	 */
+	void remove(int id) {
+		int i = position[id];
+		if (i < 0) {
+			return;
+		}
+		position[id] = -1;
+		size--;
+		if (i < size) {
+			int moved = heap[size];
+			heap[i] = moved;
+			position[moved] = i;
+			siftUp(i);
+			if (position[moved] == i) {
+				siftDown(i);
+			}
+		}
+	}
+
+	private void siftUp(int i) {
+		int id = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (keys[heap[parent]] <= keys[id]) {
+				break;
+			}
+			heap[i] = heap[parent];
+			position[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+
+	private void siftDown(int i) {
+		int id = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) {
+				child++;
+			}
+			if (keys[id] <= keys[heap[child]]) {
+				break;
+			}
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+}
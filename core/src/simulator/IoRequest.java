@@ -0,0 +1,49 @@
+package simulator;
+
+/**
+ * A pending request to the disk: the process that issued it, the block it
+ * addresses and when it arrived.
+ * 
+ * @see Disk
+ */
+public class IoRequest {
+	/** The process waiting for this request */
+	private Process process;
+	/** The block (cylinder) addressed */
+	private long block;
+	/** The time the request was issued */
+	private long arrivalTime;
+	/** Tie breaker, increasing in order of arrival */
+	private long sequence;
+
+	/**
+	 * Creates a new request.
+	 * 
+	 * @param process The process issuing the request.
+	 * @param block The block addressed.
+	 * @param arrivalTime The time the request was issued.
+	 * @param sequence The arrival order of the request.
+	 */
+	public IoRequest(Process process, long block, long arrivalTime, long sequence) {
+		this.process = process;
+		this.block = block;
+		this.arrivalTime = arrivalTime;
+		this.sequence = sequence;
+	}
+
+	public Process getProcess() {
+		return process;
+	}
+
+	public long getBlock() {
+		return block;
+	}
+
+	public long getArrivalTime() {
+		return arrivalTime;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+}
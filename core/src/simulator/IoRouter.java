@@ -0,0 +1,181 @@
+package simulator;
+
+import java.util.*;
+
+/**
+ * Routes I/O requests to one of several I/O devices. Devices with the same
+ * name form a class, for instance two disks and a terminal. Every process
+ * gets its own mix of the classes when it is created, and each request
+ * first picks a class from that mix, then a device of the class according
+ * to the routing policy.
+ * 
+ * @see Simulator#setIoRouter(IoRouter)
+ */
+public class IoRouter {
+	/** Pick a device of the class at random */
+	public static final int RANDOM = 0;
+	/** Pick the device with the least outstanding work */
+	public static final int LEAST_LOADED = 1;
+	/** Pick the device with the fewest requests (join the shortest queue) */
+	public static final int JSQ = 2;
+	/** Names of the policies, indexed by policy */
+	public static final String[] POLICY_NAMES = { "RANDOM", "LEAST-LOADED", "JSQ" };
+
+	/** The routing policy */
+	private int policy;
+	/** All devices, indexed by device index */
+	private IO[] devices;
+	/** The names of the device classes */
+	private String[] classNames;
+	/** The devices of each class */
+	private IO[][] classes;
+
+	/**
+	 * Creates the devices described by a specification and a router for
+	 * them. The specification is a comma separated list of devices, each
+	 * given as name:average service time, optionally followed by :exp for
+	 * exponential service times, or as name:distribution (see
+	 * {@link Distributions}), for instance
+	 * "disk:40,disk:40,network:15:exp,terminal:lognormal:300:2".
+	 * 
+	 * @param spec The device specification.
+	 * @param policy The routing policy.
+	 * @param gui The GUI, which shows the first device.
+	 * @throws IllegalArgumentException If the policy or the specification is
+	 *             not valid.
+	 */
+	public IoRouter(String spec, int policy, Gui gui) {
+		if (policy < 0 || policy >= POLICY_NAMES.length) {
+			throw new IllegalArgumentException("Unknown routing policy " + policy);
+		}
+		this.policy = policy;
+		String[] parts = spec.split(",");
+		devices = new IO[parts.length];
+		LinkedHashMap<String, List<IO>> byName = new LinkedHashMap<String, List<IO>>();
+		for (int i = 0; i < parts.length; i++) {
+			String[] fields = parts[i].trim().split(":");
+			if (fields.length < 2) {
+				throw new IllegalArgumentException("Expected name:time in " + parts[i]);
+			}
+			Distribution service = null;
+			if (!fields[1].matches("\\d+")) {
+				service = Distributions.parse(parts[i].trim().substring(fields[0].length() + 1));
+			}
+			int distribution = fields.length > 2 && fields[2].equalsIgnoreCase("exp")
+					? IO.EXPONENTIAL : IO.UNIFORM;
+			devices[i] = new IO(fields[0], i, service != null ? 0 : Long.parseLong(fields[1]), distribution,
+					new Queue(fields[0] + " queue"), i == 0 ? gui : new HeadlessGui());
+			devices[i].setServiceDistribution(service);
+			if (!byName.containsKey(fields[0])) {
+				byName.put(fields[0], new ArrayList<IO>());
+			}
+			byName.get(fields[0]).add(devices[i]);
+		}
+		classNames = byName.keySet().toArray(new String[0]);
+		classes = new IO[classNames.length][];
+		for (int c = 0; c < classNames.length; c++) {
+			classes[c] = byName.get(classNames[c]).toArray(new IO[0]);
+		}
+	}
+
+	/**
+	 * Looks up a policy by name, ignoring case.
+	 * 
+	 * @param name The name of the policy, e.g. "jsq".
+	 * @return The policy, or -1 if there is no policy with that name.
+	 */
+	public static int getPolicy(String name) {
+		for (int i = 0; i < POLICY_NAMES.length; i++) {
+			if (POLICY_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns all devices, indexed by device index.
+	 * 
+	 * @return The devices.
+	 */
+	public IO[] getDevices() {
+		return devices;
+	}
+
+	/**
+	 * Gives a new process its own mix of device classes. The weights are
+	 * uniformly distributed over all possible mixes.
+	 * 
+	 * @param p The new process.
+	 */
+	public void assignAffinity(Process p) {
+		double[] cumulative = new double[classes.length];
+		double sum = 0;
+		for (int c = 0; c < classes.length; c++) {
+			sum += -Math.log(1 - RandomStreams.nextDouble(RandomStreams.ROUTING));
+			cumulative[c] = sum;
+		}
+		for (int c = 0; c < classes.length; c++) {
+			cumulative[c] /= sum;
+		}
+		p.setIoAffinity(cumulative);
+	}
+
+	/**
+	 * Chooses the device for the next I/O request of a process.
+	 * 
+	 * @param p The process requesting I/O.
+	 * @return The device to queue the request at.
+	 */
+	public IO route(Process p) {
+		IO[] candidates = classes[0];
+		double[] affinity = p.getIoAffinity();
+		if (affinity != null && classes.length > 1) {
+			double u = RandomStreams.nextDouble(RandomStreams.ROUTING);
+			int c = 0;
+			while (c < classes.length - 1 && u >= affinity[c]) {
+				c++;
+			}
+			candidates = classes[c];
+		}
+		if (candidates.length == 1) {
+			return candidates[0];
+		}
+
+		switch (policy) {
+		case LEAST_LOADED:
+			IO least = candidates[0];
+			for (IO device : candidates) {
+				if (device.getLoad() * device.getAvgServiceTime() < least.getLoad() * least.getAvgServiceTime()) {
+					least = device;
+				}
+			}
+			return least;
+		case JSQ:
+			IO shortest = candidates[0];
+			for (IO device : candidates) {
+				if (device.getLoad() < shortest.getLoad()) {
+					shortest = device;
+				}
+			}
+			return shortest;
+		default:
+			return candidates[(int) (RandomStreams.nextDouble(RandomStreams.ROUTING) * candidates.length)];
+		}
+	}
+
+	/**
+	 * Prints the statistics of each device.
+	 */
+	public void printReport() {
+		System.out.println("I/O devices (routing " + POLICY_NAMES[policy] + "):");
+		System.out.println(String.format("  %-3s %-12s %10s %10s %10s %10s %10s", "#", "Device",
+				"Operations", "Util %", "Avg queue", "Max queue", "Wait/op"));
+		for (IO device : devices) {
+			System.out.println(String.format("  %-3d %-12s %10d %10.1f %10.2f %10d %10.1f",
+					device.getIndex(), device.getName(), device.getOperations(),
+					device.getUtilization(), device.getAverageQueueLength(),
+					device.getLargestQueueLength(), device.getWaitPerOperation()));
+		}
+	}
+}
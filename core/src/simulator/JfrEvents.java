@@ -0,0 +1,202 @@
+package simulator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event types emitted by the simulator, so that wall
+ * clock hotspots in a recording can be matched with what the simulated
+ * system was doing at the time.
+ * 
+ * Every event records the simulated time and the lengths of the three
+ * queues. The events are used with the usual pattern of checking
+ * {@code isEnabled()}/{@code shouldCommit()} before filling in fields, which
+ * the JIT reduces to nothing when no recording is running. The simulator
+ * also checks {@link #isRecording()} first, so that a batch run without
+ * flight recorder does not pay for loading the event classes at startup.
+ * 
+ * Start a recording with e.g.
+ * {@code java -XX:StartFlightRecording=filename=sim.jfr Simulator}.
+ */
+public class JfrEvents {
+	/**
+	 * Fields common to all simulator events.
+	 */
+	@Category("Simulator")
+	@StackTrace(false)
+	public abstract static class SimulatorEvent extends jdk.jfr.Event {
+		@Label("Simulated Time")
+		@Timespan(Timespan.MILLISECONDS)
+		public long simulatedTime;
+
+		@Label("Process ID")
+		public long pid;
+
+		@Label("Memory Queue Length")
+		public int memoryQueueLength;
+
+		@Label("CPU Queue Length")
+		public int cpuQueueLength;
+
+		@Label("I/O Queue Length")
+		public int ioQueueLength;
+
+		/**
+		 * Fills in the fields common to all simulator events.
+		 * 
+		 * @param simulatedTime The simulated time.
+		 * @param pid The process the event concerns, 0 if none.
+		 * @param memoryQueueLength The length of the memory queue.
+		 * @param cpuQueueLength The length of the CPU queue.
+		 * @param ioQueueLength The length of the I/O queue.
+		 */
+		public void setState(long simulatedTime, long pid, int memoryQueueLength,
+				int cpuQueueLength, int ioQueueLength) {
+			this.simulatedTime = simulatedTime;
+			this.pid = pid;
+			this.memoryQueueLength = memoryQueueLength;
+			this.cpuQueueLength = cpuQueueLength;
+			this.ioQueueLength = ioQueueLength;
+		}
+	}
+
+	@Name("simulator.NewProcess")
+	@Label("New Process")
+	@Description("Handling of a NEW_PROCESS event")
+	public static class NewProcess extends SimulatorEvent {
+	}
+
+	@Name("simulator.SwitchProcess")
+	@Label("Switch Process")
+	@Description("Handling of a SWITCH_PROCESS event")
+	public static class SwitchProcess extends SimulatorEvent {
+	}
+
+	@Name("simulator.EndProcess")
+	@Label("End Process")
+	@Description("Handling of an END_PROCESS event")
+	public static class EndProcess extends SimulatorEvent {
+	}
+
+	@Name("simulator.IoRequest")
+	@Label("I/O Request")
+	@Description("Handling of an IO_REQUEST event")
+	public static class IoRequest extends SimulatorEvent {
+	}
+
+	@Name("simulator.EndIo")
+	@Label("End I/O")
+	@Description("Handling of an END_IO event")
+	public static class EndIo extends SimulatorEvent {
+	}
+
+	@Name("simulator.PageFault")
+	@Label("Page Fault")
+	@Description("Handling of a PAGE_FAULT event")
+	public static class PageFault extends SimulatorEvent {
+	}
+
+	@Name("simulator.EndPageIn")
+	@Label("End Page In")
+	@Description("Handling of an END_PAGE_IN event")
+	public static class EndPageIn extends SimulatorEvent {
+	}
+
+	@Name("simulator.SwapDone")
+	@Label("Swap Done")
+	@Description("Handling of a SWAP_DONE event")
+	public static class SwapDone extends SimulatorEvent {
+	}
+
+	@Name("simulator.RealTimeRelease")
+	@Label("Real-Time Release")
+	@Description("Handling of a REAL_TIME_RELEASE event")
+	public static class RealTimeRelease extends SimulatorEvent {
+	}
+
+	@Name("simulator.LockRelease")
+	@Label("Lock Release")
+	@Description("Handling of a LOCK_RELEASE event")
+	public static class LockRelease extends SimulatorEvent {
+	}
+
+	@Name("simulator.CpuDispatch")
+	@Label("CPU Dispatch")
+	@Description("Decision taken when loading the next process in the CPU")
+	public static class CpuDispatch extends SimulatorEvent {
+		@Label("Decision")
+		@Description("END_PROCESS, SWITCH_PROCESS, IO_REQUEST, PAGE_FAULT, REAL_TIME_JOB, LOCK_WAIT or IDLE")
+		public String decision;
+
+		@Label("Remaining CPU Time")
+		@Timespan(Timespan.MILLISECONDS)
+		public long remainingCpuTime;
+
+		@Label("Time To Next I/O")
+		@Timespan(Timespan.MILLISECONDS)
+		public long timeToNextIo;
+
+		@Label("Quantum")
+		@Timespan(Timespan.MILLISECONDS)
+		public long quantum;
+	}
+
+	@Name("simulator.MemoryStall")
+	@Label("Memory Admission Stall")
+	@Description("The first process in the memory queue does not fit in free memory")
+	public static class MemoryStall extends SimulatorEvent {
+		@Label("Memory Needed (KB)")
+		public long memoryNeeded;
+
+		@Label("Free Memory (KB)")
+		public long freeMemory;
+	}
+
+	/**
+	 * Checks whether the flight recorder has been started in this JVM.
+	 * 
+	 * @return {@code true} if events may be recorded.
+	 */
+	public static boolean isRecording() {
+		return FlightRecorder.isInitialized();
+	}
+
+	/**
+	 * Creates the event type matching a simulator event.
+	 * 
+	 * @param type The event type, as defined in the Constants interface.
+	 * @return A new, not yet started, flight recorder event, or {@code null}
+	 *         for event types that are not recorded.
+	 */
+	public static SimulatorEvent forEventType(int type) {
+		switch (type) {
+		case Constants.NEW_PROCESS:
+			return new NewProcess();
+		case Constants.SWITCH_PROCESS:
+			return new SwitchProcess();
+		case Constants.END_PROCESS:
+			return new EndProcess();
+		case Constants.IO_REQUEST:
+			return new IoRequest();
+		case Constants.END_IO:
+			return new EndIo();
+		case Constants.PAGE_FAULT:
+			return new PageFault();
+		case Constants.END_PAGE_IN:
+			return new EndPageIn();
+		case Constants.SWAP_DONE:
+			return new SwapDone();
+		case Constants.REAL_TIME_RELEASE:
+			return new RealTimeRelease();
+		case Constants.LOCK_RELEASE:
+			return new LockRelease();
+		default:
+			return null;
+		}
+	}
+}
@@ -0,0 +1,298 @@
+package simulator;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.*;
+import java.util.*;
+import javax.management.*;
+import com.sun.net.httpserver.*;
+
+/**
+ * Exposes the counters collected by {@link Statistics} while a simulation is
+ * running, through a JMX MBean and a local OpenMetrics text endpoint.
+ * 
+ * The simulation thread never shares its counters directly. Every
+ * {@link #PUBLISH_CHECK_INTERVAL} events it checks whether
+ * {@link #PUBLISH_PERIOD_NANOS} has passed, and if so copies the counters to
+ * a new array which is published through a single volatile reference.
+ * Scrapers only read that reference, so they never block the event loop and
+ * always see a consistent snapshot.
+ * 
+ * Enabled from the command line with {@code -Dsimulator.metrics.port=<port>}
+ * for the HTTP endpoint and {@code -Dsimulator.jmx=true} for the MBean.
+ */
+public class LiveStatistics implements DynamicMBean {
+	/** Number of events between each check of the wall clock */
+	private static final int PUBLISH_CHECK_INTERVAL = 1024;
+	/** Minimum wall time between two published snapshots */
+	private static final long PUBLISH_PERIOD_NANOS = 100000000L;
+	/** The name the MBean is registered under */
+	private static final String MBEAN_NAME = "simulator:type=LiveStatistics";
+
+	/** Extra values stored after the counters in a snapshot */
+	private static final int SIMULATED_TIME = 0;
+	private static final int EVENTS = 1;
+	private static final int WALL_NANOS = 2;
+	private static final int PREVIOUS_EVENTS = 3;
+	private static final int PREVIOUS_WALL_NANOS = 4;
+	private static final int PREVIOUS_SIMULATED_TIME = 5;
+	private static final int EXTRA_VALUES = 6;
+
+	/** The latest published snapshot, read by scrapers */
+	private static volatile long[] snapshot;
+
+	/** Events processed so far, only touched by the simulation thread */
+	private static long events = 0;
+	/** Wall time when the simulation started */
+	private static long startNanos = System.nanoTime();
+	/** Wall time when the next snapshot is due */
+	private static long nextPublishNanos = 0;
+
+	/** The HTTP server, if started */
+	private static HttpServer server;
+
+	/**
+	 * Called by the simulation loop once per processed event. Costs an
+	 * increment and a compare unless it is time to publish a snapshot.
+	 */
+	public static void eventProcessed() {
+		events++;
+		if ((events & (PUBLISH_CHECK_INTERVAL - 1)) == 0
+				&& System.nanoTime() >= nextPublishNanos) {
+			publish();
+		}
+	}
+
+	/**
+	 * Resets the event counter and wall clock, to be called when a simulation
+	 * starts.
+	 */
+	public static void simulationStarted() {
+		events = 0;
+		startNanos = System.nanoTime();
+		nextPublishNanos = startNanos + PUBLISH_PERIOD_NANOS;
+		snapshot = null;
+		publish();
+	}
+
+	/**
+	 * Copies the current counters into a new snapshot and publishes it. Must
+	 * be called from the simulation thread.
+	 */
+	public static void publish() {
+		long[] counters = Statistics.getCounters();
+		long[] s = Arrays.copyOf(counters, counters.length + EXTRA_VALUES);
+		int base = counters.length;
+		long now = System.nanoTime();
+		long[] previous = snapshot;
+
+		s[base + SIMULATED_TIME] = SystemClock.getTime();
+		s[base + EVENTS] = events;
+		s[base + WALL_NANOS] = now - startNanos;
+		if (previous != null) {
+			s[base + PREVIOUS_EVENTS] = previous[base + EVENTS];
+			s[base + PREVIOUS_WALL_NANOS] = previous[base + WALL_NANOS];
+			s[base + PREVIOUS_SIMULATED_TIME] = previous[base + SIMULATED_TIME];
+		}
+
+		snapshot = s;
+		nextPublishNanos = now + PUBLISH_PERIOD_NANOS;
+	}
+
+	/**
+	 * Starts the HTTP endpoint and/or registers the MBean, depending on the
+	 * system properties {@code simulator.metrics.port} and
+	 * {@code simulator.jmx}.
+	 */
+	public static void startFromProperties() {
+		Integer port = Integer.getInteger("simulator.metrics.port");
+		if (port != null) {
+			startHttpServer(port.intValue());
+		}
+		if (Boolean.getBoolean("simulator.jmx")) {
+			registerMBean();
+		}
+	}
+
+	/**
+	 * Starts an OpenMetrics endpoint at http://localhost:port/metrics.
+	 * 
+	 * @param port The port to listen on.
+	 */
+	public static void startHttpServer(int port) {
+		try {
+			server = HttpServer.create(new InetSocketAddress(
+					InetAddress.getLoopbackAddress(), port), 0);
+			server.createContext("/metrics", new HttpHandler() {
+				public void handle(HttpExchange exchange) throws IOException {
+					byte[] body = toOpenMetrics().getBytes("UTF-8");
+					exchange.getResponseHeaders().set("Content-Type",
+							"application/openmetrics-text; version=1.0.0; charset=utf-8");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				}
+			});
+			server.start();
+			System.out.println("Serving live statistics on http://localhost:"
+					+ port + "/metrics");
+		} catch (IOException ioe) {
+			System.out.println("Could not start metrics endpoint: " + ioe.getMessage());
+		}
+	}
+
+	/**
+	 * Stops the HTTP endpoint, if it is running.
+	 */
+	public static void stopHttpServer() {
+		if (server != null) {
+			server.stop(0);
+			server = null;
+		}
+	}
+
+	/**
+	 * Registers the MBean with the platform MBean server.
+	 */
+	public static void registerMBean() {
+		try {
+			MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(MBEAN_NAME);
+			if (!mbs.isRegistered(name)) {
+				mbs.registerMBean(new LiveStatistics(), name);
+			}
+		} catch (JMException jme) {
+			System.out.println("Could not register MBean: " + jme.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the number of processed events per wall clock second, measured
+	 * between the two latest snapshots.
+	 * 
+	 * @param s The snapshot to read.
+	 * @return Events per second.
+	 */
+	private static double getEventsPerSecond(long[] s) {
+		int base = s.length - EXTRA_VALUES;
+		long nanos = s[base + WALL_NANOS] - s[base + PREVIOUS_WALL_NANOS];
+		return nanos > 0 ? (s[base + EVENTS] - s[base + PREVIOUS_EVENTS]) * 1e9 / nanos : 0;
+	}
+
+	/**
+	 * Returns how many simulated milliseconds pass per wall clock
+	 * millisecond, measured between the two latest snapshots.
+	 * 
+	 * @param s The snapshot to read.
+	 * @return The sim-time/wall-time ratio.
+	 */
+	private static double getSimToWallRatio(long[] s) {
+		int base = s.length - EXTRA_VALUES;
+		long nanos = s[base + WALL_NANOS] - s[base + PREVIOUS_WALL_NANOS];
+		return nanos > 0 ? (s[base + SIMULATED_TIME] - s[base + PREVIOUS_SIMULATED_TIME]) * 1e6 / nanos : 0;
+	}
+
+	/**
+	 * Formats the latest snapshot in the OpenMetrics text format.
+	 * 
+	 * @return The metrics page.
+	 */
+	public static String toOpenMetrics() {
+		long[] s = snapshot;
+		StringBuilder sb = new StringBuilder();
+		if (s != null) {
+			int base = s.length - EXTRA_VALUES;
+			for (int i = 0; i < base; i++) {
+				String name = "simulator_" + Statistics.COUNTER_NAMES[i];
+				if (name.endsWith("_largest") || name.endsWith("_current")) {
+					sb.append("# TYPE ").append(name).append(" gauge\n");
+					sb.append(name).append(' ').append(s[i]).append('\n');
+				} else {
+					sb.append("# TYPE ").append(name).append(" counter\n");
+					sb.append(name).append("_total ").append(s[i]).append('\n');
+				}
+			}
+			sb.append("# TYPE simulator_simulated_time_ms gauge\n");
+			sb.append("simulator_simulated_time_ms ").append(s[base + SIMULATED_TIME]).append('\n');
+			sb.append("# TYPE simulator_events counter\n");
+			sb.append("simulator_events_total ").append(s[base + EVENTS]).append('\n');
+			sb.append("# TYPE simulator_events_per_second gauge\n");
+			sb.append("simulator_events_per_second ").append(getEventsPerSecond(s)).append('\n');
+			sb.append("# TYPE simulator_sim_wall_ratio gauge\n");
+			sb.append("simulator_sim_wall_ratio ").append(getSimToWallRatio(s)).append('\n');
+		}
+		sb.append("# EOF\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Returns one attribute of the MBean: a counter from {@link Statistics},
+	 * or one of SimulatedTime, Events, EventsPerSecond and SimWallRatio.
+	 */
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		long[] s = snapshot;
+		if (s == null) {
+			s = new long[Statistics.COUNTER_NAMES.length + EXTRA_VALUES];
+		}
+		int base = s.length - EXTRA_VALUES;
+		for (int i = 0; i < base; i++) {
+			if (Statistics.COUNTER_NAMES[i].equals(attribute)) {
+				return Long.valueOf(s[i]);
+			}
+		}
+		if (attribute.equals("SimulatedTime")) {
+			return Long.valueOf(s[base + SIMULATED_TIME]);
+		} else if (attribute.equals("Events")) {
+			return Long.valueOf(s[base + EVENTS]);
+		} else if (attribute.equals("EventsPerSecond")) {
+			return Double.valueOf(getEventsPerSecond(s));
+		} else if (attribute.equals("SimWallRatio")) {
+			return Double.valueOf(getSimToWallRatio(s));
+		}
+		throw new AttributeNotFoundException(attribute);
+	}
+
+	public AttributeList getAttributes(String[] attributes) {
+		AttributeList list = new AttributeList();
+		for (String attribute : attributes) {
+			try {
+				list.add(new Attribute(attribute, getAttribute(attribute)));
+			} catch (AttributeNotFoundException anfe) {
+				// Left out of the list, as required by DynamicMBean
+			}
+		}
+		return list;
+	}
+
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("All attributes are read-only");
+	}
+
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	public Object invoke(String actionName, Object[] params, String[] signature)
+			throws ReflectionException {
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+	public MBeanInfo getMBeanInfo() {
+		ArrayList<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+		for (String name : Statistics.COUNTER_NAMES) {
+			attributes.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+		}
+		attributes.add(new MBeanAttributeInfo("SimulatedTime", "long",
+				"Simulated time in ms", true, false, false));
+		attributes.add(new MBeanAttributeInfo("Events", "long",
+				"Events processed", true, false, false));
+		attributes.add(new MBeanAttributeInfo("EventsPerSecond", "double",
+				"Events processed per wall clock second", true, false, false));
+		attributes.add(new MBeanAttributeInfo("SimWallRatio", "double",
+				"Simulated ms per wall clock ms", true, false, false));
+		return new MBeanInfo(getClass().getName(),
+				"Live statistics of the running simulation",
+				attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+	}
+}
@@ -0,0 +1,467 @@
+package simulator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Locks shared by the processes. When a process gets the CPU while holding no
+ * lock, it enters a critical section with a given probability: it asks for a
+ * lock chosen at random, and holds it until it has used the CPU time of the
+ * section, exponentially distributed around a mean. A process that cannot
+ * have the lock leaves the CPU and waits for it, in order of arrival. A
+ * holder keeps the lock when its slice ends, while it waits for the CPU or
+ * does I/O, as a real holder that is preempted or blocks would.
+ * 
+ * The kinds of lock are:
+ * <ul>
+ * <li>{@link #MUTEX}: one holder at a time.</li>
+ * <li>{@link #RW}: a reader-writer lock, held by any number of readers or by
+ * one writer. A request is a write with a given probability. A reader does
+ * not pass a waiting writer, so writers do not starve.</li>
+ * <li>{@link #SEMAPHORE}: held by up to a given number of processes.</li>
+ * </ul>
+ * Spreading the same critical sections over more locks, of finer
+ * granularity, makes a process less likely to find its lock taken.
+ * 
+ * With priority inheritance a holder waiting for the CPU while another
+ * process waits for its lock is given the CPU first, so that it leaves the
+ * lock sooner. The processes have no priorities of their own, the urgency
+ * they inherit is that of being waited for.
+ * 
+ * The hold time, wait time and contention of each lock are printed by
+ * {@link #printReport()}; {@link #main(String[])} compares the throughput of
+ * the same critical sections over several numbers of locks.
+ * 
+ * Enabled with {@link Simulator#setLockModel(LockModel)}.
+ */
+public class LockModel {
+	/** Kinds of lock */
+	public static final int MUTEX = 0;
+	public static final int RW = 1;
+	public static final int SEMAPHORE = 2;
+	/** Names of the kinds of lock, indexed by kind */
+	public static final String[] KIND_NAMES = { "MUTEX", "RW", "SEM" };
+
+	/** A lock, its holders and its statistics */
+	private static class Lock {
+		int kind;
+		/** The number of holders allowed, by readers for a reader-writer lock */
+		int capacity;
+		/** The share of writes among the requests of a reader-writer lock */
+		double writeShare;
+
+		int holders = 0;
+		boolean exclusive = false;
+		ArrayDeque<Request> waiting = new ArrayDeque<Request>();
+
+		long acquisitions = 0;
+		long contended = 0;
+		long totalWait = 0;
+		long maxWait = 0;
+		long releases = 0;
+		long totalHold = 0;
+		long maxHold = 0;
+		int maxWaiting = 0;
+	}
+
+	/** A process in a critical section, or waiting to enter one */
+	private static class Request {
+		Process process;
+		int lock;
+		boolean exclusive;
+		long since;
+		/** The CPU time of the section still to be used */
+		long remaining;
+		/** The time the section is on the CPU since, -1 if it is not */
+		long running = -1;
+	}
+
+	private Lock[] locks;
+	/** The probability that a process enters a critical section on dispatch */
+	private double probability;
+	/** The mean CPU time of a critical section */
+	private long criticalSection;
+	private boolean inheritance;
+
+	/** The processes holding a lock, in the order they got it */
+	private Map<Process, Request> holding = new LinkedHashMap<Process, Request>();
+	private long boosts = 0;
+
+	/**
+	 * Creates a lock model without locks.
+	 * 
+	 * @param probability The probability that a process enters a critical
+	 *            section when it gets the CPU.
+	 * @param criticalSection The mean CPU time of a critical section (ms).
+	 * @param inheritance {@code true} to give a holder the CPU first while
+	 *            another process waits for its lock.
+	 */
+	public LockModel(double probability, long criticalSection, boolean inheritance) {
+		if (probability < 0 || probability > 1 || criticalSection < 1) {
+			throw new IllegalArgumentException("Expected a probability between 0 and 1 and a positive "
+					+ "critical section, not " + probability + " and " + criticalSection);
+		}
+		this.locks = new Lock[0];
+		this.probability = probability;
+		this.criticalSection = criticalSection;
+		this.inheritance = inheritance;
+	}
+
+	/**
+	 * Looks up a kind of lock by name, ignoring case.
+	 * 
+	 * @param name The name of the kind, e.g. "mutex".
+	 * @return The kind, or -1 if there is no kind with that name.
+	 */
+	public static int getKind(String name) {
+		for (int i = 0; i < KIND_NAMES.length; i++) {
+			if (KIND_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Creates a lock model from a specification of the form
+	 * lock,lock,...:probability:critical section[:inherit] where a lock is
+	 * mutex, rw/write share or sem/permits, optionally followed by *count for
+	 * several locks alike.
+	 * 
+	 * @param spec The specification, e.g. "mutex*4,rw/0.2:0.5:20:inherit".
+	 * @return The lock model.
+	 * @throws IllegalArgumentException If the specification is not valid.
+	 */
+	public static LockModel parse(String spec) {
+		String[] fields = spec.split(":");
+		if (fields.length < 3 || fields.length > 4 || (fields.length == 4 && !fields[3].equalsIgnoreCase("inherit"))) {
+			throw new IllegalArgumentException("Expected lock,lock,...:probability:critical section[:inherit] in "
+					+ spec);
+		}
+		LockModel model = new LockModel(Double.parseDouble(fields[1]), Long.parseLong(fields[2]),
+				fields.length == 4);
+		for (String lock : fields[0].split(",")) {
+			int star = lock.indexOf('*');
+			int count = star < 0 ? 1 : Integer.parseInt(lock.substring(star + 1));
+			String[] parts = (star < 0 ? lock : lock.substring(0, star)).split("/");
+			int kind = getKind(parts[0]);
+			if (kind < 0 || (kind == MUTEX) != (parts.length == 1) || parts.length > 2) {
+				throw new IllegalArgumentException("Expected mutex, rw/write share or sem/permits in " + lock);
+			}
+			for (int i = 0; i < count; i++) {
+				if (kind == MUTEX) {
+					model.addMutex();
+				} else if (kind == RW) {
+					model.addReaderWriterLock(Double.parseDouble(parts[1]));
+				} else {
+					model.addSemaphore(Integer.parseInt(parts[1]));
+				}
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * Adds a mutex.
+	 */
+	public void addMutex() {
+		addLock(MUTEX, 1, 1);
+	}
+
+	/**
+	 * Adds a reader-writer lock.
+	 * 
+	 * @param writeShare The probability that a request is a write.
+	 */
+	public void addReaderWriterLock(double writeShare) {
+		if (writeShare < 0 || writeShare > 1) {
+			throw new IllegalArgumentException("The write share must be between 0 and 1, not " + writeShare);
+		}
+		addLock(RW, Integer.MAX_VALUE, writeShare);
+	}
+
+	/**
+	 * Adds a counting semaphore.
+	 * 
+	 * @param permits The number of processes that can hold it at once.
+	 */
+	public void addSemaphore(int permits) {
+		if (permits < 1) {
+			throw new IllegalArgumentException("A semaphore needs at least one permit, not " + permits);
+		}
+		addLock(SEMAPHORE, permits, 0);
+	}
+
+	private void addLock(int kind, int capacity, double writeShare) {
+		Lock lock = new Lock();
+		lock.kind = kind;
+		lock.capacity = capacity;
+		lock.writeShare = writeShare;
+		locks = Arrays.copyOf(locks, locks.length + 1);
+		locks[locks.length - 1] = lock;
+	}
+
+	public int getLockCount() {
+		return locks.length;
+	}
+
+	/**
+	 * Lets a process that has just got the CPU enter a critical section,
+	 * with the probability of the model, unless it holds a lock already.
+	 * 
+	 * @param p The process.
+	 * @return {@code true} if the process can run, {@code false} if it has to
+	 *         wait for a lock.
+	 */
+	boolean enter(Process p) {
+		if (locks.length == 0 || holding.containsKey(p)
+				|| RandomStreams.nextDouble(RandomStreams.LOCKS) >= probability) {
+			return true;
+		}
+		Request request = new Request();
+		request.process = p;
+		request.lock = (int) (RandomStreams.nextDouble(RandomStreams.LOCKS) * locks.length);
+		Lock lock = locks[request.lock];
+		request.exclusive = lock.kind == MUTEX
+				|| (lock.kind == RW && RandomStreams.nextDouble(RandomStreams.LOCKS) < lock.writeShare);
+		request.since = SystemClock.getTime();
+		request.remaining = 1 + Math.round(-Math.log(1 - RandomStreams.nextDouble(RandomStreams.LOCKS))
+				* (criticalSection - 1));
+		lock.acquisitions++;
+		if (lock.waiting.isEmpty() && canGrant(lock, request.exclusive)) {
+			grant(lock, request);
+			return true;
+		}
+		lock.contended++;
+		lock.waiting.addLast(request);
+		lock.maxWaiting = Math.max(lock.maxWaiting, lock.waiting.size());
+		return false;
+	}
+
+	private static boolean canGrant(Lock lock, boolean exclusive) {
+		return exclusive ? lock.holders == 0 : !lock.exclusive && lock.holders < lock.capacity;
+	}
+
+	private void grant(Lock lock, Request request) {
+		long wait = SystemClock.getTime() - request.since;
+		lock.totalWait += wait;
+		lock.maxWait = Math.max(lock.maxWait, wait);
+		lock.holders++;
+		lock.exclusive = request.exclusive;
+		// The section ends with the process at the latest
+		request.remaining = Math.min(request.remaining, request.process.getRemainingCPUTime());
+		request.since = SystemClock.getTime();
+		holding.put(request.process, request);
+	}
+
+	/**
+	 * Checks whether a process holds a lock.
+	 * 
+	 * @param p The process.
+	 * @return {@code true} if the process is in a critical section.
+	 */
+	boolean holdsLock(Process p) {
+		return holding.containsKey(p);
+	}
+
+	/**
+	 * Registers the start of a slice of a process.
+	 * 
+	 * @param p The process.
+	 * @param start The time the process starts computing, after the switch
+	 *            overhead.
+	 * @return The CPU time left of its critical section, -1 if it holds no
+	 *         lock.
+	 */
+	long dispatched(Process p, long start) {
+		Request request = holding.get(p);
+		if (request == null) {
+			return -1;
+		}
+		request.running = start;
+		return request.remaining;
+	}
+
+	/**
+	 * Registers the end of a slice of a process. A process that has used the
+	 * CPU time of its critical section leaves the lock.
+	 * 
+	 * @param p The process.
+	 * @return The processes that get the lock, to be queued for the CPU.
+	 */
+	List<Process> sliceEnded(Process p) {
+		Request request = holding.get(p);
+		if (request == null || request.running < 0) {
+			return Collections.emptyList();
+		}
+		request.remaining -= Math.max(0, SystemClock.getTime() - request.running);
+		request.running = -1;
+		return request.remaining <= 0 ? release(p) : Collections.<Process> emptyList();
+	}
+
+	/**
+	 * Lets a process leave its lock, at the end of its critical section.
+	 * 
+	 * @param p The process.
+	 * @return The processes that get the lock, to be queued for the CPU.
+	 */
+	List<Process> release(Process p) {
+		Request request = holding.remove(p);
+		Lock lock = locks[request.lock];
+		long hold = SystemClock.getTime() - request.since;
+		lock.releases++;
+		lock.totalHold += hold;
+		lock.maxHold = Math.max(lock.maxHold, hold);
+		lock.holders--;
+		if (lock.holders == 0) {
+			lock.exclusive = false;
+		}
+
+		List<Process> granted = new ArrayList<Process>();
+		while (!lock.waiting.isEmpty() && canGrant(lock, lock.waiting.peekFirst().exclusive)) {
+			Request next = lock.waiting.removeFirst();
+			grant(lock, next);
+			granted.add(next.process);
+		}
+		return granted;
+	}
+
+	/**
+	 * Returns the holders that inherit the urgency of the processes waiting
+	 * for their lock, the one holding its lock longest first.
+	 * 
+	 * @return The holders, none without priority inheritance.
+	 */
+	List<Process> getWaitedForHolders() {
+		if (!inheritance) {
+			return Collections.emptyList();
+		}
+		List<Process> holders = new ArrayList<Process>();
+		for (Request request : holding.values()) {
+			if (!locks[request.lock].waiting.isEmpty()) {
+				holders.add(request.process);
+			}
+		}
+		return holders;
+	}
+
+	/**
+	 * Registers a holder given the CPU ahead of its turn.
+	 */
+	void boosted() {
+		boosts++;
+	}
+
+	/**
+	 * Returns the share of the requests for a lock that had to wait.
+	 * 
+	 * @return The contention rate, between 0 and 1.
+	 */
+	public double getContentionRate() {
+		long acquisitions = 0, contended = 0;
+		for (Lock lock : locks) {
+			acquisitions += lock.acquisitions;
+			contended += lock.contended;
+		}
+		return acquisitions > 0 ? (double) contended / acquisitions : 0;
+	}
+
+	/**
+	 * Returns the mean wait for a lock, over the requests granted.
+	 * 
+	 * @return The mean wait (ms).
+	 */
+	public double getAverageWait() {
+		long granted = 0, wait = 0;
+		for (Lock lock : locks) {
+			granted += lock.acquisitions - lock.waiting.size();
+			wait += lock.totalWait;
+		}
+		return granted > 0 ? (double) wait / granted : 0;
+	}
+
+	/**
+	 * Returns the mean time from getting a lock to leaving it.
+	 * 
+	 * @return The mean hold time (ms).
+	 */
+	public double getAverageHold() {
+		long releases = 0, hold = 0;
+		for (Lock lock : locks) {
+			releases += lock.releases;
+			hold += lock.totalHold;
+		}
+		return releases > 0 ? (double) hold / releases : 0;
+	}
+
+	public long getBoosts() {
+		return boosts;
+	}
+
+	/**
+	 * Prints the hold time, wait time and contention of each lock.
+	 */
+	public void printReport() {
+		System.out.println();
+		System.out.println("Locks (critical section on " + (float) (100 * probability) + "% of dispatches, "
+				+ criticalSection + " ms" + (inheritance ? ", priority inheritance" : "") + "):");
+		System.out.println(String.format("%4s %10s %12s %11s %12s %12s %12s %12s %8s", "Lock", "Kind",
+				"Acquisitions", "Contention", "Avg wait", "Max wait", "Avg hold", "Max hold", "Max queue"));
+		for (int i = 0; i < locks.length; i++) {
+			Lock lock = locks[i];
+			long granted = lock.acquisitions - lock.waiting.size();
+			String kind = lock.kind == RW ? "RW/" + lock.writeShare
+					: lock.kind == SEMAPHORE ? "SEM/" + lock.capacity : KIND_NAMES[lock.kind];
+			System.out.println(String.format("%4d %10s %12d %10.1f%% %9d ms %9d ms %9d ms %9d ms %8d", i + 1,
+					kind, lock.acquisitions,
+					lock.acquisitions > 0 ? 100.0 * lock.contended / lock.acquisitions : 0.0,
+					granted > 0 ? lock.totalWait / granted : 0, lock.maxWait,
+					lock.releases > 0 ? lock.totalHold / lock.releases : 0, lock.maxHold, lock.maxWaiting));
+		}
+		System.out.println("Contention rate:                                              "
+				+ (float) (100 * getContentionRate()) + "%");
+		System.out.println("Average lock wait:                                            "
+				+ (float) getAverageWait() + " ms");
+		System.out.println("Average lock hold:                                            "
+				+ (float) getAverageHold() + " ms");
+		if (inheritance) {
+			System.out.println("Holders given the CPU first:                                  " + boosts);
+		}
+	}
+
+	/**
+	 * Runs the simulator with the critical sections spread over 1, 2, 4, 8
+	 * and 16 mutexes, with and without priority inheritance, on the same
+	 * random numbers, and prints the throughput next to the lock contention.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by
+	 *            -probability=p (0.8 by default), -section=ms (40 by default)
+	 *            and the options of a {@link Sweep}.
+	 * @throws IOException If the result cache cannot be used.
+	 */
+	public static void main(String args[]) throws IOException {
+		Sweep sweep = new Sweep(args);
+		long[] params = sweep.getParameters(Constants.TESTING_MEMORY_SIZSE, 50, 300, 4000000, 6000);
+		double probability = Double.parseDouble(sweep.takeOption("-probability", "0.8"));
+		long section = Long.parseLong(sweep.takeOption("-section", "40"));
+
+		System.out.println(String.format("%6s %8s %10s %12s %11s %12s %12s", "Locks", "Inherit", "Throughput",
+				"Mean (ms)", "Contention", "Avg wait", "Avg hold"));
+		for (int count : new int[] { 0, 1, 2, 4, 8, 16 }) {
+			for (boolean inherit : new boolean[] { false, true }) {
+				if (count == 0 && inherit) {
+					continue;
+				}
+				double[] results = count == 0 ? sweep.run(params)
+						: sweep.run(params, "-locks=mutex*" + count + ":" + probability + ":" + section
+								+ (inherit ? ":inherit" : ""));
+				System.out.println(String.format("%6d %8s %10.3f %12.0f %10.1f%% %9.1f ms %9.1f ms", count,
+						inherit ? "yes" : "no", results[ResultCache.THROUGHPUT],
+						results[ResultCache.MEAN_TIME_IN_SYSTEM], 100 * results[ResultCache.LOCK_CONTENTION],
+						results[ResultCache.LOCK_WAIT_MEAN], results[ResultCache.LOCK_HOLD_MEAN]));
+			}
+		}
+		sweep.printReport();
+	}
+}
@@ -0,0 +1,22 @@
+package simulator;
+
+/**
+ * Evicts the least recently used page. A reference moves the frame to the
+ * tail of the list of {@link FifoReplacement}, so the head is always the
+ * least recently used frame.
+ */
+public class LruReplacement extends FifoReplacement {
+	/**
+	 * Creates the policy for a memory of the given number of frames.
+	 * 
+	 * @param frames The number of frames.
+	 */
+	public LruReplacement(int frames) {
+		super(frames);
+	}
+
+	public void referenced(int frame) {
+		unlink(frame);
+		append(frame);
+	}
+}
@@ -1,3 +1,5 @@
+package simulator;
+
 /**
  * This class implements functionality associated with the memory device of the
  * simulated system.
@@ -9,6 +11,8 @@ public class Memory {
 	private long memorySize;
 	/** The amount of free memory in the memory device */
 	private long freeMemory;
+	/** Chooses the process admitted next, null to admit in FIFO order */
+	private MemoryWaitQueue waitQueue;
 
 	/**
 	 * Creates a new memory device with the given parameters.
@@ -32,6 +36,30 @@ public class Memory {
 		return this.memorySize;
 	}
 
+	/**
+	 * Returns the queue of processes waiting for memory.
+	 * 
+	 * @return The memory queue.
+	 */
+	Queue getQueue() {
+		return this.queue;
+	}
+
+	/**
+	 * Lets a wait queue choose which waiting process is admitted next. The
+	 * memory queue still holds the waiting processes, in order of arrival.
+	 * 
+	 * @param waitQueue The wait queue, or {@code null} to admit the first
+	 *            process in the memory queue.
+	 */
+	public void setWaitQueue(MemoryWaitQueue waitQueue) {
+		this.waitQueue = waitQueue;
+	}
+
+	public MemoryWaitQueue getWaitQueue() {
+		return this.waitQueue;
+	}
+
 	/**
 	 * Returns the amount of free memeory
 	 * 
@@ -48,6 +76,27 @@ public class Memory {
 	 */
 	public void insertProcess(Process p) {
 		queue.insert(p);
+		if (waitQueue != null) {
+			waitQueue.add(p);
+		}
+	}
+
+	/**
+	 * Returns the number of processes waiting for memory.
+	 * 
+	 * @return The memory queue length.
+	 */
+	public int getQueueLength() {
+		return queue.getQueueLength();
+	}
+
+	/**
+	 * Returns the first process in the memory queue without removing it.
+	 * 
+	 * @return The first waiting process; {@code null} if the queue is empty.
+	 */
+	public Process peekNextProcess() {
+		return queue.isEmpty() ? null : (Process) queue.getNext();
 	}
 
 	/**
@@ -59,26 +108,47 @@ public class Memory {
 	 * 			empty.
 	 */
 	public Process getNextProcess() {
-		System.out.println("Memory.getNextProcess()");
-		System.out.println("Free memory: "+this.getFreeMemorySize());
+		Debug.trace("Memory.getNextProcess()");
+		Debug.trace("Free memory: "+this.getFreeMemorySize());
 		Process p = null;
 		
-		if (!queue.isEmpty()) {
+		if (waitQueue != null) {
+			p = waitQueue.next(freeMemory);
+			if (p != null) {
+				queue.remove(p);
+				this.freeMemory -= p.getMemoryNeeded();
+			}
+		} else if (!queue.isEmpty()) {
 			p = (Process) queue.getNext();
 			if (p.getMemoryNeeded() <= freeMemory) {
 				queue.removeNext();
 				this.freeMemory -= p.getMemoryNeeded();
 			} else {
 				p = null;
-				System.out.println("Memory out of memory");
+				Debug.trace("Memory out of memory");
 			}
 		} else {
-			System.out.println("No waiting in queue.");
+			Debug.trace("No waiting in queue.");
 		}
 		
 		return p;
 	}
 
+	/**
+	 * Allocates the memory of a process outside the memory queue, for
+	 * instance when it is swapped back in.
+	 * 
+	 * @param p The process.
+	 * @return Whether or not there was enough free memory.
+	 */
+	public boolean allocate(Process p) {
+		if (p.getMemoryNeeded() > freeMemory) {
+			return false;
+		}
+		freeMemory -= p.getMemoryNeeded();
+		return true;
+	}
+
 	/**
 	 * This method is called when a discrete amount of time has passed.
 	 * 
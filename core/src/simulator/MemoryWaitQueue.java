@@ -0,0 +1,329 @@
+package simulator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Decides which process waiting for memory is admitted next. The waiting
+ * processes are kept in buckets by size class, the class of a process being
+ * the power of two just below its memory need, with a bit set for every
+ * non-empty class. When memory is freed, the classes that certainly fit are
+ * those below the class of the free memory, so finding a candidate takes a
+ * look at the bit set and at the head of a bucket, and only the bucket of
+ * the free memory's own class has to be searched; for best fit also the
+ * highest class below it, if none in that bucket fits.
+ * 
+ * The policies are:
+ * <ul>
+ * <li>{@link #FIFO}: the process that has waited longest, or none if it
+ * does not fit; as without a wait queue.</li>
+ * <li>{@link #FIRST_FIT}: the process that has waited longest among those
+ * that fit.</li>
+ * <li>{@link #SMALLEST}: the process that has waited longest in the
+ * smallest size class, which admits the most processes but lets large ones
+ * starve.</li>
+ * <li>{@link #BEST_FIT}: the largest process that fits.</li>
+ * </ul>
+ * To bound the wait, a process that has waited for the aging limit is
+ * served first whatever the policy: no other process is admitted before it,
+ * so it gets memory as soon as enough is freed.
+ * 
+ * The memory wait is kept for each size class, and printed by
+ * {@link #printReport()}.
+ * 
+ * Enabled with {@link Simulator#setMemoryWaitQueue(MemoryWaitQueue)}.
+ */
+public class MemoryWaitQueue {
+	/** Policies */
+	public static final int FIFO = 0;
+	public static final int FIRST_FIT = 1;
+	public static final int SMALLEST = 2;
+	public static final int BEST_FIT = 3;
+	/** Names of the policies, indexed by policy */
+	public static final String[] POLICY_NAMES = { "FIFO", "FIRST-FIT", "SMALLEST", "BEST-FIT" };
+
+	/** The number of size classes, one for each bit of a memory size */
+	private static final int CLASSES = 64;
+
+	/** A waiting process */
+	private static class Entry {
+		Process process;
+		long size;
+		long since;
+		/** The order of arrival */
+		long sequence;
+	}
+
+	private int policy;
+	/** The wait after which a process is served first, 0 for no aging */
+	private long agingLimit;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private ArrayDeque<Entry>[] buckets = new ArrayDeque[CLASSES];
+	/** Bit c is set if bucket c holds a process */
+	private long nonEmpty = 0;
+	private int size = 0;
+	private long sequence = 0;
+
+	/** Statistics by size class */
+	private long[] admitted = new long[CLASSES];
+	private long[] totalWait = new long[CLASSES];
+	private long[] maxWait = new long[CLASSES];
+	private long[] aged = new long[CLASSES];
+
+	/**
+	 * Creates a wait queue.
+	 * 
+	 * @param policy The policy, e.g. {@link #FIRST_FIT}.
+	 * @param agingLimit The wait after which a process is served first (ms),
+	 *            0 for no aging.
+	 */
+	public MemoryWaitQueue(int policy, long agingLimit) {
+		if (policy < 0 || policy >= POLICY_NAMES.length) {
+			throw new IllegalArgumentException("Unknown memory queue policy " + policy);
+		}
+		this.policy = policy;
+		this.agingLimit = agingLimit;
+		for (int c = 0; c < CLASSES; c++) {
+			buckets[c] = new ArrayDeque<Entry>();
+		}
+	}
+
+	/**
+	 * Looks up a policy by name, ignoring case.
+	 * 
+	 * @param name The name of the policy, e.g. "first-fit".
+	 * @return The policy, or -1 if there is no policy with that name.
+	 */
+	public static int getPolicy(String name) {
+		for (int i = 0; i < POLICY_NAMES.length; i++) {
+			if (POLICY_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the size class of an amount of memory.
+	 * 
+	 * @param memory The amount of memory.
+	 * @return The class c such that 2^c <= memory < 2^(c+1), 0 for 0.
+	 */
+	static int getSizeClass(long memory) {
+		return memory <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(memory);
+	}
+
+	/**
+	 * Adds a process that starts waiting now.
+	 * 
+	 * @param p The process.
+	 */
+	public void add(Process p) {
+		Entry entry = new Entry();
+		entry.process = p;
+		entry.size = p.getMemoryNeeded();
+		entry.since = SystemClock.getTime();
+		entry.sequence = sequence++;
+		int c = getSizeClass(entry.size);
+		buckets[c].addLast(entry);
+		nonEmpty |= 1L << c;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes and returns the next process to admit, if any fits.
+	 * 
+	 * @param freeMemory The memory free.
+	 * @return The process, or {@code null} if none is admitted.
+	 */
+	public Process next(long freeMemory) {
+		if (size == 0) {
+			return null;
+		}
+		Entry oldest = getOldest(nonEmpty);
+		boolean isAged = agingLimit > 0 && SystemClock.getTime() - oldest.since >= agingLimit;
+		Entry chosen;
+		if (policy == FIFO || isAged) {
+			chosen = oldest.size <= freeMemory ? oldest : null;
+		} else {
+			int free = getSizeClass(freeMemory);
+			// Every process in a class below the free memory's class fits
+			long below = free == 0 ? 0 : nonEmpty & ((1L << free) - 1);
+			if (policy == BEST_FIT) {
+				// The free memory's class holds the largest processes that may fit
+				chosen = freeMemory > 0 ? findLargestFit(buckets[free], freeMemory) : null;
+				if (chosen == null && below != 0) {
+					chosen = findLargestFit(buckets[63 - Long.numberOfLeadingZeros(below)], freeMemory);
+				}
+			} else {
+				Entry fitting = freeMemory > 0 ? findFirstFit(buckets[free], freeMemory) : null;
+				if (policy == FIRST_FIT) {
+					chosen = getOldest(below);
+					if (fitting != null && (chosen == null || fitting.sequence < chosen.sequence)) {
+						chosen = fitting;
+					}
+				} else {
+					chosen = below != 0 ? buckets[Long.numberOfTrailingZeros(below)].peekFirst() : fitting;
+				}
+			}
+		}
+		if (chosen == null) {
+			return null;
+		}
+
+		int c = getSizeClass(chosen.size);
+		if (chosen == buckets[c].peekFirst()) {
+			buckets[c].removeFirst();
+		} else {
+			buckets[c].removeFirstOccurrence(chosen);
+		}
+		if (buckets[c].isEmpty()) {
+			nonEmpty &= ~(1L << c);
+		}
+		size--;
+		long wait = SystemClock.getTime() - chosen.since;
+		admitted[c]++;
+		totalWait[c] += wait;
+		maxWait[c] = Math.max(maxWait[c], wait);
+		if (isAged && chosen == oldest) {
+			aged[c]++;
+		}
+		return chosen.process;
+	}
+
+	/**
+	 * Returns the process that has waited longest among the heads of some
+	 * buckets, each head being the oldest of its bucket.
+	 */
+	private Entry getOldest(long classes) {
+		Entry oldest = null;
+		while (classes != 0) {
+			int c = Long.numberOfTrailingZeros(classes);
+			classes &= classes - 1;
+			Entry head = buckets[c].peekFirst();
+			if (oldest == null || head.sequence < oldest.sequence) {
+				oldest = head;
+			}
+		}
+		return oldest;
+	}
+
+	private static Entry findFirstFit(ArrayDeque<Entry> bucket, long freeMemory) {
+		for (Entry entry : bucket) {
+			if (entry.size <= freeMemory) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the largest process in a bucket that fits, the one that has
+	 * waited longest among those of that size.
+	 */
+	private static Entry findLargestFit(ArrayDeque<Entry> bucket, long freeMemory) {
+		Entry largest = null;
+		for (Entry entry : bucket) {
+			if (entry.size <= freeMemory && (largest == null || entry.size > largest.size)) {
+				largest = entry;
+			}
+		}
+		return largest;
+	}
+
+	/**
+	 * Returns the longest memory wait of any process admitted so far.
+	 * 
+	 * @return The longest wait (ms).
+	 */
+	public long getMaxWait() {
+		long max = 0;
+		for (long wait : maxWait) {
+			max = Math.max(max, wait);
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the longest time a process still waiting has waited.
+	 * 
+	 * @return The wait so far of the oldest waiting process (ms).
+	 */
+	public long getOldestWait() {
+		return size > 0 ? SystemClock.getTime() - getOldest(nonEmpty).since : 0;
+	}
+
+	/**
+	 * Returns the longest memory wait in the largest size class with
+	 * admitted processes, where starvation shows first.
+	 * 
+	 * @return The longest wait (ms).
+	 */
+	public long getLargestClassMaxWait() {
+		for (int c = CLASSES - 1; c >= 0; c--) {
+			if (admitted[c] > 0) {
+				return maxWait[c];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Prints the memory wait of each size class.
+	 */
+	public void printReport() {
+		System.out.println();
+		System.out.println("Memory wait queue (" + POLICY_NAMES[policy]
+				+ (agingLimit > 0 ? ", aging after " + agingLimit + " ms" : "") + "):");
+		System.out.println(String.format("%20s %10s %12s %12s %8s", "Size class (kB)", "Admitted",
+				"Avg wait", "Max wait", "Aged"));
+		for (int c = 0; c < CLASSES; c++) {
+			if (admitted[c] > 0) {
+				System.out.println(String.format("%20s %10d %9d ms %9d ms %8d", (1L << c) + "-" + ((2L << c) - 1),
+						admitted[c], totalWait[c] / admitted[c], maxWait[c], aged[c]));
+			}
+		}
+		System.out.println("Still waiting:                                                " + size
+				+ " (longest for " + getOldestWait() + " ms)");
+	}
+
+	/**
+	 * Runs the simulator with each policy, with and without aging, on the
+	 * same random numbers, and prints throughput next to the memory wait.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by
+	 *            -aging=limit (60000 ms by default) and the options of a
+	 *            {@link Sweep}.
+	 * @throws IOException If the result cache cannot be used.
+	 */
+	public static void main(String args[]) throws IOException {
+		Sweep sweep = new Sweep(args);
+		long[] params = sweep.getParameters(Constants.TESTING_MEMORY_SIZSE, 500, 225, 2000000, 4000);
+		long aging = Long.parseLong(sweep.takeOption("-aging", "60000"));
+
+		System.out.println(String.format("%-24s %10s %12s %12s %14s %14s", "Policy", "Throughput",
+				"Mean wait", "Max wait", "Max wait large", "Oldest at end"));
+		for (int policy = 0; policy < POLICY_NAMES.length; policy++) {
+			for (long limit : new long[] { 0, aging }) {
+				if (policy == FIFO && limit > 0) {
+					continue;
+				}
+				double[] results = sweep.run(params, "-memqueue=" + POLICY_NAMES[policy] + ":" + limit);
+				double completed = Sweep.get(results, "processes_completed");
+				System.out.println(String.format("%-24s %10.3f %9.0f ms %9.0f ms %11.0f ms %11.0f ms",
+						POLICY_NAMES[policy] + (limit > 0 ? " aging " + limit : ""),
+						results[ResultCache.THROUGHPUT],
+						completed > 0 ? Sweep.get(results, "memory_wait_ms") / completed : 0,
+						results[ResultCache.MEMORY_WAIT_MAX], results[ResultCache.MEMORY_WAIT_MAX_LARGEST],
+						results[ResultCache.MEMORY_WAIT_OLDEST]));
+			}
+		}
+		sweep.printReport();
+	}
+}
@@ -0,0 +1,78 @@
+package simulator;
+
+import java.util.Random;
+
+/**
+ * Bursty arrivals from a two-state Markov-modulated Poisson process (MMPP).
+ * The process stays an exponentially distributed time in each state, and
+ * while in a state arrivals come as a Poisson process with the rate of that
+ * state, for instance frequent arrivals in a busy period and rare ones in a
+ * quiet period.
+ * 
+ * Unlike the other distributions the samples are not independent: each one
+ * is the time to the next arrival, and the state carries over from one to
+ * the next, so one instance must serve one arrival stream.
+ */
+public class MmppDistribution implements Distribution {
+	/** The mean time between arrivals in each state */
+	private double[] interval;
+	/** The mean time spent in each state */
+	private double[] sojourn;
+	/** The current state, -1 before the first sample */
+	private int state = -1;
+	/** The time left in the current state */
+	private double stateTimeLeft;
+
+	/**
+	 * Creates the arrival process.
+	 * 
+	 * @param interval0 The mean time between arrivals in state 0.
+	 * @param interval1 The mean time between arrivals in state 1.
+	 * @param sojourn0 The mean time spent in state 0 before switching.
+	 * @param sojourn1 The mean time spent in state 1 before switching.
+	 */
+	public MmppDistribution(double interval0, double interval1, double sojourn0, double sojourn1) {
+		if (interval0 <= 0 || interval1 <= 0 || sojourn0 <= 0 || sojourn1 <= 0) {
+			throw new IllegalArgumentException("MMPP parameters must be positive");
+		}
+		interval = new double[] { interval0, interval1 };
+		sojourn = new double[] { sojourn0, sojourn1 };
+	}
+
+	public double sample(Random random) {
+		if (state < 0) {
+			// Start in a state chosen by its long run share of time
+			state = random.nextDouble() * (sojourn[0] + sojourn[1]) < sojourn[0] ? 0 : 1;
+			stateTimeLeft = exponential(random, sojourn[state]);
+		}
+		double time = 0;
+		while (true) {
+			// Both times are memoryless, so the next arrival can be redrawn in a new state
+			double next = exponential(random, interval[state]);
+			if (next < stateTimeLeft) {
+				stateTimeLeft -= next;
+				return time + next;
+			}
+			time += stateTimeLeft;
+			state = 1 - state;
+			stateTimeLeft = exponential(random, sojourn[state]);
+		}
+	}
+
+	private static double exponential(Random random, double mean) {
+		return -Math.log(1 - random.nextDouble()) * mean;
+	}
+
+	/**
+	 * Returns the long run mean time between arrivals: the time in both
+	 * states over the arrivals expected in them.
+	 */
+	public double getMean() {
+		return (sojourn[0] + sojourn[1]) / (sojourn[0] / interval[0] + sojourn[1] / interval[1]);
+	}
+
+	public String toString() {
+		return "mmpp:" + Distributions.format(interval[0]) + ":" + Distributions.format(interval[1]) + ":"
+				+ Distributions.format(sojourn[0]) + ":" + Distributions.format(sojourn[1]);
+	}
+}
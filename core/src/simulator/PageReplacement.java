@@ -0,0 +1,48 @@
+package simulator;
+
+/**
+ * A page replacement policy of {@link VirtualMemory}. The policy only sees
+ * frame numbers and the keys of the pages in them, and every operation takes
+ * constant (amortized) time.
+ * 
+ * For every page fault the virtual memory calls {@link #missed(long)}, then
+ * {@link #victim()} if no frame is free, and finally
+ * {@link #loaded(int, long)} for the frame the page was read into.
+ */
+public interface PageReplacement {
+	/**
+	 * Registers a reference to a resident page.
+	 * 
+	 * @param frame The frame holding the page.
+	 */
+	public void referenced(int frame);
+
+	/**
+	 * Registers a reference to a page that is not resident.
+	 * 
+	 * @param key The key of the page.
+	 */
+	public void missed(long key);
+
+	/**
+	 * Chooses the frame to evict. Only called when every frame is in use.
+	 * 
+	 * @return The frame, which the policy no longer tracks.
+	 */
+	public int victim();
+
+	/**
+	 * Registers a page read into a frame.
+	 * 
+	 * @param frame The frame.
+	 * @param key The key of the page.
+	 */
+	public void loaded(int frame, long key);
+
+	/**
+	 * Registers a frame freed because its process ended.
+	 * 
+	 * @param frame The frame.
+	 */
+	public void removed(int frame);
+}
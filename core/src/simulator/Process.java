@@ -0,0 +1,545 @@
+package simulator;
+
+import java.util.Random;
+
+/**
+ * This class contains data associated with processes, and methods for
+ * manipulating this data. Processes are drawn in the GUI by
+ * simulator.gui.ProcessPainter, so that the engine does not depend on AWT.
+ * 
+ * You will probably want to add more methods to this class.
+ */
+public class Process implements Constants {
+	/** The ID of the next process to be created */
+	private static long nextProcessId = 1;
+
+	/** The ID of this process */
+	private long processId;
+
+	/** The amount of memory needed by this process */
+	private long memoryNeeded;
+
+	/** The amount of CPU time still needed by this process */
+	private long cpuTimeNeeded;
+
+	/** The average time between the need for I/O operations for this process */
+	private long ioInterval;
+
+	/** The time left until the next time this process needs I/O */
+	private long timeToNextIoOperation = 0;
+
+	/** The time that this process has spent waiting in the memory queue */
+	private long timeSpentInMemoryQueue = 0;
+
+	/** The time that this process has spent waiting in the CPU queue */
+	private long timeSpentInCPUQueue = 0;
+
+	/** The time that this process has spent processing */
+	private long timeSpentInCpu = 0;
+
+	/** The time that this process has spent waiting in the I/O queue */
+	private long timeSpentInIoQueue = 0;
+
+	/** The time that this process has spent performing I/O */
+	private long timeSpentInIo = 0;
+
+	/** The number of times that this process has been placed in the CPU queue */
+	private long nofTimesInReadyQueue = 0;
+
+	/** The number of times that this process has been placed in the I/O queue */
+	private long nofTimesInIoQueue = 0;
+
+	/** The global time of the last event involving this process */
+	private long timeOfLastEvent;
+	
+	private long timeAddedToSystem;
+	private long timeCreated;
+	
+	private int PREV_STATE;
+
+	/** The time this process last left the CPU, -1 if it has not run yet */
+	private long timeLeftCpu = -1;
+
+	/** Time at the start of the current CPU slice spent on switching, not on this process */
+	private long dispatchOverhead = 0;
+
+	/** Time of the current CPU slice the process is on the CPU without progress, as the CPU wakes up or runs slower */
+	private long slowdown = 0;
+
+	/** Cumulative probabilities of the I/O device classes used, null if only one */
+	private double[] ioAffinity;
+
+	/** The shape of the CPU bursts between I/O requests, null for uniform */
+	private Distribution burst;
+
+	/** The random stream of the CPU bursts and I/O times of this process */
+	private Random random;
+
+	/** The process this is a thread of, null for a process */
+	private Process parent;
+
+	/** The number of threads of this process still running */
+	private int liveThreads = 0;
+
+	/** The number of threads of this process on the CPU or an I/O device */
+	private int threadsInService = 0;
+
+	/** The time the number of threads in service last changed */
+	private long threadsChanged;
+
+	/** The time at least one thread of this process was on the CPU or an I/O device */
+	private long busyTime = 0;
+
+	/** The time more than one thread of this process was on the CPU or an I/O device */
+	private long overlapTime = 0;
+
+	/** The slot of this job in the {@link RealTimeScheduler}, -1 for a process */
+	private int realTimeSlot = -1;
+
+	/**
+	 * Creates a new process with given parameters. Other parameters are
+	 * randomly determined.
+	 * 
+	 * @param memorySize The size of the memory unit.
+	 * @param creationTime The global time when this process is created.
+	 */
+	public Process(long memorySize) {
+		this(memorySize, null);
+	}
+
+	/**
+	 * Creates a new process with the demands drawn from the distributions of
+	 * a workload. Demands without a distribution are drawn as by
+	 * {@link #Process(long)}.
+	 * 
+	 * @param memorySize The size of the memory unit.
+	 * @param workload The workload, or {@code null}.
+	 */
+	public Process(long memorySize, Workload workload) {
+		timeCreated = SystemClock.getTime();
+		Distribution d;
+		
+		// Memory need varies from 100 kB to 25% of memory size
+		d = workload != null ? workload.get(Workload.MEMORY) : null;
+		if (d != null) {
+			memoryNeeded = Math.max(1, Math.min(memorySize, Math.round(d.sample(RandomStreams.get(RandomStreams.PROCESSES)))));
+		} else {
+			memoryNeeded = 100 + (long) (RandomStreams.nextDouble(RandomStreams.PROCESSES) * (memorySize / 4 - 100));
+		}
+
+		// CPU time needed varies from 100 to 10000 milliseconds
+		d = workload != null ? workload.get(Workload.CPU) : null;
+		if (d != null) {
+			cpuTimeNeeded = Math.max(1, Math.round(d.sample(RandomStreams.get(RandomStreams.PROCESSES))));
+		} else {
+			cpuTimeNeeded = 100 + (long) (RandomStreams.nextDouble(RandomStreams.PROCESSES) * 9900);
+		}
+
+		// Average interval between I/O requests varies from 1% to 25% of CPU
+		// time needed
+		d = workload != null ? workload.get(Workload.INTERVAL) : null;
+		if (d != null) {
+			ioInterval = Math.max(1, Math.round(d.sample(RandomStreams.get(RandomStreams.PROCESSES))));
+		} else {
+			ioInterval = (1 + (long) (RandomStreams.nextDouble(RandomStreams.PROCESSES) * 25)) * cpuTimeNeeded / 100;
+		}
+		burst = workload != null ? workload.get(Workload.BURST) : null;
+		random = new Random(RandomStreams.get(RandomStreams.PROCESS_SEEDS).nextLong());
+		
+		// Time to next IO request
+		timeToNextIoOperation = generateTimeToNextIoOperation();
+		
+		// The first and latest event involving this process is its creation
+		timeOfLastEvent = SystemClock.getTime();
+
+		// Assign a process ID
+		processId = nextProcessId++;
+		
+		PREV_STATE = MEMORY_QUEUE;
+	}
+
+	/**
+	 * Creates a thread of a process. The thread shares the memory, the I/O
+	 * pattern and the id of the process, and needs part of its CPU time.
+	 * 
+	 * @param parent The process.
+	 * @param cpuTimeNeeded The CPU time needed by the thread.
+	 */
+	private Process(Process parent, long cpuTimeNeeded) {
+		this.parent = parent;
+		this.processId = parent.processId;
+		this.memoryNeeded = parent.memoryNeeded;
+		this.cpuTimeNeeded = cpuTimeNeeded;
+		this.ioInterval = parent.ioInterval;
+		this.burst = parent.burst;
+		this.ioAffinity = parent.ioAffinity;
+		this.random = new Random(parent.random.nextLong());
+		this.timeToNextIoOperation = generateTimeToNextIoOperation();
+		this.timeCreated = SystemClock.getTime();
+		this.timeAddedToSystem = this.timeCreated;
+		this.timeOfLastEvent = this.timeCreated;
+		PREV_STATE = THREADS_RUNNING;
+	}
+
+	/**
+	 * Creates a job of a real-time task. A job only uses the CPU: it holds no
+	 * memory of its own and does no I/O. Its time is not part of the
+	 * statistics of the processes, except as CPU time.
+	 * 
+	 * @param taskId The id of the job, the same for all jobs of a task.
+	 * @param cpuTimeNeeded The execution time of the job.
+	 * @param realTimeSlot The slot of the job in the scheduler.
+	 */
+	Process(long taskId, long cpuTimeNeeded, int realTimeSlot) {
+		this.processId = taskId;
+		this.cpuTimeNeeded = cpuTimeNeeded;
+		this.ioInterval = Long.MAX_VALUE;
+		this.timeToNextIoOperation = Long.MAX_VALUE;
+		this.realTimeSlot = realTimeSlot;
+		this.timeCreated = SystemClock.getTime();
+		this.timeAddedToSystem = this.timeCreated;
+		this.timeOfLastEvent = this.timeCreated;
+		PREV_STATE = CPU_QUEUE;
+	}
+
+	/**
+	 * Cuts the CPU slice of this process short, as when it is preempted. The
+	 * switch overhead counts up to the time passed, the slowdown in
+	 * proportion to the part of the slice passed.
+	 * 
+	 * @param sliceEnd The time the slice was to end.
+	 */
+	void cutSlice(long sliceEnd) {
+		long elapsed = SystemClock.getTime() - this.timeOfLastEvent;
+		long planned = sliceEnd - this.timeOfLastEvent;
+		this.dispatchOverhead = Math.min(this.dispatchOverhead, elapsed);
+		if (planned > 0) {
+			this.slowdown = Math.min(this.slowdown * elapsed / planned, elapsed - this.dispatchOverhead);
+		}
+	}
+
+	/**
+	 * Returns the random stream of this process, seeded when it is created.
+	 * Its CPU bursts and I/O times are drawn from it, so that they do not
+	 * depend on the order in which the processes are scheduled.
+	 * 
+	 * @return The stream.
+	 */
+	Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Returns the slot of this job in the {@link RealTimeScheduler}.
+	 * 
+	 * @return The slot, -1 if this is not a real-time job.
+	 */
+	public int getRealTimeSlot() {
+		return realTimeSlot;
+	}
+
+	/**
+	 * Splits the CPU time still needed by this process evenly over threads,
+	 * which are scheduled on their own from now on. The process itself does
+	 * not run again, and ends when {@link #threadFinished(Process)} has been
+	 * called for each of its threads.
+	 * 
+	 * @param count The number of threads, at most the CPU time needed.
+	 * @return The threads.
+	 */
+	Process[] createThreads(int count) {
+		count = (int) Math.max(1, Math.min(count, cpuTimeNeeded));
+		Process[] threads = new Process[count];
+		for (int i = 0; i < count; i++) {
+			threads[i] = new Process(this, cpuTimeNeeded / count + (i < cpuTimeNeeded % count ? 1 : 0));
+		}
+		this.liveThreads = count;
+		this.threadsChanged = SystemClock.getTime();
+		return threads;
+	}
+
+	/**
+	 * Adds the times of a thread that has finished to those of its process.
+	 * 
+	 * @param thread The thread, in state THREAD_FINISHED.
+	 * @return {@code true} if it was the last thread of the process.
+	 */
+	boolean threadFinished(Process thread) {
+		this.timeSpentInCPUQueue += thread.timeSpentInCPUQueue;
+		this.timeSpentInCpu += thread.timeSpentInCpu;
+		this.timeSpentInIoQueue += thread.timeSpentInIoQueue;
+		this.timeSpentInIo += thread.timeSpentInIo;
+		this.nofTimesInReadyQueue += thread.nofTimesInReadyQueue;
+		this.nofTimesInIoQueue += thread.nofTimesInIoQueue;
+		return --this.liveThreads == 0;
+	}
+
+	/**
+	 * Registers a thread of this process moving between states, to keep
+	 * track of how long the threads were in service at the same time.
+	 */
+	private void threadMoved(int from, int to) {
+		long timePassed = SystemClock.getTime() - this.threadsChanged;
+		if (this.threadsInService > 0) {
+			this.busyTime += timePassed;
+		}
+		if (this.threadsInService > 1) {
+			this.overlapTime += timePassed;
+		}
+		this.threadsChanged = SystemClock.getTime();
+		if (from == CPU_ACTIVE || from == IO_ACTIVE) {
+			this.threadsInService--;
+		}
+		if (to == CPU_ACTIVE || to == IO_ACTIVE) {
+			this.threadsInService++;
+		}
+	}
+
+	/**
+	 * Returns the process this is a thread of.
+	 * 
+	 * @return The process, or {@code null} if this is a process.
+	 */
+	public Process getParent() {
+		return parent;
+	}
+
+	/**
+	 * Returns the time at least one thread of this process was on the CPU or
+	 * an I/O device.
+	 * 
+	 * @return The time, 0 for a process without threads.
+	 */
+	public long getBusyTime() {
+		return busyTime;
+	}
+
+	/**
+	 * Returns the time more than one thread of this process was on the CPU
+	 * or an I/O device, e.g. one computing while another waits for a disk.
+	 * 
+	 * @return The time, 0 for a process without threads.
+	 */
+	public long getOverlapTime() {
+		return overlapTime;
+	}
+	
+	private long generateTimeToNextIoOperation() {
+		if (burst != null) {
+			return Math.round(burst.sample(random) * this.ioInterval / burst.getMean());
+		}
+		return (long) (2 * random.nextDouble() * this.ioInterval);
+	}
+	
+	/**
+	 * Process to String for debugging purposes.
+	 */
+	public String toString() {
+		String res = "process id = '" + processId + "' - ";
+		res += "RAM needed = '" + memoryNeeded + "' - ";
+		res += "CPU time needed = '" + cpuTimeNeeded + "' - ";
+		res += "avg IO interval = '" + ioInterval + "' - ";
+		res += "time of last event = '" + timeOfLastEvent + "'";
+
+		return res;
+	}
+
+	/**
+	 * Get unique ID for the process
+	 * 
+	 * @return {@code long} unique identificator
+	 */
+	public long getProcessId() {
+		return this.processId;
+	}
+
+	/**
+	 * Get the ID that will be given to the next process created.
+	 * 
+	 * @return The next process ID.
+	 */
+	public static long getNextProcessId() {
+		return nextProcessId;
+	}
+
+	/**
+	 * Restarts process IDs from 1, so that a new simulation in the same JVM
+	 * creates the same processes as the first one.
+	 */
+	public static void resetProcessIds() {
+		nextProcessId = 1;
+	}
+
+	/**
+	 * Sets the mix of I/O device classes this process uses.
+	 * 
+	 * @param ioAffinity Cumulative probabilities, one per device class.
+	 */
+	public void setIoAffinity(double[] ioAffinity) {
+		this.ioAffinity = ioAffinity;
+	}
+
+	public double[] getIoAffinity() {
+		return ioAffinity;
+	}
+
+	/**
+	 * Registers the time the CPU needs before this process does useful work
+	 * in the slice just started.
+	 * 
+	 * @param dispatchOverhead The switch overhead and cache warm-up time.
+	 */
+	public void setDispatchOverhead(long dispatchOverhead) {
+		this.dispatchOverhead = dispatchOverhead;
+	}
+
+	/**
+	 * Registers the time the process holds the CPU in the slice just started
+	 * without progress, because the CPU wakes up or runs below its top
+	 * frequency. Unlike the dispatch overhead, this time counts as CPU time.
+	 * 
+	 * @param slowdown The wake-up latency and the stretch of the slice.
+	 */
+	public void setSlowdown(long slowdown) {
+		this.slowdown = slowdown;
+	}
+
+	/**
+	 * Get the time this process last left the CPU.
+	 * 
+	 * @return The time, or -1 if the process has not run yet.
+	 */
+	public long getTimeLeftCpu() {
+		return timeLeftCpu;
+	}
+
+	/**
+	 * Copies the lifecycle of this process into a row of the
+	 * {@link ProcessRecordStore}, in the order of its columns.
+	 * 
+	 * @param row The row, at least ProcessRecordStore.STORED_COLUMNS long.
+	 */
+	void getRecord(long[] row) {
+		row[ProcessRecordStore.ID] = processId;
+		row[ProcessRecordStore.CREATED] = timeCreated;
+		row[ProcessRecordStore.ADMITTED] = timeAddedToSystem;
+		row[ProcessRecordStore.FINISHED] = timeOfLastEvent;
+		row[ProcessRecordStore.MEMORY] = memoryNeeded;
+		row[ProcessRecordStore.IO_INTERVAL] = ioInterval;
+		row[ProcessRecordStore.MEMORY_WAIT] = timeSpentInMemoryQueue;
+		row[ProcessRecordStore.CPU_WAIT] = timeSpentInCPUQueue;
+		row[ProcessRecordStore.CPU_TIME] = timeSpentInCpu;
+		row[ProcessRecordStore.IO_WAIT] = timeSpentInIoQueue;
+		row[ProcessRecordStore.IO_TIME] = timeSpentInIo;
+		row[ProcessRecordStore.CPU_VISITS] = nofTimesInReadyQueue;
+		row[ProcessRecordStore.IO_VISITS] = nofTimesInIoQueue;
+	}
+
+	/**
+	 * Get amount of memory needed.
+	 * 
+	 * @return The a {@code long} amount of memory needed by this process.
+	 */
+	public long getMemoryNeeded() {
+		return memoryNeeded;
+	}
+
+	/**
+	 * Returns the time the process got memory.
+	 * 
+	 * @return The time admitted to the system.
+	 */
+	public long getTimeAddedToSystem() {
+		return timeAddedToSystem;
+	}
+	
+	public void updateProcess(int NEW_STATE) {
+		long timePassed = SystemClock.getTime()-this.timeOfLastEvent;
+		if (this.parent != null) {
+			this.parent.threadMoved(PREV_STATE, NEW_STATE);
+		}
+		if (this.realTimeSlot >= 0) {
+			// A real-time job only counts as CPU time
+			if (PREV_STATE == CPU_ACTIVE) {
+				timePassed -= this.dispatchOverhead;
+				this.dispatchOverhead = 0;
+				this.timeLeftCpu = SystemClock.getTime();
+				this.timeSpentInCpu += timePassed;
+				Statistics.cpuActiveTime(timePassed);
+				this.cpuTimeNeeded -= timePassed - this.slowdown;
+				this.slowdown = 0;
+			}
+			PREV_STATE = NEW_STATE;
+			this.timeOfLastEvent = SystemClock.getTime();
+			return;
+		}
+		
+		if (NEW_STATE == CPU_QUEUE) {
+			this.nofTimesInReadyQueue++;
+			Statistics.processesPlacedInCpuQueue();
+		} else if (NEW_STATE == IO_QUEUE) {
+			this.nofTimesInIoQueue++;
+			Statistics.processesPlacedInIOQueue();
+		} else if (NEW_STATE == FINISHED) {
+			Statistics.processCompleted();
+			Statistics.processesTotalTimeInSystem(SystemClock.getTime()-this.timeAddedToSystem);
+		}
+		
+		if (PREV_STATE == MEMORY_QUEUE) {
+			this.timeAddedToSystem = SystemClock.getTime();
+			this.timeSpentInMemoryQueue += timePassed;
+			Statistics.processMemoryWait(timePassed);
+			Statistics.processAccepted();
+		} else if (PREV_STATE == CPU_ACTIVE) {
+			// Switch overhead is not progress
+			timePassed -= this.dispatchOverhead;
+			this.dispatchOverhead = 0;
+			this.timeLeftCpu = SystemClock.getTime();
+
+			this.timeSpentInCpu += timePassed;
+			Statistics.cpuActiveTime(timePassed);
+			timePassed -= this.slowdown;
+			this.slowdown = 0;
+			
+			this.timeToNextIoOperation -= timePassed;
+			this.cpuTimeNeeded -= timePassed;
+			
+			if (timeToNextIoOperation == 0) {
+				this.timeToNextIoOperation = this.generateTimeToNextIoOperation();
+			}
+		} else if (NEW_STATE == CPU_ACTIVE) {
+			this.timeSpentInCPUQueue += timePassed;
+			Statistics.processCPUWait(timePassed);
+		} else if (PREV_STATE == IO_QUEUE) {
+			this.timeSpentInIoQueue += timePassed;
+			Statistics.processIOWait(timePassed);
+		} else if (PREV_STATE == IO_ACTIVE) {
+			this.timeSpentInIo += timePassed;
+			Statistics.ioActiveTime(timePassed);
+		} else if (PREV_STATE == PAGE_WAIT) {
+			Statistics.processPageWait(timePassed);
+		} else if (PREV_STATE == SWAPPED) {
+			Statistics.processSwapWait(timePassed);
+		}
+		
+		PREV_STATE = NEW_STATE;
+		this.timeOfLastEvent = SystemClock.getTime();
+	}
+		
+	/**
+	 * 
+	 * @return
+	 */
+	public long getTimeToNextIoOperation() {
+		return timeToNextIoOperation;
+	}
+
+	/**
+	 * Get remaining time needed for this process
+	 * 
+	 * @return Returns a positive {@code long} of remaining time needed
+	 */
+	public long getRemainingCPUTime() {
+		return this.cpuTimeNeeded;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package simulator;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * The view a {@link ProcessScript} has of the simulated system. Each context
+ * belongs to one simulated process and its thread. The blocking calls hand
+ * control back to the simulation clock and return when the simulated
+ * operation is complete, so a script reads like the process it describes.
+ * 
+ * Only one thread, either the clock or one process, runs at any time, so the
+ * calls need no further synchronization.
+ * 
+ * @see ProcessInteractionSimulator
+ */
+public class ProcessContext implements Constants {
+	/** The engine this process runs in */
+	private ProcessInteractionSimulator engine;
+	/** The process, holding the statistics of this process */
+	private Process process;
+	/** Released by the clock when it is this process's turn to run */
+	Semaphore turn = new Semaphore(0);
+
+	/** Memory held by this process */
+	long allocated = 0;
+	/** Memory requested while waiting in the memory queue */
+	long requested = 0;
+	/** CPU time left of the current burst */
+	long burstLeft = 0;
+	/** The length of the CPU slice currently being run */
+	long slice = 0;
+	/** The length of the requested I/O operation */
+	long ioTime = 0;
+
+	/**
+	 * Creates the context of a new process.
+	 * 
+	 * @param engine The engine the process runs in.
+	 * @param process The process.
+	 */
+	ProcessContext(ProcessInteractionSimulator engine, Process process) {
+		this.engine = engine;
+		this.process = process;
+	}
+
+	/**
+	 * Returns the process this context belongs to.
+	 * 
+	 * @return The process.
+	 */
+	public Process getProcess() {
+		return process;
+	}
+
+	/**
+	 * Returns the current simulated time.
+	 * 
+	 * @return The simulated time in ms.
+	 */
+	public long now() {
+		return SystemClock.getTime();
+	}
+
+	/**
+	 * Allocates memory, waiting in the memory queue until it is available.
+	 * 
+	 * @param kb The amount of memory to allocate.
+	 */
+	public void allocate(long kb) {
+		engine.allocate(this, kb);
+	}
+
+	/**
+	 * Frees memory allocated earlier, letting waiting processes proceed.
+	 * 
+	 * @param kb The amount of memory to free.
+	 */
+	public void free(long kb) {
+		engine.free(this, kb);
+	}
+
+	/**
+	 * Uses the CPU for the given time, waiting in the CPU queue and being
+	 * preempted by the round robin quantum as needed.
+	 * 
+	 * @param time The CPU time needed, in ms.
+	 */
+	public void useCpu(long time) {
+		engine.useCpu(this, time);
+	}
+
+	/**
+	 * Performs an I/O operation of the given length, waiting in the I/O
+	 * queue first if the device is busy.
+	 * 
+	 * @param time The length of the I/O operation, in ms.
+	 */
+	public void doIo(long time) {
+		engine.doIo(this, time);
+	}
+
+	/**
+	 * Draws the length of an I/O operation from the same distribution and
+	 * the same stream as the event engine uses.
+	 * 
+	 * @return The length of an I/O operation, in ms.
+	 */
+	public long drawIoTime() {
+		return engine.drawIoTime(this);
+	}
+
+	/**
+	 * Runs the script on the thread of this process. Called once, when the
+	 * thread starts.
+	 * 
+	 * @param script The script to run.
+	 */
+	void run(ProcessScript script) {
+		try {
+			script.run(this);
+			engine.finish(this);
+		} catch (ProcessInteractionSimulator.Terminated t) {
+			// The simulation ended while this process was blocked
+		}
+		engine.yieldToClock();
+	}
+
+	/**
+	 * Blocks the thread of this process until the clock resumes it.
+	 */
+	void block() {
+		engine.yieldToClock();
+		turn.acquireUninterruptibly();
+		engine.checkRunning();
+	}
+}
@@ -0,0 +1,510 @@
+package simulator;
+
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An alternative to the event engine in {@link Simulator}, in the
+ * process-interaction style. Every simulated process is a thread running a
+ * {@link ProcessScript}, which calls blocking operations such as
+ * {@code useCpu(t)}, {@code doIo(t)} and {@code allocate(kb)} on its
+ * {@link ProcessContext}.
+ * 
+ * The threads are scheduled cooperatively by the simulation clock: exactly
+ * one thread runs at a time, and control is handed over explicitly with a
+ * semaphore per process. The clock takes the earliest activation from its
+ * agenda, advances time, and resumes the process concerned, which runs until
+ * its next blocking call.
+ * 
+ * When the JVM supports virtual threads they are used, so millions of
+ * simulated processes can exist at once. On older JVMs each process gets a
+ * daemon platform thread with a small stack, which limits the scale to what
+ * the operating system allows.
+ * 
+ * The resources are modelled as in the event engine (FIFO memory queue
+ * served when a process arrives, round robin CPU, FIFO I/O device) and the
+ * same {@link Statistics} are collected through
+ * {@link Process#updateProcess(int)}. With the same seed the standard script
+ * gives the same counters and busy times as the event engine; averages of
+ * queue lengths and waits may differ slightly, as activations at the same
+ * time are not handled in the order the event engine handles its events.
+ */
+public class ProcessInteractionSimulator implements Constants {
+	/** Activation types */
+	private static final int ARRIVAL = 1;
+	private static final int CPU_SLICE_END = 2;
+	private static final int IO_END = 3;
+	private static final int RESUME = 4;
+
+	/** Stack size of platform threads used when virtual threads are not available */
+	private static final long PLATFORM_STACK_SIZE = 64 * 1024;
+
+	/**
+	 * The behaviour of the processes of the event engine: get memory, then
+	 * alternate between CPU bursts and I/O until the CPU time is used.
+	 */
+	public static final ProcessScript STANDARD_SCRIPT = new ProcessScript() {
+		public void run(ProcessContext ctx) {
+			Process p = ctx.getProcess();
+			ctx.allocate(p.getMemoryNeeded());
+			while (p.getRemainingCPUTime() > 0) {
+				long burst = Math.min(p.getRemainingCPUTime(),
+						p.getTimeToNextIoOperation());
+				ctx.useCpu(burst);
+				if (p.getRemainingCPUTime() <= 0) {
+					break;
+				}
+				ctx.doIo(ctx.drawIoTime());
+			}
+		}
+	};
+
+	/**
+	 * A point in simulated time where the clock has something to do.
+	 */
+	private static class Activation implements Comparable<Activation> {
+		long time;
+		long sequence;
+		int type;
+		ProcessContext ctx;
+
+		public int compareTo(Activation a) {
+			if (time != a.time) {
+				return time < a.time ? -1 : 1;
+			}
+			return sequence < a.sequence ? -1 : (sequence == a.sequence ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Thrown in the thread of a blocked process when the simulation ends, to
+	 * unwind its script.
+	 */
+	static class Terminated extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		Terminated() {
+			super(null, null, false, false);
+		}
+	}
+
+	/** The script run by every new process */
+	private ProcessScript script;
+	/** Creates the threads of the simulated processes */
+	private ThreadFactory threadFactory;
+
+	/** The size of the memory */
+	private long memorySize;
+	/** The amount of free memory */
+	private long freeMemory;
+	/** Max CPU time */
+	private long maxCpuTime;
+	/** The average length of an I/O operation */
+	private long avgIoTime;
+	/** The length of the simulation */
+	private long simulationLength;
+	/** The average time between process arrivals */
+	private long avgArrivalInterval;
+	/** Reference to the GUI interface */
+	private Gui gui;
+
+	/** Processes waiting for memory, CPU and I/O */
+	private ArrayDeque<ProcessContext> memoryQueue = new ArrayDeque<ProcessContext>();
+	private ArrayDeque<ProcessContext> cpuQueue = new ArrayDeque<ProcessContext>();
+	private ArrayDeque<ProcessContext> ioQueue = new ArrayDeque<ProcessContext>();
+	/** The processes using the CPU and the I/O device, null if idle */
+	private ProcessContext cpuActive, ioActive;
+
+	/** Activations ordered by time, ties in order of scheduling */
+	private PriorityQueue<Activation> agenda = new PriorityQueue<Activation>();
+	/** The number of activations scheduled so far */
+	private long sequence = 0;
+	/** Released by a process thread when it blocks or ends */
+	private Semaphore clockTurn = new Semaphore(0);
+	/** Processes that have been started but not finished */
+	private HashSet<ProcessContext> live = new HashSet<ProcessContext>();
+	/** Whether or not the simulation has ended */
+	private volatile boolean stopped = false;
+	/** The largest number of simultaneously live processes */
+	private long liveLargest = 0;
+
+	/**
+	 * Creates a process-interaction simulator with the same parameters as the
+	 * event engine.
+	 * 
+	 * @param script The script every new process runs.
+	 * @param memorySize The size of the memory.
+	 * @param maxCpuTime The maximum time quant used by the RR algorithm.
+	 * @param avgIoTime The average length of an I/O operation.
+	 * @param simulationLength The length of the simulation.
+	 * @param avgArrivalInterval The average time between process arrivals.
+	 * @param gui Reference to the GUI interface.
+	 */
+	public ProcessInteractionSimulator(ProcessScript script, long memorySize,
+			long maxCpuTime, long avgIoTime, long simulationLength,
+			long avgArrivalInterval, Gui gui) {
+		this.script = script;
+		this.memorySize = memorySize;
+		this.freeMemory = memorySize;
+		this.maxCpuTime = maxCpuTime;
+		this.avgIoTime = avgIoTime;
+		this.simulationLength = simulationLength;
+		this.avgArrivalInterval = avgArrivalInterval;
+		this.gui = gui;
+		this.threadFactory = createThreadFactory();
+	}
+
+	/**
+	 * Uses virtual threads if the JVM has them, platform threads otherwise.
+	 * Looked up by reflection so the engine also builds on older JDKs.
+	 * 
+	 * @return The factory for the threads of the simulated processes.
+	 */
+	private static ThreadFactory createThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+					.getMethod("factory").invoke(builder);
+		} catch (Exception e) {
+			return new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(null, r, "simulated-process",
+							PLATFORM_STACK_SIZE);
+					t.setDaemon(true);
+					return t;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Runs the simulation until the simulation length is reached, then ends
+	 * the threads of all processes still in the system.
+	 */
+	public void simulate() {
+		schedule(ARRIVAL, 0, null);
+
+		while (SystemClock.getTime() < simulationLength && !agenda.isEmpty()) {
+			Activation a = agenda.poll();
+			long timePassed = a.time - SystemClock.getTime();
+			SystemClock.setTime(a.time);
+			timePassed(timePassed);
+
+			if (a.time < simulationLength) {
+				switch (a.type) {
+				case ARRIVAL:
+					startProcess();
+					flushMemoryQueue();
+					schedule(ARRIVAL, drawArrivalInterval(), null);
+					Statistics.processCreated();
+					break;
+				case CPU_SLICE_END:
+					cpuSliceEnded(a.ctx);
+					break;
+				case IO_END:
+					ioEnded(a.ctx);
+					break;
+				case RESUME:
+					resume(a.ctx);
+					break;
+				}
+			}
+		}
+
+		stopped = true;
+		for (ProcessContext ctx : live) {
+			ctx.turn.release();
+		}
+	}
+
+	/**
+	 * Returns the largest number of processes that were alive at once.
+	 * 
+	 * @return The peak number of process threads.
+	 */
+	public long getLiveLargest() {
+		return liveLargest;
+	}
+
+	/**
+	 * Registers the time passed with the statistics, like the timePassed
+	 * methods of the devices in the event engine.
+	 * 
+	 * @param timePassed The time since the previous activation.
+	 */
+	private void timePassed(long timePassed) {
+		Statistics.memoryQueueLengthTime(memoryQueue.size(), timePassed);
+		Statistics.memoryQueueLenght(memoryQueue.size());
+		Statistics.cpuQueueLengthTime(cpuQueue.size(), timePassed);
+		Statistics.cpuQueueLength(cpuQueue.size());
+		Statistics.ioQueueLengthTime(ioQueue.size(), timePassed);
+		Statistics.ioQueueLength(ioQueue.size());
+		if (cpuActive == null) {
+			Statistics.cpuIdleTime(timePassed);
+		}
+		if (ioActive == null) {
+			Statistics.ioIdleTime(timePassed);
+		}
+		gui.timePassed(timePassed, freeMemory);
+	}
+
+	/**
+	 * Adds an activation to the agenda.
+	 * 
+	 * @param type The type of activation.
+	 * @param delay The time from now until the activation.
+	 * @param ctx The process concerned, if any.
+	 */
+	private void schedule(int type, long delay, ProcessContext ctx) {
+		Activation a = new Activation();
+		a.time = SystemClock.getTime() + delay;
+		a.sequence = sequence++;
+		a.type = type;
+		a.ctx = ctx;
+		agenda.add(a);
+	}
+
+	/**
+	 * Creates a new process and runs its script until it first blocks.
+	 */
+	private void startProcess() {
+		final ProcessContext ctx = new ProcessContext(this, new Process(memorySize));
+		live.add(ctx);
+		liveLargest = Math.max(liveLargest, live.size());
+		threadFactory.newThread(new Runnable() {
+			public void run() {
+				ctx.run(script);
+			}
+		}).start();
+		clockTurn.acquireUninterruptibly();
+	}
+
+	/**
+	 * Lets a blocked process run until it blocks again or finishes.
+	 * 
+	 * @param ctx The process to resume.
+	 */
+	private void resume(ProcessContext ctx) {
+		ctx.turn.release();
+		clockTurn.acquireUninterruptibly();
+	}
+
+	/**
+	 * Hands control back to the clock. Called on the thread of a process.
+	 */
+	void yieldToClock() {
+		clockTurn.release();
+	}
+
+	/**
+	 * Unwinds the calling process if the simulation has ended.
+	 */
+	void checkRunning() {
+		if (stopped) {
+			throw new Terminated();
+		}
+	}
+
+	/**
+	 * Allocates memory for a process, blocking it in the memory queue if
+	 * other processes are waiting or there is not enough free memory.
+	 */
+	void allocate(ProcessContext ctx, long kb) {
+		if (memoryQueue.isEmpty() && kb <= freeMemory) {
+			freeMemory -= kb;
+			ctx.allocated += kb;
+			ctx.getProcess().updateProcess(SCRIPT_RUNNING);
+			return;
+		}
+		ctx.requested = kb;
+		memoryQueue.add(ctx);
+		ctx.block();
+	}
+
+	/**
+	 * Frees memory held by a process and admits waiting processes.
+	 */
+	void free(ProcessContext ctx, long kb) {
+		kb = Math.min(kb, ctx.allocated);
+		ctx.allocated -= kb;
+		freeMemory += kb;
+		flushMemoryQueue();
+	}
+
+	/**
+	 * Grants memory to waiting processes in FIFO order as long as the first
+	 * one fits, and schedules them to continue.
+	 */
+	private void flushMemoryQueue() {
+		while (!memoryQueue.isEmpty() && memoryQueue.peek().requested <= freeMemory) {
+			ProcessContext ctx = memoryQueue.poll();
+			freeMemory -= ctx.requested;
+			ctx.allocated += ctx.requested;
+			ctx.requested = 0;
+			ctx.getProcess().updateProcess(SCRIPT_RUNNING);
+			schedule(RESUME, 0, ctx);
+		}
+	}
+
+	/**
+	 * Puts a process in the CPU queue and blocks it until the burst is done.
+	 */
+	void useCpu(ProcessContext ctx, long time) {
+		ctx.burstLeft = time;
+		cpuQueue.add(ctx);
+		ctx.getProcess().updateProcess(CPU_QUEUE);
+		if (cpuActive == null) {
+			dispatchCpu();
+		}
+		ctx.block();
+	}
+
+	/**
+	 * Loads the next process from the CPU queue, for one quantum at most.
+	 */
+	private void dispatchCpu() {
+		ProcessContext ctx = cpuQueue.poll();
+		if (ctx != null) {
+			cpuActive = ctx;
+			gui.setCpuActive(ctx.getProcess());
+			ctx.getProcess().updateProcess(CPU_ACTIVE);
+			ctx.slice = Math.min(ctx.burstLeft, maxCpuTime);
+			schedule(CPU_SLICE_END, ctx.slice, ctx);
+		}
+	}
+
+	/**
+	 * Ends the CPU slice of the active process. The process is put back in
+	 * the CPU queue if its burst is not done, and resumed otherwise.
+	 */
+	private void cpuSliceEnded(ProcessContext ctx) {
+		ctx.burstLeft -= ctx.slice;
+		cpuActive = null;
+		gui.setCpuActive(null);
+		if (ctx.burstLeft > 0) {
+			Statistics.processForceChange();
+			cpuQueue.add(ctx);
+			ctx.getProcess().updateProcess(CPU_QUEUE);
+			dispatchCpu();
+		} else {
+			ctx.getProcess().updateProcess(SCRIPT_RUNNING);
+			dispatchCpu();
+			resume(ctx);
+		}
+	}
+
+	/**
+	 * Puts a process in the I/O queue and blocks it until the operation is
+	 * done.
+	 */
+	void doIo(ProcessContext ctx, long time) {
+		ctx.ioTime = time;
+		ioQueue.add(ctx);
+		ctx.getProcess().updateProcess(IO_QUEUE);
+		if (ioActive == null) {
+			dispatchIo();
+		}
+		ctx.block();
+	}
+
+	/**
+	 * Starts the I/O operation of the next process in the I/O queue.
+	 */
+	private void dispatchIo() {
+		ProcessContext ctx = ioQueue.poll();
+		if (ctx != null) {
+			ioActive = ctx;
+			gui.setIoActive(ctx.getProcess());
+			ctx.getProcess().updateProcess(IO_ACTIVE);
+			schedule(IO_END, ctx.ioTime, ctx);
+		}
+	}
+
+	/**
+	 * Ends the I/O operation of the active process and resumes it.
+	 */
+	private void ioEnded(ProcessContext ctx) {
+		Statistics.processesIoOperations();
+		ioActive = null;
+		gui.setIoActive(null);
+		ctx.getProcess().updateProcess(SCRIPT_RUNNING);
+		dispatchIo();
+		resume(ctx);
+	}
+
+	/**
+	 * Called when the script of a process returns. Releases its memory and
+	 * counts it as finished. As in the event engine, the memory queue is
+	 * only served again when the next process arrives.
+	 */
+	void finish(ProcessContext ctx) {
+		freeMemory += ctx.allocated;
+		ctx.allocated = 0;
+		ctx.getProcess().updateProcess(FINISHED);
+		live.remove(ctx);
+	}
+
+	/**
+	 * Draws the length of an I/O operation from the stream of the process, as
+	 * {@link IO#drawServiceTime()} does in the event engine.
+	 */
+	long drawIoTime(ProcessContext ctx) {
+		return 1 + (long) (2 * ctx.getProcess().getRandom().nextDouble() * avgIoTime);
+	}
+
+	/**
+	 * Draws the time until the next process arrival, as the event engine does.
+	 */
+	private long drawArrivalInterval() {
+		return 1 + (long) (2 * RandomStreams.nextDouble(RandomStreams.ARRIVALS) * avgArrivalInterval);
+	}
+
+	/**
+	 * Runs the standard script without GUI and prints the report. With
+	 * -compare the event engine is run afterwards with the same parameters
+	 * and the same seed.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by -seed=n and
+	 *            -compare.
+	 */
+	public static void main(String args[]) {
+		long[] params = { TESTING_MEMORY_SIZSE, TESTING_CPU_TIME,
+				TESTING_IO_TIME, TESTING_SIMULATION_LENGTH,
+				TESTING_AVG_ARRIVAL_INTERVAL };
+		boolean compare = false;
+		long seed = RandomStreams.getSeed();
+		int i = 0;
+		for (String arg : args) {
+			if (arg.equals("-compare")) {
+				compare = true;
+			} else if (arg.startsWith("-seed=")) {
+				seed = Long.parseLong(arg.substring(6));
+			} else if (i < params.length) {
+				params[i++] = Long.parseLong(arg);
+			}
+		}
+
+		Debug.setVerbose(false);
+		RandomStreams.setSeed(seed);
+		long start = System.nanoTime();
+		ProcessInteractionSimulator engine = new ProcessInteractionSimulator(
+				STANDARD_SCRIPT, params[0], params[1], params[2], params[3],
+				params[4], new HeadlessGui());
+		engine.simulate();
+		System.out.println("Process-interaction engine, " + (System.nanoTime() - start) / 1000000
+				+ " ms wall time, at most " + engine.getLiveLargest() + " live processes");
+		Statistics.printReport(params[3]);
+
+		if (compare) {
+			start = System.nanoTime();
+			ResultCache.simulate(new String[] { Long.toString(params[0]), Long.toString(params[1]),
+					Long.toString(params[2]), Long.toString(params[3]), Long.toString(params[4]),
+					"-seed=" + seed });
+			System.out.println();
+			System.out.println("Event engine, " + (System.nanoTime() - start) / 1000000 + " ms wall time");
+			Statistics.printReport(params[3]);
+		}
+	}
+}
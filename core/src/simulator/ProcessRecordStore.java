@@ -0,0 +1,408 @@
+package simulator;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Keeps the lifecycle of every finished process, so that results can be
+ * sliced after a run, for instance the time in system of large processes,
+ * without keeping the processes alive.
+ * 
+ * Records are stored by column, outside the Java heap, in direct buffers of
+ * {@link #CHUNK_SIZE} bytes. Every value is written as a zigzag varint, so
+ * small values take one or two bytes. Columns that grow with time, like the
+ * process id and the time finished, store the difference to the value in
+ * the row before instead, which keeps them small too.
+ * 
+ * Queries run through {@link #query()} and scan the columns they need from
+ * the start.
+ */
+public class ProcessRecordStore {
+	/** The columns, in the order of a row */
+	public static final int ID = 0;
+	public static final int CREATED = 1;
+	public static final int ADMITTED = 2;
+	public static final int FINISHED = 3;
+	public static final int MEMORY = 4;
+	public static final int IO_INTERVAL = 5;
+	public static final int MEMORY_WAIT = 6;
+	public static final int CPU_WAIT = 7;
+	public static final int CPU_TIME = 8;
+	public static final int IO_WAIT = 9;
+	public static final int IO_TIME = 10;
+	public static final int CPU_VISITS = 11;
+	public static final int IO_VISITS = 12;
+	/** The number of columns stored */
+	public static final int STORED_COLUMNS = 13;
+	/** Computed when read: the time from admission to the end */
+	public static final int TIME_IN_SYSTEM = 13;
+	/** Names of the columns, indexed by column */
+	public static final String[] COLUMN_NAMES = { "id", "created", "admitted", "finished",
+			"memory", "io_interval", "memory_wait", "cpu_wait", "cpu_time", "io_wait",
+			"io_time", "cpu_visits", "io_visits", "time_in_system" };
+
+	/** The size of each off-heap buffer */
+	public static final int CHUNK_SIZE = 64 * 1024;
+	/** The longest varint */
+	private static final int MAX_VARINT = 10;
+
+	/**
+	 * One column, a list of buffers filled with varints.
+	 */
+	private static class Column {
+		boolean delta;
+		ArrayList<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+		long previous = 0;
+
+		Column(boolean delta) {
+			this.delta = delta;
+		}
+
+		void append(long value) {
+			ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+			if (chunk == null || chunk.remaining() < MAX_VARINT) {
+				chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+				chunks.add(chunk);
+			}
+			long v = delta ? value - previous : value;
+			previous = value;
+			long zigzag = (v << 1) ^ (v >> 63);
+			while ((zigzag & ~0x7FL) != 0) {
+				chunk.put((byte) ((zigzag & 0x7F) | 0x80));
+				zigzag >>>= 7;
+			}
+			chunk.put((byte) zigzag);
+		}
+
+		long bytes() {
+			long bytes = 0;
+			for (ByteBuffer chunk : chunks) {
+				bytes += chunk.position();
+			}
+			return bytes;
+		}
+	}
+
+	/**
+	 * Reads one column from the start.
+	 */
+	private static class Reader {
+		Column column;
+		int chunk = 0;
+		int position = 0;
+		long previous = 0;
+
+		Reader(Column column) {
+			this.column = column;
+		}
+
+		long next() {
+			ByteBuffer buffer = column.chunks.get(chunk);
+			if (position >= buffer.position()) {
+				buffer = column.chunks.get(++chunk);
+				position = 0;
+			}
+			long zigzag = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buffer.get(position++);
+				zigzag |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			long v = (zigzag >>> 1) ^ -(zigzag & 1);
+			if (column.delta) {
+				v += previous;
+				previous = v;
+			}
+			return v;
+		}
+	}
+
+	private Column[] columns = new Column[STORED_COLUMNS];
+	private long rows = 0;
+	/** The row being appended, reused */
+	private long[] row = new long[STORED_COLUMNS];
+
+	/**
+	 * Creates an empty store.
+	 */
+	public ProcessRecordStore() {
+		for (int c = 0; c < STORED_COLUMNS; c++) {
+			columns[c] = new Column(c == ID || c == CREATED || c == ADMITTED || c == FINISHED);
+		}
+	}
+
+	/**
+	 * Looks up a column by name, ignoring case.
+	 * 
+	 * @param name The name of the column, e.g. "cpu_time".
+	 * @return The column, or -1 if there is no column with that name.
+	 */
+	public static int getColumn(String name) {
+		for (int i = 0; i < COLUMN_NAMES.length; i++) {
+			if (COLUMN_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Appends the record of a process that has just finished.
+	 * 
+	 * @param p The process.
+	 */
+	public void append(Process p) {
+		p.getRecord(row);
+		for (int c = 0; c < STORED_COLUMNS; c++) {
+			columns[c].append(row[c]);
+		}
+		rows++;
+	}
+
+	/**
+	 * Returns the number of records.
+	 * 
+	 * @return The number of processes stored.
+	 */
+	public long size() {
+		return rows;
+	}
+
+	/**
+	 * Returns the off-heap memory used by the values.
+	 * 
+	 * @return The number of bytes written.
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for (Column column : columns) {
+			bytes += column.bytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Starts a query over all records.
+	 * 
+	 * @return The query, to be narrowed down and run.
+	 */
+	public Query query() {
+		return new Query();
+	}
+
+	/**
+	 * A query: filters on column ranges, an optional grouping, and the
+	 * column to summarize.
+	 */
+	public class Query {
+		private ArrayList<long[]> filters = new ArrayList<long[]>();
+		private int groupColumn = -1;
+		private long bucketWidth = 1;
+
+		/**
+		 * Keeps only the records with a value of a column within a range.
+		 * 
+		 * @param column The column, e.g. {@link ProcessRecordStore#MEMORY}.
+		 * @param min The smallest value kept.
+		 * @param max The largest value kept.
+		 * @return This query.
+		 */
+		public Query where(int column, long min, long max) {
+			filters.add(new long[] { column, min, max });
+			return this;
+		}
+
+		/**
+		 * Groups the records by a column, in buckets of the given width: the
+		 * key of a group is its value rounded down to a multiple of the width.
+		 * 
+		 * @param column The column.
+		 * @param bucketWidth The width of the buckets, 1 to group by value.
+		 * @return This query.
+		 */
+		public Query groupBy(int column, long bucketWidth) {
+			this.groupColumn = column;
+			this.bucketWidth = Math.max(1, bucketWidth);
+			return this;
+		}
+
+		/**
+		 * Runs the query and summarizes a column for each group.
+		 * 
+		 * @param column The column to summarize.
+		 * @param percentiles The percentiles wanted, e.g. 0.5 and 0.99.
+		 * @return The groups, in order of key; one group with key 0 if the
+		 *         query is not grouped.
+		 */
+		public List<Group> run(int column, double... percentiles) {
+			boolean[] needed = new boolean[STORED_COLUMNS];
+			markNeeded(needed, column);
+			if (groupColumn >= 0) {
+				markNeeded(needed, groupColumn);
+			}
+			for (long[] filter : filters) {
+				markNeeded(needed, (int) filter[0]);
+			}
+			Reader[] readers = new Reader[STORED_COLUMNS];
+			for (int c = 0; c < STORED_COLUMNS; c++) {
+				if (needed[c]) {
+					readers[c] = new Reader(columns[c]);
+				}
+			}
+
+			TreeMap<Long, Group> groups = new TreeMap<Long, Group>();
+			long[] values = new long[COLUMN_NAMES.length];
+			scan: for (long r = 0; r < rows; r++) {
+				for (int c = 0; c < STORED_COLUMNS; c++) {
+					if (readers[c] != null) {
+						values[c] = readers[c].next();
+					}
+				}
+				values[TIME_IN_SYSTEM] = values[FINISHED] - values[ADMITTED];
+				for (long[] filter : filters) {
+					long v = values[(int) filter[0]];
+					if (v < filter[1] || v > filter[2]) {
+						continue scan;
+					}
+				}
+				long key = groupColumn >= 0 ? Math.floorDiv(values[groupColumn], bucketWidth) * bucketWidth : 0;
+				Group group = groups.get(key);
+				if (group == null) {
+					group = new Group(key);
+					groups.put(key, group);
+				}
+				group.add(values[column]);
+			}
+			for (Group group : groups.values()) {
+				group.finish(percentiles);
+			}
+			return new ArrayList<Group>(groups.values());
+		}
+
+		private void markNeeded(boolean[] needed, int column) {
+			if (column == TIME_IN_SYSTEM) {
+				needed[FINISHED] = true;
+				needed[ADMITTED] = true;
+			} else {
+				needed[column] = true;
+			}
+		}
+	}
+
+	/**
+	 * The summary of one group of a query.
+	 */
+	public static class Group {
+		/** The key of the group */
+		public final long key;
+		/** The number of records in the group */
+		public long count = 0;
+		public long min = Long.MAX_VALUE;
+		public long max = Long.MIN_VALUE;
+		public double mean;
+		/** The percentiles asked for, in the same order */
+		public long[] percentiles;
+
+		/** The values, only kept while the query runs */
+		private long[] values = new long[16];
+		private double sum = 0;
+
+		Group(long key) {
+			this.key = key;
+		}
+
+		void add(long value) {
+			if (count == values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[(int) count++] = value;
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		void finish(double[] fractions) {
+			mean = sum / count;
+			Arrays.sort(values, 0, (int) count);
+			percentiles = new long[fractions.length];
+			for (int i = 0; i < fractions.length; i++) {
+				int index = (int) Math.ceil(fractions[i] * count) - 1;
+				percentiles[i] = values[Math.max(0, Math.min((int) count - 1, index))];
+			}
+			values = null;
+		}
+	}
+
+	/**
+	 * Prints the groups of a query as a table.
+	 * 
+	 * @param groups The result of {@link Query#run(int, double...)}.
+	 * @param groupName The name of the grouping column.
+	 * @param fractions The percentiles asked for.
+	 */
+	public static void print(List<Group> groups, String groupName, double... fractions) {
+		StringBuilder header = new StringBuilder(String.format("%12s %8s %10s %10s %10s", groupName,
+				"count", "min", "mean", "max"));
+		for (double f : fractions) {
+			header.append(String.format(" %9s", "p" + Distributions.format(f * 100)));
+		}
+		System.out.println(header);
+		for (Group g : groups) {
+			StringBuilder line = new StringBuilder(String.format("%12d %8d %10d %10.1f %10d", g.key,
+					g.count, g.min, g.mean, g.max));
+			for (long p : g.percentiles) {
+				line.append(String.format(" %9d", p));
+			}
+			System.out.println(line);
+		}
+	}
+
+	/**
+	 * Runs the simulator with a record store, prints the size of the store
+	 * and a query result.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by -seed=n,
+	 *            -metric=column (time_in_system by default),
+	 *            -group=column:bucket width (memory:100 by default) and
+	 *            -where=column:min:max, which may be repeated. Other options
+	 *            are passed on to the simulator.
+	 */
+	public static void main(String args[]) {
+		List<String> simulatorArgs = new ArrayList<String>();
+		int metric = TIME_IN_SYSTEM;
+		String[] group = { "memory", "100" };
+		List<String[]> filters = new ArrayList<String[]>();
+		for (String arg : args) {
+			if (arg.startsWith("-metric=")) {
+				metric = getColumn(arg.substring(8));
+			} else if (arg.startsWith("-group=")) {
+				group = arg.substring(7).split(":");
+			} else if (arg.startsWith("-where=")) {
+				filters.add(arg.substring(7).split(":"));
+			} else {
+				simulatorArgs.add(arg);
+			}
+		}
+
+		Simulator simulator = Simulator.create(simulatorArgs.toArray(new String[0]));
+		ProcessRecordStore store = new ProcessRecordStore();
+		simulator.setRecordStore(store);
+		simulator.setPrintReport(false);
+		simulator.simulate();
+
+		System.out.println(String.format("%d records in %d bytes off-heap, %.1f bytes per record"
+				+ " (%d bytes as longs)", store.size(), store.getBytes(),
+				store.size() > 0 ? (double) store.getBytes() / store.size() : 0.0, store.size() * STORED_COLUMNS * 8));
+		System.out.println();
+		Query query = store.query().groupBy(getColumn(group[0]), group.length > 1 ? Long.parseLong(group[1]) : 1);
+		for (String[] filter : filters) {
+			query.where(getColumn(filter[0]), Long.parseLong(filter[1]), Long.parseLong(filter[2]));
+		}
+		double[] fractions = { 0.5, 0.9, 0.99 };
+		System.out.println(COLUMN_NAMES[metric] + " by " + group[0] + ":");
+		print(query.run(metric, fractions), group[0], fractions);
+	}
+}
@@ -0,0 +1,27 @@
+package simulator;
+
+/**
+ * The behaviour of a simulated process in the process-interaction engine.
+ * A script is ordinary sequential code that calls the blocking primitives of
+ * its {@link ProcessContext}, for instance:
+ * 
+ * <pre>
+ * ctx.allocate(300);
+ * ctx.useCpu(120);
+ * ctx.doIo(40);
+ * ctx.useCpu(80);
+ * </pre>
+ * 
+ * Memory still allocated when the script returns is released, and the
+ * process is then counted as finished.
+ * 
+ * @see ProcessInteractionSimulator
+ */
+public interface ProcessScript {
+	/**
+	 * Runs the process. Called on the thread of the simulated process.
+	 * 
+	 * @param ctx The context giving access to the simulated system.
+	 */
+	public void run(ProcessContext ctx);
+}
@@ -0,0 +1,138 @@
+package simulator;
+
+import java.io.IOException;
+
+/**
+ * Runs every process as a number of threads, so that a process can compute
+ * in one thread while another waits for I/O. When a process gets memory, the
+ * CPU time it needs is split evenly over its threads, which share its
+ * memory and I/O pattern and are scheduled on the CPU and the I/O devices
+ * each on their own. The process ends, and releases its memory, when its
+ * last thread has used its CPU time.
+ * 
+ * For each process the time any of its threads was in service, on the CPU or
+ * an I/O device, is kept, as is the time more than one was: the overlap that
+ * a single thread cannot have. The totals are printed by
+ * {@link #printReport()}; {@link #main(String[])} compares the throughput of
+ * several thread counts on the same processes.
+ * 
+ * Enabled with {@link Simulator#setProcessThreads(ProcessThreads)}.
+ */
+public class ProcessThreads {
+	/** The number of threads of every process */
+	private int threads;
+
+	/** Totals over the processes completed */
+	private long processes = 0;
+	private long busyTime = 0;
+	private long overlapTime = 0;
+	private long timeInSystem = 0;
+
+	/**
+	 * Creates the thread model.
+	 * 
+	 * @param threads The number of threads of every process, 1 to run
+	 *            processes as before.
+	 */
+	public ProcessThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("A process needs at least one thread, not " + threads);
+		}
+		this.threads = threads;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Splits a process that has just got memory into its threads.
+	 * 
+	 * @param p The process.
+	 * @return The threads, or only the process itself with one thread.
+	 */
+	Process[] start(Process p) {
+		if (threads == 1) {
+			return new Process[] { p };
+		}
+		p.updateProcess(Constants.THREADS_RUNNING);
+		return p.createThreads(threads);
+	}
+
+	/**
+	 * Registers a process that has completed.
+	 * 
+	 * @param p The process.
+	 */
+	void processEnded(Process p) {
+		processes++;
+		busyTime += p.getBusyTime();
+		overlapTime += p.getOverlapTime();
+		timeInSystem += SystemClock.getTime() - p.getTimeAddedToSystem();
+	}
+
+	/**
+	 * Returns the share of the time the processes completed had a thread in
+	 * service during which more than one had.
+	 * 
+	 * @return The overlap, between 0 and 1.
+	 */
+	public double getOverlap() {
+		return busyTime > 0 ? (double) overlapTime / busyTime : 0;
+	}
+
+	/**
+	 * Returns the share of their time in the system the processes completed
+	 * had a thread in service.
+	 * 
+	 * @return The busy share, between 0 and 1; 0 with one thread, as the
+	 *         time of a process in service is not tracked then.
+	 */
+	public double getBusyShare() {
+		return timeInSystem > 0 ? (double) busyTime / timeInSystem : 0;
+	}
+
+	/**
+	 * Prints how much the threads of a process were in service at the same
+	 * time.
+	 */
+	public void printReport() {
+		System.out.println();
+		System.out.println("Process threads:");
+		System.out.println("Threads per process:                                          " + threads);
+		if (threads > 1 && processes > 0) {
+			System.out.println("Time in system with a thread in service:                      "
+					+ (float) (100 * getBusyShare()) + "%");
+			System.out.println("Of which with several threads in service:                     "
+					+ (float) (100 * getOverlap()) + "%");
+			System.out.println("Average overlap per process:                                  "
+					+ overlapTime / processes + " ms");
+		}
+	}
+
+	/**
+	 * Runs the simulator with 1, 2, 4 and 8 threads per process on the same
+	 * random numbers, and prints the throughput and time in system next to
+	 * the overlap of the threads.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by the options
+	 *            of a {@link Sweep}.
+	 * @throws IOException If the result cache cannot be used.
+	 */
+	public static void main(String args[]) throws IOException {
+		Sweep sweep = new Sweep(args);
+		long[] params = sweep.getParameters(Constants.TESTING_MEMORY_SIZSE, 50, 300, 4000000, 12000);
+
+		System.out.println(String.format("%8s %10s %12s %14s %14s %10s", "Threads", "Throughput",
+				"Completed", "Mean (ms)", "CPU util.", "Overlap"));
+		for (int threads : new int[] { 1, 2, 4, 8 }) {
+			double[] results = sweep.run(params, "-threaded=" + threads);
+			System.out.println(String.format("%8d %10.3f %12.0f %11.0f ms %13.1f%% %9.1f%%", threads,
+					results[ResultCache.THROUGHPUT], Sweep.get(results, "processes_completed"),
+					results[ResultCache.MEAN_TIME_IN_SYSTEM], results[ResultCache.CPU_UTILIZATION],
+					100 * results[ResultCache.THREAD_OVERLAP]));
+		}
+		sweep.printReport();
+	}
+}
@@ -0,0 +1,325 @@
+package simulator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Adjusts the round robin quantum while the simulation runs. Every
+ * {@link #DEFAULT_PERIOD} dispatches the controller compares what it observed
+ * with its target and scales the quantum by a factor that grows with the
+ * error, so that it settles where the target is met:
+ * <ul>
+ * <li>{@link #BURSTS}: a target fraction of the CPU bursts, from dispatch to
+ * I/O request or end, should fit in one quantum. The classic rule of thumb
+ * is 80%.</li>
+ * <li>{@link #OVERHEAD}: the time spent on context switches, the switch rate
+ * times the cost of a switch, should stay below a fraction of the time. The
+ * smallest quantum that does so is chosen. The cost is measured by the
+ * {@link CpuCostModel}, or assumed if there is none.</li>
+ * </ul>
+ * In both modes the quantum can also be capped so that a full round through
+ * the ready queue takes at most a given time.
+ * 
+ * The current quantum is published as the cpu_quantum_current counter of
+ * {@link Statistics}, and every adjustment is kept in the trajectory.
+ * 
+ * Enabled with {@link Simulator#setQuantumController(QuantumController)}.
+ */
+public class QuantumController {
+	/** Target a fraction of bursts that fit in one quantum */
+	public static final int BURSTS = 0;
+	/** Target a bound on the switch overhead */
+	public static final int OVERHEAD = 1;
+	/** Names of the modes, indexed by mode */
+	public static final String[] MODE_NAMES = { "BURSTS", "OVERHEAD" };
+	/** Default targets, indexed by mode */
+	public static final double[] DEFAULT_TARGETS = { 0.8, 0.05 };
+
+	/** Default number of dispatches between adjustments */
+	public static final int DEFAULT_PERIOD = 32;
+	/** Default bounds of the quantum (ms) */
+	public static final long DEFAULT_MIN_QUANTUM = 1;
+	public static final long DEFAULT_MAX_QUANTUM = 1000;
+	/** The largest factor the quantum changes by in one adjustment is e^GAIN */
+	private static final double GAIN = 0.5;
+
+	private int mode;
+	private double target;
+	private long minQuantum = DEFAULT_MIN_QUANTUM;
+	private long maxQuantum = DEFAULT_MAX_QUANTUM;
+	/** The longest round through the ready queue, 0 for no bound */
+	private long maxRound = 0;
+	/** The switch cost assumed without a cost model */
+	private long assumedSwitchCost = CpuCostModel.DEFAULT_SWITCH_OVERHEAD;
+
+	/** The current quantum */
+	private long quantum;
+	/** The CPU time used so far in the current burst of each process */
+	private IdentityHashMap<Process, Long> burstSoFar = new IdentityHashMap<Process, Long>();
+	/** The process dispatched last */
+	private Process lastDispatched;
+
+	/** Observations since the last adjustment */
+	private int dispatches = 0;
+	private int bursts = 0;
+	private int burstsWithinQuantum = 0;
+	private long overheadTime = 0;
+	private long periodStart = 0;
+
+	/** The time and new quantum of every adjustment */
+	private ArrayList<long[]> trajectory = new ArrayList<long[]>();
+
+	/**
+	 * Creates a controller.
+	 * 
+	 * @param mode The mode, {@link #BURSTS} or {@link #OVERHEAD}.
+	 * @param target The fraction of bursts that should fit in a quantum, or
+	 *            the largest fraction of time spent on switches.
+	 * @throws IllegalArgumentException If the mode is not known.
+	 */
+	public QuantumController(int mode, double target) {
+		if (mode < 0 || mode >= MODE_NAMES.length) {
+			throw new IllegalArgumentException("Unknown adaptive mode " + mode);
+		}
+		this.mode = mode;
+		this.target = target;
+	}
+
+	/**
+	 * Looks up a mode by name, ignoring case.
+	 * 
+	 * @param name The name of the mode, e.g. "bursts".
+	 * @return The mode, or -1 if there is no mode with that name.
+	 */
+	public static int getMode(String name) {
+		for (int i = 0; i < MODE_NAMES.length; i++) {
+			if (MODE_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets the range the quantum is kept in.
+	 * 
+	 * @param minQuantum The smallest quantum (ms).
+	 * @param maxQuantum The largest quantum (ms).
+	 */
+	public void setBounds(long minQuantum, long maxQuantum) {
+		this.minQuantum = Math.max(1, minQuantum);
+		this.maxQuantum = Math.max(this.minQuantum, maxQuantum);
+	}
+
+	/**
+	 * Caps the quantum so that every process in the ready queue gets the CPU
+	 * within the given time.
+	 * 
+	 * @param maxRound The longest round (ms), 0 for no cap.
+	 */
+	public void setMaxRound(long maxRound) {
+		this.maxRound = maxRound;
+	}
+
+	/**
+	 * Sets the cost of a switch assumed in {@link #OVERHEAD} mode when the
+	 * simulator has no {@link CpuCostModel}.
+	 * 
+	 * @param switchCost The cost of a switch (ms).
+	 */
+	public void setAssumedSwitchCost(long switchCost) {
+		this.assumedSwitchCost = switchCost;
+	}
+
+	/**
+	 * Starts the controller at the beginning of a simulation.
+	 * 
+	 * @param initialQuantum The quantum to start from.
+	 */
+	public void start(long initialQuantum) {
+		quantum = Math.max(minQuantum, Math.min(maxQuantum, initialQuantum));
+		periodStart = SystemClock.getTime();
+		trajectory.add(new long[] { periodStart, quantum });
+		Statistics.cpuQuantum(quantum);
+	}
+
+	/**
+	 * Returns the quantum to use for the next dispatch.
+	 * 
+	 * @return The quantum (ms).
+	 */
+	public long getQuantum() {
+		return quantum;
+	}
+
+	/**
+	 * Registers a dispatch, and adjusts the quantum at the end of a period.
+	 * 
+	 * @param p The process dispatched.
+	 * @param decision How the slice ends: END_PROCESS, SWITCH_PROCESS,
+	 *            IO_REQUEST or PAGE_FAULT.
+	 * @param slice The CPU time the process gets.
+	 * @param overhead The switch cost of the dispatch, or -1 if it is not
+	 *            modelled.
+	 * @param readyQueueLength The number of processes still waiting for the
+	 *            CPU.
+	 */
+	public void dispatched(Process p, int decision, long slice, long overhead, int readyQueueLength) {
+		dispatches++;
+		if (overhead >= 0) {
+			overheadTime += overhead;
+		} else if (p != lastDispatched) {
+			overheadTime += assumedSwitchCost;
+		}
+		lastDispatched = p;
+
+		Long before = burstSoFar.remove(p);
+		long burst = (before != null ? before : 0) + slice;
+		if (decision == Constants.SWITCH_PROCESS || decision == Constants.PAGE_FAULT) {
+			burstSoFar.put(p, burst);
+		} else {
+			bursts++;
+			if (burst <= quantum) {
+				burstsWithinQuantum++;
+			}
+		}
+
+		if (dispatches >= DEFAULT_PERIOD) {
+			adjust(readyQueueLength);
+		}
+	}
+
+	/**
+	 * Scales the quantum by the error of the period just ended.
+	 */
+	private void adjust(int readyQueueLength) {
+		long now = SystemClock.getTime();
+		double error = 0;
+		if (mode == BURSTS) {
+			if (bursts > 0) {
+				// Positive when too many bursts are cut
+				error = target - (double) burstsWithinQuantum / bursts;
+			}
+		} else if (now > periodStart) {
+			// Positive when switches cost too much, negative when there is room
+			double observed = (double) overheadTime / (now - periodStart);
+			error = Math.max(-1, Math.min(1, (observed - target) / target));
+		}
+
+		long next = Math.round(quantum * Math.exp(GAIN * error));
+		if (next == quantum && error != 0) {
+			next += error > 0 ? 1 : -1;
+		}
+		if (maxRound > 0) {
+			next = Math.min(next, maxRound / (readyQueueLength + 1));
+		}
+		next = Math.max(minQuantum, Math.min(maxQuantum, next));
+		if (next != quantum) {
+			quantum = next;
+			trajectory.add(new long[] { now, quantum });
+			Statistics.cpuQuantum(quantum);
+		}
+
+		dispatches = 0;
+		bursts = 0;
+		burstsWithinQuantum = 0;
+		overheadTime = 0;
+		periodStart = now;
+	}
+
+	/**
+	 * Forgets a process that has left the system.
+	 * 
+	 * @param p The process.
+	 */
+	public void processEnded(Process p) {
+		burstSoFar.remove(p);
+		if (p == lastDispatched) {
+			lastDispatched = null;
+		}
+	}
+
+	/**
+	 * Returns the quantum over time.
+	 * 
+	 * @return The time and the new quantum of every change, starting with the
+	 *         initial quantum.
+	 */
+	public List<long[]> getTrajectory() {
+		return trajectory;
+	}
+
+	/**
+	 * Returns the quantum averaged over the time simulated.
+	 * 
+	 * @return The time weighted average quantum (ms).
+	 */
+	public double getAverageQuantum() {
+		double sum = 0;
+		long end = SystemClock.getTime();
+		for (int i = 0; i < trajectory.size(); i++) {
+			long until = i + 1 < trajectory.size() ? trajectory.get(i + 1)[0] : end;
+			sum += (double) trajectory.get(i)[1] * (until - trajectory.get(i)[0]);
+		}
+		long length = end - trajectory.get(0)[0];
+		return length > 0 ? sum / length : quantum;
+	}
+
+	/**
+	 * Prints the controller statistics and the quantum at evenly spaced
+	 * moments.
+	 */
+	public void printReport() {
+		System.out.println();
+		System.out.println("Adaptive quantum (" + MODE_NAMES[mode] + ", target " + target + "):");
+		System.out.println("Adjustments:                                                  " + (trajectory.size() - 1));
+		System.out.println("Final quantum:                                                " + quantum + " ms");
+		System.out.println("Average quantum:                                              "
+				+ (float) getAverageQuantum() + " ms");
+		long end = SystemClock.getTime();
+		int samples = 10;
+		StringBuilder line = new StringBuilder("Trajectory (time:quantum):                                   ");
+		int i = 0;
+		for (int s = 0; s < samples; s++) {
+			long time = end * s / samples;
+			while (i + 1 < trajectory.size() && trajectory.get(i + 1)[0] <= time) {
+				i++;
+			}
+			line.append(' ').append(time).append(':').append(trajectory.get(i)[1]);
+		}
+		System.out.println(line);
+	}
+
+	/**
+	 * Runs the simulator with the fixed quantum and with both controller
+	 * modes, with switch costs and the same random numbers, and prints the
+	 * results of each.
+	 * 
+	 * @param args memory size, initial quantum, avg I/O time, simulation
+	 *            length and avg arrival interval, optionally followed by the
+	 *            options of a {@link Sweep}.
+	 * @throws IOException If the result cache cannot be used.
+	 */
+	public static void main(String args[]) throws IOException {
+		Sweep sweep = new Sweep(args);
+		long[] params = sweep.getParameters(Constants.TESTING_MEMORY_SIZSE, Constants.TESTING_CPU_TIME, 50,
+				Constants.TESTING_SIMULATION_LENGTH, 5000);
+		String costs = "-switch=" + CpuCostModel.DEFAULT_SWITCH_OVERHEAD + ":"
+				+ CpuCostModel.DEFAULT_CACHE_PENALTY + ":" + CpuCostModel.DEFAULT_CACHE_DECAY;
+
+		System.out.println(String.format("%-16s %10s %12s %12s %10s %10s %10s", "Quantum",
+				"Throughput", "Mean in sys", "P99 in sys", "Overhead", "Avg q", "Final q"));
+		for (int mode = -1; mode < MODE_NAMES.length; mode++) {
+			double[] results = mode >= 0
+					? sweep.run(params, costs, "-adaptive=" + MODE_NAMES[mode] + ":" + DEFAULT_TARGETS[mode])
+					: sweep.run(params, costs);
+			System.out.println(String.format("%-16s %10.3f %9.0f ms %9.0f ms %9.1f%% %7.1f ms %7.0f ms",
+					mode >= 0 ? MODE_NAMES[mode] + " " + DEFAULT_TARGETS[mode] : "(fixed)",
+					results[ResultCache.THROUGHPUT], results[ResultCache.MEAN_TIME_IN_SYSTEM],
+					results[ResultCache.P99_TIME_IN_SYSTEM], results[ResultCache.CPU_OVERHEAD],
+					mode >= 0 ? results[ResultCache.QUANTUM_MEAN] : params[1],
+					mode >= 0 ? Sweep.get(results, "cpu_quantum_current") : params[1]));
+		}
+		sweep.printReport();
+	}
+}
@@ -0,0 +1,506 @@
+package simulator;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Searches for the quantum, and optionally the memory size, that optimizes an
+ * objective: the throughput, or the mean or 99th percentile time in system.
+ * The search is a golden-section search, on a logarithmic scale for the
+ * quantum and a linear one for the memory size. With both, it alternates
+ * between the two, each time keeping the other fixed at its best value.
+ * 
+ * Every candidate is run for the same replications, each with its own seed.
+ * All candidates then see the same arrivals and processes, and every process
+ * the same CPU bursts and I/O times (common random numbers), so their
+ * differences are not drowned in noise. Disk block addresses and page
+ * references are still drawn in the order of the scheduling, so with the
+ * disk model or virtual memory the pairing is looser. The optimum is
+ * reported with a 95% confidence interval, and with the candidates that the
+ * paired differences cannot tell apart from it.
+ * 
+ * The simulator keeps its state in static fields, so replications are run in
+ * separate JVMs, as many at a time as there are processors. With one thread
+ * they are run in this JVM instead.
+ */
+public class QuantumOptimizer {
+	/** Maximize the number of processes completed per second */
+	public static final int THROUGHPUT = 0;
+	/** Minimize the average time in system */
+	public static final int MEAN_TIME_IN_SYSTEM = 1;
+	/** Minimize the 99th percentile of the time in system */
+	public static final int P99_TIME_IN_SYSTEM = 2;
+	/** Names of the objectives, indexed by objective */
+	public static final String[] OBJECTIVE_NAMES = { "THROUGHPUT", "MEAN", "P99" };
+
+	/** The default number of replications of every candidate */
+	public static final int DEFAULT_REPLICATIONS = 10;
+	/** Stop the search when the bracket is this fraction of its lower end */
+	private static final double TOLERANCE = 0.05;
+	/** The golden ratio minus one */
+	private static final double INV_PHI = (Math.sqrt(5) - 1) / 2;
+	/** Two-sided 95% quantiles of Student's t, indexed by degrees of freedom - 1 */
+	private static final double[] T_95 = { 12.706, 4.303, 3.182, 2.776, 2.571, 2.447,
+			2.365, 2.306, 2.262, 2.228, 2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110,
+			2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048,
+			2.045, 2.042 };
+
+	/**
+	 * A point of the search space and its results.
+	 */
+	private static class Candidate {
+		long memory;
+		long quantum;
+		/** The objective of each replication */
+		double[] values;
+
+		Candidate(long memory, long quantum) {
+			this.memory = memory;
+			this.quantum = quantum;
+		}
+	}
+
+	/** Avg I/O time, simulation length and avg arrival interval */
+	private long avgIoTime, simulationLength, avgArrivalInterval;
+	/** Further options for the simulator, e.g. -switch=1:4 */
+	private List<String> options;
+	private int objective;
+	private int replications = DEFAULT_REPLICATIONS;
+	private long seed = 1;
+	private ExecutorService executor;
+	private int threads;
+	/** The results of earlier runs, null to run every replication */
+	private ResultCache cache;
+	/** All candidates evaluated so far, by memory and quantum */
+	private LinkedHashMap<String, Candidate> candidates = new LinkedHashMap<String, Candidate>();
+
+	/**
+	 * Creates an optimizer for a workload.
+	 * 
+	 * @param avgIoTime The average length of an I/O operation.
+	 * @param simulationLength The length of each simulation.
+	 * @param avgArrivalInterval The average time between process arrivals.
+	 * @param options Further options for {@link Simulator#create(String[])}.
+	 * @param objective The objective, e.g. {@link #P99_TIME_IN_SYSTEM}.
+	 */
+	public QuantumOptimizer(long avgIoTime, long simulationLength, long avgArrivalInterval,
+			List<String> options, int objective) {
+		this.avgIoTime = avgIoTime;
+		this.simulationLength = simulationLength;
+		this.avgArrivalInterval = avgArrivalInterval;
+		this.options = options;
+		this.objective = objective;
+		setThreads(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Looks up an objective by name, ignoring case.
+	 * 
+	 * @param name The name of the objective, e.g. "p99".
+	 * @return The objective, or -1 if there is no objective with that name.
+	 */
+	public static int getObjective(String name) {
+		for (int i = 0; i < OBJECTIVE_NAMES.length; i++) {
+			if (OBJECTIVE_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets the number of replications of every candidate, and the seed of the
+	 * first one. Replication i uses seed + i.
+	 * 
+	 * @param replications The number of replications, at least 2.
+	 * @param seed The seed of the first replication.
+	 */
+	public void setReplications(int replications, long seed) {
+		this.replications = Math.max(2, replications);
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the number of replications run at the same time.
+	 * 
+	 * @param threads The number of simulations run in parallel, 1 to run them
+	 *            in this JVM.
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Sets a cache of results, consulted before every replication, so that
+	 * only replications not run before are simulated.
+	 * 
+	 * @param cache The cache, or {@code null} to run every replication.
+	 */
+	public void setCache(ResultCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Searches for the best quantum and memory size within the given ranges.
+	 * 
+	 * @param minQuantum The smallest quantum.
+	 * @param maxQuantum The largest quantum.
+	 * @param minMemory The smallest memory size.
+	 * @param maxMemory The largest memory size, the same as minMemory to keep
+	 *            the memory size fixed.
+	 * @return The best quantum and memory size, in that order.
+	 */
+	public long[] optimize(long minQuantum, long maxQuantum, long minMemory, long maxMemory) {
+		executor = Executors.newFixedThreadPool(threads);
+		try {
+			Candidate best;
+			if (minMemory == maxMemory) {
+				best = search(minMemory, minQuantum, maxQuantum, true);
+			} else {
+				best = search((minMemory + maxMemory) / 2, minQuantum, maxQuantum, true);
+				best = search(best.quantum, minMemory, maxMemory, false);
+				best = search(best.memory, minQuantum, maxQuantum, true);
+			}
+			return new long[] { best.quantum, best.memory };
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Golden-section search along one parameter. The ends of the range are
+	 * evaluated as well, since a noisy objective may keep the search from
+	 * converging on an optimum at the edge.
+	 * 
+	 * @param fixed The value of the other parameter.
+	 * @param min The lower end of the range.
+	 * @param max The upper end of the range.
+	 * @param quantum {@code true} to search the quantum, {@code false} to
+	 *            search the memory size.
+	 * @return The best candidate evaluated in this search.
+	 */
+	private Candidate search(long fixed, long min, long max, boolean quantum) {
+		double a = scale(min, quantum), b = scale(max, quantum);
+		double c = b - INV_PHI * (b - a), d = a + INV_PHI * (b - a);
+		List<Candidate> searched = new ArrayList<Candidate>();
+		for (long x : new long[] { min, max, unscale(c, quantum), unscale(d, quantum) }) {
+			searched.add(candidate(fixed, x, quantum));
+		}
+		evaluate(searched);
+
+		while (unscale(d, quantum) != unscale(c, quantum)
+				&& unscale(b, quantum) - unscale(a, quantum) > TOLERANCE * unscale(a, quantum)) {
+			Candidate next;
+			if (loss(candidate(fixed, unscale(c, quantum), quantum)) < loss(candidate(fixed, unscale(d, quantum), quantum))) {
+				b = d;
+				d = c;
+				c = b - INV_PHI * (b - a);
+				next = candidate(fixed, unscale(c, quantum), quantum);
+			} else {
+				a = c;
+				c = d;
+				d = a + INV_PHI * (b - a);
+				next = candidate(fixed, unscale(d, quantum), quantum);
+			}
+			searched.add(next);
+			evaluate(Collections.singletonList(next));
+		}
+
+		Candidate best = null;
+		for (Candidate candidate : searched) {
+			if (best == null || loss(candidate) < loss(best)) {
+				best = candidate;
+			}
+		}
+		return best;
+	}
+
+	private static double scale(long x, boolean quantum) {
+		return quantum ? Math.log(x) : x;
+	}
+
+	private static long unscale(double x, boolean quantum) {
+		return Math.round(quantum ? Math.exp(x) : x);
+	}
+
+	/**
+	 * Returns the candidate for a point, creating it if needed.
+	 */
+	private Candidate candidate(long fixed, long x, boolean quantum) {
+		long memory = quantum ? fixed : x;
+		long q = quantum ? x : fixed;
+		String key = memory + "/" + q;
+		Candidate candidate = candidates.get(key);
+		if (candidate == null) {
+			candidate = new Candidate(memory, q);
+			candidates.put(key, candidate);
+		}
+		return candidate;
+	}
+
+	/**
+	 * Runs all replications of the candidates that have not been evaluated
+	 * yet, in parallel.
+	 * 
+	 * @param batch The candidates.
+	 */
+	private void evaluate(List<Candidate> batch) {
+		List<Future<Double>> futures = new ArrayList<Future<Double>>();
+		List<Candidate> pending = new ArrayList<Candidate>();
+		for (Candidate candidate : batch) {
+			if (candidate.values != null || pending.contains(candidate)) {
+				continue;
+			}
+			pending.add(candidate);
+			for (int r = 0; r < replications; r++) {
+				final String[] args = arguments(candidate, seed + r);
+				futures.add(executor.submit(new Callable<Double>() {
+					public Double call() throws Exception {
+						double[] results = cache != null ? cache.get(args) : null;
+						if (results == null) {
+							results = threads > 1 ? runInJvm(args) : ResultCache.simulate(args);
+							if (cache != null) {
+								cache.put(args, results);
+							}
+						}
+						return results[ResultCache.THROUGHPUT + objective];
+					}
+				}));
+			}
+		}
+
+		int f = 0;
+		for (Candidate candidate : pending) {
+			double[] values = new double[replications];
+			for (int r = 0; r < replications; r++) {
+				try {
+					values[r] = futures.get(f++).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while evaluating candidates", e);
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Simulation of quantum " + candidate.quantum
+							+ ", memory " + candidate.memory + " failed", e.getCause());
+				}
+			}
+			candidate.values = values;
+			double[] ci = interval(values);
+			System.out.println(String.format("  quantum %6d, memory %6d: %s %.3f +- %.3f",
+					candidate.quantum, candidate.memory, OBJECTIVE_NAMES[objective], ci[0], ci[1]));
+		}
+	}
+
+	/**
+	 * Returns the command line of one replication.
+	 */
+	private String[] arguments(Candidate candidate, long replicationSeed) {
+		List<String> args = new ArrayList<String>();
+		args.add(Long.toString(candidate.memory));
+		args.add(Long.toString(candidate.quantum));
+		args.add(Long.toString(avgIoTime));
+		args.add(Long.toString(simulationLength));
+		args.add(Long.toString(avgArrivalInterval));
+		args.add("-seed=" + replicationSeed);
+		args.addAll(options);
+		return args.toArray(new String[args.size()]);
+	}
+
+	/**
+	 * Runs one simulation in a new JVM, which prints the results of
+	 * {@link ResultCache#simulate(String[])} on its last line.
+	 * 
+	 * @param args The arguments for {@link Simulator#create(String[])}.
+	 * @return The results, indexed as {@link ResultCache#RESULT_NAMES}.
+	 * @throws IOException If the JVM cannot be started or fails.
+	 * @throws InterruptedException If interrupted while waiting for the JVM.
+	 */
+	private static double[] runInJvm(String[] args) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(QuantumOptimizer.class.getName());
+		command.add("-run");
+		command.addAll(Arrays.asList(args));
+		java.lang.Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+		String last = null;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				last = line;
+			}
+		} finally {
+			reader.close();
+		}
+		if (process.waitFor() != 0 || last == null) {
+			throw new IOException("Simulation " + Arrays.toString(args) + " failed: " + last);
+		}
+		String[] fields = last.trim().split(" ");
+		double[] results = new double[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			results[i] = Double.parseDouble(fields[i]);
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the value to minimize for a candidate.
+	 */
+	private double loss(Candidate candidate) {
+		double mean = interval(candidate.values)[0];
+		return objective == THROUGHPUT ? -mean : mean;
+	}
+
+	/**
+	 * Returns the mean of a sample and the half width of its 95% confidence
+	 * interval.
+	 * 
+	 * @param values The sample, at least two values.
+	 * @return The mean and the half width.
+	 */
+	static double[] interval(double[] values) {
+		double sum = 0;
+		for (double v : values) {
+			sum += v;
+		}
+		double mean = sum / values.length;
+		double squares = 0;
+		for (double v : values) {
+			squares += (v - mean) * (v - mean);
+		}
+		int df = values.length - 1;
+		double t = df <= T_95.length ? T_95[df - 1] : 1.96;
+		return new double[] { mean, t * Math.sqrt(squares / df / values.length) };
+	}
+
+	/**
+	 * Prints all candidates evaluated, with the difference of each to the
+	 * optimum. Since all candidates ran on the same processes, with the same
+	 * bursts and I/O times, the differences are paired, and a difference
+	 * whose confidence interval contains 0 means the candidate may be as
+	 * good as the optimum.
+	 * 
+	 * @param optimum The best quantum and memory size.
+	 */
+	public void printReport(long[] optimum) {
+		Candidate best = candidate(optimum[1], optimum[0], true);
+		List<Candidate> sorted = new ArrayList<Candidate>(candidates.values());
+		Collections.sort(sorted, new Comparator<Candidate>() {
+			public int compare(Candidate x, Candidate y) {
+				return x.memory != y.memory ? Long.compare(x.memory, y.memory) : Long.compare(x.quantum, y.quantum);
+			}
+		});
+
+		System.out.println();
+		System.out.println(String.format("%8s %8s %14s %10s %14s %10s", "Memory", "Quantum",
+				OBJECTIVE_NAMES[objective], "+- 95%", "vs optimum", "+- 95%"));
+		long minQuantum = best.quantum, maxQuantum = best.quantum;
+		long minMemory = best.memory, maxMemory = best.memory;
+		for (Candidate candidate : sorted) {
+			double[] ci = interval(candidate.values);
+			double[] differences = new double[replications];
+			for (int r = 0; r < replications; r++) {
+				differences[r] = candidate.values[r] - best.values[r];
+			}
+			double[] diff = interval(differences);
+			boolean tied = Math.abs(diff[0]) <= diff[1];
+			if (tied) {
+				minQuantum = Math.min(minQuantum, candidate.quantum);
+				maxQuantum = Math.max(maxQuantum, candidate.quantum);
+				minMemory = Math.min(minMemory, candidate.memory);
+				maxMemory = Math.max(maxMemory, candidate.memory);
+			}
+			System.out.println(String.format("%8d %8d %14.3f %10.3f %14.3f %10.3f %s",
+					candidate.memory, candidate.quantum, ci[0], ci[1], diff[0], diff[1],
+					candidate == best ? "optimum" : tied ? "not significantly worse" : ""));
+		}
+
+		double[] ci = interval(best.values);
+		System.out.println();
+		System.out.println(String.format("Optimum: quantum %d ms, memory %d, %s %.3f (95%% CI %.3f to %.3f, %d replications)",
+				best.quantum, best.memory, OBJECTIVE_NAMES[objective], ci[0], ci[0] - ci[1], ci[0] + ci[1],
+				replications));
+		System.out.println(String.format("Not significantly worse: quantum %d to %d ms, memory %d to %d",
+				minQuantum, maxQuantum, minMemory, maxMemory));
+	}
+
+	/**
+	 * Runs the optimizer. With -run as the first argument, runs one simulation
+	 * instead and prints its results on one line, for the optimizer that
+	 * started this JVM.
+	 * 
+	 * @param args avg I/O time, simulation length and avg arrival interval,
+	 *            optionally followed by -objective=name (THROUGHPUT, MEAN or
+	 *            P99), -quantum=min:max, -memory=min:max or -memory=size,
+	 *            -replications=n, -seed=n (of the first replication),
+	 *            -threads=n and -cache=directory[:max kB]. Other options are
+	 *            passed on to the simulator.
+	 * @throws IOException If the cache cannot be opened.
+	 */
+	public static void main(String args[]) throws IOException {
+		if (args.length > 0 && args[0].equals("-run")) {
+			StringBuilder line = new StringBuilder();
+			for (double result : ResultCache.simulate(Arrays.copyOfRange(args, 1, args.length))) {
+				line.append(line.length() > 0 ? " " : "").append(result);
+			}
+			System.out.println(line);
+			return;
+		}
+
+		long[] params = { 50, Constants.TESTING_SIMULATION_LENGTH, 5000 };
+		long[] quantum = { 1, 1000 };
+		long[] memory = { Constants.TESTING_MEMORY_SIZSE, Constants.TESTING_MEMORY_SIZSE };
+		int objective = P99_TIME_IN_SYSTEM;
+		int replications = DEFAULT_REPLICATIONS;
+		long seed = 1;
+		int threads = Runtime.getRuntime().availableProcessors();
+		ResultCache cache = null;
+		List<String> options = new ArrayList<String>();
+		int i = 0;
+		for (String arg : args) {
+			if (arg.startsWith("-objective=")) {
+				objective = getObjective(arg.substring(11));
+				if (objective < 0) {
+					throw new IllegalArgumentException("Unknown objective " + arg.substring(11));
+				}
+			} else if (arg.startsWith("-quantum=")) {
+				quantum = range(arg.substring(9));
+			} else if (arg.startsWith("-memory=")) {
+				memory = range(arg.substring(8));
+			} else if (arg.startsWith("-replications=")) {
+				replications = Integer.parseInt(arg.substring(14));
+			} else if (arg.startsWith("-seed=")) {
+				seed = Long.parseLong(arg.substring(6));
+			} else if (arg.startsWith("-threads=")) {
+				threads = Integer.parseInt(arg.substring(9));
+			} else if (arg.startsWith("-cache=")) {
+				cache = ResultCache.parse(arg.substring(7));
+			} else if (arg.startsWith("-")) {
+				options.add(arg);
+			} else if (i < params.length) {
+				params[i++] = Long.parseLong(arg);
+			}
+		}
+
+		QuantumOptimizer optimizer = new QuantumOptimizer(params[0], params[1], params[2], options, objective);
+		optimizer.setReplications(replications, seed);
+		optimizer.setThreads(threads);
+		optimizer.setCache(cache);
+		System.out.println("Optimizing " + OBJECTIVE_NAMES[objective] + ", quantum " + quantum[0] + " to "
+				+ quantum[1] + " ms, memory " + memory[0] + " to " + memory[1] + ", " + threads + " threads");
+		long[] optimum = optimizer.optimize(quantum[0], quantum[1], memory[0], memory[1]);
+		optimizer.printReport(optimum);
+		if (cache != null) {
+			cache.printReport();
+		}
+	}
+
+	private static long[] range(String spec) {
+		String[] fields = spec.split(":");
+		long min = Long.parseLong(fields[0]);
+		return new long[] { min, fields.length > 1 ? Long.parseLong(fields[1]) : min };
+	}
+}
@@ -0,0 +1,141 @@
+package simulator;
+
+import java.util.*;
+
+/**
+ * A queue in a queuing network. This class offers ordinary queue
+ * functionality. The GUI shows a queue through simulator.gui.QueuePanel,
+ * which registers itself as a listener to be told when the content changes.
+ */
+public class Queue {
+	/** The content of the queue */
+	private ArrayList content;
+	/** The name of the queue */
+	private String name;
+	/** Called whenever the content of the queue changes, may be null */
+	private Runnable changeListener;
+	/** Records the changes to the queue, may be null */
+	private RunRecording recording;
+	/** Which queue this is in the recording */
+	private int recordingIndex;
+
+	/**
+	 * Creates a new queue with the given name.
+	 * @param name				The name of the queue, which will be shown in the GUI.
+	 */
+	public Queue(String name) {
+		this.name = name;
+		content = new ArrayList();
+	}
+
+	/**
+	 * Returns the name of the queue.
+	 * @return	The name given when the queue was created.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Registers a listener that is run whenever an element is inserted or removed.
+	 * @param listener	The listener, or null to remove the current listener.
+	 */
+	public void setChangeListener(Runnable listener) {
+		changeListener = listener;
+	}
+
+	/**
+	 * Records every insertion and removal from now on.
+	 * @param recording	The recording, or null to stop recording.
+	 * @param index		Which queue this is in the recording, e.g. RunRecording.CPU_QUEUE.
+	 */
+	public void setRecording(RunRecording recording, int index) {
+		this.recording = recording;
+		this.recordingIndex = index;
+	}
+
+	/**
+	 * Inserts a new element to the tail of the queue.
+	 * @param o	The object to be added to the queue.
+	 */
+	public void insert(Object o) {
+		content.add(o);
+		if (recording != null) {
+			recording.inserted(recordingIndex, o);
+		}
+		changed();
+	}
+
+	/**
+	 * Returns the first element in the queue, but does not remove it from the queue.
+	 * @return	The first object in the queue.
+	 */
+	public Object getNext() {
+		return content.get(0);
+	}
+
+	/**
+	 * Returns the element at a given position in the queue, without removing it.
+	 * @param i	The position, 0 being the first element.
+	 * @return	The object at that position.
+	 */
+	public Object get(int i) {
+		return content.get(i);
+	}
+
+	/**
+	 * Returns the first element in the queue, and removes it from the queue.
+	 * @return	The object that was the first one in the queue.
+	 */
+	public Object removeNext() {
+		Object result = content.remove(0);
+		if (recording != null) {
+			recording.removed(recordingIndex, 0);
+		}
+		changed();
+		return result;
+	}
+
+	/**
+	 * Removes an element from anywhere in the queue.
+	 * @param o	The object to be removed.
+	 * @return	Whether or not the object was in the queue.
+	 */
+	public boolean remove(Object o) {
+		int position = content.indexOf(o);
+		if (position < 0) {
+			return false;
+		}
+		content.remove(position);
+		if (recording != null) {
+			recording.removed(recordingIndex, position);
+		}
+		changed();
+		return true;
+	}
+
+	/**
+	 * Checks whether the queue is empty or not.
+	 * @return	Whether or not the queue is empty.
+	 */
+	public boolean isEmpty() {
+		return 0 == content.size();
+	}
+
+	/**
+	 * Returns the number of elements in the queue.
+	 * @return	The length of the queue.
+	 */
+	public int getQueueLength() {
+		return content.size();
+	}
+
+	/**
+	 * Tells the listener, if any, that the content has changed.
+	 */
+	private void changed() {
+		if (changeListener != null) {
+			changeListener.run();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package simulator;
+
+import java.util.Random;
+
+/**
+ * The random numbers used by the simulation. Each purpose has its own stream,
+ * all seeded from one master seed, so that two runs with the same seed see the
+ * same arrivals and processes even when a policy change alters the order in
+ * which the streams are used (common random numbers). This holds because the
+ * arrival and process streams are only drawn from when a process is created.
+ * The draws made while a process runs, its CPU bursts and I/O times, come
+ * from a stream of its own seeded at its creation, so that a process sees the
+ * same bursts and I/O times whatever the scheduling.
+ * 
+ * Without a call to {@link #setSeed(long)} the streams are seeded from the
+ * clock, so every run is different, as before.
+ */
+public class RandomStreams {
+	/** Time between process arrivals */
+	public static final int ARRIVALS = 0;
+	/** Memory, CPU and I/O interval of new processes, drawn at creation only */
+	public static final int PROCESSES = 1;
+	/** Block addresses of disk requests */
+	public static final int DISK = 3;
+	/** Device affinities of processes and the routing of their requests */
+	public static final int ROUTING = 4;
+	/** Page references of processes, with virtual memory */
+	public static final int PAGING = 5;
+	/** Release times of sporadic real-time tasks */
+	public static final int REAL_TIME = 7;
+	/** Critical sections of processes, with locks */
+	public static final int LOCKS = 8;
+	/** Seeds of the streams of processes, see {@link Process#getRandom()} */
+	public static final int PROCESS_SEEDS = 9;
+	/** The number of streams */
+	private static final int STREAM_COUNT = 10;
+
+	/** The streams, indexed by purpose */
+	private static Random[] streams = createStreams(System.nanoTime());
+	/** The master seed */
+	private static long seed;
+
+	/**
+	 * Creates one generator per stream from a master seed.
+	 * 
+	 * @param masterSeed The master seed.
+	 * @return The generators.
+	 */
+	private static Random[] createStreams(long masterSeed) {
+		seed = masterSeed;
+		Random master = new Random(masterSeed);
+		Random[] result = new Random[STREAM_COUNT];
+		for (int i = 0; i < STREAM_COUNT; i++) {
+			result[i] = new Random(master.nextLong());
+		}
+		return result;
+	}
+
+	/**
+	 * Reseeds all streams. Two runs started after the same call see the same
+	 * random numbers.
+	 * 
+	 * @param masterSeed The master seed.
+	 */
+	public static void setSeed(long masterSeed) {
+		streams = createStreams(masterSeed);
+	}
+
+	/**
+	 * Returns the master seed of the current streams.
+	 * 
+	 * @return The seed.
+	 */
+	public static long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns a stream, to draw from directly or to pass to a
+	 * {@link Distribution}.
+	 * 
+	 * @param stream The stream, e.g. {@link #ARRIVALS}.
+	 * @return The generator of the stream.
+	 */
+	public static Random get(int stream) {
+		return streams[stream];
+	}
+
+	/**
+	 * Returns the next number from a stream, uniform in [0, 1).
+	 * 
+	 * @param stream The stream, e.g. {@link #ARRIVALS}.
+	 * @return A uniformly distributed double.
+	 */
+	public static double nextDouble(int stream) {
+		return streams[stream].nextDouble();
+	}
+}
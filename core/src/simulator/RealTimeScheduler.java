@@ -0,0 +1,531 @@
+package simulator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Real-time tasks, running next to the best-effort processes. A periodic
+ * task releases a job every period; a sporadic task releases one after at
+ * least its minimum interarrival time, plus an exponentially distributed
+ * gap of the same mean. Every job needs the execution time of its task on
+ * the CPU and must finish within the relative deadline of its task.
+ * 
+ * Real-time jobs take precedence over the best-effort processes, which get
+ * the CPU only when no job is ready. Among the jobs the policy decides:
+ * <ul>
+ * <li>{@link #EDF}: earliest absolute deadline first.</li>
+ * <li>{@link #RM}: rate monotonic, the task with the shortest period first
+ * (for a sporadic task its minimum interarrival time).</li>
+ * </ul>
+ * The ready jobs are kept in an indexed heap by deadline or period. A job
+ * released with a higher priority than the one on the CPU, or while a
+ * best-effort process runs, preempts it. Jobs are never dropped: a job that
+ * misses its deadline runs to completion late.
+ * 
+ * The report gives the deadline misses and response times of each task, a
+ * histogram of the lateness of the jobs, and the schedulability test of the
+ * policy: utilization or density for EDF, the Liu and Layland bound and the
+ * exact response time analysis for RM.
+ * 
+ * Enabled with {@link Simulator#setRealTimeScheduler(RealTimeScheduler)}.
+ */
+public class RealTimeScheduler {
+	/** Policies */
+	public static final int EDF = 0;
+	public static final int RM = 1;
+	/** Names of the policies, indexed by policy */
+	public static final String[] POLICY_NAMES = { "EDF", "RM" };
+
+	/**
+	 * The number of lateness buckets on each side of the deadline: bucket b
+	 * holds a lateness of 2^(b-1) to 2^b - 1 ms, bucket 0 a job finishing
+	 * exactly at its deadline, the last bucket everything beyond
+	 */
+	private static final int LATENESS_BUCKETS = 17;
+	/** The number of job slots to start with */
+	private static final int INITIAL_SLOTS = 64;
+
+	/** A real-time task and its statistics */
+	private static class Task {
+		boolean sporadic;
+		/** The period, or the minimum interarrival time of a sporadic task */
+		long period;
+		long execution;
+		/** The relative deadline */
+		long deadline;
+
+		long released = 0;
+		long completed = 0;
+		long missed = 0;
+		long totalResponse = 0;
+		long maxResponse = 0;
+		long maxLateness = Long.MIN_VALUE;
+	}
+
+	private int policy;
+	private List<Task> tasks = new ArrayList<Task>();
+
+	/** The ready jobs, by slot, keyed by deadline (EDF) or period (RM) */
+	private IndexedHeap ready = new IndexedHeap(INITIAL_SLOTS);
+	/** The jobs released and not completed, by slot */
+	private Process[] jobs = new Process[INITIAL_SLOTS];
+	private int[] jobTask = new int[INITIAL_SLOTS];
+	private long[] jobRelease = new long[INITIAL_SLOTS];
+	private long[] jobDeadline = new long[INITIAL_SLOTS];
+	/** Slots not in use, as a stack */
+	private int[] free = new int[INITIAL_SLOTS];
+	private int freeCount = 0;
+	private int slots = 0;
+
+	/** The slot of the job on the CPU, -1 if none */
+	private int running = -1;
+
+	private long[] early = new long[LATENESS_BUCKETS];
+	private long[] late = new long[LATENESS_BUCKETS];
+	private long preemptions = 0;
+
+	/**
+	 * Creates a scheduler without tasks.
+	 * 
+	 * @param policy The policy, e.g. {@link #EDF}.
+	 */
+	public RealTimeScheduler(int policy) {
+		if (policy < 0 || policy >= POLICY_NAMES.length) {
+			throw new IllegalArgumentException("Unknown real-time policy " + policy);
+		}
+		this.policy = policy;
+	}
+
+	/**
+	 * Looks up a policy by name, ignoring case.
+	 * 
+	 * @param name The name of the policy, e.g. "edf".
+	 * @return The policy, or -1 if there is no policy with that name.
+	 */
+	public static int getPolicy(String name) {
+		for (int i = 0; i < POLICY_NAMES.length; i++) {
+			if (POLICY_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Creates a scheduler from a specification of the form
+	 * policy:task,task,... where a task is p/period/execution[/deadline] for
+	 * a periodic task, or s/min interarrival/execution[/deadline] for a
+	 * sporadic one. The deadline is the period by default.
+	 * 
+	 * @param spec The specification, e.g. "edf:p/100/20,s/1000/50/400".
+	 * @return The scheduler.
+	 * @throws IllegalArgumentException If the specification is not valid.
+	 */
+	public static RealTimeScheduler parse(String spec) {
+		int colon = spec.indexOf(':');
+		int policy = getPolicy(colon < 0 ? spec : spec.substring(0, colon));
+		if (policy < 0 || colon < 0) {
+			throw new IllegalArgumentException("Expected policy:task,task,... in " + spec);
+		}
+		RealTimeScheduler scheduler = new RealTimeScheduler(policy);
+		for (String task : spec.substring(colon + 1).split(",")) {
+			String[] fields = task.split("/");
+			if (fields.length < 3 || !fields[0].matches("[pPsS]")) {
+				throw new IllegalArgumentException("Expected p/period/execution[/deadline] or "
+						+ "s/min interarrival/execution[/deadline] in " + task);
+			}
+			long period = Long.parseLong(fields[1]);
+			scheduler.addTask(fields[0].equalsIgnoreCase("s"), period, Long.parseLong(fields[2]),
+					fields.length > 3 ? Long.parseLong(fields[3]) : period);
+		}
+		return scheduler;
+	}
+
+	/**
+	 * Adds a task.
+	 * 
+	 * @param sporadic {@code true} for a sporadic task, {@code false} for a
+	 *            periodic one.
+	 * @param period The period, or the minimum interarrival time of a
+	 *            sporadic task (ms).
+	 * @param execution The execution time of every job (ms).
+	 * @param deadline The relative deadline (ms).
+	 */
+	public void addTask(boolean sporadic, long period, long execution, long deadline) {
+		if (period < 1 || execution < 1 || deadline < 1) {
+			throw new IllegalArgumentException("Period, execution time and deadline must be positive");
+		}
+		Task task = new Task();
+		task.sporadic = sporadic;
+		task.period = period;
+		task.execution = execution;
+		task.deadline = deadline;
+		tasks.add(task);
+	}
+
+	public int getTaskCount() {
+		return tasks.size();
+	}
+
+	/**
+	 * Returns the time of the first release of a task: periodic tasks start
+	 * together at time 0, the worst case for fixed priorities.
+	 * 
+	 * @param task The index of the task.
+	 * @return The time until the release (ms).
+	 */
+	long getFirstRelease(int task) {
+		return tasks.get(task).sporadic ? getNextRelease(task) : 0;
+	}
+
+	/**
+	 * Returns the time from one release of a task to the next.
+	 */
+	private long getNextRelease(int task) {
+		Task t = tasks.get(task);
+		if (!t.sporadic) {
+			return t.period;
+		}
+		return t.period + Math.round(-Math.log(1 - RandomStreams.nextDouble(RandomStreams.REAL_TIME)) * t.period);
+	}
+
+	/**
+	 * Releases a job of a task.
+	 * 
+	 * @param task The index of the task.
+	 * @return The time until the next release of the task (ms).
+	 */
+	long release(int task) {
+		Task t = tasks.get(task);
+		int slot;
+		if (freeCount > 0) {
+			slot = free[--freeCount];
+		} else {
+			slot = slots++;
+			if (slot == jobs.length) {
+				int capacity = 2 * jobs.length;
+				jobs = Arrays.copyOf(jobs, capacity);
+				jobTask = Arrays.copyOf(jobTask, capacity);
+				jobRelease = Arrays.copyOf(jobRelease, capacity);
+				jobDeadline = Arrays.copyOf(jobDeadline, capacity);
+				free = Arrays.copyOf(free, capacity);
+				ready.ensureCapacity(capacity);
+			}
+		}
+		long now = SystemClock.getTime();
+		jobs[slot] = new Process(-(task + 1), t.execution, slot);
+		jobTask[slot] = task;
+		jobRelease[slot] = now;
+		jobDeadline[slot] = now + t.deadline;
+		ready.set(slot, getKey(slot));
+		t.released++;
+		return getNextRelease(task);
+	}
+
+	/**
+	 * Returns the priority of a job, lower first.
+	 */
+	private long getKey(int slot) {
+		return policy == EDF ? jobDeadline[slot] : tasks.get(jobTask[slot]).period;
+	}
+
+	/**
+	 * Returns whether a job is waiting for the CPU.
+	 * 
+	 * @return {@code true} if a job is ready.
+	 */
+	boolean hasReadyJob() {
+		return !ready.isEmpty();
+	}
+
+	/**
+	 * Returns whether a job waiting for the CPU should take it from the
+	 * process or job that has it.
+	 * 
+	 * @param current The process or job on the CPU, or {@code null}.
+	 * @return {@code true} to preempt it.
+	 */
+	boolean shouldPreempt(Process current) {
+		if (current == null || ready.isEmpty()) {
+			return false;
+		}
+		return current.getRealTimeSlot() < 0 || ready.peekKey() < getKey(current.getRealTimeSlot());
+	}
+
+	/**
+	 * Removes the job with the highest priority from the ready jobs, to give
+	 * it the CPU.
+	 * 
+	 * @return The job, or {@code null} if none is ready.
+	 */
+	Process dispatch() {
+		running = ready.poll();
+		return running >= 0 ? jobs[running] : null;
+	}
+
+	/**
+	 * Registers the process or job on the CPU being preempted. A job becomes
+	 * ready again; a process is queued by the caller.
+	 * 
+	 * @param p The process or job.
+	 */
+	void preempted(Process p) {
+		preemptions++;
+		int slot = p.getRealTimeSlot();
+		if (slot >= 0) {
+			ready.set(slot, getKey(slot));
+			running = -1;
+		}
+	}
+
+	/**
+	 * Registers a job that has used all of its execution time.
+	 * 
+	 * @param job The job.
+	 */
+	void jobCompleted(Process job) {
+		int slot = job.getRealTimeSlot();
+		Task t = tasks.get(jobTask[slot]);
+		long now = SystemClock.getTime();
+		long response = now - jobRelease[slot];
+		long lateness = now - jobDeadline[slot];
+		t.completed++;
+		t.totalResponse += response;
+		t.maxResponse = Math.max(t.maxResponse, response);
+		t.maxLateness = Math.max(t.maxLateness, lateness);
+		if (lateness > 0) {
+			t.missed++;
+			late[getBucket(lateness)]++;
+		} else {
+			early[getBucket(-lateness)]++;
+		}
+		jobs[slot] = null;
+		free[freeCount++] = slot;
+		running = -1;
+	}
+
+	private static int getBucket(long lateness) {
+		return Math.min(LATENESS_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(lateness));
+	}
+
+	/**
+	 * Returns the number of jobs not completed whose deadline has passed.
+	 */
+	private long getOverdue(int task) {
+		long overdue = 0;
+		for (int slot = 0; slot < slots; slot++) {
+			if (jobs[slot] != null && jobTask[slot] == task && jobDeadline[slot] < SystemClock.getTime()) {
+				overdue++;
+			}
+		}
+		return overdue;
+	}
+
+	/**
+	 * Returns the share of jobs that missed their deadline, of those that
+	 * completed or are past their deadline.
+	 * 
+	 * @return The miss ratio, between 0 and 1.
+	 */
+	public double getMissRatio() {
+		long missed = 0, jobCount = 0;
+		for (int i = 0; i < tasks.size(); i++) {
+			long overdue = getOverdue(i);
+			missed += tasks.get(i).missed + overdue;
+			jobCount += tasks.get(i).completed + overdue;
+		}
+		return jobCount > 0 ? (double) missed / jobCount : 0;
+	}
+
+	/**
+	 * Returns the largest lateness of a completed job.
+	 * 
+	 * @return The lateness (ms), negative if every job finished early.
+	 */
+	public long getMaxLateness() {
+		long max = Long.MIN_VALUE;
+		for (Task t : tasks) {
+			max = Math.max(max, t.maxLateness);
+		}
+		return max;
+	}
+
+	public long getPreemptions() {
+		return preemptions;
+	}
+
+	/**
+	 * Returns the share of the CPU the tasks need at most.
+	 * 
+	 * @return The sum of execution time over period.
+	 */
+	public double getUtilization() {
+		double u = 0;
+		for (Task t : tasks) {
+			u += (double) t.execution / t.period;
+		}
+		return u;
+	}
+
+	/**
+	 * Returns the density of the tasks, which is the utilization with the
+	 * deadline as period where it is shorter.
+	 * 
+	 * @return The sum of execution time over the smaller of period and
+	 *         deadline.
+	 */
+	public double getDensity() {
+		double density = 0;
+		for (Task t : tasks) {
+			density += (double) t.execution / Math.min(t.period, t.deadline);
+		}
+		return density;
+	}
+
+	/**
+	 * Returns the Liu and Layland bound, below which a task set is always
+	 * schedulable by rate monotonic with deadlines equal to the periods.
+	 * 
+	 * @return n(2^(1/n) - 1) for n tasks.
+	 */
+	public double getLiuLaylandBound() {
+		int n = tasks.size();
+		return n * (Math.pow(2, 1.0 / n) - 1);
+	}
+
+	/**
+	 * Returns the worst-case response time of a task under rate monotonic,
+	 * by response time analysis: the task released together with every task
+	 * of higher priority, each releasing jobs as often as it can.
+	 * 
+	 * @param task The index of the task.
+	 * @return The response time, or the first value found beyond the
+	 *         deadline if the task can miss it.
+	 */
+	public long getWorstCaseResponse(int task) {
+		Task t = tasks.get(task);
+		long response = t.execution;
+		while (response <= t.deadline) {
+			long next = t.execution;
+			for (int j = 0; j < tasks.size(); j++) {
+				Task other = tasks.get(j);
+				if (other.period < t.period || (other.period == t.period && j < task)) {
+					next += (response + other.period - 1) / other.period * other.execution;
+				}
+			}
+			if (next == response) {
+				break;
+			}
+			response = next;
+		}
+		return response;
+	}
+
+	/**
+	 * Tests whether the tasks can always meet their deadlines under the
+	 * policy. For EDF the density test, which is exact if no deadline is
+	 * shorter than its period; for RM the response time analysis, which is
+	 * exact for deadlines up to the periods.
+	 * 
+	 * @return {@code true} if the tasks are schedulable.
+	 */
+	public boolean isSchedulable() {
+		if (policy == EDF) {
+			return getDensity() <= 1;
+		}
+		for (int i = 0; i < tasks.size(); i++) {
+			if (getWorstCaseResponse(i) > tasks.get(i).deadline) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Prints the schedulability test, the deadline misses and response times
+	 * of each task and the lateness histogram.
+	 */
+	public void printReport() {
+		System.out.println();
+		System.out.println("Real-time tasks (" + POLICY_NAMES[policy] + "):");
+		System.out.println(String.format("%4s %9s %8s %8s %8s %9s %9s %8s %9s %9s %9s", "Task", "Type",
+				"Period", "Exec", "Deadline", "Released", "Completed", "Missed", "Avg resp",
+				"Max resp", policy == RM ? "WC resp" : ""));
+		for (int i = 0; i < tasks.size(); i++) {
+			Task t = tasks.get(i);
+			System.out.println(String.format("%4d %9s %8d %8d %8d %9d %9d %8d %9d %9d %9s", i + 1,
+					t.sporadic ? "sporadic" : "periodic", t.period, t.execution, t.deadline, t.released,
+					t.completed, t.missed + getOverdue(i), t.completed > 0 ? t.totalResponse / t.completed : 0,
+					t.maxResponse, policy == RM ? Long.toString(getWorstCaseResponse(i)) : ""));
+		}
+		System.out.println("Deadline miss ratio:                                          "
+				+ (float) (100 * getMissRatio()) + "%");
+		System.out.println("Largest lateness:                                             "
+				+ (getMaxLateness() == Long.MIN_VALUE ? "-" : getMaxLateness() + " ms"));
+		System.out.println("Preemptions:                                                  " + preemptions);
+		System.out.println("Utilization of the tasks:                                     "
+				+ (float) getUtilization());
+		if (policy == EDF) {
+			System.out.println("Density of the tasks:                                         "
+					+ (float) getDensity());
+		} else {
+			System.out.println("Liu and Layland bound:                                        "
+					+ (float) getLiuLaylandBound());
+		}
+		System.out.println(String.format("%-62s%s", "Schedulable ("
+				+ (policy == EDF ? "density test" : "response time analysis") + "):",
+				isSchedulable() ? "yes" : "no"));
+
+		System.out.println("Lateness of completed jobs:");
+		for (int b = LATENESS_BUCKETS - 1; b >= 0; b--) {
+			if (early[b] > 0) {
+				System.out.println(String.format("%24s %10d", getBucketLabel(b, "-"), early[b]));
+			}
+		}
+		for (int b = 1; b < LATENESS_BUCKETS; b++) {
+			if (late[b] > 0) {
+				System.out.println(String.format("%24s %10d", getBucketLabel(b, "+"), late[b]));
+			}
+		}
+	}
+
+	private static String getBucketLabel(int b, String sign) {
+		if (b == 0) {
+			return "0 ms";
+		}
+		long low = 1L << (b - 1);
+		return b == LATENESS_BUCKETS - 1 ? sign + low + " ms or more"
+				: sign + low + " to " + sign + ((1L << b) - 1) + " ms";
+	}
+
+	/**
+	 * Runs the simulator with each policy on the same tasks and random
+	 * numbers, and prints the deadline misses next to the throughput of the
+	 * best-effort processes.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by
+	 *            -tasks=task,task,... as for {@link #parse(String)} and the
+	 *            options of a {@link Sweep}.
+	 * @throws IOException If the result cache cannot be used.
+	 */
+	public static void main(String args[]) throws IOException {
+		Sweep sweep = new Sweep(args);
+		long[] params = sweep.getParameters(Constants.TESTING_MEMORY_SIZSE, 50, 225, 2000000, 60000);
+		String taskSpec = sweep.takeOption("-tasks", "p/100/20,p/150/40,p/350/120,s/1000/50/400");
+
+		System.out.println("Tasks " + taskSpec);
+		System.out.println(String.format("%6s %12s %12s %14s %12s %10s %12s", "Policy", "Schedulable",
+				"Miss ratio", "Max lateness", "Preemptions", "Throughput", "Mean (ms)"));
+		for (int policy = 0; policy < POLICY_NAMES.length; policy++) {
+			String spec = POLICY_NAMES[policy] + ":" + taskSpec;
+			double[] results = sweep.run(params, "-realtime=" + spec);
+			System.out.println(String.format("%6s %12s %11.2f%% %11.0f ms %12.0f %10.3f %12.0f",
+					POLICY_NAMES[policy], parse(spec).isSchedulable() ? "yes" : "no",
+					100 * results[ResultCache.REAL_TIME_MISS_RATIO], results[ResultCache.REAL_TIME_LATENESS_MAX],
+					results[ResultCache.REAL_TIME_PREEMPTIONS], results[ResultCache.THROUGHPUT],
+					results[ResultCache.MEAN_TIME_IN_SYSTEM]));
+		}
+		sweep.printReport();
+	}
+}
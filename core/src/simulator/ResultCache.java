@@ -0,0 +1,602 @@
+package simulator;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * A persistent cache of the final statistics of simulation runs, so that a
+ * sweep or a set of replications that is run again only simulates the points
+ * that changed.
+ * 
+ * A run is identified by its command line for
+ * {@link Simulator#create(String[])}, in a canonical form: the positional
+ * parameters with their defaults filled in, the options sorted and with only
+ * the last of each kind kept, names of policies in lower case, -verbose left
+ * out, and a workload file replaced by its contents, including the
+ * histograms it reads. The engine version, a digest of the simulator's
+ * classes, is part of the key, so results of an older simulator are never
+ * returned. A run without -seed= draws different random numbers every time
+ * and is never cached.
+ * 
+ * Every result is a file named by the SHA-256 of its key, holding the key and
+ * the values of {@link #RESULT_NAMES}. Files are written under a temporary
+ * name and renamed, so a run that dies does not leave a truncated result.
+ * When the files exceed the size limit, the least recently used are deleted;
+ * the use of a result is recorded in the modification time of its file, so
+ * the order survives from one run to the next.
+ */
+public class ResultCache {
+	/**
+	 * Names of the results, indexed as in the array returned by
+	 * {@link #collect(Simulator)}: the counters of {@link Statistics},
+	 * followed by the values at the indexes below, which are 0 for a model
+	 * that is not enabled
+	 */
+	public static final String[] RESULT_NAMES;
+	/** Index of the throughput in the results */
+	public static final int THROUGHPUT = Statistics.COUNTER_NAMES.length;
+	/** Index of the mean time in system in the results */
+	public static final int MEAN_TIME_IN_SYSTEM = THROUGHPUT + 1;
+	/** Index of the 99th percentile time in system in the results */
+	public static final int P99_TIME_IN_SYSTEM = THROUGHPUT + 2;
+	/** Index of the CPU utilization (%) in the results */
+	public static final int CPU_UTILIZATION = THROUGHPUT + 3;
+	/** Index of the I/O utilization (%) in the results */
+	public static final int IO_UTILIZATION = THROUGHPUT + 4;
+	/** Index of the share of time spent switching (%) in the results */
+	public static final int CPU_OVERHEAD = THROUGHPUT + 5;
+	/** Index of the page faults per 1000 references in the results */
+	public static final int PAGE_FAULT_RATE = THROUGHPUT + 6;
+	/** Index of the energy used by the CPU (J) in the results */
+	public static final int CPU_ENERGY = THROUGHPUT + 7;
+	/** Index of the average power of the CPU (W) in the results */
+	public static final int CPU_POWER = THROUGHPUT + 8;
+	/** Index of the average adaptive quantum in the results */
+	public static final int QUANTUM_MEAN = THROUGHPUT + 9;
+	/** Index of the share of time threads overlap CPU and I/O in the results */
+	public static final int THREAD_OVERLAP = THROUGHPUT + 10;
+	/** Index of the longest memory wait in the results */
+	public static final int MEMORY_WAIT_MAX = THROUGHPUT + 11;
+	/** Index of the longest memory wait of the largest processes in the results */
+	public static final int MEMORY_WAIT_MAX_LARGEST = THROUGHPUT + 12;
+	/** Index of the wait of the oldest process still waiting for memory */
+	public static final int MEMORY_WAIT_OLDEST = THROUGHPUT + 13;
+	/** Index of the share of real-time jobs missing their deadline */
+	public static final int REAL_TIME_MISS_RATIO = THROUGHPUT + 14;
+	/** Index of the largest lateness of a real-time job in the results */
+	public static final int REAL_TIME_LATENESS_MAX = THROUGHPUT + 15;
+	/** Index of the number of preemptions by real-time jobs in the results */
+	public static final int REAL_TIME_PREEMPTIONS = THROUGHPUT + 16;
+	/** Index of the share of lock requests that had to wait in the results */
+	public static final int LOCK_CONTENTION = THROUGHPUT + 17;
+	/** Index of the average wait for a lock in the results */
+	public static final int LOCK_WAIT_MEAN = THROUGHPUT + 18;
+	/** Index of the average time a lock is held in the results */
+	public static final int LOCK_HOLD_MEAN = THROUGHPUT + 19;
+
+	static {
+		String[] names = { "throughput", "time_in_system_mean_ms", "time_in_system_p99_ms",
+				"cpu_utilization_pct", "io_utilization_pct", "cpu_overhead_pct", "page_faults_per_1000",
+				"cpu_energy_j", "cpu_power_w", "quantum_mean_ms", "thread_overlap", "memory_wait_max_ms",
+				"memory_wait_max_largest_ms", "memory_wait_oldest_ms", "real_time_miss_ratio",
+				"real_time_lateness_max_ms", "real_time_preemptions", "lock_contention", "lock_wait_mean_ms",
+				"lock_hold_mean_ms" };
+		RESULT_NAMES = Arrays.copyOf(Statistics.COUNTER_NAMES, THROUGHPUT + names.length);
+		System.arraycopy(names, 0, RESULT_NAMES, THROUGHPUT, names.length);
+	}
+
+	/** The default size limit of a cache (bytes) */
+	public static final long DEFAULT_MAX_BYTES = 64L << 20;
+	/** The extension of result files */
+	private static final String EXTENSION = ".result";
+
+	/** The engine version, computed when first needed */
+	private static String engineVersion;
+
+	private File directory;
+	private long maxBytes;
+	/** The size of every result file, by file name, least recently used first */
+	private LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	private long bytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * Opens a cache, creating its directory if needed.
+	 * 
+	 * @param directory The directory of the result files.
+	 * @param maxBytes The size limit of all result files together.
+	 * @throws IOException If the directory cannot be created.
+	 */
+	public ResultCache(File directory, long maxBytes) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create cache directory " + directory);
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+
+		File[] files = directory.listFiles();
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File x, File y) {
+				return Long.compare(x.lastModified(), y.lastModified());
+			}
+		});
+		for (File file : files) {
+			if (file.getName().endsWith(EXTENSION)) {
+				entries.put(file.getName(), file.length());
+				bytes += file.length();
+			}
+		}
+	}
+
+	/**
+	 * Opens a cache from a specification of the form directory[:max kB].
+	 * 
+	 * @param spec The specification, e.g. "cache:16384".
+	 * @return The cache.
+	 * @throws IOException If the directory cannot be created.
+	 */
+	public static ResultCache parse(String spec) throws IOException {
+		int colon = spec.lastIndexOf(':');
+		if (colon > 0 && spec.substring(colon + 1).matches("[0-9]+")) {
+			return new ResultCache(new File(spec.substring(0, colon)),
+					Long.parseLong(spec.substring(colon + 1)) << 10);
+		}
+		return new ResultCache(new File(spec), DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Looks up a result by name.
+	 * 
+	 * @param name The name of the result, e.g. "swap_outs".
+	 * @return The index of the result, or -1 if there is no result with that
+	 *         name.
+	 */
+	public static int getIndex(String name) {
+		for (int i = 0; i < RESULT_NAMES.length; i++) {
+			if (RESULT_NAMES[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the results of a simulation that has ended, the last one in
+	 * this JVM.
+	 * 
+	 * @param simulator The simulator, for the statistics of its models.
+	 * @return The value of every result in {@link #RESULT_NAMES}.
+	 */
+	public static double[] collect(Simulator simulator) {
+		long[] counters = Statistics.getCounters();
+		double[] results = new double[RESULT_NAMES.length];
+		for (int i = 0; i < counters.length; i++) {
+			results[i] = counters[i];
+		}
+		results[THROUGHPUT] = Statistics.getProcessThroughput();
+		results[MEAN_TIME_IN_SYSTEM] = Statistics.getAverageTimeInSystem();
+		results[P99_TIME_IN_SYSTEM] = Statistics.getTimeInSystemPercentile(0.99);
+		results[CPU_UTILIZATION] = Statistics.getCpuUtilization();
+		results[IO_UTILIZATION] = Statistics.getIoUtilization();
+		results[CPU_OVERHEAD] = Statistics.getCpuOverhead();
+		if (simulator.getVirtualMemory() != null) {
+			results[PAGE_FAULT_RATE] = simulator.getVirtualMemory().getFaultRate();
+		}
+		if (simulator.getCpuPowerModel() != null) {
+			results[CPU_ENERGY] = simulator.getCpuPowerModel().getEnergy();
+			results[CPU_POWER] = simulator.getCpuPowerModel().getAveragePower();
+		}
+		if (simulator.getQuantumController() != null) {
+			results[QUANTUM_MEAN] = simulator.getQuantumController().getAverageQuantum();
+		}
+		if (simulator.getProcessThreads() != null) {
+			results[THREAD_OVERLAP] = simulator.getProcessThreads().getOverlap();
+		}
+		MemoryWaitQueue queue = simulator.getMemoryWaitQueue();
+		if (queue != null) {
+			results[MEMORY_WAIT_MAX] = queue.getMaxWait();
+			results[MEMORY_WAIT_MAX_LARGEST] = queue.getLargestClassMaxWait();
+			results[MEMORY_WAIT_OLDEST] = queue.getOldestWait();
+		}
+		RealTimeScheduler scheduler = simulator.getRealTimeScheduler();
+		if (scheduler != null) {
+			results[REAL_TIME_MISS_RATIO] = scheduler.getMissRatio();
+			results[REAL_TIME_LATENESS_MAX] = scheduler.getMaxLateness();
+			results[REAL_TIME_PREEMPTIONS] = scheduler.getPreemptions();
+		}
+		LockModel lockModel = simulator.getLockModel();
+		if (lockModel != null) {
+			results[LOCK_CONTENTION] = lockModel.getContentionRate();
+			results[LOCK_WAIT_MEAN] = lockModel.getAverageWait();
+			results[LOCK_HOLD_MEAN] = lockModel.getAverageHold();
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the canonical key of a run.
+	 * 
+	 * @param args The arguments for {@link Simulator#create(String[])}.
+	 * @return The key, or {@code null} if the run has no seed, or the engine
+	 *         version is not known, so the run cannot be cached.
+	 * @throws IOException If a workload file cannot be read.
+	 */
+	public static String getKey(String[] args) throws IOException {
+		long[] params = { Constants.TESTING_MEMORY_SIZSE, Constants.TESTING_CPU_TIME,
+				Constants.TESTING_IO_TIME, Constants.TESTING_SIMULATION_LENGTH,
+				Constants.TESTING_AVG_ARRIVAL_INTERVAL };
+		TreeMap<String, String> options = new TreeMap<String, String>();
+		int i = 0;
+		for (String arg : args) {
+			if (arg.equals("-verbose")) {
+				continue;
+			} else if (arg.startsWith("-")) {
+				int equals = arg.indexOf('=');
+				String name = equals < 0 ? arg : arg.substring(0, equals);
+				String value = equals < 0 ? "" : arg.substring(equals + 1);
+				if (name.equals("-workload")) {
+					value = describeWorkload(new File(value));
+				} else if (name.equals("-devices")) {
+					value = describeDevices(value);
+				} else if (!name.equals("-seed")) {
+					value = value.toLowerCase();
+				} else {
+					value = Long.toString(Long.parseLong(value));
+				}
+				options.put(name, value);
+			} else if (i < params.length) {
+				params[i++] = Long.parseLong(arg);
+			}
+		}
+		String version = getEngineVersion();
+		if (!options.containsKey("-seed") || version == null) {
+			return null;
+		}
+
+		StringBuilder key = new StringBuilder("engine=").append(version);
+		for (long param : params) {
+			key.append(' ').append(param);
+		}
+		for (Map.Entry<String, String> option : options.entrySet()) {
+			key.append(' ').append(option.getKey()).append('=').append(option.getValue());
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns the contents of a workload file in a canonical form, with each
+	 * histogram file it reads replaced by the digest of its contents.
+	 */
+	private static String describeWorkload(File file) throws IOException {
+		Properties properties = new Properties();
+		Reader reader = new FileReader(file);
+		try {
+			properties.load(reader);
+		} finally {
+			reader.close();
+		}
+		StringBuilder description = new StringBuilder("{");
+		for (String key : new TreeSet<String>(properties.stringPropertyNames())) {
+			String spec = describeDistribution(properties.getProperty(key));
+			description.append(description.length() > 1 ? ";" : "").append(key).append('=').append(spec);
+		}
+		return description.append('}').toString();
+	}
+
+	/**
+	 * Returns a device specification for {@link IoRouter} in a canonical
+	 * form: device names as given, since they name the routing classes, and
+	 * each service time as by {@link #describeDistribution(String)}.
+	 */
+	private static String describeDevices(String spec) throws IOException {
+		StringBuilder description = new StringBuilder();
+		for (String part : spec.split(",")) {
+			part = part.trim();
+			int colon = part.indexOf(':');
+			description.append(description.length() > 0 ? "," : "");
+			if (colon < 0) {
+				description.append(part);
+			} else {
+				description.append(part.substring(0, colon + 1))
+						.append(describeDistribution(part.substring(colon + 1)));
+			}
+		}
+		return description.toString();
+	}
+
+	/**
+	 * Returns a distribution specification in a canonical form: a histogram
+	 * file replaced by the digest of its contents, since the path says
+	 * nothing about them and may be case sensitive, and anything else in
+	 * lower case.
+	 */
+	private static String describeDistribution(String spec) throws IOException {
+		spec = spec.trim();
+		if (spec.toLowerCase().startsWith("empirical:") && spec.indexOf('=') < 0) {
+			return "empirical:" + digest(new File(spec.substring(10).trim()));
+		}
+		return spec.toLowerCase();
+	}
+
+	/**
+	 * Returns the engine version: a digest of the class files of the
+	 * simulator, so that any change to the simulator gives a new version.
+	 * 
+	 * @return The version, or {@code null} if the classes cannot be read.
+	 */
+	public static synchronized String getEngineVersion() {
+		if (engineVersion == null) {
+			try {
+				File location = new File(ResultCache.class.getProtectionDomain().getCodeSource()
+						.getLocation().toURI());
+				if (location.isFile()) {
+					engineVersion = digest(location);
+				} else {
+					MessageDigest digest = newDigest();
+					File[] classes = new File(location, "simulator").listFiles();
+					Arrays.sort(classes);
+					for (File file : classes) {
+						if (file.getName().endsWith(".class")) {
+							digest.update(file.getName().getBytes("UTF-8"));
+							digest.update(readAll(file));
+						}
+					}
+					engineVersion = hex(digest.digest());
+				}
+			} catch (Exception e) {
+				System.err.println("Engine version unknown, results are not cached: " + e);
+				return null;
+			}
+		}
+		return engineVersion;
+	}
+
+	/**
+	 * Returns the cached results of a run.
+	 * 
+	 * @param args The arguments for {@link Simulator#create(String[])}.
+	 * @return The results, indexed as {@link #RESULT_NAMES}, or {@code null}
+	 *         if the run is not in the cache.
+	 * @throws IOException If a workload file cannot be read.
+	 */
+	public synchronized double[] get(String[] args) throws IOException {
+		String key = getKey(args);
+		File file = key == null ? null : new File(directory, getFileName(key));
+		double[] results = file == null || !file.isFile() ? null : read(file, key);
+		if (results == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		// Possibly stored by another JVM since the cache was opened
+		Long old = entries.put(file.getName(), file.length());
+		bytes += file.length() - (old != null ? old : 0);
+		file.setLastModified(System.currentTimeMillis());
+		return results;
+	}
+
+	/**
+	 * Reads a result file, unless it holds another key or other results.
+	 */
+	private double[] read(File file, String key) {
+		HashMap<String, Double> values = new HashMap<String, Double>();
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			try {
+				if (!key.equals(reader.readLine())) {
+					return null;
+				}
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int space = line.indexOf(' ');
+					values.put(line.substring(0, space), Double.valueOf(line.substring(space + 1)));
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (Exception e) {
+			// Unreadable or damaged; the run is simulated again and replaces it
+			return null;
+		}
+		double[] results = new double[RESULT_NAMES.length];
+		for (int i = 0; i < results.length; i++) {
+			Double value = values.get(RESULT_NAMES[i]);
+			if (value == null) {
+				return null;
+			}
+			results[i] = value;
+		}
+		return results;
+	}
+
+	/**
+	 * Stores the results of a run, then deletes the least recently used
+	 * results until the cache is within its size limit.
+	 * 
+	 * @param args The arguments for {@link Simulator#create(String[])}.
+	 * @param results The results, indexed as {@link #RESULT_NAMES}.
+	 * @throws IOException If the results cannot be written.
+	 */
+	public synchronized void put(String[] args, double[] results) throws IOException {
+		String key = getKey(args);
+		if (key == null) {
+			return;
+		}
+		String name = getFileName(key);
+		File temporary = File.createTempFile("result", ".tmp", directory);
+		PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(temporary)));
+		try {
+			writer.println(key);
+			for (int i = 0; i < RESULT_NAMES.length; i++) {
+				writer.println(RESULT_NAMES[i] + " " + results[i]);
+			}
+		} finally {
+			writer.close();
+		}
+		File file = new File(directory, name);
+		file.delete();
+		if (!temporary.renameTo(file)) {
+			temporary.delete();
+			throw new IOException("Cannot write " + file);
+		}
+
+		Long old = entries.remove(name);
+		bytes += file.length() - (old != null ? old : 0);
+		entries.put(name, file.length());
+		Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+		while (bytes > maxBytes && it.hasNext()) {
+			Map.Entry<String, Long> entry = it.next();
+			if (entry.getKey().equals(name)) {
+				break;
+			}
+			new File(directory, entry.getKey()).delete();
+			bytes -= entry.getValue();
+			evictions++;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Returns the results of a run from the cache, or runs it in this JVM and
+	 * stores its results.
+	 * 
+	 * @param args The arguments for {@link Simulator#create(String[])}.
+	 * @return The results, indexed as {@link #RESULT_NAMES}.
+	 * @throws IOException If a workload file cannot be read or the results
+	 *             cannot be written.
+	 */
+	public double[] run(String[] args) throws IOException {
+		double[] results = get(args);
+		if (results == null) {
+			results = simulate(args);
+			put(args, results);
+		}
+		return results;
+	}
+
+	/**
+	 * Runs one simulation in this JVM, without the cache.
+	 * 
+	 * @param args The arguments for {@link Simulator#create(String[])}.
+	 * @return The results, indexed as {@link #RESULT_NAMES}.
+	 */
+	public static synchronized double[] simulate(String[] args) {
+		Simulator.resetGlobalState();
+		Simulator simulator = Simulator.create(args);
+		simulator.setPrintReport(false);
+		simulator.simulate();
+		return collect(simulator);
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Prints the use of the cache since it was opened, and its size.
+	 */
+	public synchronized void printReport() {
+		System.out.println();
+		System.out.println("Result cache " + directory + ":");
+		System.out.println("Hits:                                                         " + hits);
+		System.out.println("Misses:                                                       " + misses);
+		System.out.println("Evicted:                                                      " + evictions);
+		System.out.println("Results stored:                                               " + entries.size()
+				+ " (" + (bytes >> 10) + " of " + (maxBytes >> 10) + " kB)");
+	}
+
+	private static String getFileName(String key) {
+		try {
+			return hex(newDigest().digest(key.getBytes("UTF-8"))) + EXTENSION;
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String digest(File file) throws IOException {
+		return hex(newDigest().digest(readAll(file)));
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	private static byte[] readAll(File file) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[65536];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return out.toByteArray();
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes) {
+			hex.append(String.format("%02x", b & 0xff));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Runs replications of one configuration through a cache, and prints the
+	 * throughput and time in system of each, marking those found in the cache.
+	 * 
+	 * @param args -cache=directory[:max kB], optionally -replications=n and
+	 *            -seed=n (of the first replication), followed by the arguments
+	 *            for {@link Simulator#create(String[])}.
+	 * @throws IOException If the cache cannot be read or written.
+	 */
+	public static void main(String args[]) throws IOException {
+		ResultCache cache = null;
+		int replications = 1;
+		long seed = 1;
+		List<String> simulatorArgs = new ArrayList<String>();
+		for (String arg : args) {
+			if (arg.startsWith("-cache=")) {
+				cache = parse(arg.substring(7));
+			} else if (arg.startsWith("-replications=")) {
+				replications = Integer.parseInt(arg.substring(14));
+			} else if (arg.startsWith("-seed=")) {
+				seed = Long.parseLong(arg.substring(6));
+			} else {
+				simulatorArgs.add(arg);
+			}
+		}
+		if (cache == null) {
+			throw new IllegalArgumentException("Expected -cache=directory[:max kB]");
+		}
+
+		System.out.println(String.format("%8s %12s %14s %14s %6s", "Seed", "Throughput", "Mean (ms)",
+				"P99 (ms)", ""));
+		for (int r = 0; r < replications; r++) {
+			List<String> run = new ArrayList<String>(simulatorArgs);
+			run.add("-seed=" + (seed + r));
+			String[] runArgs = run.toArray(new String[run.size()]);
+			long hitsBefore = cache.getHits();
+			double[] results = cache.run(runArgs);
+			System.out.println(String.format("%8d %12.3f %14.1f %14.0f %6s", seed + r, results[THROUGHPUT],
+					results[MEAN_TIME_IN_SYSTEM], results[P99_TIME_IN_SYSTEM],
+					cache.getHits() > hitsBefore ? "cached" : ""));
+		}
+		cache.printReport();
+	}
+}
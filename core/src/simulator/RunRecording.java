@@ -0,0 +1,443 @@
+package simulator;
+
+import java.util.*;
+
+/**
+ * Records what the GUI would show during a run, so that the run can be
+ * simulated headless at full speed and then viewed at any simulated time,
+ * backwards as well as forwards.
+ * 
+ * The recording is a log of the changes to the display: time passing with
+ * the free memory, the process in the CPU and in the I/O device, and
+ * insertions into and removals from the memory, CPU and I/O queues, each
+ * change stored as varints in chunks of {@link #CHUNK_BYTES} bytes. Every
+ * {@link #KEYFRAME_BYTES} bytes of log or so, a keyframe holds the whole
+ * display state and the position in the log. A seek finds the last keyframe
+ * at or before the time by a binary search and replays the log from there,
+ * so it takes O(log n) plus a bounded replay, however long the run. A seek a
+ * little forward from the last one continues from where that one stopped.
+ * 
+ * A recording is the {@link Gui} of the simulator it records, and is told
+ * about the queues by {@link #attach(Queue, int)}. The simplest way to make
+ * one is {@link #record(long, long, long, long, long)}.
+ */
+public class RunRecording implements Gui {
+	/** Queues, as indexes of {@link Snapshot#getQueue(int)} */
+	public static final int MEMORY_QUEUE = 0;
+	public static final int CPU_QUEUE = 1;
+	public static final int IO_QUEUE = 2;
+	/** The number of queues */
+	private static final int QUEUES = 3;
+
+	/** The size of each chunk of the log */
+	public static final int CHUNK_BYTES = 1 << 20;
+	/** The length of log between keyframes, when the queues are short */
+	public static final int KEYFRAME_BYTES = 16384;
+
+	/** Changes in the log, in the low 3 bits of the first varint */
+	private static final int TIME = 0;
+	private static final int CPU = 1;
+	private static final int IO = 2;
+	private static final int INSERT = 3;
+	private static final int REMOVE = 4;
+
+	/**
+	 * What the GUI shows at one time. The process ids in the queues are in
+	 * queue order, and -1 stands for an idle CPU or I/O device.
+	 */
+	public static class Snapshot {
+		long time;
+		long freeMemory;
+		long cpuProcess = -1;
+		long ioProcess = -1;
+		long[][] queues = new long[QUEUES][];
+
+		public long getTime() {
+			return time;
+		}
+
+		public long getFreeMemory() {
+			return freeMemory;
+		}
+
+		public long getCpuProcess() {
+			return cpuProcess;
+		}
+
+		public long getIoProcess() {
+			return ioProcess;
+		}
+
+		/**
+		 * Returns the ids of the processes in a queue.
+		 * 
+		 * @param queue The queue, e.g. {@link #CPU_QUEUE}.
+		 * @return The process ids, the first to leave first.
+		 */
+		public long[] getQueue(int queue) {
+			return queues[queue];
+		}
+	}
+
+	/** The display state while recording or replaying */
+	private static class State {
+		long time;
+		long freeMemory;
+		long cpuProcess = -1;
+		long ioProcess = -1;
+		long[][] queues = new long[QUEUES][16];
+		/** The first element and the length of each queue */
+		int[] heads = new int[QUEUES];
+		int[] lengths = new int[QUEUES];
+
+		void insert(int queue, long id) {
+			long[] q = queues[queue];
+			if (heads[queue] + lengths[queue] == q.length) {
+				if (lengths[queue] * 2 > q.length) {
+					q = Arrays.copyOf(q, q.length * 2);
+				}
+				System.arraycopy(q, heads[queue], q, 0, lengths[queue]);
+				heads[queue] = 0;
+				queues[queue] = q;
+			}
+			q[heads[queue] + lengths[queue]++] = id;
+		}
+
+		void remove(int queue, int position) {
+			long[] q = queues[queue];
+			int head = heads[queue];
+			if (position == 0) {
+				heads[queue]++;
+			} else {
+				System.arraycopy(q, head + position + 1, q, head + position, lengths[queue] - position - 1);
+			}
+			lengths[queue]--;
+		}
+
+		int getQueued() {
+			return lengths[0] + lengths[1] + lengths[2];
+		}
+
+		void copyFrom(State other) {
+			time = other.time;
+			freeMemory = other.freeMemory;
+			cpuProcess = other.cpuProcess;
+			ioProcess = other.ioProcess;
+			for (int i = 0; i < QUEUES; i++) {
+				queues[i] = Arrays.copyOfRange(other.queues[i], other.heads[i],
+						other.heads[i] + Math.max(16, other.lengths[i]));
+				heads[i] = 0;
+				lengths[i] = other.lengths[i];
+			}
+		}
+
+		Snapshot toSnapshot() {
+			Snapshot snapshot = new Snapshot();
+			snapshot.time = time;
+			snapshot.freeMemory = freeMemory;
+			snapshot.cpuProcess = cpuProcess;
+			snapshot.ioProcess = ioProcess;
+			for (int i = 0; i < QUEUES; i++) {
+				snapshot.queues[i] = Arrays.copyOfRange(queues[i], heads[i], heads[i] + lengths[i]);
+			}
+			return snapshot;
+		}
+	}
+
+	/** The state of the display at a position in the log */
+	private static class Keyframe {
+		long position;
+		State state;
+	}
+
+	private List<byte[]> chunks = new ArrayList<byte[]>();
+	/** The length of the log */
+	private long length = 0;
+	/** The state at the end of the log, while recording */
+	private State recorded = new State();
+	private List<Keyframe> keyframes = new ArrayList<Keyframe>();
+	private long events = 0;
+
+	/** The state of the last seek, and the position in the log it reached */
+	private State replayed;
+	private long replayedPosition = -1;
+
+	/**
+	 * Creates an empty recording, with a keyframe of the empty display at
+	 * time 0.
+	 */
+	public RunRecording() {
+		addKeyframe();
+	}
+
+	/**
+	 * Records the changes to a queue.
+	 * 
+	 * @param queue The queue.
+	 * @param index Which queue it is, e.g. {@link #CPU_QUEUE}.
+	 */
+	public void attach(Queue queue, int index) {
+		queue.setRecording(this, index);
+	}
+
+	/**
+	 * Simulates a run headless, recording it.
+	 * 
+	 * @param memorySize The size of the memory unit.
+	 * @param maxCpuTime The maximum time quant used by the Round Robin
+	 *            algorithm.
+	 * @param avgIoTime The average duration of I/O operations.
+	 * @param simulationLength The length of time to simulate.
+	 * @param avgArrivalInterval The average time between new process
+	 *            arrivals.
+	 * @return The recording.
+	 */
+	public static RunRecording record(long memorySize, long maxCpuTime, long avgIoTime,
+			long simulationLength, long avgArrivalInterval) {
+		RunRecording recording = new RunRecording();
+		Queue memoryQueue = new Queue("memory queue");
+		Queue cpuQueue = new Queue("CPU queue");
+		Queue ioQueue = new Queue("I/O queue");
+		recording.attach(memoryQueue, MEMORY_QUEUE);
+		recording.attach(cpuQueue, CPU_QUEUE);
+		recording.attach(ioQueue, IO_QUEUE);
+
+		Simulator.resetGlobalState();
+		Simulator simulator = new Simulator(memoryQueue, cpuQueue, ioQueue, memorySize,
+				maxCpuTime, avgIoTime, simulationLength, avgArrivalInterval, recording);
+		simulator.setPrintReport(false);
+		simulator.simulate();
+		recording.events = simulator.getEventsProcessed();
+		return recording;
+	}
+
+	public void setCpuActive(Process p) {
+		recorded.cpuProcess = p != null ? p.getProcessId() : -1;
+		write(CPU);
+		write(recorded.cpuProcess + 1);
+	}
+
+	public void setIoActive(Process p) {
+		recorded.ioProcess = p != null ? p.getProcessId() : -1;
+		write(IO);
+		write(recorded.ioProcess + 1);
+	}
+
+	public void timePassed(long time, long freeMemory) {
+		if (time == 0 && freeMemory == recorded.freeMemory) {
+			return;
+		}
+		// Keyframes are only taken before time passes, so that the state of
+		// a keyframe is the whole state at its time
+		if (length - keyframes.get(keyframes.size() - 1).position
+				>= Math.max(KEYFRAME_BYTES, 8L * recorded.getQueued())) {
+			addKeyframe();
+		}
+		long delta = freeMemory - recorded.freeMemory;
+		recorded.time += time;
+		recorded.freeMemory = freeMemory;
+		write(TIME);
+		write(time);
+		write((delta << 1) ^ (delta >> 63));
+	}
+
+	/**
+	 * Records an element inserted at the tail of a queue.
+	 * 
+	 * @param queue The queue, e.g. {@link #CPU_QUEUE}.
+	 * @param o The element, normally a process.
+	 */
+	void inserted(int queue, Object o) {
+		long id = o instanceof Process ? ((Process) o).getProcessId() : -1;
+		recorded.insert(queue, id);
+		write(INSERT | queue << 3);
+		write(id + 1);
+	}
+
+	/**
+	 * Records an element removed from a queue.
+	 * 
+	 * @param queue The queue, e.g. {@link #CPU_QUEUE}.
+	 * @param position The position of the element, 0 being the head.
+	 */
+	void removed(int queue, int position) {
+		recorded.remove(queue, position);
+		write(REMOVE | queue << 3);
+		write(position);
+	}
+
+	private void addKeyframe() {
+		Keyframe keyframe = new Keyframe();
+		keyframe.position = length;
+		keyframe.state = new State();
+		keyframe.state.copyFrom(recorded);
+		keyframes.add(keyframe);
+	}
+
+	private void write(long value) {
+		while (true) {
+			int offset = (int) (length & (CHUNK_BYTES - 1));
+			if (offset == 0 && length >> 20 == chunks.size()) {
+				chunks.add(new byte[CHUNK_BYTES]);
+			}
+			byte[] chunk = chunks.get((int) (length >> 20));
+			length++;
+			if ((value & ~0x7FL) == 0) {
+				chunk[offset] = (byte) value;
+				return;
+			}
+			chunk[offset] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+	}
+
+	/**
+	 * Returns the simulated time at the end of the recording.
+	 * 
+	 * @return The time (ms).
+	 */
+	public long getEndTime() {
+		return recorded.time;
+	}
+
+	/**
+	 * Returns the number of events simulated, if recorded by
+	 * {@link #record(long, long, long, long, long)}.
+	 * 
+	 * @return The number of events.
+	 */
+	public long getEventsProcessed() {
+		return events;
+	}
+
+	public int getKeyframeCount() {
+		return keyframes.size();
+	}
+
+	/**
+	 * Returns the length of the log.
+	 * 
+	 * @return The number of bytes.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns what the GUI showed at a time: after everything that happened
+	 * at that time, before time passed on.
+	 * 
+	 * @param time The simulated time.
+	 * @return The display at that time.
+	 */
+	public synchronized Snapshot seek(long time) {
+		int low = 0, high = keyframes.size() - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (keyframes.get(mid).state.time <= time) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		Keyframe keyframe = keyframes.get(low);
+		if (replayed == null || replayed.time > time || replayedPosition < keyframe.position) {
+			replayed = new State();
+			replayed.copyFrom(keyframe.state);
+			replayedPosition = keyframe.position;
+		}
+
+		long[] cursor = { replayedPosition };
+		while (cursor[0] < length) {
+			long start = cursor[0];
+			int header = (int) read(cursor);
+			int change = header & 7;
+			if (change == TIME) {
+				long passed = read(cursor);
+				if (replayed.time + passed > time) {
+					cursor[0] = start;
+					break;
+				}
+				long delta = read(cursor);
+				replayed.time += passed;
+				replayed.freeMemory += (delta >>> 1) ^ -(delta & 1);
+			} else if (change == CPU) {
+				replayed.cpuProcess = read(cursor) - 1;
+			} else if (change == IO) {
+				replayed.ioProcess = read(cursor) - 1;
+			} else if (change == INSERT) {
+				replayed.insert(header >> 3, read(cursor) - 1);
+			} else {
+				replayed.remove(header >> 3, (int) read(cursor));
+			}
+		}
+		replayedPosition = cursor[0];
+		Snapshot snapshot = replayed.toSnapshot();
+		snapshot.time = time;
+		return snapshot;
+	}
+
+	/**
+	 * Reads a varint of the log.
+	 * 
+	 * @param cursor The position in the log, advanced past the varint.
+	 * @return The value.
+	 */
+	private long read(long[] cursor) {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			long position = cursor[0]++;
+			byte b = chunks.get((int) (position >> 20))[(int) (position & (CHUNK_BYTES - 1))];
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * Records a run and times seeks to random times in it.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by -seed=n and
+	 *            -seeks=n (1000 by default).
+	 */
+	public static void main(String args[]) {
+		long[] params = { Constants.TESTING_MEMORY_SIZSE, Constants.TESTING_CPU_TIME,
+				Constants.TESTING_IO_TIME, Constants.TESTING_SIMULATION_LENGTH * 40,
+				Constants.TESTING_AVG_ARRIVAL_INTERVAL };
+		long seed = 1;
+		int seeks = 1000;
+		int i = 0;
+		for (String arg : args) {
+			if (arg.startsWith("-seed=")) {
+				seed = Long.parseLong(arg.substring(6));
+			} else if (arg.startsWith("-seeks=")) {
+				seeks = Integer.parseInt(arg.substring(7));
+			} else if (i < params.length) {
+				params[i++] = Long.parseLong(arg);
+			}
+		}
+
+		Debug.setVerbose(false);
+		RandomStreams.setSeed(seed);
+		long start = System.nanoTime();
+		RunRecording recording = record(params[0], params[1], params[2], params[3], params[4]);
+		double recordMillis = (System.nanoTime() - start) / 1e6;
+		System.out.println("Recorded " + recording.getEventsProcessed() + " events up to "
+				+ recording.getEndTime() + " ms in " + Math.round(recordMillis) + " ms: "
+				+ (recording.getLength() >> 10) + " kB of log, " + recording.getKeyframeCount() + " keyframes");
+
+		Random random = new Random(seed);
+		long queued = 0;
+		start = System.nanoTime();
+		for (int s = 0; s < seeks; s++) {
+			Snapshot snapshot = recording.seek((long) (random.nextDouble() * recording.getEndTime()));
+			queued += snapshot.getQueue(MEMORY_QUEUE).length + snapshot.getQueue(CPU_QUEUE).length
+					+ snapshot.getQueue(IO_QUEUE).length;
+		}
+		double seekMicros = (System.nanoTime() - start) / 1e3 / seeks;
+		System.out.println(String.format("%d random seeks: %.1f us per seek, %.1f processes queued on average",
+				seeks, seekMicros, (double) queued / seeks));
+	}
+}
@@ -0,0 +1,1428 @@
+package simulator;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The main class of the P3 exercise. This class is only partially complete.
+ */
+public class Simulator implements Constants {
+	/** The queue of events to come */
+	private EventQueue eventQueue;
+
+	/** Reference to the memory unit */
+	private Memory memory;
+
+	/** The memory unit if it is paged, null otherwise */
+	private VirtualMemory virtualMemory;
+
+	/** The cost of switching processes, null if switches are free */
+	private CpuCostModel cpuCostModel;
+
+	/** The power drawn by the CPU and its frequency, null for a CPU always at full speed */
+	private CpuPowerModel cpuPowerModel;
+
+	/** Adjusts the quantum during the run, null for a fixed quantum */
+	private QuantumController quantumController;
+
+	/** The distributions of the workload, null for the original uniform draws */
+	private Workload workload;
+
+	/** Keeps the records of finished processes, null if they are not kept */
+	private ProcessRecordStore recordStore;
+
+	/** Records which process used each device when, null if not recorded */
+	private GanttTimeline timeline;
+
+	/** The cluster this simulator is a node of, null if it runs alone */
+	private Cluster cluster;
+	/** The index of this node in the cluster */
+	private int node;
+
+	/** Splits processes into threads, null for single-threaded processes */
+	private ProcessThreads processThreads;
+
+	/** Schedules real-time tasks ahead of the processes, null if there are none */
+	private RealTimeScheduler realTimeScheduler;
+
+	/** The event that ends the current CPU slice, removed if it is preempted */
+	private Event cpuEvent;
+
+	/** Locks the processes contend for, null if there are none */
+	private LockModel lockModel;
+
+	/** The event that ends the critical section of the active process, if in its slice */
+	private Event lockEvent;
+
+	/** Swaps blocked processes out when memory is short, null if disabled */
+	private Swapper swapper;
+
+	/** Reference to the CPU unit */
+	private CPU cpu;
+
+	/** Reference to the IO unit */
+	private IO io;
+
+	/** All I/O devices, indexed by device index; only io unless routed */
+	private IO[] ioDevices;
+
+	/** Routes I/O requests between the devices, null if there is only io */
+	private IoRouter ioRouter;
+
+	/** Reference to the GUI interface */
+	private Gui gui;
+
+	/** Max CPU time */
+	private long maxCpuTime;
+
+	/** The length of the simulation */
+	private long simulationLength;
+
+	/** The average length between process arrivals */
+	private long avgProcessArrival;
+	private long avgIoTime;
+
+	/** Whether or not the report is printed when the simulation ends */
+	private boolean printReport = true;
+
+	/** The number of events processed by the main loop */
+	private long eventsProcessed = 0;
+
+	/**
+	 * The time up to which the units have registered the time passed. The
+	 * same as the clock, unless several simulators share the clock in a
+	 * cluster.
+	 */
+	private long time = 0;
+
+	/** Class name used for debug messages */
+	private final static String CLASS_NAME = "Simulator";
+
+	/**
+	 * Constructs a scheduling simulator with the given parameters.
+	 * 
+	 * @param memoryQueue The memory queue to be used.
+	 * @param cpuQueue The CPU queue to be used.
+	 * @param ioQueue The I/O queue to be used.
+	 * @param memorySize The size of the this.memory.
+	 * @param maxCpuTime The maximum time quant used by the RR algorithm.
+	 * @param avgIoTime The average length of an I/O operation.
+	 * @param simulationLength The length of the simulation.
+	 * @param avgArrivalInterval The average time between process arrivals.
+	 * @param gui Reference to the GUI interface.
+	 */
+	public Simulator(Queue memoryQueue, Queue cpuQueue, Queue ioQueue,
+			long memorySize, long maxCpuTime, long avgIoTime,
+			long simulationLength, long avgArrivalInterval, Gui gui) {
+
+		this.simulationLength = simulationLength;
+		this.avgProcessArrival = avgArrivalInterval;
+		this.avgIoTime = avgIoTime;
+		this.maxCpuTime = maxCpuTime;
+		this.gui = gui;
+		
+		this.eventQueue = new EventQueue();
+		this.memory = new Memory(memoryQueue, memorySize);
+		this.cpu = new CPU(cpuQueue, this.gui);
+		this.io = new IO("io", 0, avgIoTime, IO.UNIFORM, ioQueue, this.gui);
+		this.ioDevices = new IO[] { this.io };
+	}
+
+	/**
+	 * Starts the simulation. Contains the main loop, processing events. This
+	 * method is called when the "Start simulation" button in the GUI is
+	 * clicked.
+	 */
+	public void simulate() {
+		Debug.print(CLASS_NAME, "simulate", "Starting simulation...");
+
+		this.start();
+		LiveStatistics.simulationStarted();
+
+		// Generate the first process arrival event
+		this.newEvent(NEW_PROCESS, 0);
+
+		while (SystemClock.getTime() < simulationLength && !eventQueue.isEmpty()) {
+			this.step();
+		}
+		LiveStatistics.publish();
+		if (this.printReport) {
+			System.out.println("..done.");
+			Statistics.printReport(simulationLength);
+			if (this.ioRouter != null) {
+				this.ioRouter.printReport();
+			}
+			if (this.virtualMemory != null) {
+				this.virtualMemory.printReport();
+			}
+			if (this.swapper != null) {
+				this.swapper.printReport();
+			}
+			if (this.quantumController != null) {
+				this.quantumController.printReport();
+			}
+			if (this.cpuPowerModel != null) {
+				this.cpuPowerModel.printReport();
+			}
+			if (this.memory.getWaitQueue() != null) {
+				this.memory.getWaitQueue().printReport();
+			}
+			if (this.processThreads != null) {
+				this.processThreads.printReport();
+			}
+			if (this.realTimeScheduler != null) {
+				this.realTimeScheduler.printReport();
+			}
+			if (this.lockModel != null) {
+				this.lockModel.printReport();
+			}
+		}
+	}
+
+	/**
+	 * Prepares the units for the run, once before the first event.
+	 */
+	void start() {
+		if (this.quantumController != null) {
+			this.quantumController.start(this.maxCpuTime);
+		} else {
+			Statistics.cpuQuantum(this.maxCpuTime);
+		}
+		if (this.timeline != null) {
+			this.cpu.setTimeline(this.timeline, this.timeline.addTrack("cpu"));
+			for (IO device : this.ioDevices) {
+				device.setTimeline(this.timeline, this.timeline.addTrack(this.ioDevices.length > 1
+						? device.getName() + device.getIndex() : device.getName()));
+			}
+		}
+		if (this.realTimeScheduler != null) {
+			for (int task = 0; task < this.realTimeScheduler.getTaskCount(); task++) {
+				this.newEvent(REAL_TIME_RELEASE, this.realTimeScheduler.getFirstRelease(task), task);
+			}
+		}
+	}
+
+	/**
+	 * Handles the events due at the time of the next event: advances the
+	 * time once, then handles the events in order, including those the
+	 * handlers add for the same time.
+	 */
+	void step() {
+		// Get next event in queue, the first of those due at its time
+		Event event = eventQueue.getNextEvent();
+		this.advance(event.getTime());
+
+		// Deal with the events due now, including those the handlers add
+		// for the same time
+		int batchSize = 0;
+		while (true) {
+			if (event.getTime() < simulationLength) {
+				processEvent(event);
+			}
+			this.eventsProcessed++;
+			batchSize++;
+			LiveStatistics.eventProcessed();
+			Debug.trace("---------------------------------------------");
+			if (eventQueue.isEmpty() || eventQueue.getNextEventTime() != this.time) {
+				break;
+			}
+			event = eventQueue.getNextEvent();
+		}
+		Statistics.eventBatch(batchSize);
+	}
+
+	/**
+	 * Sets the clock and lets the units register the time passed since the
+	 * last call.
+	 * 
+	 * @param time The new time.
+	 */
+	private void advance(long time) {
+		long timePassed = time - this.time;
+		this.time = time;
+		SystemClock.setTime(time);
+		
+		Debug.trace("System time: "+SystemClock.getTime());
+		
+		// Time passed for units, once for all events at this time
+		this.memory.timePassed(timePassed);
+		if (this.swapper != null) {
+			this.swapper.timePassed(timePassed);
+		}
+		this.ioTimePassed(timePassed);
+		this.cpu.timePassed(timePassed);
+		if (this.cpuPowerModel != null) {
+			this.cpuPowerModel.timePassed(timePassed, !this.cpu.isIdle());
+		}
+		this.gui.timePassed(timePassed, this.memory.getFreeMemorySize());
+	}
+
+	/**
+	 * Returns the time of the next event of this simulator.
+	 * 
+	 * @return The time, {@link Long#MAX_VALUE} if there are no events.
+	 */
+	long getNextEventTime() {
+		return eventQueue.isEmpty() ? Long.MAX_VALUE : eventQueue.getNextEventTime();
+	}
+
+	/**
+	 * Lets each I/O device register the time passed, and registers the
+	 * totals over all devices. The I/O system counts as idle when every
+	 * device is idle.
+	 * 
+	 * @param timePassed The time since the last event.
+	 */
+	private void ioTimePassed(long timePassed) {
+		boolean idle = true;
+		for (IO device : this.ioDevices) {
+			device.timePassed(timePassed);
+			idle &= device.isIdle();
+		}
+		if (idle) {
+			Statistics.ioIdleTime(timePassed);
+		}
+		long length = getIoQueueLength();
+		Statistics.ioQueueLengthTime(length, timePassed);
+		Statistics.ioQueueLength(length);
+	}
+
+	/**
+	 * Returns the number of processes waiting for I/O, over all devices.
+	 * 
+	 * @return The total I/O queue length.
+	 */
+	private int getIoQueueLength() {
+		if (this.ioDevices.length == 1) {
+			return this.io.getQueueLength();
+		}
+		int length = 0;
+		for (IO device : this.ioDevices) {
+			length += device.getQueueLength();
+		}
+		return length;
+	}
+
+	/**
+	 * Models the I/O device as a disk. I/O times then follow from the seek
+	 * model and the request scheduling policy of the disk, instead of being
+	 * drawn around the average I/O time.
+	 * 
+	 * @param disk The disk model.
+	 */
+	public void setDisk(Disk disk) {
+		this.io.setDisk(disk);
+	}
+
+	/**
+	 * Replaces the single I/O device with the devices of a router. Each I/O
+	 * request is then queued at the device chosen by the router, and every
+	 * device reports its own statistics. The GUI shows the first device.
+	 * 
+	 * @param ioRouter The router and its devices.
+	 */
+	public void setIoRouter(IoRouter ioRouter) {
+		this.ioRouter = ioRouter;
+		this.ioDevices = ioRouter.getDevices();
+		this.io = this.ioDevices[0];
+	}
+
+	/**
+	 * Replaces the memory with demand-paged virtual memory. Processes are
+	 * sized as before, but are admitted without all of their memory, and
+	 * fault in their pages while they run.
+	 * 
+	 * @param policy The page replacement policy, e.g. VirtualMemory.LRU.
+	 * @param physicalMemory The amount of physical memory.
+	 * @return The virtual memory, for further configuration.
+	 */
+	public VirtualMemory enableVirtualMemory(int policy, long physicalMemory) {
+		this.virtualMemory = new VirtualMemory(this.memory.getQueue(),
+				this.memory.getMemorySize(), physicalMemory, policy);
+		this.memory = this.virtualMemory;
+		return this.virtualMemory;
+	}
+
+	/**
+	 * Lets a wait queue choose which process waiting for memory is admitted
+	 * next, instead of the first in the memory queue. Memory freed by a
+	 * process leaving goes to the waiting processes right away.
+	 * 
+	 * @param waitQueue The wait queue, or {@code null} for FIFO admission.
+	 * @throws IllegalStateException With virtual memory, which admits
+	 *             processes without memory up front.
+	 */
+	public void setMemoryWaitQueue(MemoryWaitQueue waitQueue) {
+		if (this.virtualMemory != null) {
+			throw new IllegalStateException("No memory wait queue with virtual memory");
+		}
+		this.memory.setWaitQueue(waitQueue);
+	}
+
+	/**
+	 * Runs every process as several threads, scheduled on the CPU and the I/O
+	 * devices each on their own, so that a process can overlap computing
+	 * with I/O.
+	 * 
+	 * @param processThreads The thread model, or {@code null} for
+	 *            single-threaded processes.
+	 * @throws IllegalStateException With virtual memory or swapping, which
+	 *             page and swap processes as a whole.
+	 */
+	public void setProcessThreads(ProcessThreads processThreads) {
+		if (processThreads != null && (this.virtualMemory != null || this.swapper != null)) {
+			throw new IllegalStateException("No process threads with virtual memory or swapping");
+		}
+		this.processThreads = processThreads;
+	}
+
+	/**
+	 * Runs real-time tasks next to the processes. A job of a task that is
+	 * ready takes the CPU from a process, or from a job of lower priority.
+	 * 
+	 * @param realTimeScheduler The scheduler with its tasks, or {@code null}
+	 *            for processes only.
+	 * @throws IllegalStateException With virtual memory, as a slice cut
+	 *             short would leave the page references of the whole slice
+	 *             made.
+	 */
+	public void setRealTimeScheduler(RealTimeScheduler realTimeScheduler) {
+		if (realTimeScheduler != null && this.virtualMemory != null) {
+			throw new IllegalStateException("No real-time tasks with virtual memory");
+		}
+		this.realTimeScheduler = realTimeScheduler;
+	}
+
+	/**
+	 * Makes the processes enter critical sections, guarded by locks they
+	 * wait for when another process holds them.
+	 * 
+	 * @param lockModel The locks, or {@code null} for processes that do not
+	 *            contend for locks.
+	 */
+	public void setLockModel(LockModel lockModel) {
+		this.lockModel = lockModel;
+	}
+
+	/**
+	 * Makes process switches cost CPU time. By default the CPU is handed
+	 * over instantly.
+	 * 
+	 * @param cpuCostModel The cost model, or {@code null} for free switches.
+	 */
+	public void setCpuCostModel(CpuCostModel cpuCostModel) {
+		this.cpuCostModel = cpuCostModel;
+	}
+
+	/**
+	 * Models the power drawn by the CPU, which runs slower at lower
+	 * frequencies and takes time to wake up when idle.
+	 * 
+	 * @param cpuPowerModel The power model, or {@code null} for a CPU always
+	 *            at full speed.
+	 */
+	public void setCpuPowerModel(CpuPowerModel cpuPowerModel) {
+		this.cpuPowerModel = cpuPowerModel;
+	}
+
+	/**
+	 * Lets a controller adjust the quantum during the run, starting from the
+	 * max CPU time given to the constructor.
+	 * 
+	 * @param quantumController The controller, or {@code null} for a fixed
+	 *            quantum.
+	 */
+	public void setQuantumController(QuantumController quantumController) {
+		this.quantumController = quantumController;
+	}
+
+	/**
+	 * Keeps the record of every finished process, to be queried after the run.
+	 * 
+	 * @param recordStore The store, or {@code null} to keep nothing.
+	 */
+	public void setRecordStore(ProcessRecordStore recordStore) {
+		this.recordStore = recordStore;
+	}
+
+	/**
+	 * Records the intervals each process spends on the CPU and the I/O
+	 * devices. The tracks are added when the simulation starts, the CPU
+	 * first; the caller closes the timeline after the run.
+	 * 
+	 * @param timeline The timeline, or {@code null} to record nothing.
+	 */
+	public void setTimeline(GanttTimeline timeline) {
+		this.timeline = timeline;
+	}
+
+	/**
+	 * Makes this simulator a node of a cluster, which creates the processes
+	 * and hands them to the nodes. The node then only handles the events of
+	 * its own processes.
+	 * 
+	 * @param cluster The cluster.
+	 * @param node The index of this node in the cluster.
+	 */
+	void setCluster(Cluster cluster, int node) {
+		this.cluster = cluster;
+		this.node = node;
+	}
+
+	public long getSimulationLength() {
+		return this.simulationLength;
+	}
+
+	/** Returns the virtual memory, null if the memory is not paged */
+	VirtualMemory getVirtualMemory() {
+		return this.virtualMemory;
+	}
+
+	/** Returns the memory wait queue, null for the FIFO memory queue */
+	MemoryWaitQueue getMemoryWaitQueue() {
+		return this.memory.getWaitQueue();
+	}
+
+	/** Returns the power model, null if power is not modelled */
+	CpuPowerModel getCpuPowerModel() {
+		return this.cpuPowerModel;
+	}
+
+	/** Returns the quantum controller, null for a fixed quantum */
+	QuantumController getQuantumController() {
+		return this.quantumController;
+	}
+
+	/** Returns the threads model, null for single threaded processes */
+	ProcessThreads getProcessThreads() {
+		return this.processThreads;
+	}
+
+	/** Returns the real-time scheduler, null without real-time tasks */
+	RealTimeScheduler getRealTimeScheduler() {
+		return this.realTimeScheduler;
+	}
+
+	/** Returns the lock model, null without locks */
+	LockModel getLockModel() {
+		return this.lockModel;
+	}
+
+	/**
+	 * Returns the amount of memory of this simulator.
+	 * 
+	 * @return The memory size.
+	 */
+	public long getMemorySize() {
+		return this.memory.getMemorySize();
+	}
+
+	/**
+	 * Returns the utilization of the CPU of this simulator, which unlike
+	 * {@link Statistics#getCpuUtilization()} only counts this simulator in a
+	 * cluster.
+	 * 
+	 * @return The percentage of time the CPU was busy.
+	 */
+	public float getCpuUtilization() {
+		return this.cpu.getUtilization();
+	}
+
+	/**
+	 * Draws arrivals, process demands and I/O times from the distributions of
+	 * a workload. The I/O time distribution applies to the default I/O
+	 * device; devices given to {@link #setIoRouter(IoRouter)} keep their own.
+	 * 
+	 * @param workload The workload, or {@code null} for the original uniform
+	 *            draws around the averages.
+	 */
+	public void setWorkload(Workload workload) {
+		this.workload = workload;
+		if (this.ioRouter == null) {
+			this.io.setServiceDistribution(workload != null ? workload.get(Workload.IO) : null);
+		}
+	}
+
+	/**
+	 * Enables the medium-term scheduler, which swaps out processes blocked
+	 * in an I/O queue when the memory queue is stalled.
+	 * 
+	 * @param policy The victim selection policy, e.g. Swapper.LARGEST.
+	 * @return The swapper, for further configuration.
+	 */
+	public Swapper enableSwapping(SwapVictimPolicy policy) {
+		if (this.virtualMemory != null) {
+			throw new IllegalStateException("Swapping whole processes needs the unpaged memory");
+		}
+		this.swapper = new Swapper(this.memory, policy);
+		return this.swapper;
+	}
+
+	/**
+	 * Resets the statistics, the clock and the process IDs, so that another
+	 * simulation can be run in the same JVM.
+	 */
+	public static void resetGlobalState() {
+		Statistics.reset();
+		SystemClock.setTime(0);
+		Process.resetProcessIds();
+	}
+
+	/**
+	 * Controls whether the report is printed when the simulation ends. Turned
+	 * off by tools that run many simulations and collect the results
+	 * themselves.
+	 * 
+	 * @param printReport {@code true} to print the report.
+	 */
+	public void setPrintReport(boolean printReport) {
+		this.printReport = printReport;
+	}
+
+	/**
+	 * Returns the number of events processed by the main loop.
+	 * 
+	 * @return The number of events processed so far.
+	 */
+	public long getEventsProcessed() {
+		return this.eventsProcessed;
+	}
+
+	/**
+	 * Processes an event by inspecting its type and delegating the work to the
+	 * appropriate method.
+	 * 
+	 * @param event The event to be processed.
+	 */
+	private void processEvent(Event event) {
+		JfrEvents.SimulatorEvent jfrEvent = JfrEvents.isRecording()
+				? JfrEvents.forEventType(event.getType()) : null;
+		if (jfrEvent != null && jfrEvent.isEnabled()) {
+			Process p = event.getType() == NEW_PROCESS ? null
+					: event.getType() == END_IO ? ioDevices[event.getDevice()].getActiveProcess()
+					: cpu.getActiveProcess();
+			jfrEvent.setState(SystemClock.getTime(),
+					p != null ? p.getProcessId() : Process.getNextProcessId(),
+					memory.getQueueLength(), cpu.getQueueLength(), getIoQueueLength());
+			jfrEvent.begin();
+		}
+
+		switch (event.getType()) {
+		case NEW_PROCESS:
+			newProcess();
+			break;
+		case SWITCH_PROCESS:
+			switchProcess();
+			break;
+		case END_PROCESS:
+			endProcess();
+			break;
+		case IO_REQUEST:
+			processIoRequest();
+			break;
+		case END_IO:
+			endIoOperation(ioDevices[event.getDevice()]);
+			break;
+		case PAGE_FAULT:
+			pageFault();
+			break;
+		case END_PAGE_IN:
+			endPageIn();
+			break;
+		case SWAP_DONE:
+			swapDone();
+			break;
+		case REAL_TIME_RELEASE:
+			releaseJob(event.getDevice());
+			break;
+		case LOCK_RELEASE:
+			releaseLock();
+			break;
+		}
+
+		if (jfrEvent != null) {
+			jfrEvent.commit();
+		}
+	}
+
+	/**
+	 * Load next process in CPU and create next event for it.
+	 */
+	private void cpuLoadNextProcess() {
+		Debug.trace("cpuLoadNextProcess()");
+		JfrEvents.CpuDispatch jfrEvent = JfrEvents.isRecording()
+				? new JfrEvents.CpuDispatch() : null;
+		if (jfrEvent != null) {
+			jfrEvent.begin();
+		}
+		if (this.realTimeScheduler != null && this.realTimeScheduler.hasReadyJob()) {
+			this.cpuLoadJob();
+			if (jfrEvent != null && jfrEvent.shouldCommit()) {
+				Process job = cpu.getActiveProcess();
+				jfrEvent.setState(SystemClock.getTime(), job.getProcessId(), memory.getQueueLength(),
+						cpu.getQueueLength(), getIoQueueLength());
+				jfrEvent.decision = "REAL_TIME_JOB";
+				jfrEvent.remainingCpuTime = job.getRemainingCPUTime();
+				jfrEvent.timeToNextIo = job.getTimeToNextIoOperation();
+				jfrEvent.quantum = job.getRemainingCPUTime();
+				jfrEvent.commit();
+			}
+			return;
+		}
+		Process p = this.lockModel != null ? this.cpuStartWaitedForHolder() : null;
+		if (p == null) {
+			p = cpu.startNextProcess();
+		}
+		if (p != null) {
+			p.updateProcess(CPU_ACTIVE);
+			if (this.lockModel != null && !this.lockModel.enter(p)) {
+				// The process waits for a lock, the CPU goes to the next one
+				cpu.stopCurrentProcess();
+				p.updateProcess(LOCK_WAIT);
+				if (jfrEvent != null && jfrEvent.shouldCommit()) {
+					jfrEvent.setState(SystemClock.getTime(), p.getProcessId(), memory.getQueueLength(),
+							cpu.getQueueLength(), getIoQueueLength());
+					jfrEvent.decision = "LOCK_WAIT";
+					jfrEvent.remainingCpuTime = p.getRemainingCPUTime();
+					jfrEvent.timeToNextIo = p.getTimeToNextIoOperation();
+					jfrEvent.commit();
+				}
+				this.cpuLoadNextProcess();
+				return;
+			}
+			
+			long processRemainingTime = p.getRemainingCPUTime();
+			long maxCpuTime = this.quantumController != null
+					? this.quantumController.getQuantum() : this.maxCpuTime;
+			long wakeLatency = 0;
+			if (this.cpuPowerModel != null) {
+				// The quantum is wall time, less work fits at a lower frequency
+				wakeLatency = this.cpuPowerModel.dispatch();
+				maxCpuTime = this.cpuPowerModel.getWork(maxCpuTime);
+			}
+			long processNextIO = p.getTimeToNextIoOperation();
+			long pid = p.getProcessId();
+			
+			Debug.trace("["+pid+"] Got process from CPU queue...");
+			Debug.trace("["+pid+"] processRemainingTime:               "+processRemainingTime);
+			Debug.trace("["+pid+"] maxCpuTime:                         "+maxCpuTime);
+			Debug.trace("["+pid+"] processNextIO:                      "+processNextIO);
+
+			int decision;
+			long time;
+			if (processRemainingTime <= maxCpuTime && processRemainingTime <= processNextIO) {
+				// Process is finished
+				decision = END_PROCESS;
+				time = processRemainingTime;
+			} else if (maxCpuTime < processNextIO) {
+				// Process max time in CPU exceeded
+				decision = SWITCH_PROCESS;
+				time = maxCpuTime;
+			} else {
+				// Process needs to perform IO operation
+				decision = IO_REQUEST;
+				time = processNextIO;
+			}
+			if (this.virtualMemory != null) {
+				// A page fault may cut the slice short
+				long fault = this.virtualMemory.run(p, time);
+				if (fault >= 0) {
+					decision = PAGE_FAULT;
+					time = fault;
+				}
+			}
+			long slowdown = 0;
+			if (this.cpuPowerModel != null) {
+				slowdown = wakeLatency + this.cpuPowerModel.getStretch(time);
+				p.setSlowdown(slowdown);
+			}
+			long overhead = -1;
+			if (this.cpuCostModel != null) {
+				// The slice starts after the switch
+				overhead = this.cpuCostModel.dispatch(p);
+				p.setDispatchOverhead(overhead);
+			}
+			if (this.quantumController != null) {
+				this.quantumController.dispatched(p, decision, time, overhead, cpu.getQueueLength());
+			}
+			if (overhead > 0) {
+				time += overhead;
+			}
+			time += slowdown;
+			this.cpuEvent = this.newEvent(decision, time);
+			if (this.lockModel != null) {
+				// The critical section may end within the slice
+				long start = Math.max(overhead, 0);
+				long section = this.lockModel.dispatched(p, SystemClock.getTime() + start);
+				if (section >= 0 && section < time - start - slowdown) {
+					this.lockEvent = this.newEvent(LOCK_RELEASE, start + section);
+				}
+			}
+
+			if (jfrEvent != null && jfrEvent.shouldCommit()) {
+				jfrEvent.setState(SystemClock.getTime(), pid, memory.getQueueLength(),
+						cpu.getQueueLength(), getIoQueueLength());
+				jfrEvent.decision = decision == END_PROCESS ? "END_PROCESS"
+						: decision == SWITCH_PROCESS ? "SWITCH_PROCESS"
+						: decision == PAGE_FAULT ? "PAGE_FAULT" : "IO_REQUEST";
+				jfrEvent.remainingCpuTime = processRemainingTime;
+				jfrEvent.timeToNextIo = processNextIO;
+				jfrEvent.quantum = maxCpuTime;
+				jfrEvent.commit();
+			}
+		} else {
+			Debug.trace("No process to load in CPU queue");
+			if (jfrEvent != null && jfrEvent.shouldCommit()) {
+				jfrEvent.setState(SystemClock.getTime(), 0, memory.getQueueLength(),
+						cpu.getQueueLength(), getIoQueueLength());
+				jfrEvent.decision = "IDLE";
+				jfrEvent.commit();
+			}
+		}
+	}
+
+	/**
+	 * Gives the CPU to a process holding a lock that another process waits
+	 * for, with priority inheritance.
+	 * 
+	 * @return The process, or {@code null} if no such holder waits for the
+	 *         CPU.
+	 */
+	private Process cpuStartWaitedForHolder() {
+		for (Process holder : this.lockModel.getWaitedForHolders()) {
+			if (cpu.removeProcess(holder)) {
+				this.lockModel.boosted();
+				return cpu.startProcess(holder);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stops the process on the CPU. A process in a critical section leaves
+	 * its lock if it has used the CPU time of the section.
+	 * 
+	 * @return The process.
+	 */
+	private Process cpuStopCurrentProcess() {
+		Process p = cpu.stopCurrentProcess();
+		if (this.lockModel != null) {
+			if (this.lockEvent != null) {
+				this.eventQueue.removeEvent(this.lockEvent);
+				this.lockEvent = null;
+			}
+			this.queueLockHolders(this.lockModel.sliceEnded(p));
+		}
+		return p;
+	}
+
+	/**
+	 * Queues processes that have got the lock they waited for for the CPU.
+	 * 
+	 * @param granted The processes.
+	 */
+	private void queueLockHolders(List<Process> granted) {
+		for (Process p : granted) {
+			cpu.insertProcess(p);
+			p.updateProcess(CPU_QUEUE);
+		}
+	}
+
+	/**
+	 * Processes an event signifying that the active process has used the CPU
+	 * time of its critical section. It leaves the lock and goes on.
+	 */
+	private void releaseLock() {
+		Debug.trace("releaseLock()");
+		this.lockEvent = null;
+		this.queueLockHolders(this.lockModel.release(cpu.getActiveProcess()));
+	}
+
+	/**
+	 * Gives the CPU to the real-time job of highest priority, until it has
+	 * used its execution time. A job has no quantum and does no I/O.
+	 */
+	private void cpuLoadJob() {
+		Process job = cpu.startProcess(this.realTimeScheduler.dispatch());
+		job.updateProcess(CPU_ACTIVE);
+		Debug.trace("[" + job.getProcessId() + "] Got real-time job...");
+		long time = job.getRemainingCPUTime();
+		if (this.cpuPowerModel != null) {
+			long slowdown = this.cpuPowerModel.dispatch() + this.cpuPowerModel.getStretch(time);
+			job.setSlowdown(slowdown);
+			time += slowdown;
+		}
+		if (this.cpuCostModel != null) {
+			long overhead = this.cpuCostModel.dispatch(job);
+			job.setDispatchOverhead(overhead);
+			time += overhead;
+		}
+		this.cpuEvent = this.newEvent(END_PROCESS, time);
+	}
+
+	/**
+	 * Processes an event signifying that a real-time task releases a job. The
+	 * job preempts the process or job on the CPU if it has a higher
+	 * priority, unless the slice of that one ends now anyway.
+	 * 
+	 * @param task The index of the task.
+	 */
+	private void releaseJob(int task) {
+		Debug.trace("releaseJob(" + task + ")");
+
+		// 1. RELEASE THE JOB AND SCHEDULE THE NEXT ONE
+		this.newEvent(REAL_TIME_RELEASE, this.realTimeScheduler.release(task), task);
+
+		// 2. PREEMPT OR START
+		if (cpu.isIdle()) {
+			this.cpuLoadNextProcess();
+		} else if (this.realTimeScheduler.shouldPreempt(cpu.getActiveProcess())
+				&& this.cpuEvent.getTime() > SystemClock.getTime()) {
+			this.eventQueue.removeEvent(this.cpuEvent);
+			Process p = cpu.getActiveProcess();
+			p.cutSlice(this.cpuEvent.getTime());
+			this.cpuStopCurrentProcess();
+			this.realTimeScheduler.preempted(p);
+			if (p.getRealTimeSlot() < 0) {
+				Statistics.processForceChange();
+				cpu.insertProcess(p);
+			}
+			p.updateProcess(CPU_QUEUE);
+			this.cpuLoadNextProcess();
+		}
+	}
+
+	/**
+	 * New event in event queue
+	 * 
+	 * @param EVENT - event type to create
+	 * @param time - time until the event
+	 * @return The event.
+	 */
+	private Event newEvent(int EVENT, long time) {
+		return newEvent(EVENT, time, 0);
+	}
+
+	/**
+	 * New event in event queue, concerning an I/O device
+	 * 
+	 * @param EVENT - event type to create
+	 * @param time - time until the event
+	 * @param device - index of the I/O device
+	 * @return The event.
+	 */
+	private Event newEvent(int EVENT, long time, int device) {
+		long eventTime = SystemClock.getTime() + time;
+		Debug.trace("newEvent("+EVENT+", "+time+") => "+eventTime);
+		Event event = new Event(EVENT, eventTime, device);
+		eventQueue.insertEvent(event);
+		return event;
+	}
+
+	/**
+	 * Get time for next event
+	 * 
+	 * @return random time greater then current time for a new event
+	 */
+	long getNextArrivalTime() {
+		Distribution arrival = this.workload != null ? this.workload.get(Workload.ARRIVAL) : null;
+		if (arrival != null) {
+			return Math.max(1, Math.round(arrival.sample(RandomStreams.get(RandomStreams.ARRIVALS))));
+		}
+		long rand = (long) (2 * RandomStreams.nextDouble(RandomStreams.ARRIVALS) * this.avgProcessArrival);
+		long result = 1 + rand;
+
+		return result;
+	}
+
+	/**
+	 * Transfers processes from the memory queue to the ready queue as long as
+	 * there is enough memory for the processes. With swapping, swapped
+	 * processes that are ready get memory first, and blocked processes are
+	 * swapped out if the first process in the memory queue still does not fit.
+	 */
+	private void flushMemoryQueue() {
+		Debug.trace("flushMemoryQueue()");
+		boolean swapBusy = false;
+		if (this.swapper != null) {
+			swapBusy = this.swapper.isBusy();
+			this.swapper.allocateSwapIns();
+		}
+		Process p = this.swapper != null && this.swapper.hasWaitingSwapIns() ? null
+				: this.memory.getNextProcess();
+
+		while (p != null) {
+			Debug.trace("Got process from Memory queue...");
+			if (this.processThreads != null) {
+				for (Process thread : this.processThreads.start(p)) {
+					this.cpu.insertProcess(thread);
+					thread.updateProcess(CPU_QUEUE);
+				}
+			} else {
+				this.cpu.insertProcess(p);
+				p.updateProcess(CPU_QUEUE);
+			}
+			p = this.memory.getNextProcess();
+		}
+
+		if (this.swapper != null) {
+			List<Process> blocked = new ArrayList<Process>();
+			final Map<Process, Long> expectedWait = new HashMap<Process, Long>();
+			for (IO device : this.ioDevices) {
+				int first = blocked.size();
+				device.addWaitingProcesses(blocked);
+				for (int i = first; i < blocked.size(); i++) {
+					expectedWait.put(blocked.get(i), (i - first + 1) * device.getAvgServiceTime());
+				}
+			}
+			// With several devices the queue order alone does not tell who
+			// waits longest, so the candidates are ordered by expected wait
+			Collections.sort(blocked, new Comparator<Process>() {
+				public int compare(Process a, Process b) {
+					return Long.compare(expectedWait.get(a), expectedWait.get(b));
+				}
+			});
+			if (this.lockModel != null) {
+				// A holder swapped out could need the memory of the processes
+				// waiting for its lock to come back, and never release it
+				for (Iterator<Process> it = blocked.iterator(); it.hasNext();) {
+					if (this.lockModel.holdsLock(it.next())) {
+						it.remove();
+					}
+				}
+			}
+			this.swapper.relievePressure(blocked);
+			if (!swapBusy && this.swapper.isBusy()) {
+				this.newEvent(SWAP_DONE, this.swapper.nextTransferTime());
+			}
+		}
+
+		Process waiting = this.memory.peekNextProcess();
+		if (waiting != null && JfrEvents.isRecording()) {
+			JfrEvents.MemoryStall jfrEvent = new JfrEvents.MemoryStall();
+			if (jfrEvent.shouldCommit()) {
+				jfrEvent.setState(SystemClock.getTime(), waiting.getProcessId(),
+						memory.getQueueLength(), cpu.getQueueLength(), getIoQueueLength());
+				jfrEvent.memoryNeeded = waiting.getMemoryNeeded();
+				jfrEvent.freeMemory = this.memory.getFreeMemorySize();
+				jfrEvent.commit();
+			}
+		}
+	}
+
+	/**
+	 * Simulates a process arrival/creation.
+	 */
+	private void newProcess() {
+		Debug.trace("newProcess()");
+		// New process
+		this.admit(this.createProcess());
+		
+		// New process event in evenet queue
+		this.newEvent(NEW_PROCESS, getNextArrivalTime());
+
+		// Update statistics
+		Statistics.processCreated();
+	}
+
+	/**
+	 * Creates a process with the demands of the workload of this simulator.
+	 * 
+	 * @return The process, not yet in the system.
+	 */
+	Process createProcess() {
+		return new Process(this.memory.getMemorySize(), this.workload);
+	}
+
+	/**
+	 * Lets a process arrive: it joins the memory queue, and gets memory and
+	 * the CPU if they are free. In a cluster the node first registers the
+	 * time passed since its last event.
+	 * 
+	 * @param newProcess The process.
+	 */
+	void admit(Process newProcess) {
+		if (this.time != SystemClock.getTime()) {
+			this.advance(SystemClock.getTime());
+		}
+		if (this.ioRouter != null) {
+			this.ioRouter.assignAffinity(newProcess);
+		}
+		
+		// Insert process to memory queue
+		this.memory.insertProcess(newProcess);
+
+		// Transfer process from memory to ready queue
+		this.flushMemoryQueue();
+
+		// If first process load it imideately
+		if (cpu.isIdle()) {
+			this.cpuLoadNextProcess();
+		}
+	}
+
+	/**
+	 * Simulates a process switch.
+	 */
+	private void switchProcess() {
+		Debug.trace("switchProcess()");
+		Debug.print(CLASS_NAME, "switchProcess", "Called");
+		
+		// 1. STOP CURRENT PROCESS
+		Process p = this.cpuStopCurrentProcess(); 
+		Statistics.processForceChange();
+		cpu.insertProcess(p);
+		p.updateProcess(CPU_QUEUE);
+
+		// 2. LOAD NEXT PROCESS IN CPU QUEUE
+		this.cpuLoadNextProcess();
+	}
+
+	/**
+	 * Ends the active process, and deallocates any resources allocated to it.
+	 */
+	private void endProcess() {
+		Debug.trace("endProcess()");
+		Debug.print(CLASS_NAME, "endProcess", "Called");
+		// Incomplete
+
+		// 1. STOP CURRENT PROCESS
+		Process p = this.cpuStopCurrentProcess(); 
+		if (p.getRealTimeSlot() >= 0) {
+			// A real-time job is done
+			p.updateProcess(FINISHED);
+			this.realTimeScheduler.jobCompleted(p);
+			this.cpuLoadNextProcess();
+			return;
+		}
+		if (p.getParent() != null) {
+			// A thread is done; the process ends with its last thread
+			Process thread = p;
+			thread.updateProcess(THREAD_FINISHED);
+			if (this.quantumController != null) {
+				this.quantumController.processEnded(thread);
+			}
+			p = thread.getParent();
+			if (!p.threadFinished(thread)) {
+				this.cpuLoadNextProcess();
+				return;
+			}
+		}
+		memory.releaseMemory(p);
+		p.updateProcess(FINISHED);
+		if (this.processThreads != null) {
+			this.processThreads.processEnded(p);
+		}
+		if (this.recordStore != null) {
+			this.recordStore.append(p);
+		}
+		if (this.quantumController != null) {
+			this.quantumController.processEnded(p);
+		}
+		if (this.cluster != null) {
+			this.cluster.processEnded(this.node, p);
+		}
+		if (this.swapper != null || this.memory.getWaitQueue() != null) {
+			this.flushMemoryQueue();
+		}
+
+		// 2. LOAD NEXT PROCESS IN CPU QUEUE
+		this.cpuLoadNextProcess();
+	}
+
+	/**
+	 * Processes an event signifying that the active process needs to perform an
+	 * I/O operation.
+	 */
+	private void processIoRequest() {
+		Debug.trace("processIoRequest()");
+		// Incomplete
+
+		// 1. GET CURRENT PROCESS IN CPU
+		Process p = this.cpuStopCurrentProcess(); 
+		IO device = this.ioRouter != null ? this.ioRouter.route(p) : io;
+		device.insertProcess(p);
+		p.updateProcess(IO_QUEUE);
+		
+		// IO idle check
+		if (device.isIdle()) {
+			p = device.startNextProcess();
+			if (p != null) {
+				p.updateProcess(IO_ACTIVE);
+				this.newEvent(END_IO, device.drawServiceTime(), device.getIndex());
+			}
+		}
+
+		// A blocked process may be swapped out for a process waiting for memory
+		if (this.swapper != null) {
+			this.flushMemoryQueue();
+		}
+
+		// 2. LOAD NEXT PROCESS IN CPU QUEUE
+		this.cpuLoadNextProcess();			
+	}
+
+	/**
+	 * Processes an event signifying that the process currently doing I/O is
+	 * done with its I/O operation.
+	 * 
+	 * @param device The I/O device that completed the operation.
+	 */
+	private void endIoOperation(IO device) {
+		Debug.trace("endIoOperation()");
+		// Incomplete
+
+		// 1. GET CURRENT PROCESS IN IO
+		Process p = device.stopCurrentProcess();
+		if (this.swapper != null && this.swapper.isSwapped(p)) {
+			// The process must be swapped in before it can run
+			this.swapper.ioCompleted(p);
+			p.updateProcess(SWAPPED);
+			this.flushMemoryQueue();
+		} else {
+			cpu.insertProcess(p);
+			p.updateProcess(CPU_QUEUE);
+		}
+		
+		if (cpu.isIdle()) {
+			this.cpuLoadNextProcess();
+		}
+
+		// 2. LOAD NEXT PROCESS IN IO QUEUE
+		p = device.startNextProcess(); 
+		if (p != null) {
+			p.updateProcess(IO_ACTIVE);
+			this.newEvent(END_IO, device.drawServiceTime(), device.getIndex());
+		}
+	}
+
+	/**
+	 * Processes an event signifying that the active process referred to a
+	 * page that is not in memory. The process waits for the paging device.
+	 */
+	private void pageFault() {
+		Debug.trace("pageFault()");
+
+		// 1. MOVE CURRENT PROCESS TO THE PAGING DEVICE
+		Process p = this.cpuStopCurrentProcess();
+		p.updateProcess(PAGE_WAIT);
+		if (this.virtualMemory.startPageIn(p)) {
+			this.newEvent(END_PAGE_IN, this.virtualMemory.getFaultServiceTime());
+		}
+
+		// 2. LOAD NEXT PROCESS IN CPU QUEUE
+		this.cpuLoadNextProcess();
+	}
+
+	/**
+	 * Processes an event signifying that the paging device has read in the
+	 * page of the first process waiting for it.
+	 */
+	private void endPageIn() {
+		Debug.trace("endPageIn()");
+
+		// 1. THE PROCESS IS READY AGAIN
+		Process p = this.virtualMemory.endPageIn();
+		cpu.insertProcess(p);
+		p.updateProcess(CPU_QUEUE);
+		if (cpu.isIdle()) {
+			this.cpuLoadNextProcess();
+		}
+
+		// 2. START THE NEXT PAGE-IN
+		if (this.virtualMemory.isPagerBusy()) {
+			this.newEvent(END_PAGE_IN, this.virtualMemory.getFaultServiceTime());
+		}
+	}
+
+	/**
+	 * Processes an event signifying that the swap device has completed a
+	 * transfer. A process swapped in joins the CPU queue; memory freed by a
+	 * process swapped out goes to waiting processes.
+	 */
+	private void swapDone() {
+		Debug.trace("swapDone()");
+
+		// 1. COMPLETE THE TRANSFER AND START THE NEXT ONE
+		Process p = this.swapper.transferDone();
+		if (this.swapper.isBusy()) {
+			this.newEvent(SWAP_DONE, this.swapper.nextTransferTime());
+		}
+		if (p != null) {
+			cpu.insertProcess(p);
+			p.updateProcess(CPU_QUEUE);
+			if (cpu.isIdle()) {
+				this.cpuLoadNextProcess();
+			}
+		}
+
+		// 2. HAND OUT FREED MEMORY
+		this.flushMemoryQueue();
+	}
+
+	/**
+	 * Runs the simulation without GUI and prints the report. Parameters are
+	 * given in the same order as the questions asked by the GUI version
+	 * (simulator.gui.SimulationGui); the testing values are used for the ones
+	 * left out. The event trace is only printed if -verbose is given.
+	 * 
+	 * @param args See {@link #create(String[])}.
+	 */
+	public static void main(String args[]) {
+		LiveStatistics.startFromProperties();
+		create(args).simulate();
+		LiveStatistics.stopHttpServer();
+	}
+
+	/**
+	 * Creates a simulator without GUI from command line arguments.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by -verbose,
+	 *            -seed=n, -disk=policy[:transfer time] (policy FCFS, SSTF,
+	 *            SCAN, C-LOOK or DEADLINE), -devices=spec (see
+	 *            {@link IoRouter}) and -route=policy (RANDOM, LEAST-LOADED or
+	 *            JSQ), -paging=policy:physical memory[:nocontrol] (policy
+	 *            FIFO, LRU, CLOCK or ARC, nocontrol to turn load control
+	 *            off), -swap=policy (LARGEST, LONGEST-WAIT or BEST-FIT),
+	 *            -switch=overhead[:cache penalty[:cache decay]] (ms),
+	 *            -adaptive=mode[:target] (mode BURSTS or OVERHEAD),
+	 *            -power=governor[:f1/f2/...] (governor PERFORMANCE,
+	 *            POWERSAVE, ONDEMAND or SCHEDUTIL, see
+	 *            {@link CpuPowerModel}), -memqueue=policy[:aging limit]
+	 *            (policy FIFO, FIRST-FIT, SMALLEST or BEST-FIT, see
+	 *            {@link MemoryWaitQueue}), -threaded=threads per process
+	 *            (see {@link ProcessThreads}), -realtime=policy:tasks
+	 *            (policy EDF or RM, see {@link RealTimeScheduler}),
+	 *            -locks=locks:probability:critical section[:inherit] (see
+	 *            {@link LockModel}) and -workload=file (see
+	 *            {@link Workload}).
+	 * @throws IllegalArgumentException If the workload file is not valid.
+	 */
+	public static Simulator create(String args[]) {
+		long[] params = { TESTING_MEMORY_SIZSE, TESTING_CPU_TIME,
+				TESTING_IO_TIME, TESTING_SIMULATION_LENGTH,
+				TESTING_AVG_ARRIVAL_INTERVAL };
+		boolean verbose = false;
+		Disk disk = null;
+		String devices = null;
+		int route = IoRouter.JSQ;
+		String paging = null;
+		SwapVictimPolicy swap = null;
+		CpuCostModel cpuCostModel = null;
+		QuantumController quantumController = null;
+		CpuPowerModel cpuPowerModel = null;
+		MemoryWaitQueue memoryWaitQueue = null;
+		ProcessThreads processThreads = null;
+		RealTimeScheduler realTimeScheduler = null;
+		LockModel lockModel = null;
+		Workload workload = null;
+		int i = 0;
+		for (String arg : args) {
+			if (arg.equals("-verbose")) {
+				verbose = true;
+			} else if (arg.startsWith("-disk=")) {
+				String[] fields = arg.substring(6).split(":");
+				int policy = Disk.getPolicy(fields[0]);
+				if (policy < 0) {
+					throw new IllegalArgumentException("Unknown disk policy " + fields[0]);
+				}
+				disk = new Disk(policy, Disk.DEFAULT_CYLINDERS, Disk.DEFAULT_TRACK_TO_TRACK_SEEK,
+						Disk.DEFAULT_FULL_STROKE_SEEK, Disk.DEFAULT_ROTATION_TIME,
+						fields.length > 1 ? Long.parseLong(fields[1]) : Disk.DEFAULT_TRANSFER_TIME,
+						Disk.DEFAULT_DEADLINE);
+			} else if (arg.startsWith("-devices=")) {
+				devices = arg.substring(9);
+			} else if (arg.startsWith("-switch=")) {
+				String[] fields = arg.substring(8).split(":");
+				cpuCostModel = new CpuCostModel(Long.parseLong(fields[0]),
+						fields.length > 1 ? Long.parseLong(fields[1]) : 0,
+						fields.length > 2 ? Long.parseLong(fields[2]) : CpuCostModel.DEFAULT_CACHE_DECAY);
+			} else if (arg.startsWith("-adaptive=")) {
+				String[] fields = arg.substring(10).split(":");
+				int mode = QuantumController.getMode(fields[0]);
+				if (mode < 0) {
+					throw new IllegalArgumentException("Unknown adaptive mode " + fields[0]);
+				}
+				quantumController = new QuantumController(mode, fields.length > 1
+						? Double.parseDouble(fields[1]) : QuantumController.DEFAULT_TARGETS[mode]);
+			} else if (arg.startsWith("-memqueue=")) {
+				String[] fields = arg.substring(10).split(":");
+				int policy = MemoryWaitQueue.getPolicy(fields[0]);
+				if (policy < 0) {
+					throw new IllegalArgumentException("Unknown memory queue policy " + fields[0]);
+				}
+				memoryWaitQueue = new MemoryWaitQueue(policy, fields.length > 1 ? Long.parseLong(fields[1]) : 0);
+			} else if (arg.startsWith("-threaded=")) {
+				processThreads = new ProcessThreads(Integer.parseInt(arg.substring(10)));
+			} else if (arg.startsWith("-realtime=")) {
+				realTimeScheduler = RealTimeScheduler.parse(arg.substring(10));
+			} else if (arg.startsWith("-locks=")) {
+				lockModel = LockModel.parse(arg.substring(7));
+			} else if (arg.startsWith("-power=")) {
+				cpuPowerModel = CpuPowerModel.parse(arg.substring(7));
+			} else if (arg.startsWith("-workload=")) {
+				try {
+					workload = Workload.load(new File(arg.substring(10)));
+				} catch (IOException e) {
+					throw new IllegalArgumentException("Cannot read workload " + arg.substring(10), e);
+				}
+			} else if (arg.startsWith("-swap=")) {
+				swap = Swapper.getPolicy(arg.substring(6));
+				if (swap == null) {
+					throw new IllegalArgumentException("Unknown swap policy " + arg.substring(6)
+							+ ", expected one of " + String.join(", ", Swapper.POLICY_NAMES));
+				}
+			} else if (arg.startsWith("-paging=")) {
+				paging = arg.substring(8);
+			} else if (arg.startsWith("-route=")) {
+				route = IoRouter.getPolicy(arg.substring(7));
+				if (route < 0) {
+					throw new IllegalArgumentException("Unknown routing policy " + arg.substring(7));
+				}
+			} else if (arg.startsWith("-seed=")) {
+				RandomStreams.setSeed(Long.parseLong(arg.substring(6)));
+			} else if (i < params.length) {
+				params[i++] = Long.parseLong(arg);
+			}
+		}
+
+		Debug.setVerbose(verbose);
+		Simulator simulator = new Simulator(new Queue("memory queue"),
+				new Queue("CPU queue"), new Queue("I/O queue"), params[0],
+				params[1], params[2], params[3], params[4], new HeadlessGui());
+		if (devices != null) {
+			simulator.setIoRouter(new IoRouter(devices, route, new HeadlessGui()));
+		}
+		if (disk != null) {
+			simulator.setDisk(disk);
+		}
+		if (paging != null) {
+			String[] fields = paging.split(":");
+			int policy = VirtualMemory.getPolicy(fields[0]);
+			if (policy < 0) {
+				throw new IllegalArgumentException("Unknown replacement policy " + fields[0]);
+			}
+			if (fields.length > 2 && !fields[2].equalsIgnoreCase("nocontrol")) {
+				throw new IllegalArgumentException("Expected policy:physical memory[:nocontrol] in " + paging);
+			}
+			VirtualMemory virtualMemory = simulator.enableVirtualMemory(policy,
+					fields.length > 1 ? Long.parseLong(fields[1]) : params[0]);
+			virtualMemory.setLoadControl(fields.length < 3);
+		}
+		if (swap != null) {
+			simulator.enableSwapping(swap);
+		}
+		if (memoryWaitQueue != null) {
+			simulator.setMemoryWaitQueue(memoryWaitQueue);
+		}
+		simulator.setProcessThreads(processThreads);
+		simulator.setRealTimeScheduler(realTimeScheduler);
+		simulator.setLockModel(lockModel);
+		simulator.setCpuCostModel(cpuCostModel);
+		simulator.setCpuPowerModel(cpuPowerModel);
+		simulator.setQuantumController(quantumController);
+		simulator.setWorkload(workload);
+		return simulator;
+	}
+}
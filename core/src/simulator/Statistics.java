@@ -0,0 +1,642 @@
+package simulator;
+
+import java.util.Arrays;
+
+/**
+ * This class contains a lot of public variables that can be updated by other
+ * classes during a simulation, to collect information about the run.
+ */
+public class Statistics {
+	private static long processesCompleted = 0;
+	private static long processesCreated = 0;
+	private static long processesAccepted = 0;
+	private static long processesForceChanged = 0;
+	private static long processesIoOperations = 0;
+	private static long processesMemoryWaitTotal = 0;
+	private static long processesCpuWaitTotal = 0;
+	private static long processesIoWaitTotal = 0;
+	private static long processesTotalTimeInSystem = 0;
+	private static long[] processTimesInSystem = new long[1024];
+	private static int processTimesInSystemCount = 0;
+	
+	private static long processesPlacedInCpuQueue = 0;
+	private static long processesPlacedInIOQueue = 0;
+
+	private static long memoryQueueLengthTime = 0;
+	private static long memoryQueueLengthLargest = 0;
+
+	private static long cpuQueueLengthTime = 0;
+	private static long cpuQueueLengthLargest = 0;
+	private static long cpuIdleTime = 0;
+	private static long cpuActiveTime = 0;
+	private static long contextSwitches = 0;
+	private static long cpuSwitchOverheadTime = 0;
+	private static long cpuCacheWarmupTime = 0;
+	private static long cpuQuantum = 0;
+
+	private static long ioQueueLengthTime = 0;
+	private static long ioQueueLengthLargest = 0;
+	private static long ioIdleTime = 0;
+	private static long ioActiveTime = 0;
+
+	private static long diskRequests = 0;
+	private static long diskSeekDistance = 0;
+	private static long diskPositioningTime = 0;
+
+	private static long pageFaults = 0;
+	private static long processesPageWaitTotal = 0;
+
+	private static long swapOuts = 0;
+	private static long swapIns = 0;
+	private static long swapTraffic = 0;
+	private static long processesSwapWaitTotal = 0;
+
+	/** The number of batches of events sharing a timestamp, by size, the last for 16 or more */
+	private static long[] eventBatches = new long[17];
+	private static long eventBatchLargest = 0;
+	
+	/**
+	 * Increment the number of processes completed
+	 */
+	public static void processCompleted() {
+		processesCompleted++;
+	}
+
+	/**
+	 * Increment the number of processes created
+	 */
+	public static void processCreated() {
+		processesCreated++;
+	}
+	
+	public static void processAccepted() {
+		processesAccepted++;
+	}
+	
+	/**
+	 * Increment the number of processes forced changed
+	 */
+	public static void processForceChange() {
+		processesForceChanged++;
+	}
+	
+	/**
+	 * Increment the number of processes forced changed
+	 */
+	public static void processesIoOperations() {
+		processesIoOperations++;
+	}
+
+	/**
+	 * Increment the number of processes forced changed
+	 */
+	public static void processesPlacedInCpuQueue() {
+		processesPlacedInCpuQueue++;
+	}
+
+	/**
+	 * Increment the number of processes forced changed
+	 */
+	public static void processesPlacedInIOQueue() {
+		processesPlacedInIOQueue++;
+	}
+	
+	/**
+	 * Increment how long all processes have been waiting
+	 * 
+	 * @param time - 
+	 */
+	public static void processesTotalTimeInSystem(long time) {
+		processesTotalTimeInSystem += time;
+		if (processTimesInSystemCount == processTimesInSystem.length) {
+			processTimesInSystem = Arrays.copyOf(processTimesInSystem, 2 * processTimesInSystem.length);
+		}
+		processTimesInSystem[processTimesInSystemCount++] = time;
+	}
+
+	/**
+	 * Increment how long all processes have been waiting
+	 * 
+	 * @param time - 
+	 */
+	public static void processMemoryWait(long time) {
+		processesMemoryWaitTotal += time;
+	}
+
+	/**
+	 * Increment how long all processes have been waiting
+	 * 
+	 * @param time - 
+	 */
+	public static void processCPUWait(long time) {
+		processesCpuWaitTotal += time;
+	}
+	
+	/**
+	 * Increment how long all processes have been waiting
+	 * 
+	 * @param time - 
+	 */
+	public static void processIOWait(long time) {
+		processesIoWaitTotal += time;
+	}
+
+	/**
+	 * 
+	 * @param length - 
+	 * @param time - 
+	 */
+	public static void memoryQueueLengthTime(long length, long time) {
+		memoryQueueLengthTime += length * time;
+	}
+	
+	/**
+	 * 
+	 * @param length
+	 */
+	public static void memoryQueueLenght(long length) {
+		if (length > memoryQueueLengthLargest) {
+			memoryQueueLengthLargest = length;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param length
+	 * @param time
+	 */
+	public static void cpuQueueLengthTime(long length, long time) {
+		cpuQueueLengthTime += length * time;
+	}
+	
+	/**
+	 * 
+	 * @param length
+	 */
+	public static void cpuQueueLength(long length) {
+		if (length > cpuQueueLengthLargest) {
+			cpuQueueLengthLargest = length;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param time
+	 */
+	public static void cpuIdleTime(long time) {
+		cpuIdleTime += time;
+	}
+	
+	/**
+	 * 
+	 * @param time
+	 */
+	public static void cpuActiveTime(long time) {
+		cpuActiveTime += time;
+	}
+	
+	/**
+	 * 
+	 * @param length
+	 * @param time
+	 */
+	public static void ioQueueLengthTime(long length, long time) {
+		ioQueueLengthTime += length * time;
+	}
+	
+	/**
+	 * 
+	 * @param length
+	 */
+	public static void ioQueueLength(long length) {
+		if (length > ioQueueLengthLargest) {
+			ioQueueLengthLargest = length;
+		}
+	}
+
+	/**
+	 * 
+	 * @param time
+	 */
+	public static void ioIdleTime(long time) {
+		ioIdleTime += time;
+	}
+	
+	/**
+	 * 
+	 * @param time
+	 */
+	public static void ioActiveTime(long time) {
+		ioActiveTime += time;
+	}
+	
+	/**
+	 * Registers a disk request being served.
+	 * 
+	 * @param seekDistance The number of cylinders the head moved.
+	 * @param positioningTime The seek and rotational delay, in ms.
+	 */
+	public static void diskRequestServed(long seekDistance, long positioningTime) {
+		diskRequests++;
+		diskSeekDistance += seekDistance;
+		diskPositioningTime += positioningTime;
+	}
+
+	/**
+	 * Increment the number of page faults
+	 */
+	public static void pageFault() {
+		pageFaults++;
+	}
+
+	/**
+	 * Registers time a process spent waiting for a page fault to be serviced.
+	 * 
+	 * @param time The time waited.
+	 */
+	public static void processPageWait(long time) {
+		processesPageWaitTotal += time;
+	}
+
+	/**
+	 * Registers a process swapped out.
+	 * 
+	 * @param memory The memory of the process written to the swap device.
+	 */
+	public static void processSwappedOut(long memory) {
+		swapOuts++;
+		swapTraffic += memory;
+	}
+
+	/**
+	 * Registers a process swapped in.
+	 * 
+	 * @param memory The memory of the process read from the swap device.
+	 */
+	public static void processSwappedIn(long memory) {
+		swapIns++;
+		swapTraffic += memory;
+	}
+
+	/**
+	 * Registers time a ready process spent waiting to be swapped in.
+	 * 
+	 * @param time The time waited.
+	 */
+	public static void processSwapWait(long time) {
+		processesSwapWaitTotal += time;
+	}
+
+	/**
+	 * Returns the number of processes completed.
+	 * 
+	 * @return The number of completed processes.
+	 */
+	public static long getProcessesCompleted() {
+		return processesCompleted;
+	}
+
+	/**
+	 * Registers the CPU being handed to a different process.
+	 * 
+	 * @param overhead The time spent switching.
+	 * @param warmup The time lost while the cache of the process warms up.
+	 */
+	public static void contextSwitch(long overhead, long warmup) {
+		contextSwitches++;
+		cpuSwitchOverheadTime += overhead;
+		cpuCacheWarmupTime += warmup;
+	}
+
+	/**
+	 * Registers a batch of events handled at the same time, after the clock
+	 * was advanced once.
+	 * 
+	 * @param size The number of events in the batch.
+	 */
+	public static void eventBatch(int size) {
+		eventBatches[Math.min(size, eventBatches.length - 1)]++;
+		if (size > eventBatchLargest) {
+			eventBatchLargest = size;
+		}
+	}
+
+	/**
+	 * Registers the quantum now in use, which changes during the run with a
+	 * {@link QuantumController}.
+	 * 
+	 * @param quantum The quantum (ms).
+	 */
+	public static void cpuQuantum(long quantum) {
+		cpuQuantum = quantum;
+	}
+
+	/**
+	 * Returns the share of time the CPU spent on switch overhead and cache
+	 * warm-up, which is not part of its utilization.
+	 * 
+	 * @return The overhead in percent of the time simulated.
+	 */
+	public static float getCpuOverhead() {
+		return (float) 100/SystemClock.getTime() * (cpuSwitchOverheadTime + cpuCacheWarmupTime);
+	}
+
+	public static float getCpuUtilization() {
+		return (float) 100/SystemClock.getTime() * cpuActiveTime;
+	}
+	
+	public static float getIoUtilization() {
+		return (float) 100/SystemClock.getTime() * ioActiveTime;
+	}
+	
+	public static float getProcessThroughput() {
+		long s = (long) SystemClock.getTime()/1000;
+		return (float) processesCompleted/s;
+	}
+
+	/**
+	 * Returns the time averaged length of the memory queue.
+	 * 
+	 * @param simulationLength The number of milliseconds that the simulation
+	 *            covered.
+	 * @return The average memory queue length.
+	 */
+	public static float getAverageMemoryQueueLength(long simulationLength) {
+		return (float) memoryQueueLengthTime / simulationLength;
+	}
+
+	/**
+	 * Returns the time averaged length of the CPU queue.
+	 * 
+	 * @param simulationLength The number of milliseconds that the simulation
+	 *            covered.
+	 * @return The average CPU queue length.
+	 */
+	public static float getAverageCpuQueueLength(long simulationLength) {
+		return (float) cpuQueueLengthTime / simulationLength;
+	}
+
+	/**
+	 * Returns the time averaged length of the I/O queue.
+	 * 
+	 * @param simulationLength The number of milliseconds that the simulation
+	 *            covered.
+	 * @return The average I/O queue length.
+	 */
+	public static float getAverageIoQueueLength(long simulationLength) {
+		return (float) ioQueueLengthTime / simulationLength;
+	}
+
+	/**
+	 * Returns the average time a completed process spent in the system, from
+	 * the moment it was granted memory until it finished.
+	 * 
+	 * @return The average time in system per process, 0 if no process has
+	 *         completed.
+	 */
+	public static float getAverageTimeInSystem() {
+		return processesCompleted > 0 ? (float) processesTotalTimeInSystem / processesCompleted : 0;
+	}
+
+	/**
+	 * Returns a percentile of the time completed processes spent in the
+	 * system, for instance 0.99 for the time 99% of the processes stayed
+	 * within.
+	 * 
+	 * @param fraction The fraction of processes, between 0 and 1.
+	 * @return The time in system at that percentile, 0 if no process has
+	 *         completed.
+	 */
+	public static long getTimeInSystemPercentile(double fraction) {
+		if (processTimesInSystemCount == 0) {
+			return 0;
+		}
+		long[] times = Arrays.copyOf(processTimesInSystem, processTimesInSystemCount);
+		Arrays.sort(times);
+		int index = (int) Math.ceil(fraction * times.length) - 1;
+		return times[Math.max(0, Math.min(times.length - 1, index))];
+	}
+
+	/**
+	 * Returns the average time a completed process spent waiting for memory.
+	 * 
+	 * @return The average memory wait per process.
+	 */
+	public static float getAverageMemoryWait() {
+		return processesCompleted > 0 ? (float) processesMemoryWaitTotal / processesCompleted : 0;
+	}
+
+	/**
+	 * Returns the average time a completed process spent waiting for the CPU.
+	 * 
+	 * @return The average CPU wait per process.
+	 */
+	public static float getAverageCpuWait() {
+		return processesCompleted > 0 ? (float) processesCpuWaitTotal / processesCompleted : 0;
+	}
+
+	/**
+	 * Returns the average time an I/O operation waited in the I/O queue.
+	 * 
+	 * @return The average I/O queue wait per operation.
+	 */
+	public static float getIoWaitPerOperation() {
+		return processesIoOperations > 0 ? (float) processesIoWaitTotal / processesIoOperations : 0;
+	}
+
+	/**
+	 * Returns the average time the I/O device spent on one operation.
+	 * 
+	 * @return The average I/O service time.
+	 */
+	public static float getIoServiceTimePerOperation() {
+		return processesIoOperations > 0 ? (float) ioActiveTime / processesIoOperations : 0;
+	}
+
+	/**
+	 * Returns the average number of cylinders the disk head moved per
+	 * request.
+	 * 
+	 * @return The average seek distance, 0 if no disk is simulated.
+	 */
+	public static float getDiskSeekDistancePerRequest() {
+		return diskRequests > 0 ? (float) diskSeekDistance / diskRequests : 0;
+	}
+
+	/**
+	 * Returns the average time a completed process spent waiting for I/O.
+	 * 
+	 * @return The average I/O wait per process.
+	 */
+	public static float getAverageIoWait() {
+		return processesCompleted > 0 ? (float) processesIoWaitTotal / processesCompleted : 0;
+	}
+
+	/** Names of the counters returned by {@link #getCounters()}, in order */
+	public static final String[] COUNTER_NAMES = { "processes_completed",
+			"processes_created", "processes_accepted", "processes_force_changed",
+			"io_operations", "memory_wait_ms", "cpu_wait_ms", "io_wait_ms",
+			"time_in_system_ms", "placed_in_cpu_queue", "placed_in_io_queue",
+			"memory_queue_length_time", "memory_queue_length_largest",
+			"cpu_queue_length_time", "cpu_queue_length_largest", "cpu_idle_ms",
+			"cpu_active_ms", "context_switches", "cpu_switch_overhead_ms",
+			"cpu_cache_warmup_ms", "cpu_quantum_current", "io_queue_length_time",
+			"io_queue_length_largest", "io_idle_ms", "io_active_ms", "disk_requests",
+			"disk_seek_distance", "disk_positioning_ms", "page_faults",
+			"page_wait_ms", "swap_outs", "swap_ins", "swap_traffic_kb",
+			"swap_wait_ms", "event_batches", "event_batch_largest" };
+
+	/**
+	 * Returns a copy of all counters, in the order given by
+	 * {@link #COUNTER_NAMES}. Must be called from the simulation thread.
+	 * 
+	 * @return The current value of every counter.
+	 */
+	public static long[] getCounters() {
+		return new long[] { processesCompleted, processesCreated,
+				processesAccepted, processesForceChanged, processesIoOperations,
+				processesMemoryWaitTotal, processesCpuWaitTotal,
+				processesIoWaitTotal, processesTotalTimeInSystem,
+				processesPlacedInCpuQueue, processesPlacedInIOQueue,
+				memoryQueueLengthTime, memoryQueueLengthLargest,
+				cpuQueueLengthTime, cpuQueueLengthLargest, cpuIdleTime,
+				cpuActiveTime, contextSwitches, cpuSwitchOverheadTime,
+				cpuCacheWarmupTime, cpuQuantum, ioQueueLengthTime,
+				ioQueueLengthLargest, ioIdleTime, ioActiveTime, diskRequests, diskSeekDistance,
+				diskPositioningTime, pageFaults, processesPageWaitTotal, swapOuts,
+				swapIns, swapTraffic, processesSwapWaitTotal, getEventBatches(),
+				eventBatchLargest };
+	}
+
+	/**
+	 * Clears all collected data, so that another simulation can be run in the
+	 * same JVM.
+	 */
+	public static void reset() {
+		processesCompleted = 0;
+		processesCreated = 0;
+		processesAccepted = 0;
+		processesForceChanged = 0;
+		processesIoOperations = 0;
+		processesMemoryWaitTotal = 0;
+		processesCpuWaitTotal = 0;
+		processesIoWaitTotal = 0;
+		processesTotalTimeInSystem = 0;
+		processTimesInSystemCount = 0;
+		processesPlacedInCpuQueue = 0;
+		processesPlacedInIOQueue = 0;
+		memoryQueueLengthTime = 0;
+		memoryQueueLengthLargest = 0;
+		cpuQueueLengthTime = 0;
+		cpuQueueLengthLargest = 0;
+		cpuIdleTime = 0;
+		cpuActiveTime = 0;
+		contextSwitches = 0;
+		cpuSwitchOverheadTime = 0;
+		cpuCacheWarmupTime = 0;
+		cpuQuantum = 0;
+		ioQueueLengthTime = 0;
+		ioQueueLengthLargest = 0;
+		ioIdleTime = 0;
+		ioActiveTime = 0;
+		diskRequests = 0;
+		diskSeekDistance = 0;
+		diskPositioningTime = 0;
+		pageFaults = 0;
+		processesPageWaitTotal = 0;
+		swapOuts = 0;
+		swapIns = 0;
+		swapTraffic = 0;
+		processesSwapWaitTotal = 0;
+		Arrays.fill(eventBatches, 0);
+		eventBatchLargest = 0;
+	}
+
+	private static long getEventBatches() {
+		long batches = 0;
+		for (long count : eventBatches) {
+			batches += count;
+		}
+		return batches;
+	}
+	
+	/**
+	 * Prints out a report summarizing all collected data about the simulation.
+	 * 
+	 * @param simulationLength The number of milliseconds that the simulation
+	 *            covered.
+	 */
+	public static void printReport(long simulationLength) {
+		System.out.println();
+		System.out.println("Simulation statistics:");
+		System.out.println();
+		System.out.println("Number of completed processes:                                " + processesCompleted);
+		System.out.println("Number of created processes:                                  " + processesCreated);
+		System.out.println("Number of (forced) process switches:                          " + processesForceChanged);
+		System.out.println("Number of processed I/O operations:                           " + processesIoOperations);
+		System.out.println("Average throughput (processes per second):                    " + getProcessThroughput());
+		if (eventBatchLargest > 1) {
+			long batches = getEventBatches(), events = 0;
+			StringBuilder sizes = new StringBuilder();
+			for (int size = 1; size < eventBatches.length; size++) {
+				events += size * eventBatches[size];
+				if (eventBatches[size] > 0) {
+					sizes.append(' ').append(size).append(size == eventBatches.length - 1 ? "+" : "")
+							.append(": ").append((float) 100 * eventBatches[size] / batches).append('%');
+				}
+			}
+			System.out.println("Number of event batches (events at the same time):            " + batches);
+			System.out.println("Average events per batch:                                     " + (float) events / batches);
+			System.out.println("Events per batch (size: share of batches):                   " + sizes);
+		}
+		System.out.println();
+		System.out.println("CPU processing time:                                          " + cpuActiveTime+" ms");
+		System.out.println("Utilization:                                                  " + getCpuUtilization()+"%");
+		if (contextSwitches > 0) {
+			System.out.println("Number of context switches:                                   " + contextSwitches);
+			System.out.println("Context switch overhead:                                      " + cpuSwitchOverheadTime+" ms");
+			System.out.println("Cache warm-up time:                                           " + cpuCacheWarmupTime+" ms");
+			System.out.println("Overhead:                                                     " + getCpuOverhead()+"%");
+		}
+		System.out.println();
+		System.out.println("IO processing time:                                           " + ioActiveTime+" ms");
+		System.out.println("Utilization:                                                  " + getIoUtilization()+"%");
+		if (diskRequests > 0) {
+			System.out.println("Average disk seek distance (cylinders):                       " + getDiskSeekDistancePerRequest());
+			System.out.println("Average disk positioning time:                                " + (float) diskPositioningTime / diskRequests + " ms");
+		}
+		if (pageFaults > 0) {
+			System.out.println("Number of page faults:                                        " + pageFaults);
+		}
+		if (swapOuts > 0) {
+			System.out.println("Number of processes swapped out/in:                           " + swapOuts + "/" + swapIns);
+			System.out.println("Swap traffic:                                                 " + swapTraffic + " kB");
+		}
+		System.out.println();
+		System.out.println("Largest occuring memory queue length:                         " + memoryQueueLengthLargest);
+		System.out.println("Average memory queue length:                                  " + (float) memoryQueueLengthTime / simulationLength);
+		System.out.println("Largest occuring CPU queue length:                            " + cpuQueueLengthLargest);
+		System.out.println("Average CPU queue length:                                     " + (float) cpuQueueLengthTime / simulationLength);
+		System.out.println("Largest occuring IO queue length:                             " + ioQueueLengthLargest);
+		System.out.println("Average IO queue length:                                      " + (float) ioQueueLengthTime / simulationLength);
+		if (processesCompleted > 0) {
+			System.out.println();
+			System.out.println("Average # of times a process has been placed in memory queue: " + 1);
+			System.out.println("Average # of times a process has been placed in CPI queue:    " + (float) processesPlacedInCpuQueue / processesCompleted);
+			System.out.println("Average # of times a process has been placed in IO queue:     " + (float) processesPlacedInIOQueue / processesCompleted);
+			System.out.println();
+			System.out.println("Average time spent in system per process:                     " + (long) processesTotalTimeInSystem / processesCompleted + " ms");
+			System.out.println("Average time spent waiting for memory per process:            " + (long) processesMemoryWaitTotal / processesCompleted + " ms");
+			System.out.println("Average time spent waiting for CPU per process:               " + (long) processesCpuWaitTotal / processesCompleted + " ms");
+			System.out.println("Average time spent processing per process:                    " + (long) cpuActiveTime / processesCompleted + " ms");
+			System.out.println("Average time spent waiting for I/O per process:               " + (long) processesIoWaitTotal / processesCompleted + " ms");
+			System.out.println("Average time spent in O/O per process:                        " + (long) ioActiveTime / processesCompleted + " ms");
+			if (pageFaults > 0) {
+				System.out.println("Average time spent waiting for page faults per process:       " + processesPageWaitTotal / processesCompleted + " ms");
+			}
+			if (swapOuts > 0) {
+				System.out.println("Average time spent waiting to be swapped in per process:      " + processesSwapWaitTotal / processesCompleted + " ms");
+			}
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package simulator;
+
+import java.util.List;
+
+/**
+ * Chooses which blocked process the {@link Swapper} swaps out. New policies
+ * can be given to {@link Swapper#Swapper(Memory, SwapVictimPolicy)}; the
+ * built-in ones are the constants of {@link Swapper}.
+ */
+public interface SwapVictimPolicy {
+	/**
+	 * Chooses a victim among the processes that may be swapped out.
+	 * 
+	 * @param candidates Resident processes waiting in an I/O queue, ordered
+	 *            by their position in the queue of their device times the
+	 *            average service time of the device, so the last one will
+	 *            wait longest.
+	 * @param memoryWanted The memory still missing for the first process in
+	 *            the memory queue.
+	 * @return The process to swap out, or {@code null} to swap out none.
+	 */
+	public Process selectVictim(List<Process> candidates, long memoryWanted);
+}
@@ -0,0 +1,322 @@
+package simulator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The medium-term scheduler. When the first process in the memory queue does
+ * not fit in memory, processes blocked in an I/O queue are swapped out to
+ * the swap device, and their memory is freed when the transfer completes.
+ * When the I/O of a swapped process completes, it waits until its memory can
+ * be allocated again and it has been swapped in, and then rejoins the CPU
+ * queue. Swapped processes get memory before new processes.
+ * 
+ * The swap device serves one transfer at a time, in FIFO order. A transfer
+ * takes a fixed latency plus a time per kB of the process.
+ * 
+ * Enabled with {@link Simulator#enableSwapping(SwapVictimPolicy)}. Swapping
+ * whole processes is only supported with the unpaged {@link Memory}.
+ */
+public class Swapper {
+	/** Swaps out the process holding the most memory */
+	public static final SwapVictimPolicy LARGEST = new SwapVictimPolicy() {
+		public Process selectVictim(List<Process> candidates, long memoryWanted) {
+			Process victim = null;
+			for (Process p : candidates) {
+				if (victim == null || p.getMemoryNeeded() > victim.getMemoryNeeded()) {
+					victim = p;
+				}
+			}
+			return victim;
+		}
+	};
+
+	/** Swaps out the process that will wait longest for its I/O */
+	public static final SwapVictimPolicy LONGEST_WAIT = new SwapVictimPolicy() {
+		public Process selectVictim(List<Process> candidates, long memoryWanted) {
+			return candidates.isEmpty() ? null : candidates.get(candidates.size() - 1);
+		}
+	};
+
+	/**
+	 * Swaps out the smallest process that frees enough memory by itself, or
+	 * the largest if none does, to keep swap traffic low
+	 */
+	public static final SwapVictimPolicy BEST_FIT = new SwapVictimPolicy() {
+		public Process selectVictim(List<Process> candidates, long memoryWanted) {
+			Process victim = null;
+			for (Process p : candidates) {
+				if (p.getMemoryNeeded() >= memoryWanted
+						&& (victim == null || p.getMemoryNeeded() < victim.getMemoryNeeded())) {
+					victim = p;
+				}
+			}
+			return victim != null ? victim : LARGEST.selectVictim(candidates, memoryWanted);
+		}
+	};
+
+	/** Names of the built-in policies */
+	public static final String[] POLICY_NAMES = { "LARGEST", "LONGEST-WAIT", "BEST-FIT" };
+	private static final SwapVictimPolicy[] POLICIES = { LARGEST, LONGEST_WAIT, BEST_FIT };
+
+	/** Default latency of a swap transfer (ms) */
+	public static final long DEFAULT_LATENCY = 10;
+	/** Default transfer time per 1000 kB (ms) */
+	public static final long DEFAULT_TIME_PER_MB = 50;
+
+	/** The state of a process known to the swapper */
+	private static final int SWAPPING_OUT = 1;
+	private static final int SWAPPED_OUT = 2;
+	private static final int SWAPPING_IN = 3;
+
+	/**
+	 * A transfer to or from the swap device.
+	 */
+	private static class Transfer {
+		Process process;
+		boolean out;
+
+		Transfer(Process process, boolean out) {
+			this.process = process;
+			this.out = out;
+		}
+	}
+
+	private Memory memory;
+	private SwapVictimPolicy policy;
+	private long latency = DEFAULT_LATENCY;
+	private long timePerMb = DEFAULT_TIME_PER_MB;
+
+	/** The state of each process that is not fully resident */
+	private IdentityHashMap<Process, Integer> states = new IdentityHashMap<Process, Integer>();
+	/** Processes whose I/O has completed while being swapped out */
+	private Set<Process> readyWhileSwapping = Collections.newSetFromMap(new IdentityHashMap<Process, Boolean>());
+	/** Swapped processes ready to run, waiting for memory */
+	private ArrayDeque<Process> swapInQueue = new ArrayDeque<Process>();
+	/** Transfers waiting for the swap device, the first one in service */
+	private ArrayDeque<Transfer> transfers = new ArrayDeque<Transfer>();
+	/** Memory that transfers in progress or queued will free */
+	private long memoryBeingFreed = 0;
+
+	/** Statistics */
+	private long swapOuts = 0;
+	private long swapIns = 0;
+	private long trafficKb = 0;
+	private long deviceActiveTime = 0;
+
+	/**
+	 * Creates a swapper with the default swap device.
+	 * 
+	 * @param memory The memory to relieve.
+	 * @param policy The victim selection policy, e.g. {@link #LARGEST}.
+	 */
+	public Swapper(Memory memory, SwapVictimPolicy policy) {
+		this.memory = memory;
+		this.policy = policy;
+	}
+
+	/**
+	 * Looks up a built-in policy by name, ignoring case.
+	 * 
+	 * @param name The name of the policy, e.g. "best-fit".
+	 * @return The policy, or {@code null} if there is no policy with that name.
+	 */
+	public static SwapVictimPolicy getPolicy(String name) {
+		for (int i = 0; i < POLICY_NAMES.length; i++) {
+			if (POLICY_NAMES[i].equalsIgnoreCase(name)) {
+				return POLICIES[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the speed of the swap device.
+	 * 
+	 * @param latency The latency of a transfer (ms).
+	 * @param timePerMb The transfer time per 1000 kB (ms).
+	 */
+	public void setSwapDevice(long latency, long timePerMb) {
+		this.latency = latency;
+		this.timePerMb = timePerMb;
+	}
+
+	/**
+	 * Checks whether a process is not fully resident.
+	 * 
+	 * @param p The process.
+	 * @return {@code true} if the process is swapped out or being swapped.
+	 */
+	public boolean isSwapped(Process p) {
+		return states.containsKey(p);
+	}
+
+	/**
+	 * Swaps out blocked processes until the first swapped process waiting for
+	 * memory, or else the first process in the memory queue, will fit, or
+	 * there are no more candidates.
+	 * 
+	 * @param candidates Resident processes waiting in the I/O queues, ordered
+	 *            as for {@link SwapVictimPolicy#selectVictim(List, long)}.
+	 */
+	public void relievePressure(List<Process> candidates) {
+		Process waiting = !swapInQueue.isEmpty() ? swapInQueue.peekFirst() : memory.peekNextProcess();
+		if (waiting == null) {
+			return;
+		}
+		candidates.removeAll(states.keySet());
+		long wanted = waiting.getMemoryNeeded() - memory.getFreeMemorySize() - memoryBeingFreed;
+		while (wanted > 0 && !candidates.isEmpty()) {
+			Process victim = policy.selectVictim(candidates, wanted);
+			if (victim == null) {
+				break;
+			}
+			candidates.remove(victim);
+			states.put(victim, SWAPPING_OUT);
+			transfers.addLast(new Transfer(victim, true));
+			memoryBeingFreed += victim.getMemoryNeeded();
+			wanted -= victim.getMemoryNeeded();
+			Debug.trace("[" + victim.getProcessId() + "] Swapping out");
+		}
+	}
+
+	/**
+	 * Registers that a process not fully resident has completed its I/O. It
+	 * is swapped in when memory allows.
+	 * 
+	 * @param p The process.
+	 */
+	public void ioCompleted(Process p) {
+		if (states.get(p) == SWAPPED_OUT) {
+			swapInQueue.addLast(p);
+		} else {
+			readyWhileSwapping.add(p);
+		}
+	}
+
+	/**
+	 * Allocates memory to the swapped processes that are ready, in order,
+	 * and queues their swap-in.
+	 */
+	public void allocateSwapIns() {
+		while (!swapInQueue.isEmpty() && memory.allocate(swapInQueue.peekFirst())) {
+			Process p = swapInQueue.removeFirst();
+			states.put(p, SWAPPING_IN);
+			transfers.addLast(new Transfer(p, false));
+		}
+	}
+
+	/**
+	 * Checks whether ready processes are waiting to be swapped in, in which
+	 * case new processes should not take the memory.
+	 * 
+	 * @return {@code true} if a swapped process is waiting for memory.
+	 */
+	public boolean hasWaitingSwapIns() {
+		return !swapInQueue.isEmpty();
+	}
+
+	/**
+	 * Checks whether the swap device is busy.
+	 * 
+	 * @return {@code true} if a transfer is in progress.
+	 */
+	public boolean isBusy() {
+		return !transfers.isEmpty();
+	}
+
+	/**
+	 * Completes the transfer in service. A swapped out process frees its
+	 * memory; a swapped in process is ready to run.
+	 * 
+	 * @return The process swapped in, or {@code null} after a swap-out.
+	 */
+	public Process transferDone() {
+		Transfer t = transfers.removeFirst();
+		Process p = t.process;
+		trafficKb += p.getMemoryNeeded();
+		if (t.out) {
+			swapOuts++;
+			Statistics.processSwappedOut(p.getMemoryNeeded());
+			memoryBeingFreed -= p.getMemoryNeeded();
+			memory.releaseMemory(p);
+			states.put(p, SWAPPED_OUT);
+			if (readyWhileSwapping.remove(p)) {
+				swapInQueue.addLast(p);
+			}
+			return null;
+		}
+		swapIns++;
+		Statistics.processSwappedIn(p.getMemoryNeeded());
+		states.remove(p);
+		return p;
+	}
+
+	/**
+	 * Returns the duration of the transfer now in service.
+	 * 
+	 * @return The transfer time, or -1 if the device is idle.
+	 */
+	public long nextTransferTime() {
+		return transfers.isEmpty() ? -1 : transferTime(transfers.peekFirst().process);
+	}
+
+	/**
+	 * Registers the time passed, for the swap device statistics.
+	 * 
+	 * @param timePassed The time since the last call.
+	 */
+	public void timePassed(long timePassed) {
+		if (!transfers.isEmpty()) {
+			deviceActiveTime += timePassed;
+		}
+	}
+
+	private long transferTime(Process p) {
+		return latency + p.getMemoryNeeded() * timePerMb / 1000;
+	}
+
+	/**
+	 * Prints the swap statistics.
+	 */
+	public void printReport() {
+		System.out.println();
+		System.out.println("Swapping:");
+		System.out.println("Processes swapped out:                                        " + swapOuts);
+		System.out.println("Processes swapped in:                                         " + swapIns);
+		System.out.println("Swap traffic:                                                 " + trafficKb + " kB");
+		System.out.println("Swap device utilization:                                      "
+				+ (SystemClock.getTime() > 0 ? (float) 100 * deviceActiveTime / SystemClock.getTime() : 0) + "%");
+	}
+
+	/**
+	 * Runs the simulator without swapping and with each built-in victim
+	 * policy, with the same random numbers, and prints throughput and swap
+	 * traffic for each.
+	 * 
+	 * @param args memory size, max CPU time, avg I/O time, simulation length
+	 *            and avg arrival interval, optionally followed by the options
+	 *            of a {@link Sweep}.
+	 * @throws IOException If the result cache cannot be used.
+	 */
+	public static void main(String args[]) throws IOException {
+		Sweep sweep = new Sweep(args);
+		// Long I/O operations keep memory full of blocked processes, without
+		// the CPU overload of the testing values, under which none completes
+		long[] params = sweep.getParameters(Constants.TESTING_MEMORY_SIZSE, 50, 1000, 4000000, 6000);
+
+		System.out.println(String.format("%-14s %10s %10s %10s %12s %10s %12s", "Victim policy",
+				"Completed", "Throughput", "CPU util", "Memory wait", "Swaps out", "Traffic kB"));
+		for (int policy = -1; policy < POLICIES.length; policy++) {
+			double[] results = policy >= 0 ? sweep.run(params, "-swap=" + POLICY_NAMES[policy])
+					: sweep.run(params);
+			double completed = Sweep.get(results, "processes_completed");
+			System.out.println(String.format("%-14s %10.0f %10.3f %9.1f%% %9.0f ms %10.0f %12.0f",
+					policy >= 0 ? POLICY_NAMES[policy] : "(no swapping)", completed,
+					results[ResultCache.THROUGHPUT], results[ResultCache.CPU_UTILIZATION],
+					completed > 0 ? Sweep.get(results, "memory_wait_ms") / completed : 0,
+					Sweep.get(results, "swap_outs"), Sweep.get(results, "swap_traffic_kb")));
+		}
+		sweep.printReport();
+	}
+}
@@ -0,0 +1,137 @@
+package simulator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The command line and the runs of a sweep, which simulates one
+ * configuration for each point of a comparison, such as each policy of a
+ * model. Every point is run with the same seed, so that the points see the
+ * same arrivals and processes, and through a {@link ResultCache} if one is
+ * given, so that a sweep that is run again only simulates the points that
+ * changed.
+ * 
+ * The command line of a sweep holds its positional arguments, -seed=n (1 by
+ * default), -cache=directory[:max kB], the options of the sweep itself, and
+ * other options, which are passed on to {@link Simulator#create(String[])}
+ * for every point.
+ */
+public class Sweep {
+	/** The positional arguments */
+	private List<String> arguments = new ArrayList<String>();
+	/** The options passed on to the simulator, by name */
+	private LinkedHashMap<String, String> options = new LinkedHashMap<String, String>();
+	private long seed = 1;
+	private ResultCache cache;
+
+	/**
+	 * Parses the command line of a sweep.
+	 * 
+	 * @param args The arguments of the main method of the sweep.
+	 * @throws IOException If the cache cannot be opened.
+	 */
+	public Sweep(String[] args) throws IOException {
+		for (String arg : args) {
+			if (arg.startsWith("-seed=")) {
+				seed = Long.parseLong(arg.substring(6));
+			} else if (arg.startsWith("-cache=")) {
+				cache = ResultCache.parse(arg.substring(7));
+			} else if (arg.startsWith("-")) {
+				int equals = arg.indexOf('=');
+				options.put(equals < 0 ? arg : arg.substring(0, equals), arg);
+			} else {
+				arguments.add(arg);
+			}
+		}
+	}
+
+	/**
+	 * Returns a positional argument.
+	 * 
+	 * @param index The index of the argument.
+	 * @param defaultValue The value if the argument is left out.
+	 * @return The argument.
+	 */
+	public String getArgument(int index, String defaultValue) {
+		return index < arguments.size() ? arguments.get(index) : defaultValue;
+	}
+
+	/**
+	 * Returns the positional arguments as numbers, such as the parameters of
+	 * {@link Simulator#create(String[])}.
+	 * 
+	 * @param defaults The value of each argument if it is left out.
+	 * @return The arguments.
+	 */
+	public long[] getParameters(long... defaults) {
+		long[] params = defaults.clone();
+		for (int i = 0; i < params.length && i < arguments.size(); i++) {
+			params[i] = Long.parseLong(arguments.get(i));
+		}
+		return params;
+	}
+
+	/**
+	 * Takes an option of the sweep itself, which is not passed on to the
+	 * simulator.
+	 * 
+	 * @param name The name of the option, e.g. "-aging".
+	 * @param defaultValue The value if the option is left out.
+	 * @return The value of the option.
+	 */
+	public String takeOption(String name, String defaultValue) {
+		String option = options.remove(name);
+		return option == null ? defaultValue : option.substring(Math.min(option.length(), name.length() + 1));
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Runs one point of the sweep, or returns its results from the cache.
+	 * 
+	 * @param params The parameters of {@link Simulator#create(String[])}.
+	 * @param pointOptions The options of the point, which take precedence
+	 *            over those of the command line.
+	 * @return The results, indexed as {@link ResultCache#RESULT_NAMES}.
+	 * @throws IOException If a workload file cannot be read or the results
+	 *             cannot be written.
+	 */
+	public double[] run(long[] params, String... pointOptions) throws IOException {
+		List<String> args = new ArrayList<String>();
+		for (long param : params) {
+			args.add(Long.toString(param));
+		}
+		args.addAll(options.values());
+		args.addAll(Arrays.asList(pointOptions));
+		args.add("-seed=" + seed);
+		String[] runArgs = args.toArray(new String[args.size()]);
+		return cache != null ? cache.run(runArgs) : ResultCache.simulate(runArgs);
+	}
+
+	/**
+	 * Returns a result by name, such as a counter of {@link Statistics}.
+	 * 
+	 * @param results The results of a point.
+	 * @param name The name of the result, e.g. "swap_outs".
+	 * @return The value of the result.
+	 * @throws IllegalArgumentException If there is no result with that name.
+	 */
+	public static double get(double[] results, String name) {
+		int index = ResultCache.getIndex(name);
+		if (index < 0) {
+			throw new IllegalArgumentException("Unknown result " + name);
+		}
+		return results[index];
+	}
+
+	/**
+	 * Prints the use of the cache, if there is one.
+	 */
+	public void printReport() {
+		if (cache != null) {
+			cache.printReport();
+		}
+	}
+}
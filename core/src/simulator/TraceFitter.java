@@ -0,0 +1,463 @@
+package simulator;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Fits the workload distributions to recorded traces. A trace has one
+ * observation per line, a workload key (see {@link Workload}) and a value
+ * separated by white space or a comma, for instance "io 23" or "cpu,4100".
+ * The key "start" gives absolute start times of processes, which are turned
+ * into arrival intervals. Lines starting with '#' are skipped, and traces
+ * ending in .gz are decompressed.
+ * 
+ * Traces are read once, as a stream, and only summaries are kept for each
+ * key: the sums needed by the maximum likelihood fits and a histogram with
+ * logarithmic bins. Memory use does not grow with the length of the trace,
+ * and several traces can be added one after another.
+ * 
+ * For each key the exponential, Erlang, lognormal, bounded Pareto and two
+ * phase hyperexponential distributions are fitted by maximum likelihood.
+ * The hyperexponential is fitted by EM on the histogram, the others from the
+ * sums. The fits are ranked by their Kolmogorov-Smirnov distance to the
+ * histogram, with Akaike's information criterion deciding between fits that
+ * are about as close. The best one goes into the workload, unless no fit is
+ * within the accepted distance, in which case the histogram itself is used.
+ */
+public class TraceFitter {
+	/** Histogram bins per factor 10 */
+	private static final int BINS_PER_DECADE = 20;
+	/** The lower edge of the first bin is 10^LOG_MIN */
+	private static final int LOG_MIN = -1;
+	/** The number of bins, up to 10^12 */
+	private static final int BINS = (12 - LOG_MIN) * BINS_PER_DECADE;
+	/** Traces record whole ms and kB, so smaller values are taken as this */
+	private static final double MIN_VALUE = 0.5;
+	/** Fits whose distances differ less than this are ranked by AIC */
+	private static final double DISTANCE_TOLERANCE = 0.002;
+	/** Default largest accepted Kolmogorov-Smirnov distance */
+	public static final double DEFAULT_MAX_DISTANCE = 0.05;
+
+	/**
+	 * The summary of the values of one key.
+	 */
+	private static class Summary {
+		long n = 0;
+		double sum = 0, sumLog = 0, sumLogSquares = 0;
+		double min = Double.MAX_VALUE, max = 0;
+		long[] bins = new long[BINS];
+
+		void add(double x) {
+			x = Math.max(MIN_VALUE, x);
+			double log = Math.log(x);
+			n++;
+			sum += x;
+			sumLog += log;
+			sumLogSquares += log * log;
+			min = Math.min(min, x);
+			max = Math.max(max, x);
+			int bin = (int) Math.floor((Math.log10(x) - LOG_MIN) * BINS_PER_DECADE);
+			bins[Math.max(0, Math.min(BINS - 1, bin))]++;
+		}
+	}
+
+	/**
+	 * A fitted distribution and how well it fits.
+	 */
+	public static class Fit {
+		/** The fitted distribution */
+		public final Distribution distribution;
+		/** The log-likelihood of the trace */
+		public final double logLikelihood;
+		/** Akaike's information criterion */
+		public final double aic;
+		/** The Kolmogorov-Smirnov distance to the histogram */
+		public final double distance;
+
+		Fit(Distribution distribution, double logLikelihood, int parameters, double distance) {
+			this.distribution = distribution;
+			this.logLikelihood = logLikelihood;
+			this.aic = 2 * parameters - 2 * logLikelihood;
+			this.distance = distance;
+		}
+	}
+
+	/** The summary of every key seen, in order of appearance */
+	private LinkedHashMap<String, Summary> summaries = new LinkedHashMap<String, Summary>();
+	/** The last start time seen */
+	private double lastStart = Double.NaN;
+	private double maxDistance = DEFAULT_MAX_DISTANCE;
+	private long lines = 0;
+	private long skipped = 0;
+
+	/**
+	 * Sets the largest Kolmogorov-Smirnov distance at which a fitted
+	 * distribution is used rather than the histogram.
+	 * 
+	 * @param maxDistance The distance, between 0 and 1.
+	 */
+	public void setMaxDistance(double maxDistance) {
+		this.maxDistance = maxDistance;
+	}
+
+	/**
+	 * Adds one observation.
+	 * 
+	 * @param key The workload key, or "start" for a start time.
+	 * @param value The value.
+	 */
+	public void add(String key, double value) {
+		if (key.equals("start")) {
+			if (!Double.isNaN(lastStart) && value >= lastStart) {
+				add(Workload.ARRIVAL, value - lastStart);
+			}
+			lastStart = value;
+			return;
+		}
+		if (!Arrays.asList(Workload.KEYS).contains(key)) {
+			throw new IllegalArgumentException("Unknown workload key " + key);
+		}
+		Summary summary = summaries.get(key);
+		if (summary == null) {
+			summary = new Summary();
+			summaries.put(key, summary);
+		}
+		summary.add(value);
+	}
+
+	/**
+	 * Reads a trace, adding its observations to those read before.
+	 * Malformed lines are counted and skipped.
+	 * 
+	 * @param file The trace, compressed with gzip if its name ends in .gz.
+	 * @throws IOException If the trace cannot be read.
+	 */
+	public void read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		if (file.getName().endsWith(".gz")) {
+			in = new GZIPInputStream(in, 1 << 16);
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in), 1 << 16);
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines++;
+				line = line.trim();
+				if (line.length() == 0 || line.charAt(0) == '#') {
+					continue;
+				}
+				int end = 0;
+				while (end < line.length() && line.charAt(end) != ',' && !Character.isWhitespace(line.charAt(end))) {
+					end++;
+				}
+				int start = end;
+				while (start < line.length() && (line.charAt(start) == ',' || Character.isWhitespace(line.charAt(start)))) {
+					start++;
+				}
+				try {
+					add(line.substring(0, end).toLowerCase(), Double.parseDouble(line.substring(start)));
+				} catch (IllegalArgumentException e) {
+					skipped++;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Fits every candidate distribution to the values of a key.
+	 * 
+	 * @param key The workload key.
+	 * @return The fits, best first, or an empty list if the key has no values.
+	 */
+	public List<Fit> fit(String key) {
+		Summary s = summaries.get(key);
+		List<Fit> fits = new ArrayList<Fit>();
+		if (s == null) {
+			return fits;
+		}
+		double n = s.n;
+		double mean = s.sum / n;
+		double meanLog = s.sumLog / n;
+
+		// Exponential
+		fits.add(fit(s, new Distributions.Erlang(1, round(mean)), -n * Math.log(mean) - n, 1));
+
+		// Erlang: gamma with the shape rounded to an integer (Minka's estimate)
+		double g = Math.log(mean) - meanLog;
+		int k = g > 0 ? (int) Math.max(1, Math.round((3 - g + Math.sqrt((g - 3) * (g - 3) + 24 * g)) / (12 * g))) : 1;
+		if (k > 1) {
+			double theta = mean / k;
+			double logGamma = 0;
+			for (int j = 2; j < k; j++) {
+				logGamma += Math.log(j);
+			}
+			double ll = (k - 1) * s.sumLog - n * k - n * k * Math.log(theta) - n * logGamma;
+			fits.add(fit(s, new Distributions.Erlang(k, round(mean)), ll, 2));
+		}
+
+		// Lognormal
+		double variance = Math.max(1e-12, s.sumLogSquares / n - meanLog * meanLog);
+		double sigma = Math.sqrt(variance);
+		double ll = -s.sumLog - n * Math.log(sigma) - n / 2 * Math.log(2 * Math.PI) - n / 2;
+		fits.add(fit(s, new Distributions.Lognormal(round(Math.exp(meanLog + variance / 2)),
+				round(Math.sqrt(Math.exp(variance) - 1))), ll, 2));
+
+		// Bounded Pareto between the smallest and largest value, unless they
+		// are the same once rounded
+		double low = round(s.min);
+		double high = round(s.max);
+		if (low < high) {
+			double alpha = paretoShape(s);
+			double r = Math.pow(s.min / s.max, alpha);
+			ll = n * Math.log(alpha) + n * alpha * Math.log(s.min) - n * Math.log(1 - r) - (alpha + 1) * s.sumLog;
+			fits.add(fit(s, new Distributions.BoundedPareto(round(alpha), low, high), ll, 3));
+		}
+
+		// Two phase hyperexponential, by EM on the histogram
+		Distributions.Hyperexponential h2 = fitHyperexponential(s, mean);
+		fits.add(fit(s, h2, binnedLogLikelihood(s, h2), 3));
+
+		Collections.sort(fits, new Comparator<Fit>() {
+			public int compare(Fit a, Fit b) {
+				return Double.compare(a.distance, b.distance);
+			}
+		});
+		// Among fits about as close as the best, the lowest AIC goes first
+		Fit best = fits.get(0);
+		for (Fit fit : fits) {
+			if (fit.distance <= fits.get(0).distance + DISTANCE_TOLERANCE && fit.aic < best.aic) {
+				best = fit;
+			}
+		}
+		fits.remove(best);
+		fits.add(0, best);
+		return fits;
+	}
+
+	private Fit fit(Summary s, Distribution d, double logLikelihood, int parameters) {
+		return new Fit(d, logLikelihood, parameters, distance(s, d));
+	}
+
+	/**
+	 * Solves the likelihood equation of the bounded Pareto shape by bisection.
+	 */
+	private static double paretoShape(Summary s) {
+		double lo = 1e-4, hi = 100;
+		double logRatio = Math.log(s.min / s.max);
+		for (int i = 0; i < 100; i++) {
+			double alpha = (lo + hi) / 2;
+			double r = Math.exp(alpha * logRatio);
+			double score = s.n / alpha + s.n * Math.log(s.min) - s.sumLog + s.n * r * logRatio / (1 - r);
+			if (score > 0) {
+				lo = alpha;
+			} else {
+				hi = alpha;
+			}
+		}
+		return (lo + hi) / 2;
+	}
+
+	/**
+	 * Fits a two phase hyperexponential to the histogram by EM, starting
+	 * from the balanced means fit of the mean and variance of the histogram.
+	 */
+	private static Distributions.Hyperexponential fitHyperexponential(Summary s, double mean) {
+		double squares = 0;
+		for (int i = 0; i < BINS; i++) {
+			double x = midpoint(s, i);
+			squares += s.bins[i] * (x - mean) * (x - mean);
+		}
+		double cv2 = squares / s.n / (mean * mean);
+		double p = cv2 > 1 ? 0.5 * (1 + Math.sqrt((cv2 - 1) / (cv2 + 1))) : 0.5;
+		double m1 = cv2 > 1 ? mean / (2 * p) : mean / 2;
+		double m2 = cv2 > 1 ? mean / (2 * (1 - p)) : mean * 1.5;
+
+		for (int iteration = 0; iteration < 200; iteration++) {
+			double w1 = 0, w2 = 0, x1 = 0, x2 = 0;
+			for (int i = 0; i < BINS; i++) {
+				if (s.bins[i] == 0) {
+					continue;
+				}
+				double x = midpoint(s, i);
+				double f1 = p / m1 * Math.exp(-x / m1);
+				double f2 = (1 - p) / m2 * Math.exp(-x / m2);
+				double r = f1 + f2 > 0 ? f1 / (f1 + f2) : (x < (m1 + m2) / 2 ? 1 : 0);
+				w1 += s.bins[i] * r;
+				w2 += s.bins[i] * (1 - r);
+				x1 += s.bins[i] * r * x;
+				x2 += s.bins[i] * (1 - r) * x;
+			}
+			if (w1 == 0 || w2 == 0) {
+				break;
+			}
+			p = w1 / s.n;
+			m1 = x1 / w1;
+			m2 = x2 / w2;
+		}
+		return new Distributions.Hyperexponential(new double[] { round(p), round(m1), round(1 - round(p)), round(m2) });
+	}
+
+	/**
+	 * Approximates the log-likelihood by evaluating the density at the
+	 * midpoint of every bin.
+	 */
+	private static double binnedLogLikelihood(Summary s, Distributions.Hyperexponential h) {
+		double ll = 0;
+		for (int i = 0; i < BINS; i++) {
+			if (s.bins[i] > 0) {
+				double x = midpoint(s, i);
+				ll += s.bins[i] * Math.log(h.density(x) + 1e-300);
+			}
+		}
+		return ll;
+	}
+
+	/**
+	 * Returns the largest difference between the distribution function of
+	 * the histogram and that of a distribution, at the bin edges.
+	 */
+	private static double distance(Summary s, Distribution d) {
+		double distance = 0;
+		long cumulative = 0;
+		for (int i = 0; i < BINS && cumulative < s.n; i++) {
+			cumulative += s.bins[i];
+			if (cumulative > 0) {
+				double edge = Math.min(s.max, edge(i + 1));
+				distance = Math.max(distance, Math.abs((double) cumulative / s.n - cdf(d, edge)));
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * The distribution function of the fitted distributions.
+	 */
+	private static double cdf(Distribution d, double x) {
+		if (d instanceof Distributions.Erlang) {
+			return ((Distributions.Erlang) d).cdf(x);
+		} else if (d instanceof Distributions.Lognormal) {
+			return ((Distributions.Lognormal) d).cdf(x);
+		} else if (d instanceof Distributions.BoundedPareto) {
+			return ((Distributions.BoundedPareto) d).cdf(x);
+		} else if (d instanceof Distributions.Hyperexponential) {
+			return ((Distributions.Hyperexponential) d).cdf(x);
+		}
+		throw new IllegalArgumentException("No distribution function for " + d);
+	}
+
+	private static double edge(int bin) {
+		return Math.pow(10, LOG_MIN + (double) bin / BINS_PER_DECADE);
+	}
+
+	/**
+	 * The geometric middle of a bin, kept within the range of the values.
+	 */
+	private static double midpoint(Summary s, int bin) {
+		return Math.max(s.min, Math.min(s.max, Math.sqrt(edge(bin) * edge(bin + 1))));
+	}
+
+	/**
+	 * Rounds to four significant digits, which keeps the workload readable.
+	 */
+	private static double round(double x) {
+		return Double.parseDouble(String.format(Locale.ROOT, "%.4g", x));
+	}
+
+	/**
+	 * Returns the histogram of a key as a distribution, with one bin per
+	 * bin of the histogram that has values.
+	 * 
+	 * @param key The workload key.
+	 * @return The histogram, or {@code null} if the key has no values.
+	 */
+	public EmpiricalDistribution getHistogram(String key) {
+		Summary s = summaries.get(key);
+		if (s == null) {
+			return null;
+		}
+		List<double[]> bins = new ArrayList<double[]>();
+		for (int i = 0; i < BINS; i++) {
+			if (s.bins[i] > 0) {
+				bins.add(new double[] { round(Math.max(s.min, edge(i))), round(Math.min(s.max, edge(i + 1))), s.bins[i] });
+			}
+		}
+		double[] low = new double[bins.size()], high = new double[bins.size()], weights = new double[bins.size()];
+		for (int i = 0; i < bins.size(); i++) {
+			low[i] = bins.get(i)[0];
+			high[i] = bins.get(i)[1];
+			weights[i] = bins.get(i)[2];
+		}
+		return new EmpiricalDistribution(low, high, weights);
+	}
+
+	/**
+	 * Builds the workload from the best fit of every key, or the histogram
+	 * if no fit is close enough.
+	 * 
+	 * @return The workload.
+	 */
+	public Workload getWorkload() {
+		Workload workload = new Workload();
+		for (String key : summaries.keySet()) {
+			List<Fit> fits = fit(key);
+			workload.set(key, fits.get(0).distance <= maxDistance ? fits.get(0).distribution : getHistogram(key));
+		}
+		return workload;
+	}
+
+	/**
+	 * Prints the fits of every key, best first.
+	 */
+	public void printReport() {
+		System.out.println("Lines read: " + lines + ", skipped: " + skipped);
+		for (String key : summaries.keySet()) {
+			Summary s = summaries.get(key);
+			System.out.println();
+			System.out.println(String.format("%s: %d values, mean %.2f, min %.2f, max %.2f", key, s.n,
+					s.sum / s.n, s.min, s.max));
+			System.out.println(String.format("  %-36s %14s %14s %8s", "Distribution", "Log-likelihood",
+					"AIC", "KS"));
+			for (Fit fit : fit(key)) {
+				System.out.println(String.format("  %-36s %14.1f %14.1f %8.4f", fit.distribution,
+						fit.logLikelihood, fit.aic, fit.distance));
+			}
+		}
+	}
+
+	/**
+	 * Fits the traces given and writes the workload.
+	 * 
+	 * @param args Trace files, optionally followed by -out=file for the
+	 *            workload (printed if left out) and -max-ks=distance.
+	 * @throws IOException If a trace cannot be read or the workload written.
+	 */
+	public static void main(String args[]) throws IOException {
+		TraceFitter fitter = new TraceFitter();
+		String out = null;
+		List<File> traces = new ArrayList<File>();
+		for (String arg : args) {
+			if (arg.startsWith("-out=")) {
+				out = arg.substring(5);
+			} else if (arg.startsWith("-max-ks=")) {
+				fitter.setMaxDistance(Double.parseDouble(arg.substring(8)));
+			} else {
+				traces.add(new File(arg));
+			}
+		}
+		for (File trace : traces) {
+			fitter.read(trace);
+		}
+		fitter.printReport();
+
+		System.out.println();
+		PrintWriter writer = out != null ? new PrintWriter(new FileWriter(out)) : new PrintWriter(System.out);
+		fitter.getWorkload().store(writer, "Fitted from " + traces);
+		if (out != null) {
+			writer.close();
+			System.out.println("Workload written to " + out);
+		}
+	}
+}
@@ -0,0 +1,466 @@
+package simulator;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Demand-paged virtual memory. Processes are admitted without the whole of
+ * their memory being available; physical memory is divided into page frames,
+ * and the pages of a process are read in when it refers to them. A reference
+ * to a page that is not resident is a page fault: the process leaves the CPU
+ * and waits for the paging device, a FIFO I/O device with a fixed service
+ * time. When every frame is in use, the replacement policy chooses the page
+ * to evict.
+ * 
+ * While running, a process refers to one page per ms of CPU time. Most
+ * references fall in its current locality, a window of its pages that
+ * moves now and then; the rest anywhere in its address space. The locality
+ * of a new process is its initial working set. The references of a CPU
+ * slice are resolved when the slice starts, which is exact as long as no
+ * other process evicts one of its pages while it runs.
+ * 
+ * The load controller follows the L = S criterion of Denning: when the mean
+ * CPU time between faults drops below the time to service a fault, the
+ * system is thrashing, and no more processes are admitted until the fault
+ * rate falls again. Processes already admitted are not suspended.
+ * 
+ * Enabled with {@link Simulator#enableVirtualMemory(int, long)}.
+ */
+public class VirtualMemory extends Memory {
+	/** First in, first out replacement */
+	public static final int FIFO = 0;
+	/** Least recently used replacement */
+	public static final int LRU = 1;
+	/** Second chance replacement */
+	public static final int CLOCK = 2;
+	/** Adaptive replacement cache */
+	public static final int ARC = 3;
+	/** Names of the policies, indexed by policy */
+	public static final String[] POLICY_NAMES = { "FIFO", "LRU", "CLOCK", "ARC" };
+
+	/** Default page size (kB) */
+	public static final long DEFAULT_PAGE_SIZE = 4;
+	/** Default time to service a page fault (ms) */
+	public static final long DEFAULT_FAULT_SERVICE_TIME = 10;
+
+	/** Probability that a reference falls in the current locality */
+	private static final double LOCALITY = 0.95;
+	/** Probability that the locality moves after a reference */
+	private static final double PHASE_CHANGE = 0.002;
+	/** Page faults between two decisions of the load controller */
+	private static final int CONTROL_INTERVAL = 20;
+
+	/**
+	 * The pages of one admitted process.
+	 */
+	private static class AddressSpace {
+		/** The number of the process, used in page keys */
+		long pid;
+		/** The frame holding each page, -1 if not resident */
+		int[] frames;
+		/** The first page and size of the current locality */
+		int localityStart, localitySize;
+		/** The page of the fault being serviced */
+		int faultPage = -1;
+	}
+
+	/** The replacement policy */
+	private int policy;
+	private PageReplacement replacement;
+	/** The size of a page (kB) */
+	private long pageSize;
+	/** The time to service a page fault (ms) */
+	private long faultServiceTime;
+	/** Whether the load controller limits admission */
+	private boolean loadControl = true;
+
+	/** The address space owning each frame, null if free */
+	private AddressSpace[] frameOwner;
+	/** The page held by each frame */
+	private int[] framePage;
+	/** The free frames */
+	private int[] freeFrames;
+	private int freeCount;
+
+	/** Address spaces of the admitted processes */
+	private IdentityHashMap<Process, AddressSpace> spaces = new IdentityHashMap<Process, AddressSpace>();
+	/** The admission limit set by the load controller */
+	private int admissionLimit = Integer.MAX_VALUE;
+
+	/** Processes waiting for the paging device, the first one in service */
+	private ArrayDeque<Process> pagerQueue = new ArrayDeque<Process>();
+
+	/** Statistics */
+	private long references = 0;
+	private long faults = 0;
+	private long evictions = 0;
+	private long pagerActiveTime = 0;
+	private long thrashingPeriods = 0;
+	private long largestAdmitted = 0;
+	/** References and faults since the last decision of the load controller */
+	private long windowReferences = 0;
+	private long windowFaults = 0;
+	private boolean thrashing = false;
+
+	/**
+	 * Creates a virtual memory with default page size and fault service time.
+	 * 
+	 * @param memoryQueue The memory queue to be used.
+	 * @param memorySize The memory size the sizes of processes are drawn
+	 *            from, as without virtual memory.
+	 * @param physicalMemory The amount of physical memory.
+	 * @param policy The replacement policy, e.g. {@link #LRU}.
+	 */
+	public VirtualMemory(Queue memoryQueue, long memorySize, long physicalMemory, int policy) {
+		this(memoryQueue, memorySize, physicalMemory, policy, DEFAULT_PAGE_SIZE,
+				DEFAULT_FAULT_SERVICE_TIME);
+	}
+
+	/**
+	 * Creates a virtual memory.
+	 * 
+	 * @param memoryQueue The memory queue to be used.
+	 * @param memorySize The memory size the sizes of processes are drawn
+	 *            from, as without virtual memory.
+	 * @param physicalMemory The amount of physical memory.
+	 * @param policy The replacement policy.
+	 * @param pageSize The size of a page.
+	 * @param faultServiceTime The time to service a page fault (ms).
+	 * @throws IllegalArgumentException If the policy is not known.
+	 */
+	public VirtualMemory(Queue memoryQueue, long memorySize, long physicalMemory,
+			int policy, long pageSize, long faultServiceTime) {
+		super(memoryQueue, memorySize);
+		this.policy = policy;
+		this.pageSize = pageSize;
+		this.faultServiceTime = faultServiceTime;
+		int frames = (int) Math.max(1, physicalMemory / pageSize);
+		switch (policy) {
+		case FIFO:
+			replacement = new FifoReplacement(frames);
+			break;
+		case CLOCK:
+			replacement = new ClockReplacement(frames);
+			break;
+		case ARC:
+			replacement = new ArcReplacement(frames);
+			break;
+		case LRU:
+			replacement = new LruReplacement(frames);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown replacement policy " + policy);
+		}
+		frameOwner = new AddressSpace[frames];
+		framePage = new int[frames];
+		freeFrames = new int[frames];
+		for (int i = 0; i < frames; i++) {
+			freeFrames[i] = frames - 1 - i;
+		}
+		freeCount = frames;
+	}
+
+	/**
+	 * Looks up a policy by name, ignoring case.
+	 * 
+	 * @param name The name of the policy, e.g. "clock".
+	 * @return The policy, or -1 if there is no policy with that name.
+	 */
+	public static int getPolicy(String name) {
+		for (int i = 0; i < POLICY_NAMES.length; i++) {
+			if (POLICY_NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Turns the load controller on or off. Without it every process is
+	 * admitted at once.
+	 * 
+	 * @param loadControl {@code true} to limit admission when thrashing.
+	 */
+	public void setLoadControl(boolean loadControl) {
+		this.loadControl = loadControl;
+		if (!loadControl) {
+			admissionLimit = Integer.MAX_VALUE;
+		}
+	}
+
+	public long getFaultServiceTime() {
+		return faultServiceTime;
+	}
+
+	/**
+	 * Returns the amount of memory in free page frames.
+	 * 
+	 * @return The free memory.
+	 */
+	public long getFreeMemorySize() {
+		return freeCount * pageSize;
+	}
+
+	/**
+	 * Admits the first process in the memory queue unless the load controller
+	 * has closed admission. No memory is needed up front.
+	 * 
+	 * @return The process admitted, or {@code null} if none.
+	 */
+	public Process getNextProcess() {
+		Queue queue = getQueue();
+		if (queue.isEmpty() || spaces.size() >= admissionLimit) {
+			return null;
+		}
+		Process p = (Process) queue.removeNext();
+		AddressSpace space = new AddressSpace();
+		space.pid = p.getProcessId();
+		space.frames = new int[(int) Math.max(1, (p.getMemoryNeeded() + pageSize - 1) / pageSize)];
+		Arrays.fill(space.frames, -1);
+		int pages = space.frames.length;
+		space.localitySize = Math.max(1, (int) (pages * (0.1 + 0.2 * RandomStreams.nextDouble(RandomStreams.PAGING))));
+		space.localityStart = 0;
+		spaces.put(p, space);
+		largestAdmitted = Math.max(largestAdmitted, spaces.size());
+		return p;
+	}
+
+	/**
+	 * Frees the page frames of a process leaving the system.
+	 * 
+	 * @param p The process that is leaving the system.
+	 */
+	public void releaseMemory(Process p) {
+		AddressSpace space = spaces.remove(p);
+		if (space == null) {
+			return;
+		}
+		for (int frame : space.frames) {
+			if (frame >= 0) {
+				replacement.removed(frame);
+				frameOwner[frame] = null;
+				freeFrames[freeCount++] = frame;
+			}
+		}
+	}
+
+	/**
+	 * Runs the references a process makes in the CPU slice about to start,
+	 * and finds the first page fault among them.
+	 * 
+	 * @param p The process given the CPU.
+	 * @param sliceLength The length of the slice if there is no fault.
+	 * @return The CPU time until the first page fault, or -1 if the slice
+	 *         runs without faults.
+	 */
+	public long run(Process p, long sliceLength) {
+		AddressSpace space = spaces.get(p);
+		if (space == null) {
+			return -1;
+		}
+		int pages = space.frames.length;
+		for (long t = 0; t < sliceLength; t++) {
+			int page;
+			if (RandomStreams.nextDouble(RandomStreams.PAGING) < LOCALITY) {
+				page = (space.localityStart
+						+ (int) (RandomStreams.nextDouble(RandomStreams.PAGING) * space.localitySize)) % pages;
+			} else {
+				page = (int) (RandomStreams.nextDouble(RandomStreams.PAGING) * pages);
+			}
+			if (RandomStreams.nextDouble(RandomStreams.PAGING) < PHASE_CHANGE) {
+				space.localityStart = (int) (RandomStreams.nextDouble(RandomStreams.PAGING) * pages);
+			}
+
+			references++;
+			windowReferences++;
+			int frame = space.frames[page];
+			if (frame >= 0) {
+				replacement.referenced(frame);
+			} else {
+				space.faultPage = page;
+				faults++;
+				windowFaults++;
+				Statistics.pageFault();
+				replacement.missed(key(space, page));
+				controlLoad();
+				return t;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Queues a faulting process at the paging device.
+	 * 
+	 * @param p The process.
+	 * @return Whether the device was idle, so that the page-in starts now.
+	 */
+	public boolean startPageIn(Process p) {
+		pagerQueue.addLast(p);
+		return pagerQueue.size() == 1;
+	}
+
+	/**
+	 * Completes the page-in in service: the page is read into a free frame,
+	 * or into the frame of a page evicted by the replacement policy.
+	 * 
+	 * @return The process whose page is now resident.
+	 */
+	public Process endPageIn() {
+		Process p = pagerQueue.removeFirst();
+		AddressSpace space = spaces.get(p);
+		int page = space.faultPage;
+		space.faultPage = -1;
+
+		int frame;
+		if (freeCount > 0) {
+			frame = freeFrames[--freeCount];
+		} else {
+			frame = replacement.victim();
+			frameOwner[frame].frames[framePage[frame]] = -1;
+			evictions++;
+		}
+		frameOwner[frame] = space;
+		framePage[frame] = page;
+		space.frames[page] = frame;
+		replacement.loaded(frame, key(space, page));
+		return p;
+	}
+
+	/**
+	 * Checks whether a page-in is in progress.
+	 * 
+	 * @return {@code true} if the paging device is busy.
+	 */
+	public boolean isPagerBusy() {
+		return !pagerQueue.isEmpty();
+	}
+
+	/**
+	 * Registers the time passed, for the paging device statistics.
+	 * 
+	 * @param timePassed The time since the last call.
+	 */
+	public void timePassed(long timePassed) {
+		super.timePassed(timePassed);
+		if (!pagerQueue.isEmpty()) {
+			pagerActiveTime += timePassed;
+		}
+	}
+
+	/**
+	 * The load controller. With one reference per ms of CPU time, the mean
+	 * time between faults L is the number of references per fault. Admission
+	 * is closed at the current level when L falls below the fault service
+	 * time S, and opened one process further when L exceeds 2 S.
+	 */
+	private void controlLoad() {
+		if (!loadControl || windowFaults < CONTROL_INTERVAL) {
+			return;
+		}
+		double l = (double) windowReferences / windowFaults;
+		if (l < faultServiceTime) {
+			if (!thrashing) {
+				thrashingPeriods++;
+			}
+			thrashing = true;
+			admissionLimit = Math.max(1, spaces.size() - 1);
+		} else if (l > 2 * faultServiceTime) {
+			thrashing = false;
+			if (admissionLimit != Integer.MAX_VALUE) {
+				admissionLimit = Math.max(admissionLimit, spaces.size()) + 1;
+			}
+		}
+		windowReferences = 0;
+		windowFaults = 0;
+	}
+
+	/**
+	 * A key identifying a page of a process, unique over the simulation.
+	 */
+	private static long key(AddressSpace space, int page) {
+		return (space.pid << 24) | page;
+	}
+
+	public long getFaults() {
+		return faults;
+	}
+
+	/**
+	 * Returns the page faults per 1000 references.
+	 * 
+	 * @return The fault rate.
+	 */
+	public float getFaultRate() {
+		return references > 0 ? (float) 1000 * faults / references : 0;
+	}
+
+	/**
+	 * Returns the utilization of the paging device.
+	 * 
+	 * @return The percentage of time the paging device was busy.
+	 */
+	public float getPagerUtilization() {
+		return SystemClock.getTime() > 0 ? (float) 100 * pagerActiveTime / SystemClock.getTime() : 0;
+	}
+
+	public long getThrashingPeriods() {
+		return thrashingPeriods;
+	}
+
+	/**
+	 * Prints the paging statistics.
+	 */
+	public void printReport() {
+		System.out.println();
+		System.out.println("Virtual memory (" + POLICY_NAMES[policy] + ", " + frameOwner.length
+				+ " frames of " + pageSize + " kB, load control " + (loadControl ? "on" : "off") + "):");
+		System.out.println("Page references:                                              " + references);
+		System.out.println("Page faults:                                                  " + faults);
+		System.out.println("Page faults per 1000 references:                              " + getFaultRate());
+		System.out.println("Pages evicted:                                                " + evictions);
+		System.out.println("Paging device utilization:                                    " + getPagerUtilization() + "%");
+		System.out.println("Largest number of admitted processes:                         " + largestAdmitted);
+		System.out.println("Periods of thrashing detected:                                " + thrashingPeriods);
+	}
+
+	/**
+	 * Runs the simulator with virtual memory for a range of physical memory
+	 * sizes, with and without the load controller, and prints throughput and
+	 * fault rate for each, so that the memory size where throughput collapses
+	 * can be read off. Processes are sized as for the testing memory size,
+	 * and I/O operations take 50 ms on average, so that the CPU and not the
+	 * I/O device limits throughput while there is enough memory.
+	 * 
+	 * @param args policy name, smallest and largest physical memory size,
+	 *            optionally followed by the options of a {@link Sweep}.
+	 * @throws IOException If the result cache cannot be used.
+	 */
+	public static void main(String args[]) throws IOException {
+		Sweep sweep = new Sweep(args);
+		int policy = getPolicy(sweep.getArgument(0, POLICY_NAMES[LRU]));
+		if (policy < 0) {
+			throw new IllegalArgumentException("Unknown replacement policy " + sweep.getArgument(0, null));
+		}
+		long smallest = Long.parseLong(sweep.getArgument(1, "256"));
+		long largest = Long.parseLong(sweep.getArgument(2, "4096"));
+		long[] params = { Constants.TESTING_MEMORY_SIZSE, Constants.TESTING_CPU_TIME, 50,
+				Constants.TESTING_SIMULATION_LENGTH, Constants.TESTING_AVG_ARRIVAL_INTERVAL };
+
+		System.out.println("Replacement policy " + POLICY_NAMES[policy]);
+		System.out.println(String.format("%8s | %12s %12s %10s | %12s %12s %10s", "Memory",
+				"Throughput", "Faults/1000", "CPU util", "Throughput", "Faults/1000", "CPU util"));
+		System.out.println(String.format("%8s | %36s | %36s", "", "without load control", "with load control"));
+		for (long memorySize = smallest; memorySize <= largest; memorySize *= 2) {
+			StringBuilder line = new StringBuilder(String.format("%8d", memorySize));
+			for (int control = 0; control < 2; control++) {
+				double[] results = sweep.run(params, "-paging=" + POLICY_NAMES[policy] + ":" + memorySize
+						+ (control == 0 ? ":nocontrol" : ""));
+				line.append(String.format(" | %12.3f %12.1f %9.1f%%", results[ResultCache.THROUGHPUT],
+						results[ResultCache.PAGE_FAULT_RATE], results[ResultCache.CPU_UTILIZATION]));
+			}
+			System.out.println(line);
+		}
+		sweep.printReport();
+	}
+}
@@ -0,0 +1,110 @@
+package simulator;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The distributions of the times and sizes in the simulated workload. Each
+ * quantity without a distribution is drawn as in the original simulator,
+ * uniformly around the average given on the command line.
+ * 
+ * A workload is read from a properties file that maps each key to a
+ * specification understood by {@link Distributions#parse(String)}, e.g.
+ * 
+ * <pre>
+ * arrival=mmpp:500:8000:20000:60000
+ * cpu=pareto:1.2:100:100000
+ * io=lognormal:50:1.5
+ * </pre>
+ * 
+ * Enabled with {@link Simulator#setWorkload(Workload)}.
+ */
+public class Workload {
+	/** Time between process arrivals (ms) */
+	public static final String ARRIVAL = "arrival";
+	/** Memory needed by a process (kB), at most the memory size */
+	public static final String MEMORY = "memory";
+	/** Total CPU time needed by a process (ms) */
+	public static final String CPU = "cpu";
+	/** Average CPU time between the I/O requests of a process (ms) */
+	public static final String INTERVAL = "interval";
+	/**
+	 * The shape of the CPU bursts between I/O requests, scaled to the average
+	 * interval of each process, so only the form of the distribution counts
+	 */
+	public static final String BURST = "burst";
+	/** Service time of the I/O device (ms) */
+	public static final String IO = "io";
+	/** All keys */
+	public static final String[] KEYS = { ARRIVAL, MEMORY, CPU, INTERVAL, BURST, IO };
+
+	private HashMap<String, Distribution> distributions = new HashMap<String, Distribution>();
+
+	/**
+	 * Returns the distribution of a quantity.
+	 * 
+	 * @param key The quantity, e.g. {@link #ARRIVAL}.
+	 * @return The distribution, or {@code null} to draw as before.
+	 */
+	public Distribution get(String key) {
+		return distributions.get(key);
+	}
+
+	/**
+	 * Sets the distribution of a quantity.
+	 * 
+	 * @param key The quantity, e.g. {@link #ARRIVAL}.
+	 * @param distribution The distribution, or {@code null} to draw as before.
+	 */
+	public void set(String key, Distribution distribution) {
+		if (!Arrays.asList(KEYS).contains(key)) {
+			throw new IllegalArgumentException("Unknown workload key " + key);
+		}
+		if (distribution == null) {
+			distributions.remove(key);
+		} else {
+			distributions.put(key, distribution);
+		}
+	}
+
+	/**
+	 * Reads a workload from a properties file.
+	 * 
+	 * @param file The file.
+	 * @return The workload.
+	 * @throws IOException If the file cannot be read.
+	 * @throws IllegalArgumentException If a key or specification is not valid.
+	 */
+	public static Workload load(File file) throws IOException {
+		Properties properties = new Properties();
+		Reader reader = new FileReader(file);
+		try {
+			properties.load(reader);
+		} finally {
+			reader.close();
+		}
+		Workload workload = new Workload();
+		for (String key : properties.stringPropertyNames()) {
+			workload.set(key, Distributions.parse(properties.getProperty(key)));
+		}
+		return workload;
+	}
+
+	/**
+	 * Writes the workload in the format read by {@link #load(File)}.
+	 * 
+	 * @param out The writer.
+	 * @param comment A comment for the first line, or {@code null}.
+	 */
+	public void store(PrintWriter out, String comment) {
+		if (comment != null) {
+			out.println("# " + comment);
+		}
+		for (String key : KEYS) {
+			if (distributions.containsKey(key)) {
+				out.println(key + "=" + distributions.get(key));
+			}
+		}
+		out.flush();
+	}
+}
@@ -1,6 +1,10 @@
+package simulator.gui;
+
 import java.awt.*;
 import javax.swing.*;
 
+import simulator.Constants;
+
 /**
  * Component used by the GUI to display an image, with an optional overlay image
  * and four possible orientations.
@@ -0,0 +1,72 @@
+package simulator.gui;
+
+import java.awt.*;
+
+import simulator.Process;
+
+/**
+ * Draws processes in the GUI. Kept apart from {@link Process} so that the
+ * simulation engine can run without loading AWT.
+ */
+public class ProcessPainter {
+	/** The font used by all processes */
+	private static Font font = new Font("Arial", Font.PLAIN, 10);
+
+	/**
+	 * Returns the pseudo-random color used by the GUI for a process.
+	 * 
+	 * @param p The process.
+	 * @return The color of the process.
+	 */
+	public static Color getColor(Process p) {
+		return getColor(p.getProcessId());
+	}
+
+	/**
+	 * Returns the pseudo-random color used by the GUI for a process.
+	 * 
+	 * @param processId The id of the process.
+	 * @return The color of the process.
+	 */
+	public static Color getColor(long processId) {
+		int red = 64 + (int) ((processId * 101) % 128);
+		int green = 64 + (int) ((processId * 47) % 128);
+		int blue = 64 + (int) ((processId * 53) % 128);
+		return new Color(red, green, blue);
+	}
+
+	/**
+	 * Draws a process as a colored box with a process ID inside.
+	 * 
+	 * @param p The process to draw.
+	 * @param g The graphics context.
+	 * @param x The leftmost x-coordinate of the box.
+	 * @param y The topmost y-coordinate of the box.
+	 * @param w The width of the box.
+	 * @param h The height of the box.
+	 */
+	public static void draw(Process p, Graphics g, int x, int y, int w, int h) {
+		draw(p.getProcessId(), g, x, y, w, h);
+	}
+
+	/**
+	 * Draws a process as a colored box with a process ID inside.
+	 * 
+	 * @param processId The id of the process to draw.
+	 * @param g The graphics context.
+	 * @param x The leftmost x-coordinate of the box.
+	 * @param y The topmost y-coordinate of the box.
+	 * @param w The width of the box.
+	 * @param h The height of the box.
+	 */
+	public static void draw(long processId, Graphics g, int x, int y, int w, int h) {
+		g.setColor(getColor(processId));
+		g.fillRect(x, y, w, h);
+		g.setColor(Color.black);
+		g.drawRect(x, y, w, h);
+		g.setFont(font);
+		FontMetrics fm = g.getFontMetrics(font);
+		g.drawString("" + processId, x + w / 2 - fm.stringWidth("" + processId)
+				/ 2, y + h / 2 + fm.getHeight() / 2);
+	}
+}
@@ -0,0 +1,114 @@
+package simulator.gui;
+
+import javax.swing.*;
+import java.awt.*;
+
+import simulator.Constants;
+import simulator.Process;
+import simulator.Queue;
+
+/**
+ * Graphical component showing a queue in a queuing network. The panel
+ * listens to the queue, so that updates to the queue will be automatically
+ * displayed in the GUI.
+ */
+public class QueuePanel extends JPanel implements Constants {
+	private static final long serialVersionUID = 1L;
+
+	/** The queue being shown */
+	private Queue queue;
+	/** The maximum number of elements of the queue that will be visible in the GUI */
+	private int maxVisibleLength;
+	/** The direction in which the queue is drawn, either EAST or WEST */
+	private int direction;
+	/** The ids of the processes shown instead of the queue, when viewing a recorded run */
+	private long[] recordedContent;
+	/** The font used by all queues */
+	private static Font font = new Font("Arial", Font.PLAIN, 12);
+
+	/**
+	 * Creates a new panel showing the given queue.
+	 * @param queue				The queue to be shown.
+	 * @param maxVisibleLength	The maximum number of elements of the queue that will be visible in the GUI.
+	 * @param direction			The direction in which the queue will be drawn, either EAST or WEST.
+	 */
+	public QueuePanel(Queue queue, int maxVisibleLength, int direction) {
+		this.queue = queue;
+		this.maxVisibleLength = maxVisibleLength;
+		this.direction = direction;
+		setBackground(Color.white);
+		queue.setChangeListener(new Runnable() {
+			public void run() {
+				repaint();
+			}
+		});
+	}
+
+	/**
+	 * Shows the processes of a recorded run instead of the content of the queue.
+	 * @param processIds	The ids of the processes in the queue, the first to leave first,
+	 * 						or null to show the queue again.
+	 */
+	public void setRecordedContent(long[] processIds) {
+		recordedContent = processIds;
+		repaint();
+	}
+
+	/**
+	 * Returns the id of the process at a position in the queue shown.
+	 */
+	private long getProcessId(int i) {
+		return recordedContent != null ? recordedContent[i] : ((Process)queue.get(i)).getProcessId();
+	}
+
+	/**
+	 * Paints the queue as a horizontal row of slots containing processes.
+	 * This method assumes that the elements of the queue are Process objects.
+	 * @param g	The graphics context to paint the queue in.
+	 */
+	public void paintComponent(Graphics g) {
+		super.paintComponent(g);
+		int w = getWidth()-1;
+		int h = getHeight()-1;
+		g.setFont(font);
+		FontMetrics fm = g.getFontMetrics(font);
+		int length = recordedContent != null ? recordedContent.length : queue.getQueueLength();
+		String heading = "Items in "+queue.getName()+": "+length;
+		switch(direction) {
+		case EAST:
+			g.setColor(Color.black);
+			g.drawString(heading, w/2-fm.stringWidth(heading)/2, 15);
+			for(int i = 0; i < maxVisibleLength; i++) {
+				if(i < length) {
+					ProcessPainter.draw(getProcessId(i), g, w-(i+1)*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
+				}
+				else {
+					g.setColor(Color.black);
+					g.drawRect(w-(i+1)*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
+				}
+			}
+			g.setColor(Color.red);
+			g.drawLine(0,20,w,20);
+			g.drawLine(w,20,w,h);
+			g.drawLine(0,h,w,h);
+			break;
+		case WEST:
+			g.setColor(Color.black);
+			g.drawString(heading, w/2-fm.stringWidth(heading)/2, 15);
+			for(int i = 0; i < maxVisibleLength; i++) {
+				if(i < length) {
+					ProcessPainter.draw(getProcessId(i), g, i*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
+				}
+				else {
+					g.setColor(Color.black);
+					g.drawRect(i*w/(maxVisibleLength+1), 20, w/(maxVisibleLength+1), h-20);
+				}
+			}
+			g.setColor(Color.red);
+			g.drawLine(0,20,w,20);
+			g.drawLine(0,20,0,h);
+			g.drawLine(0,h,w,h);
+			break;
+		}
+	}
+}
@@ -1,7 +1,11 @@
+package simulator.gui;
+
 import java.util.*;
 import javax.swing.*;
 import java.awt.*;
 
+import simulator.Process;
+
 /** 
  * Graphical component used to display a resource in a queuing network. The resource may
  * represent a CPU, memory, etc, and is displayed as a circle with a name. The resource
@@ -10,8 +14,8 @@ import java.awt.*;
 public class Resource extends JPanel {
 	/** The name of the resource */
 	private String name;
-	/** The process that is currently using the resource */
-	private Process activeProcess;
+	/** The id of the process that is currently using the resource, -1 if idle */
+	private long activeProcessId;
 	/** The font used by all resources */
 	private static Font font = new Font("Arial", Font.PLAIN, 18);
 
@@ -21,7 +25,7 @@ public class Resource extends JPanel {
 	 */
 	public Resource(String name) {
 		this.name = name;
-		activeProcess = null;
+		activeProcessId = -1;
 		setBackground(Color.white);
 	}
 
@@ -30,7 +34,15 @@ public class Resource extends JPanel {
 	 * @param p	The process that is currently using the resource, or null if the resource is idle.
 	 */
 	public void setActiveProcess(Process p) {
-		activeProcess = p;
+		setActiveProcessId(p != null ? p.getProcessId() : -1);
+	}
+
+	/**
+	 * Controls which process is being shown as currently using this resource.
+	 * @param processId	The id of the process that is currently using the resource, or -1 if the resource is idle.
+	 */
+	public void setActiveProcessId(long processId) {
+		activeProcessId = processId;
 		repaint();
 	}
 
@@ -48,8 +60,8 @@ public class Resource extends JPanel {
 		g.setFont(font);
 		FontMetrics fm = g.getFontMetrics(font);
 		g.drawString(name, w/2-fm.stringWidth(name)/2, h/2-10);
-		if(activeProcess != null)
-			activeProcess.draw(g, w/4, h/2, w/2, h/4);
+		if(activeProcessId >= 0)
+			ProcessPainter.draw(activeProcessId, g, w/4, h/2, w/2, h/4);
 		else
 			g.drawString("(Idle)",w/2-fm.stringWidth("(Idle)")/2, 5*h/8+fm.getHeight()/2);
 	}
@@ -0,0 +1,387 @@
+package simulator.gui;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.io.*;
+import java.util.Arrays;
+import javax.swing.*;
+import javax.swing.event.*;
+
+import simulator.Constants;
+import simulator.Gui;
+import simulator.LiveStatistics;
+import simulator.Process;
+import simulator.Queue;
+import simulator.RunRecording;
+import simulator.Simulator;
+import simulator.Statistics;
+
+/**
+ * This class provides a GUI displaying the queueing network used
+ * to simulate our system.
+ */
+public class SimulationGui extends JFrame implements Constants, ActionListener, ChangeListener, Runnable, Gui
+{
+	/** The number of positions of the time slider of a recorded run */
+	private static final int SCRUB_STEPS = 10000;
+
+	/** Queues of the simulated system */
+	private Queue memoryQueue, cpuQueue, ioQueue;
+	/** Queue components shown in the GUI */
+	private QueuePanel memoryQueuePanel, cpuQueuePanel, ioQueuePanel;
+	/** Resources components shown in the GUI */
+	private Resource memory, cpu, io;
+	/** Panel containing the background picture */
+	private PicturePanel backgroundPanel;
+	/** Button used to start and rush the simulation */
+	private JButton startButton;
+	/** The background picture */
+	private Image background;
+	/** Slider controlling the speed of the simulation */
+	private JSlider simulationSpeedSlider;
+	/** Label showing how much simulated time has elapsed */
+	private JLabel timeElapsedLabel;
+	/** The scheduling simulator */
+	private Simulator simulator;
+	/** How much simulated time has elapsed */
+	private long timeElapsed;
+	/** Whether or not the simulation has been started */
+	private boolean running = false;
+	/** Whether or not the simulation is being slowed down to be observable */
+	private boolean sleep = true;
+	/** Whether the run is recorded at full speed and then viewed with the slider */
+	private boolean recorded;
+	/** Memory size, max CPU time, avg I/O time, simulation length and avg arrival interval */
+	private long[] params;
+	/** The recorded run, null until it has been recorded */
+	private RunRecording recording;
+
+	/**
+	 * Constructs and shows a new GUI.
+	 * @param memorySize			The size of the memory unit.
+	 * @param maxCpuTime			The maximum time quant used by the Round Robin algorithm.
+	 * @param avgIoTime				The average duration of I/O operations.
+	 * @param simulationLength		The length of time to simulate.
+	 * @param avgArrivalInterval	The average time between new process arrivals.
+	 */
+	public SimulationGui(long memorySize, long maxCpuTime, long avgIoTime, long simulationLength, long avgArrivalInterval) {
+		this(memorySize, maxCpuTime, avgIoTime, simulationLength, avgArrivalInterval, false);
+	}
+
+	/**
+	 * Constructs and shows a new GUI, for a live run or a recorded one.
+	 * A recorded run is simulated at full speed without showing it, after
+	 * which the slider moves to any time of the run.
+	 * @param memorySize			The size of the memory unit.
+	 * @param maxCpuTime			The maximum time quant used by the Round Robin algorithm.
+	 * @param avgIoTime				The average duration of I/O operations.
+	 * @param simulationLength		The length of time to simulate.
+	 * @param avgArrivalInterval	The average time between new process arrivals.
+	 * @param recorded				Whether to record the run and view it with the slider.
+	 */
+	public SimulationGui(long memorySize, long maxCpuTime, long avgIoTime, long simulationLength, long avgArrivalInterval,
+			boolean recorded) {
+		super(recorded ? "Process scheduling simulator (recorded run)" : "Process scheduling simulator");
+		this.recorded = recorded;
+		params = new long[] { memorySize, maxCpuTime, avgIoTime, simulationLength, avgArrivalInterval };
+		memoryQueue = new Queue("memory queue");
+		cpuQueue = new Queue("CPU queue");
+		ioQueue = new Queue("I/O queue");
+		memoryQueuePanel = new QueuePanel(memoryQueue, 10, EAST);
+		cpuQueuePanel = new QueuePanel(cpuQueue, 10, WEST);
+		ioQueuePanel = new QueuePanel(ioQueue, 10, EAST);
+		timeElapsed = 0;
+		if(!recorded) {
+			simulator = new Simulator(memoryQueue, cpuQueue, ioQueue, memorySize, maxCpuTime, avgIoTime,
+				simulationLength, avgArrivalInterval, this);
+		}
+		placeComponents();
+		setSize(500,500);
+		setResizable(false);
+		setVisible(true);
+		setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+	}
+
+	/**
+	 * Creates an places the components used by the GUI.
+	 */
+	private void placeComponents() {
+		memory = new Resource("Memory");
+		cpu = new Resource("CPU");
+		io = new Resource("I/O");
+		loadImages();
+		
+		backgroundPanel = new PicturePanel(background);
+		getContentPane().setLayout(null);
+		getContentPane().add(backgroundPanel);
+		backgroundPanel.setBounds(0,0,494,374);
+		backgroundPanel.setLayout(null);
+		backgroundPanel.add(memoryQueuePanel);
+		backgroundPanel.add(cpuQueuePanel);
+		backgroundPanel.add(ioQueuePanel);
+		backgroundPanel.add(memory);
+		backgroundPanel.add(cpu);
+		backgroundPanel.add(io);
+		memoryQueuePanel.setBounds(110,20,200,50);
+		memory.setBounds(310,10,90,90);
+		cpuQueuePanel.setBounds(200,120,200,50);
+		cpu.setBounds(110,110,90,90);
+		ioQueuePanel.setBounds(110,220,200,50);
+		io.setBounds(310,210,90,90);
+
+		JPanel lowerPanel = new JPanel();
+		lowerPanel.setLayout(null);
+		getContentPane().add(lowerPanel);
+		lowerPanel.setBounds(0,374,494,100);
+		if(recorded) {
+			simulationSpeedSlider = new JSlider(0, SCRUB_STEPS, 0);
+			simulationSpeedSlider.setEnabled(false);
+			simulationSpeedSlider.addChangeListener(this);
+		}
+		else {
+			simulationSpeedSlider = new JSlider(0, 10000, 8000);
+		}
+		lowerPanel.add(simulationSpeedSlider);
+		if(recorded)
+			addSliderLabels(lowerPanel,10,10,474,20,"0 ms",params[3]+" ms","Simulated time");
+		else
+			addSliderLabels(lowerPanel,10,10,474,20,"Slow","Fast","Simulation speed");
+		simulationSpeedSlider.setBounds(10,30,474,20);
+		timeElapsedLabel = new JLabel("Simulated time elapsed: "+timeElapsed+" ms.");
+		lowerPanel.add(timeElapsedLabel);
+		timeElapsedLabel.setBounds(10,60,300,20);
+		startButton = new JButton(recorded ? "Record simulation" : "Start simulation");
+		lowerPanel.add(startButton);
+		startButton.setBounds(320,60,154,20);
+		startButton.addActionListener(this);
+		
+		//startButton.doClick(); // added by dagga
+	}
+
+	/**
+	 * Method running as a separate thread when the "Start simulation"
+	 * button is pressed. Starts the main simulation loop.
+	 */
+	public void run() {
+		running = true;
+		if(recorded) {
+			final RunRecording result = RunRecording.record(params[0], params[1], params[2], params[3], params[4]);
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					recording = result;
+					startButton.setText(result.getEventsProcessed()+" events recorded");
+					simulationSpeedSlider.setEnabled(true);
+					showRecorded(0);
+				}
+			});
+		}
+		else {
+			simulator.simulate();
+		}
+	}
+
+	/**
+	 * Listener method called when a button has been clicked.
+	 * @ae	The action event.
+	 */
+	public void actionPerformed(ActionEvent ae) {
+		if(recorded) {
+			if(!running) {
+				startButton.setText("Recording...");
+				startButton.setEnabled(false);
+				new Thread(this).start();
+			}
+		}
+		else if(!running) {
+			startButton.setText("Complete simulation");
+			 // The simulation must be run in a separate thread,
+			// we can't "hijack" the GUI's event handling thread.
+			Thread t = new Thread(this);
+			t.start();
+		}
+		else {
+			sleep = false;
+		}
+	}
+
+	/**
+	 * Listener method called when the slider has been moved. With a recorded
+	 * run, shows the run at the time chosen.
+	 * @param ce	The change event.
+	 */
+	public void stateChanged(ChangeEvent ce) {
+		if(recording != null) {
+			showRecorded(recording.getEndTime()*simulationSpeedSlider.getValue()/SCRUB_STEPS);
+		}
+	}
+
+	/**
+	 * Shows the queues and resources of the recorded run at a given time.
+	 * @param time	The simulated time.
+	 */
+	private void showRecorded(long time) {
+		RunRecording.Snapshot snapshot = recording.seek(time);
+		memoryQueuePanel.setRecordedContent(snapshot.getQueue(RunRecording.MEMORY_QUEUE));
+		cpuQueuePanel.setRecordedContent(snapshot.getQueue(RunRecording.CPU_QUEUE));
+		ioQueuePanel.setRecordedContent(snapshot.getQueue(RunRecording.IO_QUEUE));
+		cpu.setActiveProcessId(snapshot.getCpuProcess());
+		io.setActiveProcessId(snapshot.getIoProcess());
+		timeElapsedLabel.setText("Time: "+time+" - Free RAM: "+snapshot.getFreeMemory());
+	}
+
+	/**
+	 * Creates, adds and positions labels above a slider.
+	 * @param p			The panel to add the labels to.
+	 * @param x			The x position of the leftmost label.
+	 * @param y			The y position of the topmost label.
+	 * @param w			The width from leftmost label to rightmost pixel of the rightmost label
+	 * @param h			The height of the labels.
+	 * @param leftText	The text to be displayed in the left label.
+	 * @param rightText	The text to be displayed in the right label.
+	 * @param text		The text to be displayed in the central label.
+	 */
+	private void addSliderLabels(JPanel p, int x, int y, int w, int h, String leftText, String rightText, String text) {
+		JLabel left, middle, right;
+		left = new JLabel(leftText);
+		left.setHorizontalAlignment(JLabel.LEFT);
+		left.setOpaque(false);
+		p.add(left);
+		left.setBounds(x,y,w,h);
+		middle = new JLabel(text);
+		middle.setHorizontalAlignment(JLabel.CENTER);
+		middle.setOpaque(false);
+		p.add(middle);
+		middle.setBounds(x,y,w,h);
+		right = new JLabel(rightText);
+		right.setHorizontalAlignment(JLabel.RIGHT);
+		right.setOpaque(false);
+		p.add(right);
+		right.setBounds(x,y,w,h);
+	}
+
+	/**
+	 * Controls which process is being shown as the process active in the CPU.
+	 * @param p		The process that is currently active, or null if the CPU is idle.
+	 */
+	public void setCpuActive(Process p) {
+		cpu.setActiveProcess(p);
+	}
+
+	/**
+	 * Controls which process is being shown as the process active in the I/O device.
+	 * @param p		The process that is currently active, or null if the I/O device is idle.
+	 */
+	public void setIoActive(Process p) {
+		io.setActiveProcess(p);
+	}
+
+	/**
+	 * Lets the GUI know that a discrete amount of time has passed.
+	 * @param time	The (simulated) time that has passed since the last call to this method.
+	 * @param freeMemory Amount of free memory
+	 */
+	public void timePassed(long time, long freeMemory) {
+		timeElapsed += time;
+		timeElapsedLabel.setText("Time: "+timeElapsed+" - Free RAM: "+freeMemory+" - "+Statistics.getCpuUtilization());
+		timeElapsedLabel.repaint();
+		try	{
+			if(sleep && isShowing()) {
+				Thread.sleep((10000-simulationSpeedSlider.getValue())*time/3000);
+			}
+		} catch (InterruptedException ie) {}
+	}
+
+	/**
+	 * Loads an image from a file.
+	 * @param tk		The toolkit to be used to load the image.
+	 * @param file		The name of the file containing the image.
+	 * @param tracker	The media tracker tracking the progress of the load.
+	 * @return			The image that was loaded, as an Image object.
+	 */
+	private Image loadImage(Toolkit tk, String file, MediaTracker tracker) {
+		Image result = tk.createImage(file);
+		tracker.addImage(result, 0);
+		return result;
+	}
+
+	/**
+	 * Loads all images to be used by the GUI, and waits for them to
+	 * be fully loaded before returning.
+	 */
+	private void loadImages() {
+		MediaTracker tracker = new MediaTracker(this);
+		Toolkit tk = Toolkit.getDefaultToolkit();
+		background = loadImage(tk, "images/background.gif", tracker);
+		try {
+			tracker.waitForID(0);
+	    } catch (InterruptedException ie) {}
+	}
+
+	/**
+	 * The startup method. Reads relevant parameters from the standard input,
+	 * and starts up the GUI. The GUI will then start the simulation when the
+	 * user clicks the "Start simulation" button. Batch runs without GUI are
+	 * started with Simulator.main instead.
+	 * 
+	 * @param args Parameters from the command line: -record to record the run
+	 *            at full speed and then view it at any time with the slider.
+	 */
+	public static void main(String args[]) {
+		LiveStatistics.startFromProperties();
+		boolean recorded = Arrays.asList(args).contains("-record");
+
+		if (!TESTING_ENABLED) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+			System.out.println("Please input system parameters: ");
+
+			System.out.print("Memory size (KB): ");
+			long memorySize = readLong(reader);
+			while (memorySize < 400) {
+				System.out
+						.println("Memory size must be at least 400 KB. Specify memory size (KB): ");
+				memorySize = readLong(reader);
+			}
+
+			System.out
+					.print("Maximum uninterrupted cpu time for a process (ms): ");
+			long maxCpuTime = readLong(reader);
+
+			System.out.print("Average I/O operation time (ms): ");
+			long avgIoTime = readLong(reader);
+
+			System.out.print("Simulation length (ms): ");
+			long simulationLength = readLong(reader);
+			while (simulationLength < 1) {
+				System.out
+						.println("Simulation length must be at least 1 ms. Specify simulation length (ms): ");
+				simulationLength = readLong(reader);
+			}
+
+			System.out.print("Average time between process arrivals (ms): ");
+			long avgArrivalInterval = readLong(reader);
+
+			SimulationGui gui = new SimulationGui(memorySize, maxCpuTime,
+					avgIoTime, simulationLength, avgArrivalInterval, recorded);
+		} else {
+			SimulationGui gui = new SimulationGui(TESTING_MEMORY_SIZSE,
+					TESTING_CPU_TIME, TESTING_IO_TIME,
+					TESTING_SIMULATION_LENGTH, TESTING_AVG_ARRIVAL_INTERVAL, recorded);
+		}
+	}
+
+	/**
+	 * Reads a number from the an input reader.
+	 * 
+	 * @param reader The input reader from which to read a number.
+	 * @return The number that was inputed.
+	 */
+	public static long readLong(BufferedReader reader) {
+		try {
+			return Long.parseLong(reader.readLine());
+		} catch (IOException ioe) {
+			return 100;
+		} catch (NumberFormatException nfe) {
+			return 0;
+		}
+	}
+}
\ No newline at end of file
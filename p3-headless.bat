@@ -0,0 +1,4 @@
+@echo off
+rem Runs one simulation without GUI. Arguments: memory size, max CPU time,
+rem avg I/O time, simulation length and avg arrival interval (all optional).
+java -XX:SharedArchiveFile=build\simulator-core.jsa -XX:TieredStopAtLevel=1 -jar build\simulator-core.jar %*
@@ -0,0 +1,3 @@
+call build.bat
+java -jar build\simulator-gui.jar
+pause
\ No newline at end of file
@@ -1,3 +0,0 @@
-javac *.java
-java Simulator
-pause
\ No newline at end of file